@@ -0,0 +1,181 @@
+package Business;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * The result of grouping the participants by a GroupBy attribute.
+ * For every group it holds the number of participants, how many of them have a ticket,
+ * and the sum of the drinks of their tickets. The groups are sorted by key, and their measures
+ * are kept in a single flat array, so even a hundred thousand tables cost two arrays.
+ */
+public class Aggregation {
+    static final int PARTICIPANTS = 0;
+    static final int TICKETS = 1;
+    static final int DRINKS = 2;
+    static final int MEASURES = 3;
+
+    private final GroupBy groupBy;
+    private final Object[] keys;
+    private final long[] values;
+
+    /**
+     * Builds an aggregation from the measures computed for each group.
+     *
+     * @param groupBy the attribute the participants were grouped by
+     * @param keys the keys of the groups, sorted, Integer for TABLE and HOUR and String otherwise
+     * @param values the measures of the groups, MEASURES per group, indexed by PARTICIPANTS, TICKETS and DRINKS
+     */
+    Aggregation(GroupBy groupBy, Object[] keys, long[] values) {
+        this.groupBy = groupBy;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Merges aggregations computed over disjoint sets of participants, adding the measures of the groups
+     * with the same key.
+     *
+     * @param groupBy the attribute every aggregation was grouped by
+     * @param parts the aggregations to merge
+     * @return the aggregation of all the participants
+     */
+    static Aggregation merge(GroupBy groupBy, List<Aggregation> parts) {
+        TreeMap<Object, long[]> groups = new TreeMap<>();
+        for (Aggregation part : parts) {
+            for (int group = 0; group < part.keys.length; group++) {
+                long[] measures = groups.computeIfAbsent(part.keys[group], key -> new long[MEASURES]);
+                for (int i = 0; i < MEASURES; i++) {
+                    measures[i] += part.values[group * MEASURES + i];
+                }
+            }
+        }
+
+        Object[] keys = groups.keySet().toArray();
+        long[] values = new long[keys.length * MEASURES];
+        int group = 0;
+        for (long[] measures : groups.values()) {
+            System.arraycopy(measures, 0, values, group++ * MEASURES, MEASURES);
+        }
+        return new Aggregation(groupBy, keys, values);
+    }
+
+    /**
+     * Retrieves the attribute the participants were grouped by.
+     *
+     * @return the GroupBy attribute
+     */
+    public GroupBy getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * Retrieves the keys of the groups in order: table or hour numbers, or field or nationality names.
+     *
+     * @return an unmodifiable list of the keys
+     */
+    public List<Object> getKeys() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /**
+     * Retrieves the number of participants of a group.
+     *
+     * @param key the key of the group
+     * @return the number of participants, 0 if there is no such group
+     */
+    public long getParticipants(Object key) {
+        return measure(key, PARTICIPANTS);
+    }
+
+    /**
+     * Retrieves the number of participants with a ticket in a group.
+     *
+     * @param key the key of the group
+     * @return the number of tickets, 0 if there is no such group
+     */
+    public long getTickets(Object key) {
+        return measure(key, TICKETS);
+    }
+
+    /**
+     * Retrieves the drinks of the tickets of a group.
+     *
+     * @param key the key of the group
+     * @return the sum of the drinks, 0 if there is no such group
+     */
+    public long getDrinks(Object key) {
+        return measure(key, DRINKS);
+    }
+
+    /**
+     * Retrieves one measure of a group, found by binary search over the sorted keys.
+     *
+     * @param key the key of the group
+     * @param measure the index of the measure
+     * @return the value of the measure, 0 if there is no such group
+     */
+    private long measure(Object key, int measure) {
+        int group;
+        try {
+            group = Arrays.binarySearch(keys, key);
+        } catch (ClassCastException e) {
+            return 0;
+        }
+        return group < 0 ? 0 : values[group * MEASURES + measure];
+    }
+
+    /**
+     * Writes one line per group followed by the totals.
+     *
+     * @param out where the aggregation is written
+     * @throws IOException if the aggregation cannot be written
+     */
+    public void writeTo(Appendable out) throws IOException {
+        long[] totals = new long[MEASURES];
+
+        out.append("\nParticipants by ").append(groupBy.name().toLowerCase()).append(":\n");
+        for (int group = 0; group < keys.length; group++) {
+            writeLine(out, String.valueOf(keys[group]), values, group * MEASURES);
+            for (int i = 0; i < MEASURES; i++) {
+                totals[i] += values[group * MEASURES + i];
+            }
+        }
+        writeLine(out, "Total", totals, 0);
+    }
+
+    /**
+     * Writes the measures of one group.
+     *
+     * @param out where the line is written
+     * @param label the label of the line
+     * @param values the measures
+     * @param offset the position of the group's measures
+     * @throws IOException if the line cannot be written
+     */
+    private static void writeLine(Appendable out, String label, long[] values, int offset) throws IOException {
+        out.append('\t').append(label).append(": ")
+                .append(String.valueOf(values[offset + PARTICIPANTS])).append(" participants, ")
+                .append(String.valueOf(values[offset + TICKETS])).append(" tickets, ")
+                .append(String.valueOf(values[offset + DRINKS])).append(" drinks\n");
+    }
+
+    /**
+     * Generates the text of the aggregation, as written by writeTo.
+     *
+     * @return the groups and totals, one per line
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        try {
+            writeTo(text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,208 @@
+package Business;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fork/join task that computes the measures of every group over a range of rows in a single pass.
+ * Ranges larger than the leaf size are split in halves, and the partial groups of both halves are merged.
+ * The leaf size is chosen so that there are a few leaves per worker: each leaf allocates its own groups,
+ * which for a hundred thousand tables is a few megabytes.
+ * <pre>
+ * Table and hour numbers are small and dense, so their groups are accumulated in a flat long array
+ * addressed by key, without boxing; keys outside that range, and field or nationality names, go to a map.
+ * </pre>
+ */
+class AggregationTask extends RecursiveTask<AggregationTask.Groups> {
+    private static final long serialVersionUID = 1L;
+    private static final int MIN_LEAF_ROWS = 1 << 15;
+    private static final int LEAVES_PER_WORKER = 4;
+    private static final int MAX_DENSE_KEY = 1 << 20;
+
+    /**
+     * The measures of the groups found in a range of rows.
+     */
+    static final class Groups {
+        private long[] dense = new long[0];
+        private final HashMap<Object, long[]> sparse = new HashMap<>();
+
+        /**
+         * Counts a participant in the group of a numeric key.
+         *
+         * @param key the table or hour number
+         * @param hasTicket whether the participant has a ticket
+         * @param drinks the drinks of the ticket
+         */
+        private void add(int key, boolean hasTicket, int drinks) {
+            if (key < 0 || key >= MAX_DENSE_KEY) {
+                add(sparse.computeIfAbsent(key, k -> new long[Aggregation.MEASURES]), 0, hasTicket, drinks);
+                return;
+            }
+
+            int offset = key * Aggregation.MEASURES;
+            if (offset >= dense.length) {
+                dense = Arrays.copyOf(dense, Math.max(offset + Aggregation.MEASURES, dense.length * 2));
+            }
+            add(dense, offset, hasTicket, drinks);
+        }
+
+        /**
+         * Counts a participant in the group of a key.
+         *
+         * @param key the key of the group
+         * @param hasTicket whether the participant has a ticket
+         * @param drinks the drinks of the ticket
+         */
+        private void add(Object key, boolean hasTicket, int drinks) {
+            add(sparse.computeIfAbsent(key, k -> new long[Aggregation.MEASURES]), 0, hasTicket, drinks);
+        }
+
+        private static void add(long[] values, int offset, boolean hasTicket, int drinks) {
+            values[offset + Aggregation.PARTICIPANTS]++;
+            if (hasTicket) {
+                values[offset + Aggregation.TICKETS]++;
+                values[offset + Aggregation.DRINKS] += drinks;
+            }
+        }
+
+        /**
+         * Adds the measures of other groups to these ones.
+         *
+         * @param other the groups of another range
+         */
+        private void merge(Groups other) {
+            if (other.dense.length > dense.length) {
+                long[] swap = dense;
+                dense = other.dense;
+                other.dense = swap;
+            }
+            for (int i = 0; i < other.dense.length; i++) {
+                dense[i] += other.dense[i];
+            }
+            for (Map.Entry<Object, long[]> group : other.sparse.entrySet()) {
+                long[] values = sparse.computeIfAbsent(group.getKey(), key -> new long[Aggregation.MEASURES]);
+                for (int i = 0; i < Aggregation.MEASURES; i++) {
+                    values[i] += group.getValue()[i];
+                }
+            }
+        }
+
+        /**
+         * Collects every non-empty group, sorted by key.
+         *
+         * @param groupBy the attribute the groups were computed for
+         * @return the aggregation of the groups
+         */
+        Aggregation toAggregation(GroupBy groupBy) {
+            int denseGroups = 0;
+            for (int offset = 0; offset < dense.length; offset += Aggregation.MEASURES) {
+                if (dense[offset + Aggregation.PARTICIPANTS] > 0) {
+                    denseGroups++;
+                }
+            }
+
+            Object[] sparseKeys = sparse.keySet().toArray();
+            Arrays.sort(sparseKeys);
+            Object[] keys = new Object[denseGroups + sparseKeys.length];
+            long[] values = new long[keys.length * Aggregation.MEASURES];
+            int group = 0;
+
+            // negative numeric keys sort before the dense ones, and keys past MAX_DENSE_KEY after them
+            int sparseIndex = 0;
+            while (sparseIndex < sparseKeys.length && sparseKeys[sparseIndex] instanceof Integer key && key < 0) {
+                group = put(keys, values, group, key, sparse.get(key), 0);
+                sparseIndex++;
+            }
+            for (int offset = 0; offset < dense.length; offset += Aggregation.MEASURES) {
+                if (dense[offset + Aggregation.PARTICIPANTS] > 0) {
+                    group = put(keys, values, group, offset / Aggregation.MEASURES, dense, offset);
+                }
+            }
+            for (; sparseIndex < sparseKeys.length; sparseIndex++) {
+                group = put(keys, values, group, sparseKeys[sparseIndex], sparse.get(sparseKeys[sparseIndex]), 0);
+            }
+            return new Aggregation(groupBy, keys, values);
+        }
+
+        private static int put(Object[] keys, long[] values, int group, Object key, long[] source, int offset) {
+            keys[group] = key;
+            System.arraycopy(source, offset, values, group * Aggregation.MEASURES, Aggregation.MEASURES);
+            return group + 1;
+        }
+    }
+
+    private final ParticipantStore store;
+    private final GroupBy groupBy;
+    private final int from;
+    private final int to;
+    private final int leafRows;
+
+    /**
+     * Initializes a task over a range of rows, sized for the given number of workers.
+     *
+     * @param store the store of the participants
+     * @param groupBy the attribute to group by
+     * @param from the first row, inclusive
+     * @param to the last row, exclusive
+     * @param workers the parallelism of the pool that runs the task
+     */
+    AggregationTask(ParticipantStore store, GroupBy groupBy, int from, int to, int workers) {
+        this(store, groupBy, from, to, (long) to - from, workers);
+    }
+
+    private AggregationTask(ParticipantStore store, GroupBy groupBy, int from, int to, long rows, int workers) {
+        this.store = store;
+        this.groupBy = groupBy;
+        this.from = from;
+        this.to = to;
+        this.leafRows = (int) Math.max(MIN_LEAF_ROWS, rows / ((long) workers * LEAVES_PER_WORKER) + 1);
+    }
+
+    private AggregationTask(AggregationTask parent, int from, int to) {
+        this.store = parent.store;
+        this.groupBy = parent.groupBy;
+        this.from = from;
+        this.to = to;
+        this.leafRows = parent.leafRows;
+    }
+
+    @Override
+    protected Groups compute() {
+        if (to - from <= leafRows) {
+            return computeSequentially();
+        }
+
+        int middle = (from + to) >>> 1;
+        AggregationTask left = new AggregationTask(this, from, middle);
+        left.fork();
+        Groups groups = new AggregationTask(this, middle, to).compute();
+        groups.merge(left.join());
+        return groups;
+    }
+
+    /**
+     * Computes the groups of the whole range on the current thread.
+     *
+     * @return the measures of each group found in the range
+     */
+    Groups computeSequentially() {
+        Groups groups = new Groups();
+
+        if (groupBy.isNumeric()) {
+            for (int row = from; row < to; row++) {
+                int key = groupBy.numericKeyOf(store, row);
+                if (key != GroupBy.NO_KEY) {
+                    groups.add(key, true, store.getDrinks(row));
+                }
+            }
+        } else {
+            for (int row = from; row < to; row++) {
+                boolean hasTicket = store.hasTicket(row);
+                groups.add(groupBy.keyOf(store, row), hasTicket, hasTicket ? store.getDrinks(row) : 0);
+            }
+        }
+        return groups;
+    }
+}
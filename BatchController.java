@@ -0,0 +1,71 @@
+package Presentation;
+
+import Business.ParticipantManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * The BatchController class replays a script of commands against the participant management system
+ * without any console prompt, for example to import the bar's POS logs or to load-test the system.
+ * <pre>
+ * The script has one CommandExecutor command per line. Blank lines and lines starting with # are ignored,
+ * and the exit command stops the replay. Every result is written to a single buffered output,
+ * followed by a summary with the number of commands and the throughput.
+ * </pre>
+ */
+public class BatchController {
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
+    private final CommandExecutor commandExecutor;
+
+    /**
+     * Initializes a new BatchController over the given participant manager.
+     *
+     * @param participantManager the manager the commands operate on
+     */
+    public BatchController(ParticipantManager participantManager) {
+        this.commandExecutor = new CommandExecutor(participantManager);
+    }
+
+    /**
+     * Executes every command of the script and writes the results.
+     *
+     * @param commands the script of commands
+     * @param output where the results are written; it is flushed but not closed
+     * @return the number of commands executed
+     * @throws IOException if the script cannot be read or the results cannot be written
+     */
+    public int run(Reader commands, Writer output) throws IOException {
+        BufferedReader in = new BufferedReader(commands, OUTPUT_BUFFER_SIZE);
+        BufferedWriter out = new BufferedWriter(output, OUTPUT_BUFFER_SIZE);
+        int executed = 0;
+        int invalid = 0;
+        long start = System.nanoTime();
+        String line;
+
+        while ((line = in.readLine()) != null) {
+            String command = line.strip();
+            if (command.isEmpty() || command.startsWith("#")) {
+                continue;
+            }
+
+            Option option = commandExecutor.execute(command, out);
+            executed++;
+            if (option == Option.ELSE) {
+                invalid++;
+            } else if (option == Option.EXIT) {
+                break;
+            }
+        }
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        out.write(String.format("%d commands (%d invalid) in %.1f ms, %.0f commands/s%n",
+                executed, invalid, elapsedNanos / 1e6, executed * 1e9 / elapsedNanos));
+        out.flush();
+        return executed;
+    }
+}
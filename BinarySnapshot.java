@@ -0,0 +1,253 @@
+package Persistence;
+
+import Business.Participant;
+import Business.Ticket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Compact binary snapshot of the participants and their tickets.
+ * <pre>
+ * Layout, all integers big-endian:
+ *   header   magic, version, participant count, string count, string table offset (long)
+ *   records  one fixed-width record of RECORD_SIZE bytes per participant:
+ *            ticketId, grade, name, birth, nationality and field string references,
+ *            packed ticket (has ticket flag, 7-bit hour, 24-bit table) and drinks
+ *   strings  every distinct string once, as [length][UTF-8 bytes]
+ * A string reference is the index of the string in the table, or -1 for null.
+ * Repeated nationalities and fields are therefore stored only once.
+ * </pre>
+ */
+public class BinarySnapshot {
+    static final int MAGIC = 0x53464553;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    static final int RECORD_SIZE = 32;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    static final int HAS_TICKET = 1 << 31;
+    static final int MAX_HOUR = Ticket.MAX_HOUR;
+    static final int MAX_TABLE = Ticket.MAX_TABLE;
+
+    /**
+     * Reads every participant from a binary snapshot through a memory-mapped view of the file.
+     *
+     * @param path the path of the binary snapshot
+     * @return the participants stored in the snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static ArrayList<Participant> read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a binary snapshot");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException(path + " has the unsupported snapshot version " + buffer.getInt(4));
+            }
+            int count = buffer.getInt(8);
+            int stringCount = buffer.getInt(12);
+            long stringsOffset = buffer.getLong(16);
+            if (stringsOffset != HEADER_SIZE + (long) count * RECORD_SIZE || stringsOffset > buffer.limit()) {
+                throw new IOException(path + " is truncated");
+            }
+
+            String[] strings = readStrings(buffer, (int) stringsOffset, stringCount);
+            ArrayList<Participant> participants = new ArrayList<>(count);
+
+            int offset = HEADER_SIZE;
+            for (int i = 0; i < count; i++, offset += RECORD_SIZE) {
+                int packedTicket = buffer.getInt(offset + 24);
+                boolean haveTicket = (packedTicket & HAS_TICKET) != 0;
+
+                participants.add(new Participant(string(strings, buffer.getInt(offset + 8)), string(strings, buffer.getInt(offset + 12)),
+                        string(strings, buffer.getInt(offset + 16)), buffer.getInt(offset), buffer.getInt(offset + 4),
+                        string(strings, buffer.getInt(offset + 20)), haveTicket,
+                        (packedTicket >>> 24) & MAX_HOUR, packedTicket & MAX_TABLE, buffer.getInt(offset + 28)));
+            }
+
+            return participants;
+        }
+    }
+
+    /**
+     * Decodes the string table.
+     *
+     * @param buffer the mapped snapshot
+     * @param offset the offset of the string table
+     * @param stringCount the number of strings in the table
+     * @return the strings, indexed by reference
+     * @throws IOException if the table is truncated
+     */
+    private static String[] readStrings(ByteBuffer buffer, int offset, int stringCount) throws IOException {
+        String[] strings = new String[stringCount];
+        byte[] bytes = new byte[256];
+
+        for (int i = 0; i < stringCount; i++) {
+            if (offset + 4 > buffer.limit()) {
+                throw new IOException("The string table of the snapshot is truncated");
+            }
+            int length = buffer.getInt(offset);
+            offset += 4;
+            if (length < 0 || offset + length > buffer.limit()) {
+                throw new IOException("The string table of the snapshot is truncated");
+            }
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(offset, bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            offset += length;
+        }
+        return strings;
+    }
+
+    /**
+     * Resolves a string reference.
+     *
+     * @param strings the string table
+     * @param reference the reference, or -1 for null
+     * @return the referenced string
+     * @throws IOException if the reference is out of the table
+     */
+    private static String string(String[] strings, int reference) throws IOException {
+        if (reference == -1) {
+            return null;
+        }
+        if (reference < 0 || reference >= strings.length) {
+            throw new IOException("The snapshot references the missing string " + reference);
+        }
+        return strings[reference];
+    }
+
+    /**
+     * Writes the participants to a binary snapshot.
+     * The file is written to a temporary file first and then renamed, so a failed write keeps the previous snapshot.
+     * A snapshot that is mapped must not be replaced, which fails on some platforms: CustomerDao writes every
+     * snapshot of a directory under the name of a new generation instead.
+     *
+     * @param participants the participants to store
+     * @param path the path of the binary snapshot
+     * @throws IOException if the file cannot be written or a ticket does not fit in the packed format
+     */
+    public static void write(ArrayList<Participant> participants, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        HashMap<String, Integer> references = new HashMap<>();
+        ArrayList<String> strings = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long stringsOffset = HEADER_SIZE + (long) participants.size() * RECORD_SIZE;
+
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(participants.size()).putInt(0).putLong(stringsOffset);
+
+            for (Participant participant : participants) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    drain(buffer, channel);
+                }
+                buffer.putInt(participant.getTicketId())
+                        .putInt((int) participant.getGrade())
+                        .putInt(reference(participant.getName(), references, strings))
+                        .putInt(reference((String) participant.getBirth(), references, strings))
+                        .putInt(reference((String) participant.getNationality(), references, strings))
+                        .putInt(reference((String) participant.getField(), references, strings));
+
+                Ticket ticket = participant.getTicket();
+                if (ticket != null) {
+                    buffer.putInt(packTicket(participant.getTicketId(), ticket)).putInt(ticket.getDrinks());
+                } else {
+                    buffer.putInt(0).putInt(0);
+                }
+            }
+
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                if (buffer.remaining() < 4) {
+                    drain(buffer, channel);
+                }
+                buffer.putInt(bytes.length);
+                int written = 0;
+                while (written < bytes.length) {
+                    if (!buffer.hasRemaining()) {
+                        drain(buffer, channel);
+                    }
+                    int chunk = Math.min(buffer.remaining(), bytes.length - written);
+                    buffer.put(bytes, written, chunk);
+                    written += chunk;
+                }
+            }
+            drain(buffer, channel);
+
+            ByteBuffer stringCount = ByteBuffer.allocate(4).putInt(0, strings.size());
+            channel.write(stringCount, 12);
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Packs the hour and table of a ticket, together with the has ticket flag, into a single int.
+     *
+     * @param ticketId the ID of the ticket, used in the error message
+     * @param ticket the ticket to pack
+     * @return the packed ticket
+     * @throws IOException if the hour or the table is out of the packable range
+     */
+    private static int packTicket(int ticketId, Ticket ticket) throws IOException {
+        if (ticket.getHour() < 0 || ticket.getHour() > MAX_HOUR || ticket.getTable() < 0 || ticket.getTable() > MAX_TABLE) {
+            throw new IOException("The ticket " + ticketId + " cannot be stored in a binary snapshot: hour " + ticket.getHour() + ", table " + ticket.getTable());
+        }
+        return HAS_TICKET | ticket.getHour() << 24 | ticket.getTable();
+    }
+
+    /**
+     * Retrieves the reference of a string, adding it to the string table the first time it is seen.
+     *
+     * @param string the string
+     * @param references the references assigned so far
+     * @param strings the string table
+     * @return the reference of the string, or -1 for null
+     */
+    private static int reference(String string, HashMap<String, Integer> references, ArrayList<String> strings) {
+        if (string == null) {
+            return -1;
+        }
+        Integer reference = references.get(string);
+        if (reference == null) {
+            reference = strings.size();
+            references.put(string, reference);
+            strings.add(string);
+        }
+        return reference;
+    }
+
+    /**
+     * Writes the buffered bytes to the channel and clears the buffer.
+     *
+     * @param buffer the buffer to drain
+     * @param channel the channel to write to
+     * @throws IOException if an I/O error occurs while writing
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
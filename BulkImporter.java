@@ -0,0 +1,270 @@
+package Business;
+
+import Persistence.ImportReader;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Registers a large batch of participants, such as a new university cohort, from a CSV or JSON lines file.
+ * <pre>
+ * The file is streamed in batches of lines, see ImportReader. The lines of a batch are parsed and checked
+ * in parallel on the common fork/join pool: a line is rejected if it cannot be parsed, if its ticket ID is
+ * already registered, or if its field is not one of the fields of the event, unless new fields are allowed.
+ * The ticket IDs repeated within a batch are then rejected in a sequential pass, and the valid participants
+ * are added with a single ParticipantManager.addParticipants, which takes the write lock and syncs the
+ * change log once per batch. Once the whole file is read, the participants are saved through CustomerDao.
+ *
+ * The progress is reported after every batch, and every rejected line is reported with its line number,
+ * up to MAX_REPORTED_ERRORS of them.
+ * </pre>
+ */
+public class BulkImporter {
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+    private static final int MAX_REPORTED_ERRORS = 20;
+    private static final int MIN_LEAF_LINES = 256;
+
+    /**
+     * The outcome of an import.
+     */
+    public static final class ImportReport {
+        private final int read;
+        private final int imported;
+        private final long elapsedNanos;
+        private final List<String> errors;
+
+        private ImportReport(int read, int imported, long elapsedNanos, List<String> errors) {
+            this.read = read;
+            this.imported = imported;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = errors;
+        }
+
+        /**
+         * Retrieves the number of participants registered.
+         *
+         * @return the number of lines imported
+         */
+        public int getImported() {
+            return imported;
+        }
+
+        /**
+         * Retrieves the number of lines rejected.
+         *
+         * @return the number of lines read but not imported
+         */
+        public int getRejected() {
+            return read - imported;
+        }
+
+        /**
+         * Retrieves the first rejected lines, each with its line number and the reason.
+         *
+         * @return at most MAX_REPORTED_ERRORS errors
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        /**
+         * Generates a one line summary of the import.
+         *
+         * @return the summary
+         */
+        @Override
+        public String toString() {
+            long nanos = Math.max(1, elapsedNanos);
+            return String.format("%d participants imported, %d rejected, in %.1f s, %.0f rows/s",
+                    imported, getRejected(), nanos / 1e9, read * 1e9 / nanos);
+        }
+    }
+
+    /**
+     * Parses and checks a range of lines of a batch, splitting it across the pool.
+     */
+    private final class ValidationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ImportReader reader;
+        private final Set<String> knownFields;
+        private final List<String> lines;
+        private final Participant[] parsed;
+        private final String[] errors;
+        private final int from;
+        private final int to;
+        private final int leafLines;
+
+        private ValidationTask(ImportReader reader, Set<String> knownFields, List<String> lines, Participant[] parsed, String[] errors, int leafLines) {
+            this.reader = reader;
+            this.knownFields = knownFields;
+            this.lines = lines;
+            this.parsed = parsed;
+            this.errors = errors;
+            this.from = 0;
+            this.to = lines.size();
+            this.leafLines = leafLines;
+        }
+
+        private ValidationTask(ValidationTask parent, int from, int to) {
+            this.reader = parent.reader;
+            this.knownFields = parent.knownFields;
+            this.lines = parent.lines;
+            this.parsed = parent.parsed;
+            this.errors = parent.errors;
+            this.from = from;
+            this.to = to;
+            this.leafLines = parent.leafLines;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafLines) {
+                for (int i = from; i < to; i++) {
+                    validate(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ValidationTask(this, from, middle), new ValidationTask(this, middle, to));
+        }
+
+        /**
+         * Parses and checks one line, leaving either its participant or the reason it is rejected.
+         *
+         * @param i the index of the line in the batch
+         */
+        private void validate(int i) {
+            try {
+                Participant participant = reader.parse(lines.get(i));
+                String field = (String) participant.getField();
+                String rejection = ParticipantManager.rejectionOf(participant);
+                if (rejection != null) {
+                    errors[i] = rejection;
+                } else if (manager.isRegistered(participant.getTicketId())) {
+                    errors[i] = "the ticket id " + participant.getTicketId() + " already exists";
+                } else if (knownFields != null && !knownFields.contains(field)) {
+                    errors[i] = field == null ? "missing field" : "unknown field " + field;
+                } else {
+                    parsed[i] = participant;
+                }
+            } catch (ParseException e) {
+                errors[i] = "invalid JSON at position " + e.getPosition();
+            } catch (IllegalArgumentException e) {
+                errors[i] = e.getMessage();
+            }
+        }
+    }
+
+    private final ParticipantManager manager;
+    private final int batchSize;
+    private final boolean allowNewFields;
+
+    /**
+     * Initializes a new BulkImporter.
+     *
+     * @param manager the manager the participants are registered in
+     * @param batchSize the number of lines read, checked and registered at once
+     * @param allowNewFields true to accept fields that no registered participant has
+     */
+    public BulkImporter(ParticipantManager manager, int batchSize, boolean allowNewFields) {
+        this.manager = manager;
+        this.batchSize = batchSize;
+        this.allowNewFields = allowNewFields;
+    }
+
+    /**
+     * Imports every participant of a file and saves the participants.
+     *
+     * @param file the CSV or JSON lines file
+     * @param progress where the progress and the rejected lines are reported
+     * @return the outcome of the import
+     * @throws IOException if the file cannot be read or the progress cannot be written
+     * @throws IllegalArgumentException if the header of a CSV file is not valid
+     */
+    public ImportReport importFile(Path file, Appendable progress) throws IOException {
+        long start = System.nanoTime();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<String> errors = new ArrayList<>();
+        List<String> lines = new ArrayList<>(batchSize);
+        List<Long> lineNumbers = new ArrayList<>(batchSize);
+        int read = 0;
+        int imported = 0;
+
+        Set<String> knownFields = allowNewFields ? null : new HashSet<>(manager.getFields());
+        try (ImportReader reader = new ImportReader(file)) {
+            while (reader.readBatch(lines, lineNumbers, batchSize) > 0) {
+                int size = lines.size();
+                Participant[] parsed = new Participant[size];
+                String[] lineErrors = new String[size];
+
+                int leafLines = Math.max(MIN_LEAF_LINES, size / (pool.getParallelism() * 4) + 1);
+                ValidationTask task = new ValidationTask(reader, knownFields, lines, parsed, lineErrors, leafLines);
+                if (size <= leafLines || pool.getParallelism() == 1) {
+                    task.compute();
+                } else {
+                    pool.invoke(task);
+                }
+
+                Set<Integer> batchTicketIds = new HashSet<>(size * 2);
+                List<Participant> valid = new ArrayList<>(size);
+                List<Long> validLineNumbers = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    if (lineErrors[i] == null && !batchTicketIds.add(parsed[i].getTicketId())) {
+                        lineErrors[i] = "the ticket id " + parsed[i].getTicketId() + " is repeated in the file";
+                    }
+                    if (lineErrors[i] != null) {
+                        reportError(errors, progress, "Line " + lineNumbers.get(i) + ": " + lineErrors[i]);
+                    } else {
+                        valid.add(parsed[i]);
+                        validLineNumbers.add(lineNumbers.get(i));
+                    }
+                }
+
+                boolean[] added = manager.addParticipants(valid);
+                for (int i = 0; i < added.length; i++) {
+                    if (added[i]) {
+                        imported++;
+                    } else {
+                        reportError(errors, progress, "Line " + validLineNumbers.get(i) + ": the ticket id " + valid.get(i).getTicketId()
+                                + " was registered meanwhile by another station");
+                    }
+                }
+                read += size;
+                long nanos = Math.max(1, System.nanoTime() - start);
+                progress.append(String.format("%d lines read, %d imported, %.0f rows/s%n", read, imported, read * 1e9 / nanos));
+
+                lines.clear();
+                lineNumbers.clear();
+            }
+        }
+        if (read - imported > errors.size()) {
+            progress.append(String.format("%d more rejected lines were not reported%n", read - imported - errors.size()));
+        }
+
+        manager.saveParticipantsData();
+        return new ImportReport(read, imported, System.nanoTime() - start, errors);
+    }
+
+    /**
+     * Reports a rejected line, unless MAX_REPORTED_ERRORS were already reported.
+     *
+     * @param errors the errors reported so far
+     * @param progress where the error is written
+     * @param error the error
+     * @throws IOException if the error cannot be written
+     */
+    private static void reportError(List<String> errors, Appendable progress, String error) throws IOException {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+            progress.append(error).append(System.lineSeparator());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package Business;
+
+/**
+ * A change of the participants of a ParticipantManager, published on its EventStream.
+ * Every event is immutable and carries the time it happened and the ticket ID it is about.
+ */
+public sealed interface ChangeEvent {
+
+    /**
+     * Retrieves when the change happened.
+     *
+     * @return the time, in milliseconds since the epoch
+     */
+    long timeMillis();
+
+    /**
+     * Retrieves the ticket ID of the participant that changed.
+     *
+     * @return the ticket ID
+     */
+    int ticketId();
+
+    /**
+     * A participant was registered.
+     *
+     * @param timeMillis when the participant was registered
+     * @param ticketId the ticket ID of the participant
+     * @param name the name of the participant
+     * @param field the field of study or work of the participant
+     * @param haveTicket true if the participant has a ticket
+     * @param hour the hour of the ticket, 0 without a ticket
+     * @param table the table of the ticket, 0 without a ticket
+     */
+    record ParticipantAdded(long timeMillis, int ticketId, String name, String field, boolean haveTicket, int hour, int table) implements ChangeEvent {
+    }
+
+    /**
+     * A ticket was validated at the gate.
+     *
+     * @param timeMillis when the ticket was validated
+     * @param ticketId the ticket ID shown at the gate
+     * @param valid true if the ticket was valid
+     * @param table the table of the ticket, 0 if it was not valid
+     */
+    record TicketValidated(long timeMillis, int ticketId, boolean valid, int table) implements ChangeEvent {
+    }
+
+    /**
+     * Drinks were added to a ticket at the bar.
+     *
+     * @param timeMillis when the drinks were added
+     * @param ticketId the ticket ID
+     * @param table the table of the ticket
+     * @param drinks the number of drinks added
+     * @param total the number of drinks of the ticket after adding them
+     */
+    record DrinksAdded(long timeMillis, int ticketId, int table, int drinks, int total) implements ChangeEvent {
+    }
+
+    /**
+     * A participant was moved to another table.
+     *
+     * @param timeMillis when the table changed
+     * @param ticketId the ticket ID of the participant
+     * @param previousTable the table the participant left
+     * @param table the table the participant moved to
+     */
+    record TableChanged(long timeMillis, int ticketId, int previousTable, int table) implements ChangeEvent {
+    }
+}
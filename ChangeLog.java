@@ -0,0 +1,661 @@
+package Persistence;
+
+import Business.LatencyHistogram;
+import Business.Metrics;
+import Business.Participant;
+import Business.Ticket;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes made to the participants since the last snapshot.
+ * <pre>
+ * Every record is framed as [length][crc32][payload], so a record torn by a crash is detected and dropped on replay.
+ * Records are buffered in memory and written and fsynced in batches: when BATCH_SIZE records are pending,
+ * or every SYNC_INTERVAL_MS milliseconds, whichever comes first.
+ *
+ * Syncing is a group commit. Appending only takes the monitor of the log, for as long as it takes to copy the
+ * record into the pending batch. A sync takes the separate syncLock, swaps the pending batch out under the monitor,
+ * and then writes and forces it outside the monitor, so the bar and the gate never wait for the disk. A full batch
+ * only asks the sync thread to sync at once.
+ * Drink records store the resulting number of drinks instead of the increment, so replaying a record twice is harmless.
+ *
+ * A RecordListener receives every framed record as soon as it is appended, in log order, before it is synced,
+ * which is how a primary ships its changes to its replicas. replayRecord applies such a record elsewhere.
+ * </pre>
+ */
+public class ChangeLog implements Closeable {
+    private static final byte PARTICIPANT_ADDED = 1;
+    private static final byte DRINKS_CHANGED = 2;
+    private static final byte TABLE_CHANGED = 3;
+
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_STRING_BYTES = 65535;
+    private static final long SYNC_INTERVAL_MS = 200;
+    private static final LatencyHistogram SYNC_LATENCY = Metrics.histogram("dao.changelog.sync");
+    private static final LatencyHistogram REPLAY_LATENCY = Metrics.histogram("dao.changelog.replay");
+
+    /**
+     * Receives the records of the log when it is replayed.
+     */
+    public interface Replayer {
+
+        /**
+         * Applies a participant registration.
+         *
+         * @param name the name of the participant
+         * @param birth the birth date of the participant
+         * @param nationality the nationality of the participant
+         * @param ticketId the ticket ID of the participant
+         * @param grade the grade of the participant
+         * @param field the field of study or work of the participant
+         * @param haveTicket boolean flag indicating if the participant has a ticket
+         * @param hour the hour of the event specified in the ticket
+         * @param table the table number specified in the ticket
+         * @param drinks the number of drinks included with the ticket
+         */
+        void participantAdded(String name, String birth, String nationality, int ticketId, int grade, String field, boolean haveTicket, int hour, int table, int drinks);
+
+        /**
+         * Applies a change in the number of drinks of a ticket.
+         *
+         * @param ticketId the ID of the ticket
+         * @param drinks the number of drinks of the ticket after the change
+         */
+        void drinksChanged(int ticketId, int drinks);
+
+        /**
+         * Applies a change of table of a ticket.
+         *
+         * @param ticketId the ID of the ticket
+         * @param table the new table number
+         */
+        void tableChanged(int ticketId, int table);
+    }
+
+    /**
+     * Receives the records of the log as they are appended.
+     */
+    public interface RecordListener {
+
+        /**
+         * Called for every record appended to the log, in log order, while the log is locked,
+         * so it must return quickly and never block.
+         *
+         * @param record the framed record, [length][crc32][payload]
+         */
+        void recordAppended(byte[] record);
+    }
+
+    private final Path path;
+    private final Path sealedPath;
+    private final List<RecordListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object syncLock = new Object();
+    private volatile FileChannel channel;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+    private final DataOutputStream payload = new DataOutputStream(payloadBytes);
+    private final CRC32 crc = new CRC32();
+    private int pendingRecords;
+    private boolean syncRequested;
+    private final ScheduledExecutorService syncer;
+
+    /**
+     * Opens the change log, creating the file if it does not exist, and starts the periodic batch sync.
+     *
+     * @param path the path of the active log file
+     * @param sealedPath the path where the log is moved while it is being folded into the snapshot
+     * @throws IOException if the log file cannot be opened
+     */
+    public ChangeLog(Path path, Path sealedPath) throws IOException {
+        this.path = path;
+        this.sealedPath = sealedPath;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::handleSync, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends the registration of a participant.
+     *
+     * @param name the name of the participant
+     * @param birth the birth date of the participant
+     * @param nationality the nationality of the participant
+     * @param ticketId the ticket ID of the participant
+     * @param grade the grade of the participant
+     * @param field the field of study or work of the participant
+     * @param haveTicket boolean flag indicating if the participant has a ticket
+     * @param hour the hour of the event specified in the ticket
+     * @param table the table number specified in the ticket
+     * @param drinks the number of drinks included with the ticket
+     */
+    public synchronized void logParticipant(String name, String birth, String nationality, int ticketId, int grade, String field, boolean haveTicket, int hour, int table, int drinks) {
+        writeParticipant(name, birth, nationality, ticketId, grade, field, haveTicket, hour, table, drinks);
+        appendRecord();
+    }
+
+    /**
+     * Appends the registration of many participants and asks for them to be synced at once, with a single write,
+     * instead of one batch per BATCH_SIZE records.
+     *
+     * @param participants the participants registered
+     */
+    public synchronized void logParticipants(List<Participant> participants) {
+        for (Participant participant : participants) {
+            Ticket ticket = participant.getTicket();
+            writeParticipant(participant.getName(), (String) participant.getBirth(), (String) participant.getNationality(),
+                    participant.getTicketId(), (int) participant.getGrade(), (String) participant.getField(),
+                    ticket != null, ticket != null ? ticket.getHour() : 0, ticket != null ? ticket.getTable() : 0, ticket != null ? ticket.getDrinks() : 0);
+            frameRecord();
+        }
+        requestSync();
+    }
+
+    /**
+     * Writes the payload of a record that registers a participant.
+     *
+     * @param name the name of the participant
+     * @param birth the birth date of the participant
+     * @param nationality the nationality of the participant
+     * @param ticketId the ticket ID of the participant
+     * @param grade the grade of the participant
+     * @param field the field of study or work of the participant
+     * @param haveTicket boolean flag indicating if the participant has a ticket
+     * @param hour the hour of the event specified in the ticket
+     * @param table the table number specified in the ticket
+     * @param drinks the number of drinks included with the ticket
+     */
+    private void writeParticipant(String name, String birth, String nationality, int ticketId, int grade, String field, boolean haveTicket, int hour, int table, int drinks) {
+        try {
+            payload.writeByte(PARTICIPANT_ADDED);
+            writeNullableString(name);
+            writeNullableString(birth);
+            writeNullableString(nationality);
+            payload.writeInt(ticketId);
+            payload.writeInt(grade);
+            writeNullableString(field);
+            payload.writeBoolean(haveTicket);
+            payload.writeInt(hour);
+            payload.writeInt(table);
+            payload.writeInt(drinks);
+        } catch (IOException e) {
+            // writing to a ByteArrayOutputStream never fails
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Appends the new number of drinks of a ticket.
+     *
+     * @param ticketId the ID of the ticket
+     * @param drinks the number of drinks of the ticket after the change
+     */
+    public synchronized void logDrinks(int ticketId, int drinks) {
+        logTicketChange(DRINKS_CHANGED, ticketId, drinks);
+    }
+
+    /**
+     * Appends the new table of a ticket.
+     *
+     * @param ticketId the ID of the ticket
+     * @param table the new table number
+     */
+    public synchronized void logTable(int ticketId, int table) {
+        logTicketChange(TABLE_CHANGED, ticketId, table);
+    }
+
+    /**
+     * Appends the new tables of many tickets and asks for them to be synced at once, with a single write,
+     * instead of one batch per BATCH_SIZE records.
+     *
+     * @param ticketIds the IDs of the tickets
+     * @param tables the new table of each ticket
+     * @param count the number of tickets
+     */
+    public synchronized void logTables(int[] ticketIds, int[] tables, int count) {
+        for (int i = 0; i < count; i++) {
+            writeTicketChange(TABLE_CHANGED, ticketIds[i], tables[i]);
+            frameRecord();
+        }
+        requestSync();
+    }
+
+    /**
+     * Appends a record that sets one value of a ticket.
+     *
+     * @param type the type of record
+     * @param ticketId the ID of the ticket
+     * @param value the new value
+     */
+    private void logTicketChange(byte type, int ticketId, int value) {
+        writeTicketChange(type, ticketId, value);
+        appendRecord();
+    }
+
+    /**
+     * Writes the payload of a record that sets one value of a ticket.
+     *
+     * @param type the type of record
+     * @param ticketId the ID of the ticket
+     * @param value the new value
+     */
+    private void writeTicketChange(byte type, int ticketId, int value) {
+        try {
+            payload.writeByte(type);
+            payload.writeInt(ticketId);
+            payload.writeInt(value);
+        } catch (IOException e) {
+            // writing to a ByteArrayOutputStream never fails
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks if a string fits in a record, where strings are written with DataOutput.writeUTF and therefore
+     * take at most MAX_STRING_BYTES bytes in modified UTF-8. Callers check their strings before they change
+     * anything, so a change is never applied without being logged.
+     *
+     * @param value the string, or null
+     * @return true if the string can be logged
+     */
+    public static boolean fitsInRecord(String value) {
+        if (value == null || value.length() <= MAX_STRING_BYTES / 3) {
+            return true;
+        }
+        long bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            bytes += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return bytes <= MAX_STRING_BYTES;
+    }
+
+    /**
+     * Writes a string that may be null, preceded by a presence flag.
+     *
+     * @param value the string to write
+     * @throws IOException never, the payload is kept in memory
+     */
+    private void writeNullableString(String value) throws IOException {
+        payload.writeBoolean(value != null);
+        if (value != null) {
+            payload.writeUTF(value);
+        }
+    }
+
+    /**
+     * Frames the record in the payload buffer and moves it to the pending batch,
+     * asking for the batch to be synced when it is full.
+     */
+    private void appendRecord() {
+        frameRecord();
+        if (pendingRecords >= BATCH_SIZE) {
+            requestSync();
+        }
+    }
+
+    /**
+     * Asks the sync thread to sync the pending batch now, without waiting for it. The caller holds the monitor.
+     */
+    private void requestSync() {
+        if (syncRequested || pendingRecords == 0) {
+            return;
+        }
+        syncRequested = true;
+        try {
+            syncer.execute(this::handleSync);
+        } catch (RejectedExecutionException e) {
+            // the log is being closed, which syncs the pending batch
+        }
+    }
+
+    /**
+     * Frames the record in the payload buffer and moves it to the pending batch, handing it to the listeners.
+     */
+    private void frameRecord() {
+        byte[] record = payloadBytes.toByteArray();
+        payloadBytes.reset();
+
+        crc.reset();
+        crc.update(record);
+        int checksum = (int) crc.getValue();
+        writeInt(pending, record.length);
+        writeInt(pending, checksum);
+        pending.writeBytes(record);
+        pendingRecords++;
+
+        if (!listeners.isEmpty()) {
+            byte[] framed = ByteBuffer.allocate(record.length + 8).putInt(record.length).putInt(checksum).put(record).array();
+            for (RecordListener listener : listeners) {
+                listener.recordAppended(framed);
+            }
+        }
+    }
+
+    /**
+     * Starts handing every record appended from now on to a listener.
+     *
+     * @param listener the listener
+     */
+    public synchronized void addListener(RecordListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops handing the records to a listener.
+     *
+     * @param listener the listener
+     */
+    public void removeListener(RecordListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Writes an int in big-endian order.
+     *
+     * @param out the stream to write to
+     * @param value the value to write
+     */
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * Writes the pending batch to the log file and forces it to disk. The records appended meanwhile go to the
+     * next batch, and appending is never blocked by the disk.
+     *
+     * @throws IOException if the batch cannot be written
+     */
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            writeBatch(channel, takePending());
+        }
+    }
+
+    /**
+     * Swaps the pending batch out of the log.
+     *
+     * @return the framed records of the batch, empty if none is pending
+     */
+    private synchronized byte[] takePending() {
+        syncRequested = false;
+        if (pendingRecords == 0) {
+            return new byte[0];
+        }
+        byte[] batch = pending.toByteArray();
+        pending.reset();
+        pendingRecords = 0;
+        return batch;
+    }
+
+    /**
+     * Writes a batch to a log file and forces it to disk. The caller holds the syncLock.
+     *
+     * @param target the log file
+     * @param records the framed records of the batch
+     * @throws IOException if the batch cannot be written
+     */
+    private static void writeBatch(FileChannel target, byte[] records) throws IOException {
+        if (records.length == 0) {
+            return;
+        }
+        long start = Metrics.start();
+        ByteBuffer batch = ByteBuffer.wrap(records);
+        while (batch.hasRemaining()) {
+            target.write(batch);
+        }
+        target.force(false);
+        Metrics.stop(SYNC_LATENCY, start);
+    }
+
+    /**
+     * Syncs the pending batch, logging any I/O error instead of propagating it.
+     */
+    private void handleSync() {
+        try {
+            sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Closes the active log and moves it aside so it can be folded into the snapshot, then starts a new empty log.
+     * If a previously sealed log was never discarded, the active log is appended to it so no record is lost.
+     * The records appended while the log is sealed stay pending and go to the new log.
+     *
+     * @throws IOException if the log cannot be sealed
+     */
+    public void seal() throws IOException {
+        synchronized (syncLock) {
+            sealActive();
+        }
+    }
+
+    /**
+     * Seals the active log. The caller holds the syncLock.
+     *
+     * @throws IOException if the log cannot be sealed
+     */
+    private void sealActive() throws IOException {
+        writeBatch(channel, takePending());
+        channel.close();
+
+        if (Files.exists(sealedPath)) {
+            try (FileChannel sealed = FileChannel.open(sealedPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                 FileChannel active = FileChannel.open(path, StandardOpenOption.READ)) {
+                long position = 0;
+                long size = active.size();
+                while (position < size) {
+                    position += active.transferTo(position, size - position, sealed);
+                }
+                sealed.force(false);
+            }
+            Files.delete(path);
+        } else {
+            Files.move(path, sealedPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Deletes the sealed log once its records are part of the snapshot.
+     *
+     * @throws IOException if the sealed log cannot be deleted
+     */
+    public void discardSealed() throws IOException {
+        Files.deleteIfExists(sealedPath);
+    }
+
+    /**
+     * Retrieves the size in bytes of the active log, including the records not yet synced.
+     *
+     * @return the size of the log
+     * @throws IOException if the size cannot be read
+     */
+    public long size() throws IOException {
+        synchronized (syncLock) {
+            long written = channel.size();
+            synchronized (this) {
+                return written + pending.size();
+            }
+        }
+    }
+
+    /**
+     * Replays every record of the sealed log, if any, and then of the active log.
+     * Replay stops at the first torn or corrupted record, and the active log is truncated there.
+     *
+     * @param replayer the receiver of the records
+     * @return the number of records replayed
+     * @throws IOException if the logs cannot be read
+     */
+    public int replay(Replayer replayer) throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                return replayLogs(replayer);
+            }
+        }
+    }
+
+    /**
+     * Replays the sealed and the active log. The caller holds the syncLock and the monitor.
+     *
+     * @param replayer the receiver of the records
+     * @return the number of records replayed
+     * @throws IOException if the logs cannot be read
+     */
+    private int replayLogs(Replayer replayer) throws IOException {
+        long start = Metrics.start();
+        int records = 0;
+
+        if (Files.exists(sealedPath)) {
+            records += replayFile(sealedPath, replayer);
+        }
+
+        long validLength = 0;
+        try (InputStream in = new BufferedInputStream(Channels.newInputStream(FileChannel.open(path, StandardOpenOption.READ)))) {
+            DataInputStream data = new DataInputStream(in);
+            int replayed;
+            while ((replayed = replayRecord(data, replayer, crc)) > 0) {
+                validLength += replayed;
+                records++;
+            }
+        }
+        if (validLength < channel.size()) {
+            System.out.println("The change log is damaged after byte " + validLength + ", the rest was discarded");
+            channel.truncate(validLength);
+        }
+
+        Metrics.stop(REPLAY_LATENCY, start);
+        return records;
+    }
+
+    /**
+     * Replays every valid record of a log file.
+     *
+     * @param file the log file
+     * @param replayer the receiver of the records
+     * @return the number of records replayed
+     * @throws IOException if the file cannot be read
+     */
+    private int replayFile(Path file, Replayer replayer) throws IOException {
+        int records = 0;
+        try (DataInputStream data = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (replayRecord(data, replayer, crc) > 0) {
+                records++;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Hands a single framed record, as received by a RecordListener, to a replayer.
+     *
+     * @param record the framed record
+     * @param replayer the receiver of the record
+     * @return true if the record was applied, false if it is damaged
+     * @throws IOException if the record is truncated
+     */
+    public static boolean replayRecord(byte[] record, Replayer replayer) throws IOException {
+        return replayRecord(new DataInputStream(new ByteArrayInputStream(record)), replayer, new CRC32()) == record.length;
+    }
+
+    /**
+     * Reads one record and hands it to the replayer.
+     *
+     * @param data the log stream
+     * @param replayer the receiver of the record
+     * @param crc the checksum used to verify the record
+     * @return the number of bytes the record takes in the log, or 0 at the end of the log or on a damaged record
+     * @throws IOException if the log cannot be read
+     */
+    private static int replayRecord(DataInputStream data, Replayer replayer, CRC32 crc) throws IOException {
+        byte[] record;
+        try {
+            int length = data.readInt();
+            int checksum = data.readInt();
+            if (length <= 0 || length > 1 << 20) {
+                return 0;
+            }
+            record = new byte[length];
+            data.readFully(record);
+
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != checksum) {
+                return 0;
+            }
+        } catch (EOFException e) {
+            return 0;
+        }
+
+        DataInputStream fields = new DataInputStream(new ByteArrayInputStream(record));
+        switch (fields.readByte()) {
+            case PARTICIPANT_ADDED -> replayer.participantAdded(readNullableString(fields), readNullableString(fields), readNullableString(fields),
+                    fields.readInt(), fields.readInt(), readNullableString(fields), fields.readBoolean(), fields.readInt(), fields.readInt(), fields.readInt());
+            case DRINKS_CHANGED -> replayer.drinksChanged(fields.readInt(), fields.readInt());
+            case TABLE_CHANGED -> replayer.tableChanged(fields.readInt(), fields.readInt());
+            default -> {
+                return 0;
+            }
+        }
+        return record.length + 8;
+    }
+
+    /**
+     * Reads a string written by writeNullableString.
+     *
+     * @param in the stream to read from
+     * @return the string, or null if it was null
+     * @throws IOException if the record is truncated
+     */
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Stops the periodic sync, writes the pending batch and closes the log file.
+     *
+     * @throws IOException if the pending batch cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        synchronized (syncLock) {
+            writeBatch(channel, takePending());
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package Business;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * ParticipantStore that keeps the participants as a struct of arrays instead of one object per participant.
+ * <pre>
+ * ticketId, grade, hour, table and drinks live in parallel int columns, and the birth date, nationality
+ * and field are dictionary-encoded into int columns, since a festival has few distinct values of each.
+ * Only the name, which is unique, stays a String reference. A participant therefore costs about
+ * 40 bytes plus its name, instead of a Participant, a Ticket and a birth date String.
+ * Scanning a column, for example the tables or the fields, reads contiguous memory.
+ *
+ * Every column is split in fixed-size pages, so rows never move when the store grows.
+ * The table and drinks columns are read and written with volatile semantics, and drinks are added atomically.
+ * </pre>
+ */
+public class ColumnarParticipantStore implements ParticipantStore {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int NO_TICKET = Integer.MIN_VALUE;
+
+    /**
+     * A paged column of ints.
+     */
+    private static final class IntColumn {
+        private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+        private volatile int[][] pages = new int[1][];
+
+        /**
+         * Sets the value of a row, allocating its page if needed. Only called by the serialized writer.
+         *
+         * @param row the row
+         * @param value the value
+         */
+        private void append(int row, int value) {
+            int page = row >>> PAGE_SHIFT;
+            int[][] directory = pages;
+
+            if (page == directory.length) {
+                directory = Arrays.copyOf(directory, directory.length * 2);
+            }
+            if (directory[page] == null) {
+                directory[page] = new int[PAGE_SIZE];
+            }
+            directory[page][row & PAGE_MASK] = value;
+            pages = directory;
+        }
+
+        private int get(int row) {
+            return pages[row >>> PAGE_SHIFT][row & PAGE_MASK];
+        }
+
+        private int getVolatile(int row) {
+            return (int) ELEMENTS.getVolatile(pages[row >>> PAGE_SHIFT], row & PAGE_MASK);
+        }
+
+        private void setVolatile(int row, int value) {
+            ELEMENTS.setVolatile(pages[row >>> PAGE_SHIFT], row & PAGE_MASK, value);
+        }
+
+        private int addAndGet(int row, int delta) {
+            return (int) ELEMENTS.getAndAdd(pages[row >>> PAGE_SHIFT], row & PAGE_MASK, delta) + delta;
+        }
+    }
+
+    private volatile String[][] names = new String[1][];
+    private final IntColumn ticketIds = new IntColumn();
+    private final IntColumn grades = new IntColumn();
+    private final IntColumn hours = new IntColumn();
+    private final IntColumn tables = new IntColumn();
+    private final IntColumn drinks = new IntColumn();
+    private final IntColumn births = new IntColumn();
+    private final IntColumn nationalities = new IntColumn();
+    private final IntColumn fields = new IntColumn();
+    private final StringDictionary birthDictionary = new StringDictionary();
+    private final StringDictionary nationalityDictionary = new StringDictionary();
+    private final StringDictionary fieldDictionary = new StringDictionary();
+    private int size;
+
+    @Override
+    public int add(Participant participant) {
+        int row = size;
+        Ticket ticket = participant.getTicket();
+
+        ticketIds.append(row, participant.getTicketId());
+        grades.append(row, (int) participant.getGrade());
+        hours.append(row, ticket != null ? ticket.getHour() : NO_TICKET);
+        tables.append(row, ticket != null ? ticket.getTable() : 0);
+        drinks.append(row, ticket != null ? ticket.getDrinks() : 0);
+        births.append(row, birthDictionary.encode((String) participant.getBirth()));
+        nationalities.append(row, nationalityDictionary.encode((String) participant.getNationality()));
+        fields.append(row, fieldDictionary.encode((String) participant.getField()));
+        appendName(row, participant.getName());
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Sets the name of a row, allocating its page if needed.
+     *
+     * @param row the row
+     * @param name the name of the participant
+     */
+    private void appendName(int row, String name) {
+        int page = row >>> PAGE_SHIFT;
+        String[][] directory = names;
+
+        if (page == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+        }
+        if (directory[page] == null) {
+            directory[page] = new String[PAGE_SIZE];
+        }
+        directory[page][row & PAGE_MASK] = name;
+        names = directory;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getName(int row) {
+        return names[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    @Override
+    public int getTicketId(int row) {
+        return ticketIds.get(row);
+    }
+
+    @Override
+    public String getField(int row) {
+        return fieldDictionary.decode(fields.get(row));
+    }
+
+    @Override
+    public String getNationality(int row) {
+        return nationalityDictionary.decode(nationalities.get(row));
+    }
+
+    @Override
+    public boolean hasTicket(int row) {
+        return hours.get(row) != NO_TICKET;
+    }
+
+    @Override
+    public int getHour(int row) {
+        return hours.get(row);
+    }
+
+    @Override
+    public int getTable(int row) {
+        return tables.getVolatile(row);
+    }
+
+    @Override
+    public void setTable(int row, int table) {
+        tables.setVolatile(row, table);
+    }
+
+    @Override
+    public int getDrinks(int row) {
+        return drinks.getVolatile(row);
+    }
+
+    @Override
+    public int addDrinks(int row, int drinks) {
+        return this.drinks.addAndGet(row, drinks);
+    }
+
+    @Override
+    public void setDrinks(int row, int drinks) {
+        this.drinks.setVolatile(row, drinks);
+    }
+
+    @Override
+    public Participant copyOf(int row) {
+        boolean haveTicket = hasTicket(row);
+        return new Participant(getName(row), birthDictionary.decode(births.get(row)), nationalityDictionary.decode(nationalities.get(row)),
+                ticketIds.get(row), grades.get(row), getField(row),
+                haveTicket, haveTicket ? hours.get(row) : 0, haveTicket ? getTable(row) : 0, haveTicket ? getDrinks(row) : 0);
+    }
+
+    /**
+     * The participants are only kept in memory, so they are always copied into a new snapshot.
+     *
+     * @return false
+     */
+    @Override
+    public boolean writeBack() {
+        return false;
+    }
+}
@@ -0,0 +1,250 @@
+package Presentation;
+
+import Business.DrinkLedger;
+import Business.GroupBy;
+import Business.Metrics;
+import Business.Participant;
+import Business.ParticipantManager;
+import Business.Ticket;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * The CommandExecutor class runs text commands against a ParticipantManager without any console prompt.
+ * <pre>
+ * A command is an Option command word, or the Option name, followed by its arguments:
+ *   list [offset] [limit]
+ *   validate &lt;ticket id&gt;
+ *   drink &lt;ticket id&gt; &lt;number of drinks&gt;
+ *   field &lt;field name&gt;
+ *   table &lt;table number&gt; [offset] [limit]
+ *   stats &lt;table|hour|field|nationality|filter|replication&gt;
+ *   metrics
+ *   search &lt;name&gt;
+ *   drinks &lt;ticket id&gt; | drinks table &lt;table number&gt; | drinks limits
+ *   exit
+ * </pre>
+ * The listings are streamed to the output, and the optional offset and limit select a page of names.
+ * The metrics command writes the Prometheus text exposition of Metrics.
+ * The drinks command writes the drinks of the last hour of a ticket, with its last drinks, or of a table,
+ * or the drink limits enforced when drinks are added.
+ * Every command is timed, including the writing of its result, in the latency histogram of its Option.
+ * The same executor is shared by every caller, so it keeps no state of its own.
+ */
+public class CommandExecutor {
+    private static final int SEARCH_RESULTS = 20;
+    private static final DateTimeFormatter DRINK_TIME = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final ParticipantManager participantManager;
+
+    /**
+     * Initializes a new CommandExecutor over the given participant manager.
+     *
+     * @param participantManager the manager the commands operate on
+     */
+    public CommandExecutor(ParticipantManager participantManager) {
+        this.participantManager = participantManager;
+    }
+
+    /**
+     * Parses and executes a single command line, appending its result to the output.
+     *
+     * @param line the command line
+     * @param out where the result of the command is written
+     * @return the option that was executed, Option.ELSE if the command was invalid
+     * @throws IOException if the result cannot be written
+     */
+    public Option execute(String line, Appendable out) throws IOException {
+        String trimmed = line.strip();
+        int space = trimmed.indexOf(' ');
+        String word = space == -1 ? trimmed : trimmed.substring(0, space);
+        String arguments = space == -1 ? "" : trimmed.substring(space + 1).strip();
+        Option option = Option.convertCommandToEnum(word);
+        long start = Metrics.start();
+
+        try {
+            switch (option) {
+                case LIST_STUDENTS -> {
+                    int[] page = parsePage(arguments, 0);
+                    out.append("\nParticipants:\n");
+                    participantManager.listOfParticipants(out, page[0], page[1]);
+                    out.append('\n');
+                }
+                case VALIDATE_TICKET -> validateTicket(parseIntegers(arguments, 1)[0], out);
+                case ADD_DRINKS -> {
+                    int[] values = parseIntegers(arguments, 2);
+                    addDrink(values[0], values[1], out);
+                }
+                case LIST_STUDENTS_FROM_A_FILE -> {
+                    out.append("\nParticipants from ").append(arguments).append(":\n\t");
+                    participantManager.listStudentsFromField(arguments, out, 0, Integer.MAX_VALUE);
+                    out.append('\n');
+                }
+                case LIST_STUDENTS_FROM_A_TABLE -> {
+                    int table = parseIntegers(arguments, 1)[0];
+                    int[] page = parsePage(arguments, 1);
+                    out.append("\nParticipants from table ").append(String.valueOf(table)).append(":\n\t");
+                    participantManager.listStudentsFromTable(table, out, page[0], page[1]);
+                    out.append('\n');
+                }
+                case STATISTICS -> {
+                    if (arguments.equals("filter")) {
+                        out.append(participantManager.describeTicketFilter()).append('\n');
+                        return option;
+                    }
+                    if (arguments.equals("replication")) {
+                        out.append(participantManager.describeReplication()).append('\n');
+                        return option;
+                    }
+                    GroupBy groupBy = GroupBy.fromName(arguments);
+                    if (groupBy == null) {
+                        out.append("Invalid arguments!! ").append(trimmed).append('\n');
+                        return Option.ELSE;
+                    }
+                    participantManager.aggregate(groupBy).writeTo(out);
+                }
+                case METRICS -> Metrics.writeExposition(out);
+                case SEARCH_BY_NAME -> {
+                    out.append("\nParticipants found:\n");
+                    writeSearchResults(participantManager.searchByName(arguments, SEARCH_RESULTS), out);
+                }
+                case DRINK_HISTORY -> {
+                    if (arguments.equals("limits")) {
+                        out.append(participantManager.describeDrinkLimits()).append('\n');
+                    } else if (arguments.startsWith("table")) {
+                        int table = parseIntegers(arguments.substring("table".length()).strip(), 1)[0];
+                        out.append("\tDrinks of table ").append(String.valueOf(table)).append(" in the last hour: ")
+                                .append(String.valueOf(participantManager.drinksInLastHourAtTable(table))).append('\n');
+                    } else {
+                        writeDrinkHistory(participantManager, parseIntegers(arguments, 1)[0], out);
+                    }
+                }
+                case EXIT -> out.append("Goodbye\n");
+                case ELSE -> out.append("Invalid option!! ").append(trimmed).append('\n');
+            }
+        } catch (NumberFormatException e) {
+            out.append("Invalid arguments!! ").append(trimmed).append('\n');
+            return Option.ELSE;
+        } finally {
+            Metrics.stop(option.getLatency(), start);
+        }
+        return option;
+    }
+
+    /**
+     * Writes the participants found by a name search, each with its ticket ID and whether it has a ticket.
+     *
+     * @param participants the participants found
+     * @param out where the participants are written
+     * @throws IOException if the participants cannot be written
+     */
+    static void writeSearchResults(List<Participant> participants, Appendable out) throws IOException {
+        if (participants.isEmpty()) {
+            out.append("\tNo participant found\n");
+        }
+        for (Participant participant : participants) {
+            Ticket ticket = participant.getTicket();
+            out.append('\t').append(participant.getName()).append(" - ticket id ").append(String.valueOf(participant.getTicketId()));
+            if (ticket != null) {
+                out.append(", table ").append(String.valueOf(ticket.getTable())).append(", ").append(String.valueOf(ticket.getHour())).append(":00\n");
+            } else {
+                out.append(", no ticket\n");
+            }
+        }
+    }
+
+    /**
+     * Writes the drinks of the last hour of a ticket and its last drinks, each with the time it was added.
+     *
+     * @param participantManager the manager of the ticket
+     * @param ticketID the ID of the ticket
+     * @param out where the drinks are written
+     * @throws IOException if the drinks cannot be written
+     */
+    static void writeDrinkHistory(ParticipantManager participantManager, int ticketID, Appendable out) throws IOException {
+        out.append("\tDrinks of ticket ").append(String.valueOf(ticketID)).append(" in the last hour: ")
+                .append(String.valueOf(participantManager.drinksInLastHour(ticketID))).append('\n');
+        for (DrinkLedger.Entry entry : participantManager.recentDrinks(ticketID)) {
+            out.append("\t\t").append(DRINK_TIME.format(Instant.ofEpochMilli(entry.timeMillis()))).append(" - ")
+                    .append(String.valueOf(entry.drinks())).append(entry.drinks() == 1 ? " drink\n" : " drinks\n");
+        }
+    }
+
+    /**
+     * Writes whether the ticket with the given ID is valid.
+     *
+     * @param ticketID the ID of the ticket
+     * @param out where the result is written
+     * @throws IOException if the result cannot be written
+     */
+    private void validateTicket(int ticketID, Appendable out) throws IOException {
+        if (participantManager.haveTicket(ticketID)) {
+            out.append("\tThe ticket is valid\n");
+        } else {
+            out.append("\tThe ticket is invalid\n");
+        }
+    }
+
+    /**
+     * Adds drinks to a ticket and writes the new number of drinks, or why they could not be added.
+     *
+     * @param ticketID the ID of the ticket
+     * @param numDrinks the number of drinks to add
+     * @param out where the result is written
+     * @throws IOException if the result cannot be written
+     */
+    private void addDrink(int ticketID, int numDrinks, Appendable out) throws IOException {
+        // addDrink checks the ticket itself; haveTicket would count a validation at the gate
+        int drinks = participantManager.addDrink(ticketID, numDrinks);
+        if (drinks == -1) {
+            out.append("\tThe ticket is invalid\n");
+            return;
+        }
+        if (drinks == ParticipantManager.DRINKS_REJECTED) {
+            out.append("\tThe drinks were rejected\n");
+            return;
+        }
+        out.append("\tDrinks of ticket ").append(String.valueOf(ticketID)).append(": ")
+                .append(String.valueOf(drinks)).append('\n');
+    }
+
+    /**
+     * Parses the given number of whitespace separated integers.
+     *
+     * @param arguments the arguments of the command
+     * @param count the number of integers expected
+     * @return the parsed integers
+     * @throws NumberFormatException if there are fewer integers than expected or one of them is not a number
+     */
+    private static int[] parseIntegers(String arguments, int count) {
+        String[] parts = arguments.isEmpty() ? new String[0] : arguments.split("\\s+");
+        if (parts.length < count) {
+            throw new NumberFormatException("expected " + count + " numbers");
+        }
+
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = Integer.parseInt(parts[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Parses the optional offset and limit of a listing, which follow the given number of other arguments.
+     *
+     * @param arguments the arguments of the command
+     * @param skip the number of arguments before the offset
+     * @return the offset, 0 if it is missing, and the limit, Integer.MAX_VALUE if it is missing
+     * @throws NumberFormatException if the offset or the limit is not a number
+     */
+    private static int[] parsePage(String arguments, int skip) {
+        String[] parts = arguments.isEmpty() ? new String[0] : arguments.split("\\s+");
+        int offset = parts.length > skip ? Integer.parseInt(parts[skip]) : 0;
+        int limit = parts.length > skip + 1 ? Integer.parseInt(parts[skip + 1]) : Integer.MAX_VALUE;
+        return new int[]{offset, limit};
+    }
+}
@@ -1,138 +1,223 @@
-package Presentation;
-
-import Business.ParticipantManager;
-import org.json.simple.parser.ParseException;
-
-import java.io.IOException;
-
-/**
- * The Controller class manages the interaction between the user and the participant management system.
- * It handles user input, performs operations based on selected options, and communicates with other components.
- */
-public class Controller {
-    private final InputOutputController inputOutputController;
-    private final ParticipantManager participantManager;
-
-    /**
-     * Initializes a new Controller instance.
-     * This constructor sets up the necessary controllers for handling I/O operations
-     * and managing participants.
-     *
-     * @throws IOException if an I/O error occurs during initialization.
-     * @throws ParseException if a parsing error occurs during initialization.
-     */
-    public Controller() throws IOException, ParseException {
-        this.inputOutputController = new InputOutputController();
-        participantManager = new ParticipantManager();
-    }
-
-    /**
-     * Executes the selected option by invoking the corresponding method.
-     *
-     * @param option The selected option to execute.
-     */
-    private void executeOption(Option option) {
-        switch (option) {
-            case LIST_STUDENTS -> listStudents();
-            case VALIDATE_TICKET -> validateTicket();
-            case ADD_DRINKS -> addDrink();
-            case LIST_STUDENTS_FROM_A_FILE -> listStudentsFromField();
-            case LIST_STUDENTS_FROM_A_TABLE -> listStudentsFromTable();
-            case EXIT -> exit();
-            case ELSE -> System.out.println("Invalid option!!");
-        }
-    }
-
-    /**
-     * Exits the application by saving the participants' data and printing a goodbye message.
-     * This method is invoked when the user chooses the exit option from the menu.
-     * It ensures that any changes made to the participants' data are persisted before the application terminates.
-     */
-    private void exit() {
-        participantManager.saveParticipantsData();
-        System.out.println("Goodbye");
-    }
-
-    /**
-     * Retrieves and prints the list of participants' names.
-     * This method utilizes the participantManager instance to obtain
-     * the list of all participants and outputs it directly to the console.
-     */
-    private void listStudents() {
-        String participantNames = participantManager.listOfParticipants();
-        System.out.println(participantNames);
-    }
-
-    /**
-     * Validates a ticket entered by the user.
-     * Prompts the user to enter a ticket ID, then checks if a participant with
-     * the given ticket ID has a valid ticket. Displays a message indicating whether
-     * the ticket is valid or invalid.
-     */
-    private void validateTicket() {
-        int ticketID = InputOutputController.askInteger("Introduce the ticket id: ");
-        if (participantManager.haveTicket(ticketID)) {
-            System.out.println("\tThe ticket is valid");
-        } else {
-            System.out.println("\tThe ticket is invalid");
-        }
-    }
-
-    /**
-     * Adds a specified number of drinks to a participant's ticket identified by the provided ticket ID.
-     * This method prompts the user to enter the ticket ID and the number of drinks to add.
-     * It then calls the ParticipantManager to update the ticket with the specified number of drinks.
-     */
-    private void addDrink() {
-        int ticketID = InputOutputController.askInteger("Introduce the ticket id: ");
-        int numDrinks = InputOutputController.askInteger("Introduce the number of drinks: ");
-        participantManager.addDrink(ticketID, numDrinks);
-    }
-
-    /**
-     * Lists and displays students based on a specified field.
-     * <pre>
-     * This method prompts the user to enter the name of the field.
-     * It then retrieves and prints the list of students who are associated
-     * with that specific field using the participantManager.
-     * </pre>
-     */
-    private void listStudentsFromField() {
-        String fieldName = InputOutputController.askString("Enter the field name: ");
-        String participantFromField = participantManager.listStudentsFromField(fieldName);
-        System.out.println(participantFromField);
-    }
-
-    /**
-     * Prompts the user to enter a table number and then lists the students seated at the specified table.
-     * The table number is obtained via user input, and the students are fetched from the participant manager.
-     * The result is displayed on the console.
-     */
-    private void listStudentsFromTable() {
-        int table = InputOutputController.askInteger("Enter the table number: ");
-        String participantFromTable = participantManager.listStudentsFromTable(table);
-        System.out.println(participantFromTable);
-    }
-
-    /**
-     * Continuously displays a menu and processes user input until the user chooses to exit.
-     *
-     * The method works in a loop, where it:
-     * 1. Displays a menu of options using the inputOutputController.
-     * 2. Prompts the user to select an option.
-     * 3. Converts the selected option to an appropriate enum value.
-     * 4. Executes the corresponding operation based on the selected option.
-     *
-     * The loop terminates when the user selects the exit option, denoted by the integer value 6.
-     */
-    public void run(){
-        int option;
-
-        do {
-            inputOutputController.showMenu();
-            option = InputOutputController.askInteger("\nIntroduce an opiton: ");
-            executeOption(Option.convertIntToEnum(option));
-        } while (option != 6);
-    }
-
-}
+package Presentation;
+
+import Business.GroupBy;
+import Business.Metrics;
+import Business.ParticipantManager;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+
+/**
+ * The Controller class manages the interaction between the user and the participant management system.
+ * It handles user input, performs operations based on selected options, and communicates with other components.
+ */
+public class Controller {
+    private static final int CONSOLE_BUFFER_SIZE = 1 << 16;
+    private static final int SEARCH_RESULTS = 20;
+
+    private final InputOutputController inputOutputController;
+    private final ParticipantManager participantManager;
+
+    /**
+     * Initializes a new Controller instance.
+     * This constructor sets up the necessary controllers for handling I/O operations
+     * and managing participants.
+     *
+     * @throws IOException if an I/O error occurs during initialization.
+     * @throws ParseException if a parsing error occurs during initialization.
+     */
+    public Controller() throws IOException, ParseException {
+        this.inputOutputController = new InputOutputController();
+        participantManager = new ParticipantManager();
+    }
+
+    /**
+     * Executes the selected option by invoking the corresponding method.
+     *
+     * @param option The selected option to execute.
+     */
+    private void executeOption(Option option) {
+        switch (option) {
+            case LIST_STUDENTS -> listStudents();
+            case VALIDATE_TICKET -> validateTicket();
+            case ADD_DRINKS -> addDrink();
+            case LIST_STUDENTS_FROM_A_FILE -> listStudentsFromField();
+            case LIST_STUDENTS_FROM_A_TABLE -> listStudentsFromTable();
+            case STATISTICS -> showStatistics();
+            case METRICS -> showMetrics();
+            case SEARCH_BY_NAME -> searchByName();
+            case DRINK_HISTORY -> showDrinkHistory();
+            case EXIT -> exit();
+            case ELSE -> System.out.println("Invalid option!!");
+        }
+    }
+
+    /**
+     * Exits the application by saving the participants' data and printing a goodbye message.
+     * This method is invoked when the user chooses the exit option from the menu.
+     * It ensures that any changes made to the participants' data are persisted before the application terminates.
+     */
+    private void exit() {
+        participantManager.saveParticipantsData();
+        System.out.println("Goodbye");
+    }
+
+    /**
+     * Retrieves and prints the list of participants' names.
+     * This method utilizes the participantManager instance to stream
+     * the list of all participants directly to the console.
+     */
+    private void listStudents() {
+        printListing("\nParticipants:\n", out -> participantManager.listOfParticipants(out, 0, Integer.MAX_VALUE));
+    }
+
+    /**
+     * A listing that streams names to an output.
+     */
+    private interface Listing {
+
+        /**
+         * Writes the names of the listing.
+         *
+         * @param out where the names are written
+         * @throws IOException if the names cannot be written
+         */
+        void writeTo(Appendable out) throws IOException;
+    }
+
+    /**
+     * Prints a header followed by a listing through a buffer over the console, so that
+     * the names are not flushed one by one.
+     *
+     * @param header the header of the listing
+     * @param listing the listing to print
+     */
+    private void printListing(String header, Listing listing) {
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out), CONSOLE_BUFFER_SIZE);
+        try {
+            out.write(header);
+            listing.writeTo(out);
+            out.newLine();
+            out.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Validates a ticket entered by the user.
+     * Prompts the user to enter a ticket ID, then checks if a participant with
+     * the given ticket ID has a valid ticket. Displays a message indicating whether
+     * the ticket is valid or invalid.
+     */
+    private void validateTicket() {
+        int ticketID = InputOutputController.askInteger("Introduce the ticket id: ");
+        if (participantManager.haveTicket(ticketID)) {
+            System.out.println("\tThe ticket is valid");
+        } else {
+            System.out.println("\tThe ticket is invalid");
+        }
+    }
+
+    /**
+     * Adds a specified number of drinks to a participant's ticket identified by the provided ticket ID.
+     * This method prompts the user to enter the ticket ID and the number of drinks to add.
+     * It then calls the ParticipantManager to update the ticket with the specified number of drinks.
+     */
+    private void addDrink() {
+        int ticketID = InputOutputController.askInteger("Introduce the ticket id: ");
+        int numDrinks = InputOutputController.askInteger("Introduce the number of drinks: ");
+        participantManager.addDrink(ticketID, numDrinks);
+    }
+
+    /**
+     * Shows the drinks of the last hour and the last drinks added to a ticket entered by the user.
+     */
+    private void showDrinkHistory() {
+        int ticketID = InputOutputController.askInteger("Introduce the ticket id: ");
+        printListing("", out -> CommandExecutor.writeDrinkHistory(participantManager, ticketID, out));
+    }
+
+    /**
+     * Lists and displays students based on a specified field.
+     * <pre>
+     * This method prompts the user to enter the name of the field.
+     * It then retrieves and prints the list of students who are associated
+     * with that specific field using the participantManager.
+     * </pre>
+     */
+    private void listStudentsFromField() {
+        String fieldName = InputOutputController.askString("Enter the field name: ");
+        printListing("\nParticipants from " + fieldName + ":\n\t",
+                out -> participantManager.listStudentsFromField(fieldName, out, 0, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Prompts the user to enter a table number and then lists the students seated at the specified table.
+     * The table number is obtained via user input, and the students are fetched from the participant manager.
+     * The result is displayed on the console.
+     */
+    private void listStudentsFromTable() {
+        int table = InputOutputController.askInteger("Enter the table number: ");
+        printListing("\nParticipants from table " + table + ":\n\t",
+                out -> participantManager.listStudentsFromTable(table, out, 0, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Prompts the user for an attribute and prints the participants, tickets and drinks grouped by it,
+     * or the size and accuracy of the ticket filter.
+     */
+    private void showStatistics() {
+        String name = InputOutputController.askString("Group by (table, hour, field, nationality, filter): ");
+        if (name.strip().equals("filter")) {
+            System.out.println(participantManager.describeTicketFilter());
+            return;
+        }
+        GroupBy groupBy = GroupBy.fromName(name.strip());
+        if (groupBy == null) {
+            System.out.println("Invalid option!!");
+            return;
+        }
+        printListing("", out -> participantManager.aggregate(groupBy).writeTo(out));
+    }
+
+    /**
+     * Prints the counters and the latency percentiles of the operations and of the data access.
+     */
+    private void showMetrics() {
+        printListing("", Metrics::writeSummary);
+    }
+
+    /**
+     * Prompts the user for a name, or part of it, and prints the participants found with their ticket,
+     * for the door staff when a guest does not have the ticket ID at hand.
+     */
+    private void searchByName() {
+        String query = InputOutputController.askString("Enter the name: ");
+        printListing("\nParticipants found:\n", out -> CommandExecutor.writeSearchResults(participantManager.searchByName(query, SEARCH_RESULTS), out));
+    }
+
+    /**
+     * Continuously displays a menu and processes user input until the user chooses to exit.
+     *
+     * The method works in a loop, where it:
+     * 1. Displays a menu of options using the inputOutputController.
+     * 2. Prompts the user to select an option.
+     * 3. Converts the selected option to an appropriate enum value.
+     * 4. Executes the corresponding operation based on the selected option.
+     *
+     * The loop terminates when the user selects the exit option.
+     */
+    public void run(){
+        int option;
+
+        do {
+            inputOutputController.showMenu();
+            option = InputOutputController.askInteger("\nIntroduce an opiton: ");
+            executeOption(Option.convertIntToEnum(option));
+        } while (Option.convertIntToEnum(option) != Option.EXIT);
+    }
+
+}
@@ -1,126 +1,610 @@
-package Persistence;
-
-import java.io.FileReader;
-import Business.Participant;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
-
-import java.io.IOException;
-import java.util.ArrayList;
-import java.io.FileWriter;
-import Business.Ticket;
-
-/**
- * CustomerDao provides data access operations related to participants.
- */
-public class CustomerDao {
-
-    /**
-     * Saves a list of participants and their associated tickets to JSON files.
-     *
-     * @param participants the list of Participant objects to be saved
-     * @throws IOException if an I/O error occurs while writing to the files
-     */
-    public static void saveParticipants(ArrayList<Participant> participants) throws IOException {
-        JSONArray participantsArray = new JSONArray();
-        JSONArray ticketsArray = new JSONArray();
-
-        for (Participant participant : participants) {
-            JSONObject participantObj = new JSONObject();
-            participantObj.put("name", participant.getName());
-            participantObj.put("birth", participant.getBirth());
-            participantObj.put("nationality", participant.getNationality());
-            participantObj.put("ticketId", participant.getTicketId());
-            participantObj.put("grade", participant.getGrade());
-            participantObj.put("field", participant.getField());
-
-            participantsArray.add(participantObj);
-
-            if (participant.getTicket() != null) {
-                JSONObject ticketObj = new JSONObject();
-                Ticket ticket = participant.getTicket();
-                ticketObj.put("hour", ticket.getHour());
-                ticketObj.put("table", ticket.getTable());
-                ticketObj.put("drinks", ticket.getDrinks());
-
-                // the ticket should be stored in the tickets array at the same index as participant
-                ticketsArray.add(ticketObj);
-            } else {
-                // if no ticket, add a placeholder for index consistency
-                ticketsArray.add(false);
-            }
-        }
-
-        JSONObject participantsJsonObject = new JSONObject();
-        participantsJsonObject.put("participants", participantsArray);
-
-        FileWriter writerParticipants = new FileWriter("C:\\Documentos\\ingenieria informatica\\Segundo_carrera\\Programacion Orientada a Objetos\\javaProjects\\PartyGRASP\\src\\Database\\Sallefest.json");
-        FileWriter writerTickets = new FileWriter("C:\\Documentos\\ingenieria informatica\\Segundo_carrera\\Programacion Orientada a Objetos\\javaProjects\\PartyGRASP\\src\\Database\\Tickets.json");
-
-        writerParticipants.write(participantsJsonObject.toJSONString());
-        writerTickets.write(ticketsArray.toJSONString());
-
-        writerParticipants.flush();
-        writerTickets.flush();
-        writerParticipants.close();
-        writerTickets.close();
-    }
-    
-    /**
-     * Reads participant details from JSON files and returns a list of Participant objects.
-     *
-     * @return an ArrayList of Participant objects containing information read from the JSON files
-     * @throws IOException if an I/O error occurs while reading the JSON files
-     * @throws ParseException if there is an error in parsing the JSON data
-     */
-    public static ArrayList<Participant> readParticipants() throws IOException, ParseException {
-        ArrayList<Participant> participants = new ArrayList<>();
-        JSONParser parser = new JSONParser();
-        int i = 0;
-
-        // Ruta dels fitxers JSON
-        FileReader readerParticipants = new FileReader("C:\\Documentos\\ingenieria informatica\\Segundo_carrera\\Programacion Orientada a Objetos\\javaProjects\\PartyGRASP\\src\\Database\\Sallefest.json");
-        FileReader readerTickets = new FileReader("C:\\Documentos\\ingenieria informatica\\Segundo_carrera\\Programacion Orientada a Objetos\\javaProjects\\PartyGRASP\\src\\Database\\Tickets.json");
-
-        // Anàlisi del fitxer JSON de participants
-        Object objParticipants = parser.parse(readerParticipants);
-        JSONObject jsonObjectParticipants = (JSONObject) objParticipants;
-        JSONArray participantsArray = (JSONArray) jsonObjectParticipants.get("participants");
-        Object objTickets = parser.parse(readerTickets);
-        JSONArray ticketsArray = (JSONArray) objTickets;
-
-        System.out.println("Llista de participants:");
-        for (Object participantObj : participantsArray) {
-            JSONObject participant = (JSONObject) participantObj;
-
-            String name = (String) participant.get("name");
-            String birth = (String) participant.get("birth");
-            String nationality = (String) participant.get("nationality");
-            long ticketId = (long) participant.get("ticketId");
-            long grade = (long) participant.get("grade");
-            String field = (String) participant.get("field");
-
-            if (ticketsArray.get(i) instanceof JSONObject ticket) {
-
-                long hour = (long) ticket.get("hour");
-                long table = (long) ticket.get("table");
-                long drinks = (long) ticket.get("drinks");
-
-                participants.add(new Participant(name, birth, nationality, (int) ticketId, (int) grade, field, true, (int) hour, (int) table, (int) drinks));
-            } else {
-                participants.add(new Participant(name, birth, nationality, (int) ticketId, (int) grade, field, false, 0, 0, 0));
-            }
-
-            i++;
-        }
-
-        readerParticipants.close();
-        readerTickets.close();
-
-        return participants;
-    }
-
-}
-
+package Persistence;
+
+import Business.Metrics;
+import Business.Participant;
+import org.json.simple.parser.ParseException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import Business.Ticket;
+
+/**
+ * CustomerDao provides data access operations related to participants.
+ */
+public class CustomerDao {
+    private static final String DEFAULT_DATABASE_DIRECTORY = "C:\\Documentos\\ingenieria informatica\\Segundo_carrera\\Programacion Orientada a Objetos\\javaProjects\\PartyGRASP\\src\\Database";
+    private static final String PARTICIPANTS_FILE = "Sallefest.json";
+    private static final String TICKETS_FILE = "Tickets.json";
+    private static final String CHANGE_LOG_FILE = "Sallefest.log";
+    private static final String BINARY_FILE = "Sallefest.bin";
+    private static final String BINARY_GENERATION_PREFIX = "Sallefest.";
+    private static final String BINARY_GENERATION_SUFFIX = ".bin";
+
+    private static Path databaseDirectory = Paths.get(System.getProperty("sallefest.database", DEFAULT_DATABASE_DIRECTORY));
+    private static SnapshotFormat snapshotFormat = SnapshotFormat.fromName(System.getProperty("sallefest.format", "json"));
+
+    /**
+     * Changes the directory where the participants, tickets and change log files are stored.
+     * By default it is taken from the sallefest.database system property.
+     *
+     * @param directory the directory of the data files
+     */
+    public static void setDatabaseDirectory(Path directory) {
+        databaseDirectory = directory;
+    }
+
+    /**
+     * Retrieves the directory where the data files are stored.
+     *
+     * @return the directory of the data files
+     */
+    public static Path getDatabaseDirectory() {
+        return databaseDirectory;
+    }
+
+    /**
+     * Changes the default format of the snapshots read and saved.
+     * By default it is taken from the sallefest.format system property, and is JSON if the property is not set.
+     *
+     * @param format the default snapshot format
+     */
+    public static void setSnapshotFormat(SnapshotFormat format) {
+        snapshotFormat = format;
+    }
+
+    /**
+     * Retrieves the default format of the snapshots read and saved.
+     *
+     * @return the default snapshot format
+     */
+    public static SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    /**
+     * Saves a list of participants and their associated tickets in the default snapshot format.
+     *
+     * @param participants the list of Participant objects to be saved
+     * @throws IOException if an I/O error occurs while writing to the files
+     */
+    public static void saveParticipants(ArrayList<Participant> participants) throws IOException {
+        saveParticipants(participants, snapshotFormat);
+    }
+
+    /**
+     * Saves a list of participants and their associated tickets in the given snapshot format.
+     *
+     * @param participants the list of Participant objects to be saved
+     * @param format the format of the snapshot
+     * @throws IOException if an I/O error occurs while writing to the files
+     */
+    public static void saveParticipants(ArrayList<Participant> participants, SnapshotFormat format) throws IOException {
+        saveParticipants(databaseDirectory, participants, format);
+    }
+
+    /**
+     * Saves a list of participants and their associated tickets in the given snapshot format and directory,
+     * so several sets of data files can be kept side by side.
+     *
+     * @param directory the directory of the data files
+     * @param participants the list of Participant objects to be saved
+     * @param format the format of the snapshot
+     * @throws IOException if an I/O error occurs while writing to the files
+     */
+    public static void saveParticipants(Path directory, ArrayList<Participant> participants, SnapshotFormat format) throws IOException {
+        long start = Metrics.start();
+        if (format == SnapshotFormat.BINARY) {
+            saveBinaryParticipants(directory, participants);
+        } else {
+            saveJsonParticipants(directory, participants);
+        }
+        Metrics.stop(Metrics.histogram("dao.save." + format.name().toLowerCase()), start);
+    }
+
+    /**
+     * Saves a list of participants to a binary snapshot of a new generation, Sallefest.&lt;generation&gt;.bin,
+     * and then deletes the older generations.
+     * A lazy store keeps the current snapshot mapped, and a mapped file cannot be replaced or deleted on every
+     * platform, so the new snapshot never replaces it: an older generation that cannot be deleted yet, because
+     * it is still mapped, is deleted by a later save. The saves are serialized so two of them never write the
+     * same generation.
+     *
+     * @param directory the directory of the data files
+     * @param participants the list of Participant objects to be saved
+     * @throws IOException if an I/O error occurs while writing the snapshot
+     */
+    private static synchronized void saveBinaryParticipants(Path directory, ArrayList<Participant> participants) throws IOException {
+        long generation = binaryGeneration(directory) + 1;
+        BinarySnapshot.write(participants, binaryPath(directory, generation));
+        markBinarySnapshotNewer(directory);
+        deleteOlderBinarySnapshots(directory, generation);
+    }
+
+    /**
+     * Finds the generation of the newest binary snapshot of a directory.
+     *
+     * @param directory the directory of the data files
+     * @return the generation, or 0 if the snapshot is a Sallefest.bin without generation or there is none
+     * @throws IOException if the directory cannot be listed
+     */
+    private static long binaryGeneration(Path directory) throws IOException {
+        long newest = 0;
+        if (!Files.isDirectory(directory)) {
+            return newest;
+        }
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(directory, BINARY_GENERATION_PREFIX + "*" + BINARY_GENERATION_SUFFIX)) {
+            for (Path snapshot : snapshots) {
+                newest = Math.max(newest, generationOf(snapshot));
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Retrieves the generation of a binary snapshot from its file name.
+     *
+     * @param snapshot the path of a file named Sallefest.&lt;generation&gt;.bin
+     * @return the generation, or -1 if the file name does not hold one
+     */
+    private static long generationOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(BINARY_GENERATION_PREFIX.length(), name.length() - BINARY_GENERATION_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Retrieves the path of a generation of the binary snapshot.
+     *
+     * @param directory the directory of the data files
+     * @param generation the generation, 0 for the Sallefest.bin without generation
+     * @return the path of the snapshot
+     */
+    private static Path binaryPath(Path directory, long generation) {
+        return directory.resolve(generation == 0 ? BINARY_FILE : BINARY_GENERATION_PREFIX + generation + BINARY_GENERATION_SUFFIX);
+    }
+
+    /**
+     * Retrieves the path of the newest binary snapshot of a directory, which may not exist.
+     *
+     * @param directory the directory of the data files
+     * @return the path of the snapshot
+     * @throws IOException if the directory cannot be listed
+     */
+    private static Path binarySnapshotPath(Path directory) throws IOException {
+        return binaryPath(directory, binaryGeneration(directory));
+    }
+
+    /**
+     * Deletes the binary snapshots older than a generation, leaving those that are still mapped and
+     * cannot be deleted on this platform for a later save.
+     *
+     * @param directory the directory of the data files
+     * @param generation the generation to keep
+     * @throws IOException if the directory cannot be listed
+     */
+    private static void deleteOlderBinarySnapshots(Path directory, long generation) throws IOException {
+        ArrayList<Path> older = new ArrayList<>();
+        older.add(directory.resolve(BINARY_FILE));
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(directory, BINARY_GENERATION_PREFIX + "*" + BINARY_GENERATION_SUFFIX)) {
+            for (Path snapshot : snapshots) {
+                long snapshotGeneration = generationOf(snapshot);
+                if (snapshotGeneration >= 0 && snapshotGeneration < generation) {
+                    older.add(snapshot);
+                }
+            }
+        }
+        for (Path snapshot : older) {
+            try {
+                Files.deleteIfExists(snapshot);
+            } catch (IOException e) {
+                // still mapped, it is deleted by a later save
+            }
+        }
+    }
+
+    /**
+     * Moves the modification time of a binary snapshot that was just saved past the one of the JSON files,
+     * which a coarse file system clock may have given the same time, so the binary snapshot is read as
+     * the freshest one.
+     *
+     * @param directory the directory of the data files
+     * @throws IOException if the modification times cannot be read or changed
+     */
+    private static void markBinarySnapshotNewer(Path directory) throws IOException {
+        Path binaryPath = binarySnapshotPath(directory);
+        FileTime snapshotTime = Files.getLastModifiedTime(binaryPath);
+        for (String jsonFile : new String[]{PARTICIPANTS_FILE, TICKETS_FILE}) {
+            Path jsonPath = directory.resolve(jsonFile);
+            if (Files.exists(jsonPath) && Files.getLastModifiedTime(jsonPath).compareTo(snapshotTime) >= 0) {
+                snapshotTime = FileTime.fromMillis(Files.getLastModifiedTime(jsonPath).toMillis() + 1);
+            }
+        }
+        Files.setLastModifiedTime(binaryPath, snapshotTime);
+    }
+
+    /**
+     * Saves a list of participants and their associated tickets to JSON files.
+     * Both files are streamed to temporary files and swapped in together, so a failed save never leaves
+     * the participants and the tickets out of step.
+     *
+     * @param directory the directory of the data files
+     * @param participants the list of Participant objects to be saved
+     * @throws IOException if an I/O error occurs while writing to the files
+     */
+    private static void saveJsonParticipants(Path directory, ArrayList<Participant> participants) throws IOException {
+        try (SnapshotWriter snapshot = new SnapshotWriter(directory.resolve(PARTICIPANTS_FILE), directory.resolve(TICKETS_FILE))) {
+            JsonStreamWriter writerParticipants = snapshot.participants();
+            JsonStreamWriter writerTickets = snapshot.tickets();
+
+            writerParticipants.beginObject().name("participants").beginArray();
+            writerTickets.beginArray();
+
+            for (Participant participant : participants) {
+                writerParticipants.beginObject()
+                        .name("name").value(participant.getName())
+                        .name("birth").value((String) participant.getBirth())
+                        .name("nationality").value((String) participant.getNationality())
+                        .name("ticketId").value(participant.getTicketId())
+                        .name("grade").value((int) participant.getGrade())
+                        .name("field").value((String) participant.getField())
+                        .endObject();
+
+                if (participant.getTicket() != null) {
+                    Ticket ticket = participant.getTicket();
+
+                    // the ticket should be stored in the tickets array at the same index as participant
+                    writerTickets.beginObject()
+                            .name("hour").value(ticket.getHour())
+                            .name("table").value(ticket.getTable())
+                            .name("drinks").value(ticket.getDrinks())
+                            .endObject();
+                } else {
+                    // if no ticket, add a placeholder for index consistency
+                    writerTickets.value(false);
+                }
+            }
+
+            writerParticipants.endArray().endObject();
+            writerTickets.endArray();
+            snapshot.commit();
+        }
+    }
+
+    /**
+     * Creates a directory with an empty snapshot in the given format, unless it already holds one.
+     *
+     * @param directory the directory of the data files
+     * @param format the format of the snapshot
+     * @return true if the directory was initialized, false if it already had a snapshot
+     * @throws IOException if the directory or the snapshot cannot be created
+     */
+    public static boolean initializeDirectory(Path directory, SnapshotFormat format) throws IOException {
+        if (Files.exists(directory.resolve(PARTICIPANTS_FILE)) || Files.exists(binarySnapshotPath(directory))) {
+            return false;
+        }
+        Files.createDirectories(directory);
+        saveParticipants(directory, new ArrayList<>(), format);
+        return true;
+    }
+
+    /**
+     * Replaces the data files of a directory with a binary snapshot received from elsewhere, such as the
+     * primary of a read replica. The snapshot is written as a new generation, as saveBinaryParticipants does,
+     * so it never replaces a snapshot that may still be mapped.
+     * A replica applies the shipped changes without logging them, so a directory whose change log holds
+     * records belongs to a primary: the snapshot is refused there, and no log file is ever deleted.
+     *
+     * @param directory the directory of the data files
+     * @param in the stream the snapshot is read from
+     * @param length the length of the snapshot in bytes
+     * @throws IOException if the snapshot cannot be read or written, or the directory has a change log
+     */
+    public static synchronized void installSnapshot(Path directory, InputStream in, long length) throws IOException {
+        for (Path logPath : new Path[]{directory.resolve(CHANGE_LOG_FILE), directory.resolve(CHANGE_LOG_FILE + ".sealed")}) {
+            if (Files.exists(logPath) && Files.size(logPath) > 0) {
+                throw new IOException(logPath + " holds changes that are not in a snapshot, so " + directory + " is not the directory of a replica");
+            }
+        }
+        Files.createDirectories(directory);
+        long generation = binaryGeneration(directory) + 1;
+        Path binaryPath = binaryPath(directory, generation);
+        Path temporaryPath = binaryPath.resolveSibling(binaryPath.getFileName() + ".tmp");
+
+        try (OutputStream out = Files.newOutputStream(temporaryPath)) {
+            byte[] buffer = new byte[64 * 1024];
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("The snapshot ended " + remaining + " bytes early");
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporaryPath);
+            throw e;
+        }
+        Files.move(temporaryPath, binaryPath, StandardCopyOption.ATOMIC_MOVE);
+        deleteOlderBinarySnapshots(directory, generation);
+    }
+
+    /**
+     * Checks if the binary snapshot of a directory is current: it exists and neither JSON file was modified
+     * after it, so it holds the same participants and can be read or mapped instead of parsing them.
+     * A JSON file with the same modification time as the snapshot counts as modified after it, since with
+     * a coarse file system clock it may have been written after the snapshot within the same tick.
+     *
+     * @param directory the directory of the data files
+     * @return true if the binary snapshot is current
+     * @throws IOException if the modification times cannot be read
+     */
+    public static boolean isBinarySnapshotCurrent(Path directory) throws IOException {
+        Path binaryPath = binarySnapshotPath(directory);
+        if (!Files.exists(binaryPath)) {
+            return false;
+        }
+        FileTime snapshotTime = Files.getLastModifiedTime(binaryPath);
+        for (String jsonFile : new String[]{PARTICIPANTS_FILE, TICKETS_FILE}) {
+            Path jsonPath = directory.resolve(jsonFile);
+            if (Files.exists(jsonPath) && Files.getLastModifiedTime(jsonPath).compareTo(snapshotTime) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the binary snapshot of a directory again from its JSON files, unless it is current,
+     * so the next start can map it without parsing them.
+     *
+     * @param directory the directory of the data files
+     * @return true if the snapshot was written, false if it was current
+     * @throws IOException if the snapshot cannot be written
+     * @throws ParseException if the JSON files cannot be parsed
+     */
+    public static boolean refreshBinarySnapshot(Path directory) throws IOException, ParseException {
+        if (isBinarySnapshotCurrent(directory)) {
+            return false;
+        }
+        saveParticipants(directory, readJsonParticipants(directory), SnapshotFormat.BINARY);
+        return true;
+    }
+
+    /**
+     * Maps the binary snapshot of a directory for random access, writing it from the JSON files first
+     * when it does not exist or they were modified after it.
+     *
+     * @param directory the directory of the data files
+     * @return the mapped snapshot
+     * @throws IOException if the snapshot cannot be created or mapped
+     * @throws ParseException if the JSON files have to be converted and cannot be parsed
+     */
+    public static MappedSnapshot openMappedSnapshot(Path directory) throws IOException, ParseException {
+        refreshBinarySnapshot(directory);
+        return mapSavedSnapshot(directory);
+    }
+
+    /**
+     * Maps the binary snapshot of a directory as it is, such as a snapshot that was just saved.
+     *
+     * @param directory the directory of the data files
+     * @return the mapped snapshot
+     * @throws IOException if the snapshot cannot be mapped
+     */
+    public static MappedSnapshot mapSavedSnapshot(Path directory) throws IOException {
+        return new MappedSnapshot(binarySnapshotPath(directory));
+    }
+
+    /**
+     * Opens the change log that records the modifications made after the last saved snapshot.
+     *
+     * @return the change log stored next to the JSON files
+     * @throws IOException if the log file cannot be opened
+     */
+    public static ChangeLog openChangeLog() throws IOException {
+        return openChangeLog(databaseDirectory);
+    }
+
+    /**
+     * Opens the change log stored in the given directory.
+     *
+     * @param directory the directory of the data files
+     * @return the change log stored next to the snapshot files of that directory
+     * @throws IOException if the log file cannot be opened
+     */
+    public static ChangeLog openChangeLog(Path directory) throws IOException {
+        Path changeLog = directory.resolve(CHANGE_LOG_FILE);
+        return new ChangeLog(changeLog, changeLog.resolveSibling(CHANGE_LOG_FILE + ".sealed"));
+    }
+
+    /**
+     * Reads participant details from the freshest snapshot of the data directory.
+     *
+     * @return an ArrayList of Participant objects containing information read from the snapshot
+     * @throws IOException if an I/O error occurs while reading the snapshot
+     * @throws ParseException if there is an error in parsing the JSON data
+     */
+    public static ArrayList<Participant> readParticipants() throws IOException, ParseException {
+        return readParticipants(databaseDirectory);
+    }
+
+    /**
+     * Reads participant details from the freshest snapshot of the given directory, whatever the format
+     * it is saved in from now on: the binary snapshot while it is current, and the JSON files otherwise.
+     * Saving in one format leaves the other snapshot stale, so choosing by format would read old data
+     * after switching formats, or in a replica directory, which only holds a binary snapshot.
+     *
+     * @param directory the directory of the data files
+     * @return an ArrayList of Participant objects containing information read from the snapshot
+     * @throws IOException if an I/O error occurs while reading the snapshot
+     * @throws ParseException if there is an error in parsing the JSON data
+     */
+    public static ArrayList<Participant> readParticipants(Path directory) throws IOException, ParseException {
+        return readSnapshot(directory, isBinarySnapshotCurrent(directory) ? SnapshotFormat.BINARY : SnapshotFormat.JSON);
+    }
+
+    /**
+     * Reads participant details from the snapshot in the given format, even if the other one is fresher,
+     * so both formats can be measured over the same participants.
+     *
+     * @param directory the directory of the data files
+     * @param format the format of the snapshot
+     * @return an ArrayList of Participant objects containing information read from the snapshot
+     * @throws IOException if an I/O error occurs while reading the snapshot
+     * @throws ParseException if there is an error in parsing the JSON data
+     */
+    static ArrayList<Participant> readSnapshot(Path directory, SnapshotFormat format) throws IOException, ParseException {
+        long start = Metrics.start();
+        ArrayList<Participant> participants;
+
+        if (format == SnapshotFormat.BINARY) {
+            participants = BinarySnapshot.read(binarySnapshotPath(directory));
+            Metrics.stop(Metrics.histogram("dao.read.binary"), start);
+        } else {
+            participants = readJsonParticipants(directory);
+            Metrics.stop(Metrics.histogram("dao.read.json"), start);
+        }
+        return participants;
+    }
+
+    /**
+     * Writes the participants of the freshest snapshot in the given format.
+     *
+     * @param to the format to write
+     * @return the number of participants converted
+     * @throws IOException if an I/O error occurs while reading or writing the snapshots
+     * @throws ParseException if there is an error in parsing the JSON data
+     */
+    public static int convertSnapshot(SnapshotFormat to) throws IOException, ParseException {
+        ArrayList<Participant> participants = readParticipants();
+        saveParticipants(participants, to);
+        return participants.size();
+    }
+
+    /**
+     * Reads participant details from JSON files and returns a list of Participant objects.
+     * A save interrupted by a crash is recovered first, see SnapshotWriter.recover.
+     * Both files are walked together with a streaming reader, so participant i is matched with ticket i
+     * and no intermediate JSON tree is built.
+     *
+     * @param directory the directory of the data files
+     * @return an ArrayList of Participant objects containing information read from the JSON files
+     * @throws IOException if an I/O error occurs while reading the JSON files
+     * @throws ParseException if there is an error in parsing the JSON data, with the position where it was found
+     */
+    private static ArrayList<Participant> readJsonParticipants(Path directory) throws IOException, ParseException {
+        ArrayList<Participant> participants = new ArrayList<>();
+
+        // Ruta dels fitxers JSON
+        Path participantsPath = directory.resolve(PARTICIPANTS_FILE);
+        Path ticketsPath = directory.resolve(TICKETS_FILE);
+        SnapshotWriter.recover(participantsPath, ticketsPath);
+
+        try (JsonStreamReader readerParticipants = new JsonStreamReader(Files.newBufferedReader(participantsPath, StandardCharsets.UTF_8));
+             JsonStreamReader readerTickets = new JsonStreamReader(Files.newBufferedReader(ticketsPath, StandardCharsets.UTF_8))) {
+
+            if (findParticipantsArray(readerParticipants)) {
+                readerTickets.beginArray();
+
+                while (readerParticipants.hasNext()) {
+                    participants.add(readParticipant(readerParticipants, readerTickets));
+                }
+            }
+        }
+
+        return participants;
+    }
+
+    /**
+     * Moves the participants reader to the first element of the "participants" array.
+     *
+     * @param reader the reader positioned at the start of the participants document
+     * @return true if the array was found, false if the document has no participants
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if there is an error in parsing the JSON data
+     */
+    private static boolean findParticipantsArray(JsonStreamReader reader) throws IOException, ParseException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("participants")) {
+                reader.beginArray();
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Reads the next participant and its ticket, which lives at the same index in the tickets array.
+     * A false or null entry, or a tickets array shorter than the participants array, means the participant has no ticket.
+     *
+     * @param readerParticipants the reader positioned at a participant object
+     * @param readerTickets the reader positioned at the matching ticket entry
+     * @return the participant built from both entries
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if there is an error in parsing the JSON data
+     */
+    private static Participant readParticipant(JsonStreamReader readerParticipants, JsonStreamReader readerTickets) throws IOException, ParseException {
+        String name = null;
+        String birth = null;
+        String nationality = null;
+        int ticketId = 0;
+        int grade = 0;
+        String field = null;
+
+        readerParticipants.beginObject();
+        while (readerParticipants.hasNext()) {
+            switch (readerParticipants.nextName()) {
+                case "name" -> name = readerParticipants.nextNullableString();
+                case "birth" -> birth = readerParticipants.nextNullableString();
+                case "nationality" -> nationality = readerParticipants.nextNullableString();
+                case "ticketId" -> ticketId = readerParticipants.nextInt();
+                case "grade" -> grade = readerParticipants.nextInt();
+                case "field" -> field = readerParticipants.nextNullableString();
+                default -> readerParticipants.skipValue();
+            }
+        }
+        readerParticipants.endObject();
+
+        if (readerTickets.peek() == JsonStreamReader.Token.BEGIN_OBJECT) {
+            int hour = 0;
+            int table = 0;
+            int drinks = 0;
+
+            readerTickets.beginObject();
+            while (readerTickets.hasNext()) {
+                switch (readerTickets.nextName()) {
+                    case "hour" -> hour = readerTickets.nextInt();
+                    case "table" -> table = readerTickets.nextInt();
+                    case "drinks" -> drinks = readerTickets.nextInt();
+                    default -> readerTickets.skipValue();
+                }
+            }
+            readerTickets.endObject();
+
+            return new Participant(name, birth, nationality, ticketId, grade, field, true, hour, table, drinks);
+        }
+
+        if (readerTickets.hasNext()) {
+            readerTickets.skipValue();
+        }
+        return new Participant(name, birth, nationality, ticketId, grade, field, false, 0, 0, 0);
+    }
+
+}
+
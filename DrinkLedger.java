@@ -0,0 +1,214 @@
+package Business;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Records every drink added to a ticket, with its time, and enforces the drink limits of the tickets.
+ * <pre>
+ * Every ticket that had a drink keeps a small record of its own:
+ * - The last HISTORY additions, each with its time and number of drinks, in a ring buffer of packed longs,
+ *   so the bar can be audited without keeping the whole history.
+ * - The drinks of the last hour in BUCKETS buckets of BUCKET_SECONDS seconds, also in a ring. A bucket
+ *   holds its own bucket number, so a stale bucket is recognized and reset when it is reused.
+ * Counting the drinks of a time window sums at most BUCKETS buckets, whatever the number of drinks, so the
+ * limits are checked and "drinks in the last hour" answered in constant time. The windows are counted
+ * in whole buckets, so a window starts up to BUCKET_SECONDS before its nominal start.
+ *
+ * Two limits can be set, and 0 disables them:
+ * - sallefest.drinks.max, the maximum number of drinks of a ticket, counting those it was loaded with.
+ * - sallefest.drinks.window.max, the maximum number of drinks of a ticket within sallefest.drinks.window
+ *   minutes, by default 60 and at most 60.
+ * Adding less than one drink is always rejected.
+ *
+ * The ledger takes no lock of its own: the records of a ticket must only be used while holding the lock the
+ * caller already takes for that ticket, as ParticipantManager.addDrink does with its drink stripes, so
+ * validating tickets at the gates never waits for it. The ledger is kept in memory only, and covers the drinks
+ * added since the manager started.
+ * </pre>
+ */
+public class DrinkLedger {
+    public static final int HISTORY = 16;
+    private static final int BUCKETS = 12;
+    private static final int BUCKET_SECONDS = 300;
+    private static final int HOUR_MINUTES = 60;
+    private static final long LOW_BITS = 0xFFFF_FFFFL;
+
+    /**
+     * A drink addition of the history of a ticket.
+     *
+     * @param timeMillis when the drinks were added, in milliseconds since the epoch
+     * @param drinks the number of drinks added
+     */
+    public record Entry(long timeMillis, int drinks) {
+    }
+
+    /**
+     * The record of one ticket. It is only accessed while holding the caller's lock for the ticket.
+     */
+    private static final class TicketRecord {
+        private final long[] history = new long[HISTORY];
+        private final long[] buckets = new long[BUCKETS];
+        private int additions;
+    }
+
+    private final ConcurrentHashMap<Integer, TicketRecord> records = new ConcurrentHashMap<>();
+    private final int maxDrinks;
+    private final int windowLimit;
+    private final int windowBuckets;
+    private final int windowMinutes;
+    private final LongSupplier clock;
+    private final long epochMillis;
+
+    /**
+     * Initializes an empty ledger.
+     *
+     * @param maxDrinks the maximum number of drinks of a ticket, 0 for no limit
+     * @param windowLimit the maximum number of drinks of a ticket within the window, 0 for no limit
+     * @param windowMinutes the length of the window, from 1 to 60 minutes
+     * @param clock the clock of the additions, in milliseconds since the epoch
+     * @throws IllegalArgumentException if a limit is negative or the window is not between 1 and 60 minutes
+     */
+    public DrinkLedger(int maxDrinks, int windowLimit, int windowMinutes, LongSupplier clock) {
+        if (maxDrinks < 0 || windowLimit < 0) {
+            throw new IllegalArgumentException("The drink limits cannot be negative");
+        }
+        if (windowMinutes < 1 || windowMinutes > HOUR_MINUTES) {
+            throw new IllegalArgumentException("The drink window must be between 1 and " + HOUR_MINUTES + " minutes");
+        }
+        this.maxDrinks = maxDrinks;
+        this.windowLimit = windowLimit;
+        this.windowMinutes = windowMinutes;
+        this.windowBuckets = (windowMinutes * 60 + BUCKET_SECONDS - 1) / BUCKET_SECONDS;
+        this.clock = clock;
+        this.epochMillis = clock.getAsLong();
+    }
+
+    /**
+     * Creates a ledger with the limits configured by the sallefest.drinks system properties.
+     *
+     * @return the ledger
+     */
+    public static DrinkLedger fromSystemProperties() {
+        return new DrinkLedger(Integer.getInteger("sallefest.drinks.max", 0), Integer.getInteger("sallefest.drinks.window.max", 0),
+                Integer.getInteger("sallefest.drinks.window", HOUR_MINUTES), System::currentTimeMillis);
+    }
+
+    /**
+     * Retrieves the current time of the ledger.
+     *
+     * @return the seconds elapsed since the ledger was created
+     */
+    private int now() {
+        return (int) ((clock.getAsLong() - epochMillis) / 1000);
+    }
+
+    /**
+     * Checks if drinks can be added to a ticket. The caller must hold its lock for the ticket.
+     *
+     * @param ticketId the ID of the ticket
+     * @param total the number of drinks the ticket has
+     * @param drinks the number of drinks to add
+     * @return null if the drinks can be added, otherwise why they cannot
+     */
+    public String checkLimits(int ticketId, int total, int drinks) {
+        if (drinks < 1) {
+            return "At least one drink must be added";
+        }
+        if (maxDrinks > 0 && (long) total + drinks > maxDrinks) {
+            return "The ticket already has " + total + " of its " + maxDrinks + " drinks";
+        }
+        if (windowLimit > 0) {
+            int recent = drinksWithin(records.get(ticketId), windowBuckets);
+            if ((long) recent + drinks > windowLimit) {
+                return "The ticket already had " + recent + " drinks in the last " + windowMinutes + " minutes, the limit is " + windowLimit;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Records drinks added to a ticket. The caller must hold its lock for the ticket.
+     *
+     * @param ticketId the ID of the ticket
+     * @param drinks the number of drinks added
+     */
+    public void record(int ticketId, int drinks) {
+        TicketRecord record = records.computeIfAbsent(ticketId, id -> new TicketRecord());
+        int now = now();
+
+        record.history[record.additions % HISTORY] = ((long) now << 32) | (drinks & LOW_BITS);
+        record.additions++;
+
+        int bucket = now / BUCKET_SECONDS;
+        int slot = bucket % BUCKETS;
+        long packed = record.buckets[slot];
+        int served = (int) (packed >>> 32) == bucket ? (int) packed : 0;
+        record.buckets[slot] = ((long) bucket << 32) | ((served + drinks) & LOW_BITS);
+    }
+
+    /**
+     * Counts the drinks of a ticket in its most recent buckets.
+     *
+     * @param record the record of the ticket, null if it never had a drink
+     * @param count the number of buckets, the current one included
+     * @return the drinks added in those buckets
+     */
+    private int drinksWithin(TicketRecord record, int count) {
+        if (record == null) {
+            return 0;
+        }
+        int current = now() / BUCKET_SECONDS;
+        int drinks = 0;
+        for (long packed : record.buckets) {
+            int bucket = (int) (packed >>> 32);
+            if (bucket > current - count && bucket <= current) {
+                drinks += (int) packed;
+            }
+        }
+        return drinks;
+    }
+
+    /**
+     * Counts the drinks added to a ticket in the last hour. The caller must hold its lock for the ticket.
+     *
+     * @param ticketId the ID of the ticket
+     * @return the number of drinks
+     */
+    public int drinksInLastHour(int ticketId) {
+        return drinksWithin(records.get(ticketId), BUCKETS);
+    }
+
+    /**
+     * Retrieves the last additions of drinks to a ticket. The caller must hold its lock for the ticket.
+     *
+     * @param ticketId the ID of the ticket
+     * @return at most HISTORY additions, the most recent first
+     */
+    public List<Entry> recentDrinks(int ticketId) {
+        TicketRecord record = records.get(ticketId);
+        if (record == null) {
+            return List.of();
+        }
+        int count = Math.min(record.additions, HISTORY);
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            long packed = record.history[(record.additions - i) % HISTORY];
+            entries.add(new Entry(epochMillis + (packed >>> 32) * 1000, (int) packed));
+        }
+        return entries;
+    }
+
+    /**
+     * Describes the limits of the ledger.
+     *
+     * @return a one line summary of the limits
+     */
+    @Override
+    public String toString() {
+        return "Drink limits: " + (maxDrinks > 0 ? maxDrinks + " per ticket" : "none per ticket") + ", "
+                + (windowLimit > 0 ? windowLimit + " per " + windowMinutes + " minutes" : "none per window");
+    }
+}
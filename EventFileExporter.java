@@ -0,0 +1,105 @@
+package Persistence;
+
+import Business.ChangeEvent;
+import Business.EventStream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Subscriber of an EventStream that appends every ChangeEvent to a file, one JSON object per line.
+ * <pre>
+ * Every event has a "type", participantAdded, ticketValidated, drinksAdded or tableChanged, its "time"
+ * in milliseconds since the epoch, its "ticketId" and the attributes of the event:
+ *   {"type":"drinksAdded","time":1760745600000,"ticketId":17,"table":3,"drinks":2,"total":15}
+ * When the exporter falls behind and misses events, a line records how many:
+ *   {"type":"overrun","missed":1200}
+ *
+ * The events of a batch are written through a JsonStreamWriter and flushed once per batch, so the file
+ * is written in large blocks however many events there are. The lines are not forced to disk.
+ * </pre>
+ */
+public class EventFileExporter implements EventStream.Subscriber, Closeable {
+    private final JsonStreamWriter writer;
+
+    /**
+     * Opens the file the events are appended to, creating it if needed.
+     *
+     * @param path the path of the file
+     * @throws IOException if the file cannot be opened
+     */
+    public EventFileExporter(Path path) throws IOException {
+        writer = new JsonStreamWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    @Override
+    public void onEvents(List<ChangeEvent> events) {
+        try {
+            for (ChangeEvent event : events) {
+                writeEvent(event);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void onOverrun(long missed) {
+        try {
+            writer.beginObject().name("type").value("overrun").name("missed").value(missed).endObject().newLine();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes one event as a line.
+     *
+     * @param event the event
+     * @throws IOException if the event cannot be written
+     */
+    private void writeEvent(ChangeEvent event) throws IOException {
+        writer.beginObject();
+        if (event instanceof ChangeEvent.ParticipantAdded added) {
+            writeHeader("participantAdded", event);
+            writer.name("name").value(added.name()).name("field").value(added.field());
+            writer.name("haveTicket").value(added.haveTicket()).name("hour").value(added.hour()).name("table").value(added.table());
+        } else if (event instanceof ChangeEvent.TicketValidated validated) {
+            writeHeader("ticketValidated", event);
+            writer.name("valid").value(validated.valid()).name("table").value(validated.table());
+        } else if (event instanceof ChangeEvent.DrinksAdded drinks) {
+            writeHeader("drinksAdded", event);
+            writer.name("table").value(drinks.table()).name("drinks").value(drinks.drinks()).name("total").value(drinks.total());
+        } else if (event instanceof ChangeEvent.TableChanged changed) {
+            writeHeader("tableChanged", event);
+            writer.name("previousTable").value(changed.previousTable()).name("table").value(changed.table());
+        }
+        writer.endObject().newLine();
+    }
+
+    /**
+     * Writes the attributes every event has.
+     *
+     * @param type the type of the event
+     * @param event the event
+     * @throws IOException if the attributes cannot be written
+     */
+    private void writeHeader(String type, ChangeEvent event) throws IOException {
+        writer.name("type").value(type).name("time").value(event.timeMillis()).name("ticketId").value(event.ticketId());
+    }
+
+    /**
+     * Writes the buffered events and closes the file. The exporter must be unsubscribed first.
+     *
+     * @throws IOException if the events cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,271 @@
+package Business;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publish/subscribe feed of the ChangeEvents of a ParticipantManager, over a bounded lock-free ring buffer.
+ * <pre>
+ * A publisher claims the next sequence with a single atomic increment and stores the event, with its sequence,
+ * in the slot of that sequence, so publishing never locks and never waits, whatever the subscribers do.
+ * While nobody is subscribed, publish returns at once, and callers check hasSubscribers before building
+ * an event, so the gate and bar paths pay nothing for the stream until it is used.
+ *
+ * Every subscription has its own daemon thread and position in the ring. It takes the published events in
+ * order, up to its batch size at a time, and hands them to its Subscriber in one call. When it has nothing to
+ * read it spins briefly and then parks for up to IDLE_PARK_NANOS, so an event is delivered within about
+ * a millisecond without the publishers having to wake anybody.
+ *
+ * The ring holds the last capacity events. A subscriber that falls that far behind is lapped: the slot it
+ * expects already holds a later sequence. It then skips to the oldest event still in the ring, and is told how
+ * many events it missed through onOverrun, so a slow subscriber loses events instead of stalling the publishers.
+ * A publisher that is preempted between claiming its sequence and storing its event may find that the ring
+ * wrapped around meanwhile. The event is only stored if the slot does not hold a later sequence yet, so it never
+ * overwrites a newer event; otherwise it is dropped, and every subscriber that had not read past it skips it
+ * and is told through onOverrun. The published, dropped and missed events are counted in Metrics.
+ * </pre>
+ */
+public class EventStream {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int IDLE_SPINS = 64;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final LongAdder PUBLISHED_EVENTS = Metrics.counter("events.published");
+    private static final LongAdder MISSED_EVENTS = Metrics.counter("events.missed");
+    private static final LongAdder DROPPED_EVENTS = Metrics.counter("events.dropped");
+
+    /**
+     * A consumer of the events of a stream, called from the thread of its subscription.
+     */
+    public interface Subscriber {
+
+        /**
+         * Consumes a batch of events, in the order they were published.
+         *
+         * @param events the events, only valid during the call
+         */
+        void onEvents(List<ChangeEvent> events);
+
+        /**
+         * Called when the subscriber was lapped and some events were overwritten before it read them.
+         *
+         * @param missed the number of events missed
+         */
+        default void onOverrun(long missed) {
+        }
+    }
+
+    /**
+     * An event stored in the ring with its sequence, replaced as a whole when the ring wraps around.
+     */
+    private record Slot(long sequence, ChangeEvent event) {
+    }
+
+    /**
+     * A subscriber attached to the stream, with the thread that delivers the events to it.
+     */
+    public final class Subscription implements AutoCloseable, Runnable {
+        private final Subscriber subscriber;
+        private final int batchSize;
+        private final Thread thread;
+        private volatile boolean running = true;
+        private volatile long position;
+        private volatile long delivered;
+        private volatile long missed;
+
+        private Subscription(String name, Subscriber subscriber, int batchSize) {
+            this.subscriber = subscriber;
+            this.batchSize = batchSize;
+            this.position = nextSequence.get();
+            this.thread = new Thread(this, "events-" + name);
+            thread.setDaemon(true);
+        }
+
+        /**
+         * Delivers the events until the subscription is closed, and then the events already published.
+         */
+        @Override
+        public void run() {
+            List<ChangeEvent> batch = new ArrayList<>(batchSize);
+            long next = position;
+            int idle = 0;
+
+            while (true) {
+                boolean stopping = !running;
+                long skipped = 0;
+                while (batch.size() < batchSize) {
+                    Slot slot = slots.getAcquire((int) (next & mask));
+                    if (slot == null || slot.sequence() < next) {
+                        break;
+                    }
+                    if (slot.sequence() > next) {
+                        long oldest = Math.max(next + 1, nextSequence.get() - slots.length() + 1);
+                        skipped += oldest - next;
+                        next = oldest;
+                        continue;
+                    }
+                    batch.add(slot.event());
+                    next++;
+                }
+
+                if (skipped > 0) {
+                    long lost = skipped;
+                    missed += lost;
+                    MISSED_EVENTS.add(lost);
+                    deliver(() -> subscriber.onOverrun(lost));
+                }
+                if (!batch.isEmpty()) {
+                    deliver(() -> subscriber.onEvents(batch));
+                    delivered += batch.size();
+                    batch.clear();
+                    position = next;
+                    idle = 0;
+                    continue;
+                }
+                position = next;
+                if (stopping) {
+                    return;
+                }
+                if (++idle < IDLE_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        /**
+         * Calls the subscriber, reporting what it throws so one bad batch does not end the subscription.
+         *
+         * @param call the call to the subscriber
+         */
+        private void deliver(Runnable call) {
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Retrieves the number of events handed to the subscriber.
+         *
+         * @return the events delivered
+         */
+        public long getDelivered() {
+            return delivered;
+        }
+
+        /**
+         * Retrieves the number of events the subscriber missed because it was lapped.
+         *
+         * @return the events missed
+         */
+        public long getMissed() {
+            return missed;
+        }
+
+        /**
+         * Retrieves how far behind the publishers the subscriber is.
+         *
+         * @return the number of events published but not yet read
+         */
+        public long getLag() {
+            return Math.max(0, nextSequence.get() - position);
+        }
+
+        /**
+         * Detaches the subscriber, once it has received the events already published, and stops its thread.
+         */
+        @Override
+        public void close() {
+            running = false;
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (subscriptions) {
+                subscriptions.remove(this);
+                hasSubscribers = !subscriptions.isEmpty();
+            }
+        }
+    }
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean hasSubscribers;
+
+    /**
+     * Initializes an empty stream.
+     *
+     * @param capacity the number of events kept for the subscribers, rounded up to a power of two
+     */
+    public EventStream(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Checks if any subscriber is attached, so publishers can skip building events nobody reads.
+     *
+     * @return true if the stream has subscribers
+     */
+    public boolean hasSubscribers() {
+        return hasSubscribers;
+    }
+
+    /**
+     * Publishes an event to every subscriber, without locking or waiting.
+     * The event is dropped if the ring wrapped around since its sequence was claimed and its slot already
+     * holds a later event.
+     *
+     * @param event the event
+     */
+    public void publish(ChangeEvent event) {
+        if (!hasSubscribers) {
+            return;
+        }
+        long sequence = nextSequence.getAndIncrement();
+        int index = (int) (sequence & mask);
+        Slot published = new Slot(sequence, event);
+        Slot current = slots.get(index);
+        while (current == null || current.sequence() < sequence) {
+            Slot witness = slots.compareAndExchangeRelease(index, current, published);
+            if (witness == current) {
+                PUBLISHED_EVENTS.increment();
+                return;
+            }
+            current = witness;
+        }
+        DROPPED_EVENTS.increment();
+    }
+
+    /**
+     * Attaches a subscriber, which receives the events published from now on.
+     *
+     * @param name the name of the subscriber, used to name its thread
+     * @param subscriber the subscriber
+     * @param batchSize the maximum number of events handed to the subscriber at once
+     * @return the subscription, to be closed to detach the subscriber
+     */
+    public Subscription subscribe(String name, Subscriber subscriber, int batchSize) {
+        Subscription subscription;
+        synchronized (subscriptions) {
+            subscription = new Subscription(name, subscriber, Math.max(1, batchSize));
+            subscriptions.add(subscription);
+            hasSubscribers = true;
+        }
+        subscription.thread.start();
+        return subscription;
+    }
+}
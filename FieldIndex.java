@@ -0,0 +1,76 @@
+package Business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Secondary index from a field of study or work to the participants of that field.
+ * Field names are interned, so every participant of the same field shares a single String instance.
+ * Each field is encoded to a small code, and the rows of its participants are kept in a dense bucket per code.
+ */
+public class FieldIndex {
+    private final StringDictionary fields;
+    private final TableIndex rowsByField;
+
+    /**
+     * Constructs an empty FieldIndex.
+     */
+    public FieldIndex() {
+        fields = new StringDictionary();
+        rowsByField = new TableIndex();
+    }
+
+    /**
+     * Returns the shared instance of a field name.
+     *
+     * @param field the field name to intern
+     * @return the interned field name, or null if the field is null
+     */
+    public static String intern(String field) {
+        return field == null ? null : field.intern();
+    }
+
+    /**
+     * Adds a participant to the bucket of its field.
+     *
+     * @param field the field of the participant
+     * @param row the row of the participant in the store
+     */
+    public void add(String field, int row) {
+        rowsByField.add(fields.encode(field), row);
+    }
+
+    /**
+     * Retrieves the number of participants of the given field.
+     *
+     * @param field the field to look up
+     * @return the number of participants of the field, 0 if the field does not exist
+     */
+    public int size(String field) {
+        return rowsByField.size(fields.find(field));
+    }
+
+    /**
+     * Retrieves a participant of the given field by its position, in registration order.
+     *
+     * @param field the field to look up
+     * @param i the position in the field, lower than size(field)
+     * @return the row of the participant at that position
+     */
+    public int get(String field, int i) {
+        return rowsByField.get(fields.find(field), i);
+    }
+
+    /**
+     * Retrieves every field that has participants.
+     *
+     * @return the fields, in order of appearance
+     */
+    public List<String> getFields() {
+        List<String> result = new ArrayList<>(fields.size());
+        for (int code = 0; code < fields.size(); code++) {
+            result.add(fields.decode(code));
+        }
+        return result;
+    }
+}
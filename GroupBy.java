@@ -0,0 +1,80 @@
+package Business;
+
+/**
+ * Enumeration representing the attributes by which the participants can be grouped in an Aggregation.
+ *
+ * The attributes include:
+ * TABLE - The table of the ticket. Participants without a ticket are not counted.
+ * HOUR - The hour slot of the ticket. Participants without a ticket are not counted.
+ * FIELD - The field of study or work.
+ * NATIONALITY - The nationality.
+ */
+public enum GroupBy {
+    TABLE, HOUR, FIELD, NATIONALITY;
+
+    private static final String UNKNOWN = "-";
+
+    /**
+     * The numeric key of a participant that is not counted.
+     */
+    static final int NO_KEY = Integer.MIN_VALUE;
+
+    /**
+     * Converts an attribute name, ignoring case, to its corresponding GroupBy value.
+     *
+     * @param name the name of the attribute
+     * @return the corresponding GroupBy, or null if the name is not recognized
+     */
+    public static GroupBy fromName(String name) {
+        for (GroupBy groupBy : values()) {
+            if (groupBy.name().equalsIgnoreCase(name)) {
+                return groupBy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the keys of this attribute are numbers, which are grouped without boxing.
+     *
+     * @return true for TABLE and HOUR
+     */
+    boolean isNumeric() {
+        return this == TABLE || this == HOUR;
+    }
+
+    /**
+     * Retrieves the numeric group of a participant, for a numeric attribute.
+     *
+     * @param store the store of the participant
+     * @param row the row of the participant
+     * @return the table or hour of the participant, or NO_KEY if the participant has no ticket
+     */
+    int numericKeyOf(ParticipantStore store, int row) {
+        if (!store.hasTicket(row)) {
+            return NO_KEY;
+        }
+        return this == TABLE ? store.getTable(row) : store.getHour(row);
+    }
+
+    /**
+     * Retrieves the named group of a participant, for FIELD or NATIONALITY.
+     *
+     * @param store the store of the participant
+     * @param row the row of the participant
+     * @return the field or nationality of the participant, "-" if it is missing
+     */
+    String keyOf(ParticipantStore store, int row) {
+        return orUnknown(this == FIELD ? store.getField(row) : store.getNationality(row));
+    }
+
+    /**
+     * Replaces a missing value by a placeholder, so that it still forms a group.
+     *
+     * @param value the value of the attribute
+     * @return the value, or "-" if it is null
+     */
+    private static String orUnknown(String value) {
+        return value == null ? UNKNOWN : value;
+    }
+}
@@ -0,0 +1,312 @@
+package Persistence;
+
+import Business.Participant;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader of the participant files of a bulk import, in CSV or in JSON lines.
+ * <pre>
+ * Both formats hold one participant per line, so the file is read in batches of lines and only one batch is
+ * kept in memory. Reading the lines is sequential, but parse only depends on the header, so the lines of
+ * a batch can be parsed by several threads at once.
+ *
+ * CSV: a header line names the columns, in any order, among name, birth, nationality, ticketId, grade, field,
+ * hour, table and drinks. ticketId is required. Values may be quoted, with "" for a quote. A participant has
+ * a ticket when its hour is not empty.
+ *   name,birth,nationality,ticketId,grade,field,hour,table,drinks
+ *   "Zoë ""Q""",2001-02-03,Spain,42,2,Engineering,20,3,0
+ *
+ * JSON lines: one object per line with the attributes of Sallefest.json, and the ticket of Tickets.json
+ * under "ticket", false, null or missing for no ticket.
+ *   {"name":"Zoë","birth":"2001-02-03","nationality":"Spain","ticketId":42,"grade":2,"field":"Engineering","ticket":{"hour":20,"table":3,"drinks":0}}
+ *
+ * A column or attribute that is not one of these is rejected, so a misspelt one is never silently dropped.
+ * The format is chosen by the extension of the file: .csv for CSV, anything else for JSON lines.
+ * </pre>
+ */
+public class ImportReader implements Closeable {
+    private static final String[] COLUMNS = {"name", "birth", "nationality", "ticketId", "grade", "field", "hour", "table", "drinks"};
+    private static final int NAME = 0;
+    private static final int BIRTH = 1;
+    private static final int NATIONALITY = 2;
+    private static final int TICKET_ID = 3;
+    private static final int GRADE = 4;
+    private static final int FIELD = 5;
+    private static final int HOUR = 6;
+    private static final int TABLE = 7;
+    private static final int DRINKS = 8;
+
+    private final BufferedReader in;
+    private final boolean csv;
+    private final int[] columnOf;
+    private long lineNumber;
+
+    /**
+     * Opens an import file and, for a CSV file, reads and checks its header.
+     *
+     * @param path the path of the file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the CSV header has an unknown or repeated column, or no ticketId column
+     */
+    public ImportReader(Path path) throws IOException {
+        in = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        csv = path.getFileName().toString().toLowerCase().endsWith(".csv");
+        columnOf = csv ? readHeader() : null;
+    }
+
+    /**
+     * Reads the CSV header and maps every column of the file to its attribute.
+     *
+     * @return the attribute of every column of the file
+     * @throws IOException if the file cannot be read
+     */
+    private int[] readHeader() throws IOException {
+        String header = in.readLine();
+        lineNumber++;
+        if (header == null) {
+            throw new IllegalArgumentException("The CSV file has no header");
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+
+        List<String> names = splitCsv(header);
+        int[] attributes = new int[names.size()];
+        boolean[] seen = new boolean[COLUMNS.length];
+        for (int i = 0; i < attributes.length; i++) {
+            attributes[i] = attributeOf(names.get(i).strip());
+            if (seen[attributes[i]]) {
+                throw new IllegalArgumentException("The column " + names.get(i) + " is repeated");
+            }
+            seen[attributes[i]] = true;
+        }
+        if (!seen[TICKET_ID]) {
+            throw new IllegalArgumentException("The CSV file has no ticketId column");
+        }
+        return attributes;
+    }
+
+    /**
+     * Finds the attribute of a column or JSON name.
+     *
+     * @param name the name of the column
+     * @return the index of the attribute in COLUMNS
+     * @throws IllegalArgumentException if the name is not an attribute of a participant
+     */
+    private static int attributeOf(String name) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown attribute " + name);
+    }
+
+    /**
+     * Reads the next lines of the file, skipping the blank ones.
+     *
+     * @param lines where the lines are added
+     * @param lineNumbers where the line number of every line is added, to report its errors
+     * @param max the maximum number of lines to read
+     * @return the number of lines read, 0 at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    public int readBatch(List<String> lines, List<Long> lineNumbers, int max) throws IOException {
+        int read = 0;
+        String line;
+
+        while (read < max && (line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            lines.add(line);
+            lineNumbers.add(lineNumber);
+            read++;
+        }
+        return read;
+    }
+
+    /**
+     * Parses one line into a participant. Safe to call from several threads at once.
+     *
+     * @param line a line returned by readBatch
+     * @return the participant of the line
+     * @throws ParseException if a JSON line is not valid JSON
+     * @throws IllegalArgumentException if the line has an unknown attribute, a missing ticket ID, an invalid number,
+     *                                  or a ticket that is not an object, false or null
+     */
+    public Participant parse(String line) throws ParseException {
+        try {
+            return csv ? parseCsv(line) : parseJson(line);
+        } catch (IOException e) {
+            // reading from a StringReader never fails
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Parses a CSV line.
+     *
+     * @param line the line
+     * @return the participant of the line
+     */
+    private Participant parseCsv(String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() != columnOf.length) {
+            throw new IllegalArgumentException("Expected " + columnOf.length + " values but found " + values.size());
+        }
+
+        String[] attributes = new String[COLUMNS.length];
+        for (int i = 0; i < columnOf.length; i++) {
+            String value = values.get(i);
+            attributes[columnOf[i]] = value.isEmpty() ? null : value;
+        }
+        boolean haveTicket = attributes[HOUR] != null;
+        return new Participant(attributes[NAME], attributes[BIRTH], attributes[NATIONALITY],
+                parseInt(attributes[TICKET_ID], COLUMNS[TICKET_ID], true), parseInt(attributes[GRADE], COLUMNS[GRADE], false),
+                attributes[FIELD], haveTicket, haveTicket ? parseInt(attributes[HOUR], COLUMNS[HOUR], true) : 0,
+                haveTicket ? parseInt(attributes[TABLE], COLUMNS[TABLE], false) : 0, haveTicket ? parseInt(attributes[DRINKS], COLUMNS[DRINKS], false) : 0);
+    }
+
+    /**
+     * Parses the number of a CSV value.
+     *
+     * @param value the value, null if it is empty
+     * @param name the name of the column, for the error message
+     * @param required true if the value cannot be empty
+     * @return the number, 0 for an empty optional value
+     */
+    private static int parseInt(String value, String name, boolean required) {
+        if (value == null) {
+            if (required) {
+                throw new IllegalArgumentException("Missing " + name);
+            }
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value);
+        }
+    }
+
+    /**
+     * Splits a CSV line into its values, removing the quotes.
+     *
+     * @param line the line
+     * @return the values
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>(COLUMNS.length);
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    /**
+     * Parses a JSON line.
+     *
+     * @param line the line
+     * @return the participant of the line
+     * @throws IOException never, the line is read from memory
+     * @throws ParseException if the line is not valid JSON
+     */
+    private static Participant parseJson(String line) throws IOException, ParseException {
+        String name = null;
+        String birth = null;
+        String nationality = null;
+        Integer ticketId = null;
+        int grade = 0;
+        String field = null;
+        boolean haveTicket = false;
+        int hour = 0;
+        int table = 0;
+        int drinks = 0;
+
+        try (JsonStreamReader reader = new JsonStreamReader(new StringReader(line))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String attribute = reader.nextName();
+                switch (attribute) {
+                    case "name" -> name = reader.nextNullableString();
+                    case "birth" -> birth = reader.nextNullableString();
+                    case "nationality" -> nationality = reader.nextNullableString();
+                    case "ticketId" -> ticketId = reader.nextInt();
+                    case "grade" -> grade = reader.nextInt();
+                    case "field" -> field = reader.nextNullableString();
+                    case "ticket" -> {
+                        if (reader.peek() == JsonStreamReader.Token.BEGIN_OBJECT) {
+                            haveTicket = true;
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                String ticketAttribute = reader.nextName();
+                                switch (ticketAttribute) {
+                                    case "hour" -> hour = reader.nextInt();
+                                    case "table" -> table = reader.nextInt();
+                                    case "drinks" -> drinks = reader.nextInt();
+                                    default -> throw new IllegalArgumentException("Unknown ticket attribute " + ticketAttribute);
+                                }
+                            }
+                            reader.endObject();
+                        } else if (reader.peek() == JsonStreamReader.Token.NULL) {
+                            reader.skipValue();
+                        } else if (reader.peek() != JsonStreamReader.Token.BOOLEAN || reader.nextBoolean()) {
+                            throw new IllegalArgumentException("The ticket must be an object, false or null");
+                        }
+                    }
+                    default -> throw new IllegalArgumentException("Unknown attribute " + attribute);
+                }
+            }
+            reader.endObject();
+            if (reader.peek() != JsonStreamReader.Token.END_DOCUMENT) {
+                throw new IllegalArgumentException("Unexpected data after the participant");
+            }
+        }
+
+        if (ticketId == null) {
+            throw new IllegalArgumentException("Missing ticketId");
+        }
+        return new Participant(name, birth, nationality, ticketId, grade, field, haveTicket, hour, table, drinks);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,580 @@
+package Persistence;
+
+import org.json.simple.parser.ParseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Pull reader that walks a JSON document token by token without building it in memory.
+ * Only one buffer of characters is kept, so memory use does not depend on the size of the document.
+ * Numbers are read as integers, which is all the data files contain.
+ * Any syntax error is reported as a ParseException carrying the character position where it was found.
+ */
+public class JsonStreamReader implements Closeable {
+
+    /**
+     * Kinds of token the reader can return.
+     */
+    public enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+
+    private final Reader in;
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+    private long bufferStart;
+
+    private int[] stack = new int[32];
+    private int stackSize;
+
+    private Token peeked;
+    private long peekedNumber;
+    private boolean peekedBoolean;
+    private final StringBuilder stringBuilder = new StringBuilder();
+
+    /**
+     * Constructs a JsonStreamReader over the given character stream.
+     *
+     * @param in the reader with the JSON document
+     */
+    public JsonStreamReader(Reader in) {
+        this.in = in;
+        stack[stackSize++] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Retrieves the position, in characters from the start of the document, of the next character to be read.
+     *
+     * @return the current character position
+     */
+    public long getPosition() {
+        return bufferStart + pos;
+    }
+
+    /**
+     * Returns the kind of the next token without consuming it.
+     *
+     * @return the next token
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the document is not valid JSON
+     */
+    public Token peek() throws IOException, ParseException {
+        if (peeked != null) {
+            return peeked;
+        }
+
+        int scope = stack[stackSize - 1];
+        int c;
+        switch (scope) {
+            case EMPTY_ARRAY -> {
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (c != -1) {
+                    pos--;
+                }
+            }
+            case NONEMPTY_ARRAY -> {
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                } else if (c != ',') {
+                    throw unexpectedChar(c);
+                }
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw unexpectedChar(c);
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw unexpectedChar(c);
+                }
+                stack[stackSize - 1] = DANGLING_NAME;
+                return peeked = Token.NAME;
+            }
+            case DANGLING_NAME -> {
+                c = nextNonWhitespace();
+                if (c != ':') {
+                    throw unexpectedChar(c);
+                }
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+            }
+            case EMPTY_DOCUMENT -> stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+            default -> {
+                c = nextNonWhitespace();
+                if (c != -1) {
+                    throw unexpectedChar(c);
+                }
+                return peeked = Token.END_DOCUMENT;
+            }
+        }
+
+        return peeked = peekValue();
+    }
+
+    /**
+     * Reads the first characters of a value and classifies it.
+     * Literals and numbers are consumed entirely; strings leave their content to be read by readString.
+     *
+     * @return the token of the value
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the value is not valid JSON
+     */
+    private Token peekValue() throws IOException, ParseException {
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '{' -> {
+                return Token.BEGIN_OBJECT;
+            }
+            case '[' -> {
+                return Token.BEGIN_ARRAY;
+            }
+            case '"' -> {
+                return Token.STRING;
+            }
+            case 't' -> {
+                expectLiteral("rue");
+                peekedBoolean = true;
+                return Token.BOOLEAN;
+            }
+            case 'f' -> {
+                expectLiteral("alse");
+                peekedBoolean = false;
+                return Token.BOOLEAN;
+            }
+            case 'n' -> {
+                expectLiteral("ull");
+                return Token.NULL;
+            }
+            default -> {
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    readNumber(c);
+                    return Token.NUMBER;
+                }
+                throw unexpectedChar(c);
+            }
+        }
+    }
+
+    /**
+     * Consumes the rest of a literal such as true, false or null.
+     *
+     * @param rest the characters expected after the first one
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the characters do not match
+     */
+    private void expectLiteral(String rest) throws IOException, ParseException {
+        for (int i = 0; i < rest.length(); i++) {
+            int c = read();
+            if (c != rest.charAt(i)) {
+                throw unexpectedChar(c);
+            }
+        }
+    }
+
+    /**
+     * Reads an integer number into peekedNumber.
+     *
+     * @param first the first character of the number, already consumed
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the number is malformed or does not fit in a long
+     */
+    private void readNumber(int first) throws IOException, ParseException {
+        boolean negative = first == '-';
+        long value = 0;
+        int digits = 0;
+        int c = negative ? read() : first;
+
+        while (c >= '0' && c <= '9') {
+            if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                throw unexpectedChar(c);
+            }
+            value = value * 10 + (c - '0');
+            digits++;
+            c = read();
+        }
+        if (digits == 0 || c == '.' || c == 'e' || c == 'E') {
+            throw unexpectedChar(c);
+        }
+        if (c != -1) {
+            pos--;
+        }
+        peekedNumber = negative ? -value : value;
+    }
+
+    /**
+     * Reads the content of a string whose opening quote has already been consumed.
+     *
+     * @return the decoded string
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the string is not terminated or has an invalid escape
+     */
+    private String readString() throws IOException, ParseException {
+        stringBuilder.setLength(0);
+
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    stringBuilder.append(buffer, start, pos - start - 1);
+                    return stringBuilder.toString();
+                } else if (c == '\\') {
+                    stringBuilder.append(buffer, start, pos - start - 1);
+                    stringBuilder.append(readEscape());
+                    start = pos;
+                }
+            }
+            stringBuilder.append(buffer, start, pos - start);
+            if (!fill()) {
+                throw new ParseException((int) getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, "unterminated string");
+            }
+        }
+    }
+
+    /**
+     * Reads an escape sequence whose backslash has already been consumed.
+     *
+     * @return the escaped character
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the escape sequence is invalid
+     */
+    private char readEscape() throws IOException, ParseException {
+        int c = read();
+        switch (c) {
+            case '"', '\\', '/' -> {
+                return (char) c;
+            }
+            case 'b' -> {
+                return '\b';
+            }
+            case 'f' -> {
+                return '\f';
+            }
+            case 'n' -> {
+                return '\n';
+            }
+            case 'r' -> {
+                return '\r';
+            }
+            case 't' -> {
+                return '\t';
+            }
+            case 'u' -> {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int hex = read();
+                    int digit = hex == -1 ? -1 : Character.digit(hex, 16);
+                    if (digit < 0) {
+                        throw unexpectedChar(hex);
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            }
+            default -> throw unexpectedChar(c);
+        }
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is not the start of an object
+     */
+    public void beginObject() throws IOException, ParseException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the end of the current object.
+     *
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is not the end of an object
+     */
+    public void endObject() throws IOException, ParseException {
+        expect(Token.END_OBJECT);
+        stackSize--;
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is not the start of an array
+     */
+    public void beginArray() throws IOException, ParseException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the end of the current array.
+     *
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is not the end of an array
+     */
+    public void endArray() throws IOException, ParseException {
+        expect(Token.END_ARRAY);
+        stackSize--;
+    }
+
+    /**
+     * Checks whether the current object or array has more elements.
+     *
+     * @return true if there is another element, false if the container ends
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the document is not valid JSON
+     */
+    public boolean hasNext() throws IOException, ParseException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consumes the name of the next property of the current object.
+     *
+     * @return the property name
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is not a property name
+     */
+    public String nextName() throws IOException, ParseException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    /**
+     * Consumes a string value.
+     *
+     * @return the string value
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is not a string
+     */
+    public String nextString() throws IOException, ParseException {
+        expect(Token.STRING);
+        return readString();
+    }
+
+    /**
+     * Consumes a string value that may also be null.
+     *
+     * @return the string value, or null if the value is null
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is neither a string nor null
+     */
+    public String nextNullableString() throws IOException, ParseException {
+        if (peek() == Token.NULL) {
+            peeked = null;
+            return null;
+        }
+        return nextString();
+    }
+
+    /**
+     * Consumes an integer value.
+     *
+     * @return the integer value
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is not a number
+     */
+    public long nextLong() throws IOException, ParseException {
+        expect(Token.NUMBER);
+        return peekedNumber;
+    }
+
+    /**
+     * Consumes an integer value that must fit in an int.
+     *
+     * @return the integer value
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is not a number or the number does not fit in an int
+     */
+    public int nextInt() throws IOException, ParseException {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new ParseException((int) getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Consumes a boolean value.
+     *
+     * @return the boolean value
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is not a boolean
+     */
+    public boolean nextBoolean() throws IOException, ParseException {
+        expect(Token.BOOLEAN);
+        return peekedBoolean;
+    }
+
+    /**
+     * Consumes the next value, including every nested object or array, without keeping it.
+     *
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the document is not valid JSON
+     */
+    public void skipValue() throws IOException, ParseException {
+        int depth = 0;
+
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    depth++;
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    depth++;
+                }
+                case END_OBJECT -> {
+                    endObject();
+                    depth--;
+                }
+                case END_ARRAY -> {
+                    endArray();
+                    depth--;
+                }
+                case NAME -> nextName();
+                case STRING -> nextString();
+                case END_DOCUMENT -> throw unexpectedToken(Token.END_DOCUMENT);
+                default -> peeked = null;
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Consumes the next token, checking that it is of the expected kind.
+     *
+     * @param token the expected token
+     * @throws IOException if an I/O error occurs while reading
+     * @throws ParseException if the next token is of a different kind
+     */
+    private void expect(Token token) throws IOException, ParseException {
+        Token next = peek();
+        if (next != token) {
+            throw unexpectedToken(next);
+        }
+        peeked = null;
+    }
+
+    /**
+     * Pushes a new scope when entering an object or an array.
+     *
+     * @param scope the scope to push
+     */
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = scope;
+    }
+
+    /**
+     * Reads the next character that is not JSON whitespace.
+     *
+     * @return the character, or -1 at the end of the stream
+     * @throws IOException if an I/O error occurs while reading
+     */
+    private int nextNonWhitespace() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+        return c;
+    }
+
+    /**
+     * Reads the next character from the buffer, refilling it when needed.
+     *
+     * @return the character, or -1 at the end of the stream
+     * @throws IOException if an I/O error occurs while reading
+     */
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * Replaces the buffer content with the next chunk of the stream.
+     * The last character of the previous chunk is kept at the start so a single-character push back is always possible.
+     *
+     * @return true if characters were read, false at the end of the stream
+     * @throws IOException if an I/O error occurs while reading
+     */
+    private boolean fill() throws IOException {
+        int keep = 0;
+        if (limit > 0) {
+            buffer[0] = buffer[limit - 1];
+            keep = 1;
+        }
+        bufferStart += limit - keep;
+
+        int read = in.read(buffer, keep, buffer.length - keep);
+        if (read <= 0) {
+            bufferStart -= limit - keep;
+            return false;
+        }
+        pos = keep;
+        limit = keep + read;
+        return true;
+    }
+
+    /**
+     * Builds the exception for a character that is not allowed at the current position.
+     *
+     * @param c the unexpected character, or -1 at the end of the stream
+     * @return the exception to throw
+     */
+    private ParseException unexpectedChar(int c) {
+        if (c == -1) {
+            return new ParseException((int) getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, "end of file");
+        }
+        return new ParseException((int) getPosition() - 1, ParseException.ERROR_UNEXPECTED_CHAR, (char) c);
+    }
+
+    /**
+     * Builds the exception for a token that is not allowed at the current position.
+     *
+     * @param token the unexpected token
+     * @return the exception to throw
+     */
+    private ParseException unexpectedToken(Token token) {
+        return new ParseException((int) getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
+    }
+
+    /**
+     * Closes the underlying reader.
+     *
+     * @throws IOException if an I/O error occurs while closing
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
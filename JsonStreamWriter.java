@@ -0,0 +1,323 @@
+package Persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Writer that streams a JSON document as UTF-8 straight into a FileChannel through a large byte buffer.
+ * No String with the whole document is ever built, so the memory needed does not depend on the size of the data.
+ * Commas and colons are placed automatically from the sequence of calls.
+ */
+public class JsonStreamWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean[] empty = new boolean[32];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Constructs a JsonStreamWriter over the given channel.
+     *
+     * @param channel the channel where the document is written
+     */
+    public JsonStreamWriter(FileChannel channel) {
+        this.channel = channel;
+        empty[0] = true;
+    }
+
+    /**
+     * Writes the start of an object.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter beginObject() throws IOException {
+        beforeValue();
+        put('{');
+        push();
+        return this;
+    }
+
+    /**
+     * Writes the end of the current object.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter endObject() throws IOException {
+        depth--;
+        put('}');
+        return this;
+    }
+
+    /**
+     * Writes the start of an array.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter beginArray() throws IOException {
+        beforeValue();
+        put('[');
+        push();
+        return this;
+    }
+
+    /**
+     * Writes the end of the current array.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter endArray() throws IOException {
+        depth--;
+        put(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next property of the current object.
+     *
+     * @param name the property name
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name);
+        put(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value, or null if the string is null.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    /**
+     * Writes an integer value.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter value(long value) throws IOException {
+        beforeValue();
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return this;
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+
+        ensure(20);
+        int start = buffer.position();
+        do {
+            buffer.put((byte) ('0' + value % 10));
+            value /= 10;
+        } while (value > 0);
+
+        for (int i = start, j = buffer.position() - 1; i < j; i++, j--) {
+            byte b = buffer.get(i);
+            buffer.put(i, buffer.get(j));
+            buffer.put(j, b);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a decimal value. JSON has no representation for NaN or infinity, so they are written as null.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+        beforeValue();
+        writeAscii(Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value the value to write
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter value(boolean value) throws IOException {
+        beforeValue();
+        writeAscii(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a null value.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter nullValue() throws IOException {
+        beforeValue();
+        writeAscii("null");
+        return this;
+    }
+
+    /**
+     * Ends a top level value with a new line, so the next value starts a new line of a JSON lines file
+     * instead of being separated by a comma.
+     *
+     * @return this writer
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public JsonStreamWriter newLine() throws IOException {
+        put('\n');
+        empty[0] = true;
+        return this;
+    }
+
+    /**
+     * Writes the comma that separates the value from the previous one, unless it follows a property name.
+     *
+     * @throws IOException if an I/O error occurs while writing
+     */
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (!empty[depth]) {
+            put(',');
+        }
+        empty[depth] = false;
+    }
+
+    /**
+     * Enters a new object or array.
+     */
+    private void push() {
+        if (++depth == empty.length) {
+            empty = Arrays.copyOf(empty, depth * 2);
+        }
+        empty[depth] = true;
+    }
+
+    /**
+     * Writes a quoted string, escaping the characters JSON requires and encoding the rest as UTF-8.
+     *
+     * @param value the string to write
+     * @throws IOException if an I/O error occurs while writing
+     */
+    private void writeString(String value) throws IOException {
+        put('"');
+        int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            ensure(6);
+
+            if (c == '"' || c == '\\') {
+                buffer.put((byte) '\\').put((byte) c);
+            } else if (c < 0x20) {
+                buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                        .put((byte) Character.forDigit(c >> 4, 16)).put((byte) Character.forDigit(c & 0xF, 16));
+            } else if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18)).put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3F)).put((byte) (0x80 | codePoint & 0x3F));
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        put('"');
+    }
+
+    /**
+     * Writes a string made only of ASCII characters, without quoting it.
+     *
+     * @param ascii the characters to write
+     * @throws IOException if an I/O error occurs while writing
+     */
+    private void writeAscii(String ascii) throws IOException {
+        ensure(ascii.length());
+        for (int i = 0; i < ascii.length(); i++) {
+            buffer.put((byte) ascii.charAt(i));
+        }
+    }
+
+    /**
+     * Writes a single ASCII character.
+     *
+     * @param c the character to write
+     * @throws IOException if an I/O error occurs while writing
+     */
+    private void put(char c) throws IOException {
+        ensure(1);
+        buffer.put((byte) c);
+    }
+
+    /**
+     * Makes room in the buffer for the given number of bytes, writing its content to the channel if needed.
+     *
+     * @param bytes the number of bytes that are about to be written
+     * @throws IOException if an I/O error occurs while writing
+     */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException if an I/O error occurs while writing
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered bytes and closes the channel.
+     *
+     * @throws IOException if an I/O error occurs while writing
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package Business;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent histogram of latencies in nanoseconds with a bounded relative error, in the style of HdrHistogram.
+ * <pre>
+ * Values below 2^SUB_BUCKET_BITS nanoseconds have a bucket each. Above that, every power of two is split into
+ * 2^(SUB_BUCKET_BITS - 1) linear buckets, so a value is known to within 1 / 2^(SUB_BUCKET_BITS - 1), about 3%,
+ * whatever its magnitude. The bucket of a value is found with a leading zero count and two shifts.
+ *
+ * Recording never locks and never allocates: it increments a bucket, the sum and, rarely, the maximum, all atomic.
+ * The percentiles are computed from the buckets when they are read, so they may miss the latencies recorded
+ * concurrently with the read.
+ * </pre>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_BITS = SUB_BUCKET_BITS - 1;
+    private static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Finds the bucket of a latency.
+     *
+     * @param nanos the latency, not negative
+     * @return the index of its bucket
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return (shift << HALF_SUB_BUCKET_BITS) + (int) (nanos >>> shift);
+    }
+
+    /**
+     * Retrieves the highest latency that falls in a bucket.
+     *
+     * @param bucket the index of the bucket
+     * @return the upper bound of the bucket in nanoseconds
+     */
+    private static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket >>> HALF_SUB_BUCKET_BITS) - 1;
+        long mantissa = bucket - ((long) shift << HALF_SUB_BUCKET_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values, from a clock going backwards, count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.getAndIncrement(bucketOf(value));
+        sum.getAndAdd(value);
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Records the latency of an operation that started at the given time.
+     *
+     * @param startNanos the System.nanoTime when the operation started
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Retrieves the number of latencies recorded.
+     *
+     * @return the number of latencies
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves the sum of the latencies recorded.
+     *
+     * @return the sum in nanoseconds
+     */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /**
+     * Retrieves the highest latency recorded.
+     *
+     * @return the maximum in nanoseconds, 0 if none was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Estimates the latency below which the given fraction of the latencies fall.
+     *
+     * @param quantile the fraction, between 0 and 1
+     * @return the upper bound of the bucket holding the quantile, in nanoseconds, 0 if none was recorded
+     */
+    public long getQuantile(double quantile) {
+        return getQuantiles(new double[]{quantile})[0];
+    }
+
+    /**
+     * Estimates several quantiles in a single pass over the buckets.
+     *
+     * @param quantiles the fractions, between 0 and 1, in ascending order
+     * @return the upper bound of the bucket holding each quantile, in nanoseconds, 0 if none was recorded
+     */
+    public long[] getQuantiles(double[] quantiles) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+
+        long[] values = new long[quantiles.length];
+        if (count == 0) {
+            return values;
+        }
+        int bucket = 0;
+        long seen = snapshot[0];
+        for (int q = 0; q < quantiles.length; q++) {
+            long rank = Math.max(1, (long) Math.ceil(quantiles[q] * count));
+            while (seen < rank && bucket < BUCKETS - 1) {
+                seen += snapshot[++bucket];
+            }
+            values[q] = Math.min(highestOf(bucket), getMax());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,422 @@
+package Business;
+
+import Persistence.MappedSnapshot;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ParticipantStore that reads the participants from a mapped binary snapshot on demand, instead of loading them.
+ * <pre>
+ * The values that never change are read in place from the mapping: validating a ticket decodes nothing, and
+ * a listing only decodes the names it writes. Fields and nationalities are shared by many rows, so their strings
+ * are kept by reference in a small cache of their own. The first time the ticket of a row changes, the row is
+ * decoded into a Participant and kept in a bounded LRU cache, split in SEGMENTS segments with a lock each,
+ * and its table and drinks are read from the cache from then on.
+ *
+ * A ticket changed in the cache is marked dirty. When a dirty row is evicted, its table and drinks are written
+ * back in place into the snapshot, and writeBack writes every dirty row and forces the snapshot to disk,
+ * so the heap holds at most the cache whatever the size of the snapshot.
+ *
+ * Participants registered after the snapshot was mapped are kept in memory, in an ObjectParticipantStore,
+ * and make writeBack refuse to write the store back until the snapshot is saved again. Once a new snapshot is
+ * saved, remap maps it in place of the old one and folds the participants it holds into it.
+ *
+ * The snapshot, its size, the participants added after it and the shared strings are replaced together by remap,
+ * so every method reads them once, as a Mapping. The ticket of a row is only changed, and read when it can be
+ * changed, while holding the monitor of its segment, which remap holds for every segment.
+ * </pre>
+ */
+public class LazyParticipantStore implements ParticipantStore {
+    private static final int SEGMENTS = 16;
+    private static final int SHARED_STRINGS = 1 << 10;
+
+    /**
+     * A decoded row in the cache.
+     */
+    private static final class Entry {
+        private final Participant participant;
+        private boolean dirty;
+
+        private Entry(Participant participant) {
+            this.participant = participant;
+        }
+    }
+
+    /**
+     * A decoded string of the snapshot with its reference, replaced as a whole in the shared string cache.
+     */
+    private record SharedString(int reference, String value) {
+    }
+
+    /**
+     * The mapped snapshot, with the participants registered after it and the strings decoded from it.
+     */
+    private static final class Mapping {
+        private final MappedSnapshot snapshot;
+        private final int snapshotSize;
+        private final ObjectParticipantStore added;
+        private final SharedString[] sharedStrings = new SharedString[SHARED_STRINGS];
+
+        private Mapping(MappedSnapshot snapshot, ObjectParticipantStore added) {
+            this.snapshot = snapshot;
+            this.snapshotSize = snapshot.size();
+            this.added = added;
+        }
+    }
+
+    /**
+     * One segment of the LRU cache, in access order, that writes back its dirty rows when it evicts them.
+     * It is only accessed while holding its own monitor.
+     */
+    private final class Segment extends LinkedHashMap<Integer, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            if (eldest.getValue().dirty) {
+                writeBack(eldest.getKey(), eldest.getValue());
+            }
+            return true;
+        }
+    }
+
+    private volatile Mapping mapping;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * Initializes a store over a mapped snapshot, with an empty cache.
+     *
+     * @param snapshot the mapped binary snapshot
+     * @param cacheSize the maximum number of rows kept decoded
+     */
+    public LazyParticipantStore(MappedSnapshot snapshot, int cacheSize) {
+        this.mapping = new Mapping(snapshot, new ObjectParticipantStore());
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Math.max(1, cacheSize / SEGMENTS));
+        }
+    }
+
+    /**
+     * Retrieves the segment of the cache that holds a row of the snapshot.
+     *
+     * @param row the row
+     * @return the segment
+     */
+    private Segment segment(int row) {
+        return segments[row & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Retrieves the decoded row, decoding it into the cache if needed. The caller must hold the segment's monitor.
+     *
+     * @param segment the segment of the row
+     * @param row the row of the snapshot
+     * @return the cached row
+     */
+    private Entry load(Segment segment, int row) {
+        Entry entry = segment.get(row);
+        if (entry == null) {
+            entry = new Entry(mapping.snapshot.read(row));
+            segment.put(row, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Writes the ticket of a dirty row back into the snapshot. The caller must hold the segment's monitor.
+     *
+     * @param row the row of the snapshot
+     * @param entry the cached row
+     */
+    private void writeBack(int row, Entry entry) {
+        Ticket ticket = entry.participant.getTicket();
+        mapping.snapshot.writeTicket(row, ticket.getTable(), ticket.getDrinks());
+        entry.dirty = false;
+    }
+
+    /**
+     * Decodes a string shared by many rows, such as a field or a nationality, through the shared string cache.
+     *
+     * @param current the mapping the reference belongs to
+     * @param reference the reference of the string in the snapshot, -1 for null
+     * @return the string
+     */
+    private static String sharedString(Mapping current, int reference) {
+        if (reference == -1) {
+            return null;
+        }
+        int slot = reference & (SHARED_STRINGS - 1);
+        SharedString shared = current.sharedStrings[slot];
+        if (shared == null || shared.reference() != reference) {
+            shared = new SharedString(reference, current.snapshot.getString(reference));
+            current.sharedStrings[slot] = shared;
+        }
+        return shared.value();
+    }
+
+    @Override
+    public int add(Participant participant) {
+        Mapping current = mapping;
+        return current.snapshotSize + current.added.add(participant);
+    }
+
+    @Override
+    public int size() {
+        Mapping current = mapping;
+        return current.snapshotSize + current.added.size();
+    }
+
+    @Override
+    public String getName(int row) {
+        Mapping current = mapping;
+        if (row >= current.snapshotSize) {
+            return current.added.getName(row - current.snapshotSize);
+        }
+        return current.snapshot.getName(row);
+    }
+
+    @Override
+    public int getTicketId(int row) {
+        Mapping current = mapping;
+        return row >= current.snapshotSize ? current.added.getTicketId(row - current.snapshotSize) : current.snapshot.getTicketId(row);
+    }
+
+    @Override
+    public String getField(int row) {
+        Mapping current = mapping;
+        return row >= current.snapshotSize ? current.added.getField(row - current.snapshotSize)
+                : sharedString(current, current.snapshot.getFieldReference(row));
+    }
+
+    @Override
+    public String getNationality(int row) {
+        Mapping current = mapping;
+        return row >= current.snapshotSize ? current.added.getNationality(row - current.snapshotSize)
+                : sharedString(current, current.snapshot.getNationalityReference(row));
+    }
+
+    @Override
+    public boolean hasTicket(int row) {
+        Mapping current = mapping;
+        return row >= current.snapshotSize ? current.added.hasTicket(row - current.snapshotSize) : current.snapshot.hasTicket(row);
+    }
+
+    @Override
+    public int getHour(int row) {
+        Mapping current = mapping;
+        return row >= current.snapshotSize ? current.added.getHour(row - current.snapshotSize) : current.snapshot.getHour(row);
+    }
+
+    @Override
+    public int getTable(int row) {
+        Segment segment = segment(row);
+        synchronized (segment) {
+            Mapping current = mapping;
+            if (row >= current.snapshotSize) {
+                return current.added.getTable(row - current.snapshotSize);
+            }
+            Entry entry = segment.get(row);
+            return entry != null ? entry.participant.getTicket().getTable() : current.snapshot.getTable(row);
+        }
+    }
+
+    @Override
+    public void setTable(int row, int table) {
+        Segment segment = segment(row);
+        synchronized (segment) {
+            Mapping current = mapping;
+            if (row >= current.snapshotSize) {
+                current.added.setTable(row - current.snapshotSize, table);
+                return;
+            }
+            Entry entry = load(segment, row);
+            entry.participant.getTicket().setTable(table);
+            entry.dirty = true;
+        }
+    }
+
+    @Override
+    public int getDrinks(int row) {
+        Segment segment = segment(row);
+        synchronized (segment) {
+            Mapping current = mapping;
+            if (row >= current.snapshotSize) {
+                return current.added.getDrinks(row - current.snapshotSize);
+            }
+            Entry entry = segment.get(row);
+            return entry != null ? entry.participant.getTicket().getDrinks() : current.snapshot.getDrinks(row);
+        }
+    }
+
+    @Override
+    public int addDrinks(int row, int drinks) {
+        Segment segment = segment(row);
+        synchronized (segment) {
+            Mapping current = mapping;
+            if (row >= current.snapshotSize) {
+                return current.added.addDrinks(row - current.snapshotSize, drinks);
+            }
+            Entry entry = load(segment, row);
+            entry.dirty = true;
+            return entry.participant.getTicket().addDrink(drinks);
+        }
+    }
+
+    @Override
+    public void setDrinks(int row, int drinks) {
+        Segment segment = segment(row);
+        synchronized (segment) {
+            Mapping current = mapping;
+            if (row >= current.snapshotSize) {
+                current.added.setDrinks(row - current.snapshotSize, drinks);
+                return;
+            }
+            Entry entry = load(segment, row);
+            entry.participant.getTicket().setDrinks(drinks);
+            entry.dirty = true;
+        }
+    }
+
+    /**
+     * Copies a row without adding it to the cache, so saving every participant does not evict the rows in use.
+     *
+     * @param row the row of the participant
+     * @return a copy of the participant
+     */
+    @Override
+    public Participant copyOf(int row) {
+        Segment segment = segment(row);
+        Participant participant;
+        synchronized (segment) {
+            Mapping current = mapping;
+            if (row >= current.snapshotSize) {
+                return current.added.copyOf(row - current.snapshotSize);
+            }
+            Entry entry = segment.get(row);
+            if (entry == null) {
+                return current.snapshot.read(row);
+            }
+            participant = entry.participant;
+        }
+        Ticket ticket = participant.getTicket();
+        return new Participant(participant.getName(), (String) participant.getBirth(), (String) participant.getNationality(),
+                participant.getTicketId(), (int) participant.getGrade(), (String) participant.getField(),
+                ticket != null, ticket != null ? ticket.getHour() : 0, ticket != null ? ticket.getTable() : 0, ticket != null ? ticket.getDrinks() : 0);
+    }
+
+    /**
+     * Writes the ticket of every dirty row back into the snapshot and forces it to disk, while every participant
+     * is in the snapshot.
+     *
+     * @return true if the changes were written back, false if a participant was registered after the snapshot was mapped
+     */
+    @Override
+    public boolean writeBack() {
+        Mapping current = mapping;
+        if (current.added.size() > 0) {
+            return false;
+        }
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Iterator<Map.Entry<Integer, Entry>> entries = segment.entrySet().iterator();
+                while (entries.hasNext()) {
+                    Map.Entry<Integer, Entry> entry = entries.next();
+                    if (entry.getValue().dirty) {
+                        writeBack(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+        current.snapshot.force();
+        return true;
+    }
+
+    /**
+     * Replaces the mapped snapshot with a new snapshot of the first rows of the store, such as the one saved by a
+     * compaction, so the store can write itself back again. The rows keep their number, and the participants added
+     * after the old snapshot that are in the new one are folded into it.
+     * <pre>
+     * A ticket may have changed since the new snapshot was written, and a dirty row evicted meanwhile was written
+     * back into the old snapshot, so every row with a ticket is compared with the new snapshot: a row whose table or
+     * drinks differ is kept in the cache as a dirty row, and written back into the new snapshot later.
+     * The caller must hold the lock of the manager for writing, so no participant is added meanwhile.
+     * </pre>
+     *
+     * @param saved the new snapshot, mapped
+     * @return true if the snapshot was replaced, false if it does not hold the rows of the old one
+     */
+    public boolean remap(MappedSnapshot saved) {
+        if (saved.size() < mapping.snapshotSize || saved.size() > size()) {
+            return false;
+        }
+        remap(saved, 0);
+        return true;
+    }
+
+    /**
+     * Holds the monitor of every segment, from the given one on, while replacing the mapping.
+     *
+     * @param saved the new snapshot, mapped
+     * @param segment the first segment whose monitor is not held yet
+     */
+    private void remap(MappedSnapshot saved, int segment) {
+        if (segment < SEGMENTS) {
+            synchronized (segments[segment]) {
+                remap(saved, segment + 1);
+            }
+            return;
+        }
+
+        Mapping old = mapping;
+        ObjectParticipantStore remaining = new ObjectParticipantStore();
+        for (int row = saved.size(); row < old.snapshotSize + old.added.size(); row++) {
+            remaining.add(old.added.copyOf(row - old.snapshotSize));
+        }
+        mapping = new Mapping(saved, remaining);
+
+        for (int row = 0; row < saved.size(); row++) {
+            if (!saved.hasTicket(row)) {
+                continue;
+            }
+            Segment rowSegment = segment(row);
+            Entry entry = rowSegment.get(row);
+            if (entry != null) {
+                Ticket ticket = entry.participant.getTicket();
+                entry.dirty |= ticket.getTable() != saved.getTable(row) || ticket.getDrinks() != saved.getDrinks(row);
+            } else if (row < old.snapshotSize) {
+                if (old.snapshot.getTable(row) != saved.getTable(row) || old.snapshot.getDrinks(row) != saved.getDrinks(row)) {
+                    rowSegment.put(row, dirtyEntry(old.snapshot.read(row)));
+                }
+            } else {
+                int addedRow = row - old.snapshotSize;
+                if (old.added.getTable(addedRow) != saved.getTable(row) || old.added.getDrinks(addedRow) != saved.getDrinks(row)) {
+                    rowSegment.put(row, dirtyEntry(old.added.copyOf(addedRow)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a cached row whose ticket is not in the snapshot yet.
+     *
+     * @param participant the decoded row
+     * @return the dirty row
+     */
+    private static Entry dirtyEntry(Participant participant) {
+        Entry entry = new Entry(participant);
+        entry.dirty = true;
+        return entry;
+    }
+}
@@ -1,12 +1,256 @@
+import Business.BulkImporter;
+import Business.EventStream;
+import Business.ParticipantManager;
+import Business.StoreLayout;
+import Persistence.CustomerDao;
+import Persistence.EventFileExporter;
+import Persistence.ReplicationClient;
+import Persistence.ReplicationServer;
+import Presentation.BatchController;
+import Presentation.CommandExecutor;
 import Presentation.Controller;
+import Presentation.MetricsEndpoint;
+import Presentation.TicketServer;
 import org.json.simple.parser.ParseException;
 
 import javax.naming.ldap.Control;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class Main {
-    public static void main(String[] args) throws IOException, ParseException {
-        Controller controller = new Controller();
-        controller.run();
+    public static void main(String[] args) throws IOException, ParseException, InterruptedException {
+        MetricsEndpoint metricsEndpoint = startMetricsEndpoint();
+
+        try {
+            if (args.length > 0 && args[0].equals("--server")) {
+                runServer(args.length > 1 ? Integer.parseInt(args[1]) : 9090);
+                return;
+            }
+            if (args.length > 1 && args[0].equals("--replica")) {
+                if (args.length < 3) {
+                    System.out.println("Usage: --replica host:port directory [port]");
+                    return;
+                }
+                runReplica(args[1], Paths.get(args[2]), args.length > 3 ? Integer.parseInt(args[3]) : 9091);
+                return;
+            }
+            if (args.length > 0 && args[0].equals("--warm-up")) {
+                runWarmUp();
+                return;
+            }
+            if (args.length > 0 && args[0].equals("--batch")) {
+                runBatch(args.length > 1 ? args[1] : "-");
+                return;
+            }
+            if (args.length > 1 && args[0].equals("--import")) {
+                runImport(args[1], args.length > 2 && args[2].equals("--new-fields"));
+                return;
+            }
+
+            Controller controller = new Controller();
+            controller.run();
+        } finally {
+            if (metricsEndpoint != null) {
+                metricsEndpoint.close();
+            }
+        }
+    }
+
+    /**
+     * Serves the metrics over HTTP when the sallefest.metrics.port system property is set.
+     *
+     * @return the endpoint, or null if the property is not set
+     */
+    private static MetricsEndpoint startMetricsEndpoint() throws IOException {
+        Integer port = Integer.getInteger("sallefest.metrics.port");
+        if (port == null) {
+            return null;
+        }
+        MetricsEndpoint endpoint = new MetricsEndpoint(port);
+        System.out.println("Metrics served on http://localhost:" + endpoint.getPort() + "/metrics");
+        return endpoint;
+    }
+
+    /**
+     * Appends the changes of the participants to the file named by the sallefest.events.file system property,
+     * when it is set, through an EventFileExporter subscribed to the events of the manager.
+     *
+     * @param participantManager the manager whose changes are exported
+     * @return what stops the export and closes the file, or null if the property is not set
+     */
+    private static Closeable exportEvents(ParticipantManager participantManager) throws IOException {
+        String file = System.getProperty("sallefest.events.file");
+        if (file == null) {
+            return null;
+        }
+        EventFileExporter exporter = new EventFileExporter(Paths.get(file));
+        EventStream.Subscription subscription = participantManager.getEvents().subscribe("export", exporter, EventStream.DEFAULT_BATCH_SIZE);
+        return () -> {
+            subscription.close();
+            exporter.close();
+        };
+    }
+
+    /**
+     * Ships the changes of the participants to read replicas on the port named by the sallefest.replication.port
+     * system property, when it is set.
+     *
+     * @param participantManager the primary manager
+     * @return the replication server, or null if the property is not set
+     */
+    private static ReplicationServer startReplication(ParticipantManager participantManager) throws IOException {
+        Integer port = Integer.getInteger("sallefest.replication.port");
+        if (port == null) {
+            return null;
+        }
+        ReplicationServer replicationServer = new ReplicationServer(participantManager, port);
+        replicationServer.start();
+        System.out.println("Replicas served on port " + replicationServer.getPort());
+        return replicationServer;
+    }
+
+    /**
+     * Replays a script of commands from a file, or from standard input if the file is "-",
+     * writes the results to standard output and saves the participants at the end.
+     *
+     * @param file the path of the script, or "-" for standard input
+     */
+    private static void runBatch(String file) throws IOException, ParseException {
+        ParticipantManager participantManager = new ParticipantManager();
+        BatchController batchController = new BatchController(participantManager);
+        Closeable eventExport = exportEvents(participantManager);
+
+        try (Reader commands = file.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            batchController.run(commands, new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        }
+        participantManager.saveParticipantsData();
+        if (eventExport != null) {
+            eventExport.close();
+        }
+    }
+
+    /**
+     * Registers the participants of a CSV or JSON lines file in bulk and saves them,
+     * reporting the progress and the rejected lines.
+     *
+     * @param file the path of the file to import
+     * @param allowNewFields true to accept fields that no registered participant has
+     */
+    private static void runImport(String file, boolean allowNewFields) throws IOException, ParseException {
+        ParticipantManager participantManager = new ParticipantManager();
+        BulkImporter importer = new BulkImporter(participantManager, BulkImporter.DEFAULT_BATCH_SIZE, allowNewFields);
+
+        try {
+            System.out.println(importer.importFile(Paths.get(file), System.out));
+        } catch (IllegalArgumentException e) {
+            System.out.println("The file cannot be imported: " + e.getMessage());
+        } finally {
+            participantManager.close();
+        }
+    }
+
+    /**
+     * Serves the menu options over TCP until the process is stopped, saving the participants on shutdown.
+     *
+     * @param port the TCP port to listen on
+     */
+    private static void runServer(int port) throws IOException, ParseException, InterruptedException {
+        ParticipantManager participantManager = new ParticipantManager();
+        TicketServer server = new TicketServer(participantManager, port);
+        Closeable eventExport = exportEvents(participantManager);
+        ReplicationServer replicationServer = startReplication(participantManager);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                if (replicationServer != null) {
+                    replicationServer.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            participantManager.saveParticipantsData();
+            try {
+                if (eventExport != null) {
+                    eventExport.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+
+        server.start();
+        System.out.println("SalleFest server listening on port " + server.getPort());
+        server.awaitTermination();
+    }
+
+    /**
+     * Serves a read replica of the participants of a primary over TCP, keeping its data files in a directory
+     * of its own, until the process is stopped. The directory is never the one of the sallefest.database
+     * system property by default, since the snapshot installed in it would replace the data of a primary.
+     *
+     * @param primary the replication address of the primary, as host:port
+     * @param directory the directory of the data files of the replica
+     * @param port the TCP port to serve the reads on
+     */
+    private static void runReplica(String primary, Path directory, int port) throws IOException, ParseException, InterruptedException {
+        int separator = primary.lastIndexOf(':');
+        ReplicationClient replicationClient = ReplicationClient.connect(primary.substring(0, separator), Integer.parseInt(primary.substring(separator + 1)),
+                directory, StoreLayout.fromName(System.getProperty("sallefest.store")));
+        ParticipantManager participantManager = replicationClient.getParticipantManager();
+        TicketServer server = new TicketServer(participantManager, port);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                replicationClient.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            participantManager.saveParticipantsData();
+        }));
+
+        server.start();
+        System.out.println("SalleFest replica of " + primary + " listening on port " + server.getPort());
+        server.awaitTermination();
+    }
+
+    /**
+     * Prepares a gate terminal for a fast restart and exits: writes the binary snapshot again if the JSON files
+     * were modified after it, and runs read-only commands through a manager so that the classes of the startup
+     * and serving paths are loaded. Run once, whenever the application or the JSON files change, with
+     * -XX:ArchiveClassesAtExit=sallefest.jsa, the application packaged in a jar and -Dsallefest.store=lazy;
+     * every later start with -XX:SharedArchiveFile=sallefest.jsa and the same class path then maps those classes
+     * from the archive and the participants from the snapshot instead of loading and parsing them.
+     */
+    private static void runWarmUp() throws IOException, ParseException {
+        long start = System.nanoTime();
+        boolean refreshed = CustomerDao.refreshBinarySnapshot(CustomerDao.getDatabaseDirectory());
+        ParticipantManager participantManager = new ParticipantManager();
+        CommandExecutor commandExecutor = new CommandExecutor(participantManager);
+        Writer discarded = Writer.nullWriter();
+
+        try {
+            for (int ticketId = 0; ticketId < 64; ticketId++) {
+                commandExecutor.execute("validate " + ticketId, discarded);
+            }
+            for (String command : new String[]{"list 0 10", "table 1 0 10", "stats table", "search a", "drinks limits", "metrics"}) {
+                commandExecutor.execute(command, discarded);
+            }
+        } finally {
+            participantManager.close();
+        }
+        System.out.println((refreshed ? "Binary snapshot written again" : "Binary snapshot current")
+                + ", warm-up done in " + (System.nanoTime() - start) / 1_000_000 + " ms");
     }
 }
\ No newline at end of file
@@ -0,0 +1,250 @@
+package Persistence;
+
+import Business.Participant;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Random access to the records of a binary snapshot, mapped in memory, without reading the whole file.
+ * <pre>
+ * Opening the snapshot only validates its header and builds the offset of every string of the string table,
+ * so it takes a pass over the string lengths and no record is decoded. The fixed-width records are read in place,
+ * and the strings are decoded when they are asked for.
+ *
+ * The hour, table and drinks of a ticket can be written back in place, since they have a fixed width.
+ * Writes reach the page cache at once and the disk on force. The snapshot must stay below 2 GB to be mapped.
+ * The file is closed once mapped; the mapping stays valid until it is garbage collected.
+ * </pre>
+ */
+public class MappedSnapshot {
+    private static final int TICKET_ID = 0;
+    private static final int GRADE = 4;
+    private static final int NAME = 8;
+    private static final int BIRTH = 12;
+    private static final int NATIONALITY = 16;
+    private static final int FIELD = 20;
+    private static final int PACKED_TICKET = 24;
+    private static final int DRINKS = 28;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int[] stringOffsets;
+
+    /**
+     * Maps a binary snapshot and indexes its string table.
+     *
+     * @param path the path of the binary snapshot
+     * @throws IOException if the file cannot be mapped or is not a valid snapshot
+     */
+    public MappedSnapshot(Path path) throws IOException {
+        this.path = path;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " is too large to be mapped");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.limit() < BinarySnapshot.HEADER_SIZE || buffer.getInt(0) != BinarySnapshot.MAGIC) {
+                throw new IOException(path + " is not a binary snapshot");
+            }
+            if (buffer.getInt(4) != BinarySnapshot.VERSION) {
+                throw new IOException(path + " has the unsupported snapshot version " + buffer.getInt(4));
+            }
+            size = buffer.getInt(8);
+            long stringsOffset = buffer.getLong(16);
+            if (stringsOffset != BinarySnapshot.HEADER_SIZE + (long) size * BinarySnapshot.RECORD_SIZE || stringsOffset > buffer.limit()) {
+                throw new IOException(path + " is truncated");
+            }
+            stringOffsets = indexStrings((int) stringsOffset, buffer.getInt(12));
+        }
+    }
+
+    /**
+     * Finds the offset of every string of the string table by walking their lengths.
+     *
+     * @param offset the offset of the string table
+     * @param stringCount the number of strings in the table
+     * @return the offset of the length of every string, indexed by reference
+     * @throws IOException if the table is truncated
+     */
+    private int[] indexStrings(int offset, int stringCount) throws IOException {
+        int[] offsets = new int[stringCount];
+
+        for (int i = 0; i < stringCount; i++) {
+            if (offset + 4 > buffer.limit()) {
+                throw new IOException("The string table of " + path + " is truncated");
+            }
+            int length = buffer.getInt(offset);
+            if (length < 0 || (long) offset + 4 + length > buffer.limit()) {
+                throw new IOException("The string table of " + path + " is truncated");
+            }
+            offsets[i] = offset;
+            offset += 4 + length;
+        }
+        return offsets;
+    }
+
+    /**
+     * Retrieves the number of records.
+     *
+     * @return the number of participants in the snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves an int of a record.
+     *
+     * @param row the index of the record
+     * @param field the offset of the int in the record
+     * @return the value
+     */
+    private int getInt(int row, int field) {
+        return buffer.getInt(BinarySnapshot.HEADER_SIZE + row * BinarySnapshot.RECORD_SIZE + field);
+    }
+
+    /**
+     * Retrieves the ticket ID of a record.
+     *
+     * @param row the index of the record
+     * @return the ticket ID
+     */
+    public int getTicketId(int row) {
+        return getInt(row, TICKET_ID);
+    }
+
+    /**
+     * Checks if the participant of a record has a ticket.
+     *
+     * @param row the index of the record
+     * @return true if the participant has a ticket
+     */
+    public boolean hasTicket(int row) {
+        return (getInt(row, PACKED_TICKET) & BinarySnapshot.HAS_TICKET) != 0;
+    }
+
+    /**
+     * Retrieves the hour of the ticket of a record.
+     *
+     * @param row the index of the record
+     * @return the hour, 0 if the participant has no ticket
+     */
+    public int getHour(int row) {
+        return (getInt(row, PACKED_TICKET) >>> 24) & BinarySnapshot.MAX_HOUR;
+    }
+
+    /**
+     * Retrieves the table of the ticket of a record.
+     *
+     * @param row the index of the record
+     * @return the table, 0 if the participant has no ticket
+     */
+    public int getTable(int row) {
+        return getInt(row, PACKED_TICKET) & BinarySnapshot.MAX_TABLE;
+    }
+
+    /**
+     * Retrieves the drinks of the ticket of a record.
+     *
+     * @param row the index of the record
+     * @return the drinks, 0 if the participant has no ticket
+     */
+    public int getDrinks(int row) {
+        return getInt(row, DRINKS);
+    }
+
+    /**
+     * Decodes the name of a record.
+     *
+     * @param row the index of the record
+     * @return the name
+     */
+    public String getName(int row) {
+        return getString(getInt(row, NAME));
+    }
+
+    /**
+     * Retrieves the field of a record.
+     *
+     * @param row the index of the record
+     * @return the reference of the field in the string table, -1 for null
+     */
+    public int getFieldReference(int row) {
+        return getInt(row, FIELD);
+    }
+
+    /**
+     * Retrieves the nationality of a record.
+     *
+     * @param row the index of the record
+     * @return the reference of the nationality in the string table, -1 for null
+     */
+    public int getNationalityReference(int row) {
+        return getInt(row, NATIONALITY);
+    }
+
+    /**
+     * Decodes a string of the string table.
+     *
+     * @param reference the reference of the string, -1 for null
+     * @return the string
+     * @throws IllegalStateException if the reference is out of the table
+     */
+    public String getString(int reference) {
+        if (reference == -1) {
+            return null;
+        }
+        if (reference < 0 || reference >= stringOffsets.length) {
+            throw new IllegalStateException(path + " references the missing string " + reference);
+        }
+        int offset = stringOffsets[reference];
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a whole record.
+     *
+     * @param row the index of the record
+     * @return the participant, with its ticket as stored in the snapshot
+     */
+    public Participant read(int row) {
+        boolean haveTicket = hasTicket(row);
+        return new Participant(getName(row), getString(getInt(row, BIRTH)), getString(getNationalityReference(row)),
+                getTicketId(row), getInt(row, GRADE), getString(getFieldReference(row)),
+                haveTicket, getHour(row), getTable(row), getDrinks(row));
+    }
+
+    /**
+     * Writes the table and drinks of the ticket of a record in place, keeping its hour.
+     *
+     * @param row the index of the record, whose participant must have a ticket
+     * @param table the table
+     * @param drinks the drinks
+     * @throws IllegalArgumentException if the table does not fit in the packed format
+     */
+    public void writeTicket(int row, int table, int drinks) {
+        if (table < 0 || table > BinarySnapshot.MAX_TABLE) {
+            throw new IllegalArgumentException("The table " + table + " cannot be stored in a binary snapshot");
+        }
+        int offset = BinarySnapshot.HEADER_SIZE + row * BinarySnapshot.RECORD_SIZE;
+        int packed = buffer.getInt(offset + PACKED_TICKET);
+        buffer.putInt(offset + PACKED_TICKET, (packed & ~BinarySnapshot.MAX_TABLE) | table);
+        buffer.putInt(offset + DRINKS, drinks);
+    }
+
+    /**
+     * Forces the tickets written back in place to the disk.
+     */
+    public void force() {
+        buffer.force();
+    }
+}
@@ -0,0 +1,124 @@
+package Business;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of the counters and latency histograms of the application, shared by every layer.
+ * <pre>
+ * Metrics are named with dot separated words, like "option.validate" or "dao.read.json", and created on first use.
+ * Callers look a metric up once and keep it, so recording updates a few atomics and never looks up a map.
+ * Counters are LongAdders, which stay cheap when many gate and bar threads increment the same one.
+ *
+ * When the sallefest.metrics system property is "off", histograms are still handed out but start and stop
+ * do nothing, so the callers skip reading the clock and the overhead is a single branch.
+ *
+ * The metrics can be written as a table for the console, or in the Prometheus text exposition format,
+ * with the latencies in seconds and the names prefixed by "sallefest_".
+ * </pre>
+ */
+public final class Metrics {
+    private static final boolean TIMED = !"off".equalsIgnoreCase(System.getProperty("sallefest.metrics"));
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String PREFIX = "sallefest_";
+
+    private static final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /**
+     * Retrieves the counter with the given name, creating it if needed.
+     *
+     * @param name the name of the counter
+     * @return the counter
+     */
+    public static LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Retrieves the latency histogram with the given name, creating it if needed.
+     *
+     * @param name the name of the histogram
+     * @return the histogram
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Reads the clock to time an operation, unless the latencies are not measured.
+     *
+     * @return the System.nanoTime, or 0 if the latencies are not measured
+     */
+    public static long start() {
+        return TIMED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the latency of an operation timed with start, unless the latencies are not measured.
+     *
+     * @param histogram the histogram of the operation
+     * @param startNanos the value returned by start
+     */
+    public static void stop(LatencyHistogram histogram, long startNanos) {
+        if (TIMED) {
+            histogram.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Writes every metric as a table, with the latencies in microseconds, leaving out the operations never timed.
+     *
+     * @param out where the table is written
+     * @throws IOException if the table cannot be written
+     */
+    public static void writeSummary(Appendable out) throws IOException {
+        out.append(String.format("%-28s %12s %10s %10s %10s %10s %10s%n", "Metric", "Count", "p50 us", "p90 us", "p99 us", "p999 us", "max us"));
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            long[] quantiles = histogram.getQuantiles(QUANTILES);
+            out.append(String.format("%-28s %12d %10.1f %10.1f %10.1f %10.1f %10.1f%n", entry.getKey(), histogram.getCount(),
+                    quantiles[0] / 1e3, quantiles[1] / 1e3, quantiles[2] / 1e3, quantiles[3] / 1e3, histogram.getMax() / 1e3));
+        }
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            out.append(String.format("%-28s %12d%n", entry.getKey(), entry.getValue().sum()));
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format: the counters as counters and
+     * the histograms as summaries with their quantiles, count and sum.
+     *
+     * @param out where the metrics are written
+     * @throws IOException if the metrics cannot be written
+     */
+    public static void writeExposition(Appendable out) throws IOException {
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            String name = PREFIX + entry.getKey().replace('.', '_') + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(String.valueOf(entry.getValue().sum())).append('\n');
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            String name = PREFIX + entry.getKey().replace('.', '_') + "_seconds";
+            LatencyHistogram histogram = entry.getValue();
+            long[] quantiles = histogram.getQuantiles(QUANTILES);
+
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (int i = 0; i < QUANTILES.length; i++) {
+                out.append(name).append("{quantile=\"").append(String.valueOf(QUANTILES[i])).append("\"} ")
+                        .append(String.valueOf(quantiles[i] / 1e9)).append('\n');
+            }
+            out.append(name).append("_count ").append(String.valueOf(histogram.getCount())).append('\n');
+            out.append(name).append("_sum ").append(String.valueOf(histogram.getSum() / 1e9)).append('\n');
+        }
+    }
+}
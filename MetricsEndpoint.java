@@ -0,0 +1,78 @@
+package Presentation;
+
+import Business.Metrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The MetricsEndpoint class serves the Metrics over HTTP in the Prometheus text exposition format,
+ * so a monitoring system can scrape them while the application runs.
+ * <pre>
+ * GET /metrics answers with every counter and latency summary; any other path answers 404.
+ * The endpoint runs on its own single thread, so a slow scraper never delays the gates or the bars.
+ * </pre>
+ */
+public class MetricsEndpoint implements Closeable {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    /**
+     * Initializes a new MetricsEndpoint bound to the given port and starts serving.
+     *
+     * @param port the TCP port to listen on, or 0 to pick a free one
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsEndpoint(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", this::handle);
+        server.start();
+    }
+
+    /**
+     * Retrieves the port the endpoint is listening on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Answers a request with the exposition of the metrics.
+     *
+     * @param exchange the HTTP request and response
+     * @throws IOException if the response cannot be written
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestURI().getPath().equals("/metrics")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            StringBuilder exposition = new StringBuilder();
+            Metrics.writeExposition(exposition);
+            byte[] body = exposition.toString().getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Stops serving the metrics.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,430 @@
+package Business;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Search index over the names of the participants, by prefix and with a bounded number of typos.
+ * <pre>
+ * Names are normalized before they are indexed or searched: accents are removed, letters are lower cased and
+ * every run of other characters than letters and digits becomes a single space, so "José" is found by "jose".
+ *
+ * Every distinct word of the names is kept in a trie, whose nodes are parallel arrays, and the node that ends
+ * a word holds the rows of the participants whose name has that word. Every node also counts the rows under it.
+ * A query matches the participants that have, for every word of the query, a word of the name starting with it,
+ * in any order, so "Jesús de la Fuente García" is found by "jes", "garcia fuente" or "fuente g".
+ * The rows are taken from the query word with the fewest rows under its node, and the other words are checked
+ * against the normalized name of each row.
+ *
+ * When there are fewer prefix matches than requested, the longest word of the query is searched within a
+ * Levenshtein distance, which grows with its length. The trie is walked depth first, computing one row of the
+ * distance matrix per node from the row of its parent, and a subtree is skipped as soon as every value of the
+ * row exceeds the distance, so only the few nodes near the query are visited. The other words of the query
+ * are then checked against each row with the same distance.
+ *
+ * add must be serialized by the caller. search may run concurrently with add only if it is retried when an add
+ * overlapped it, as ParticipantManager does with its optimistic reads. The links of new nodes start as NONE,
+ * and the children of a node are kept in label order, so a search that sees half an add never loops.
+ * </pre>
+ */
+public class NameIndex {
+    private static final int NONE = -1;
+    private static final int ROOT = 0;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int INITIAL_POSTINGS = 2;
+
+    private char[] labels = new char[INITIAL_CAPACITY];
+    private int[] firstChild = growLinks(new int[0], INITIAL_CAPACITY);
+    private int[] nextSibling = growLinks(new int[0], INITIAL_CAPACITY);
+    private int[] rowsBelow = new int[INITIAL_CAPACITY];
+    private int[][] postings = new int[INITIAL_CAPACITY][];
+    private int[] postingCounts = new int[INITIAL_CAPACITY];
+    private int nodeCount = 1;
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int longestWord;
+
+    /**
+     * Copies an array of links into a larger one, whose new links point nowhere.
+     *
+     * @param links the links
+     * @param length the length of the new array
+     * @return the new array
+     */
+    private static int[] growLinks(int[] links, int length) {
+        int[] grown = Arrays.copyOf(links, length);
+        Arrays.fill(grown, links.length, length, NONE);
+        return grown;
+    }
+
+    /**
+     * Normalizes a name for the index: without accents, in lower case, with words separated by single spaces.
+     *
+     * @param name the name
+     * @return the normalized name, empty if the name is null
+     */
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean separated = true;
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+                separated = false;
+            } else if (!separated) {
+                normalized.append(' ');
+                separated = true;
+            }
+        }
+        int length = normalized.length();
+        if (length > 0 && normalized.charAt(length - 1) == ' ') {
+            normalized.setLength(length - 1);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Splits a normalized name into its words.
+     *
+     * @param normalized the normalized name
+     * @return the words, none if the name is empty
+     */
+    private static String[] words(String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    /**
+     * Adds the name of a participant.
+     *
+     * @param row the row of the participant
+     * @param name the name of the participant
+     */
+    public void add(int row, String name) {
+        String normalized = normalize(name);
+        if (row >= names.length) {
+            names = Arrays.copyOf(names, Math.max(names.length * 2, row + 1));
+        }
+        names[row] = normalized;
+
+        String[] words = words(normalized);
+        for (int i = 0; i < words.length; i++) {
+            if (!isRepeated(words, i)) {
+                addWord(words[i], row);
+            }
+        }
+    }
+
+    /**
+     * Checks if a word of a name already appeared before in the same name, so the row is only posted once.
+     *
+     * @param words the words of the name
+     * @param i the index of the word
+     * @return true if an earlier word is the same
+     */
+    private static boolean isRepeated(String[] words, int i) {
+        for (int j = 0; j < i; j++) {
+            if (words[j].equals(words[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a word to the trie, creating its missing nodes, and posts the row at the node that ends it.
+     *
+     * @param word the normalized word
+     * @param row the row of the participant
+     */
+    private void addWord(String word, int row) {
+        int node = ROOT;
+        rowsBelow[ROOT]++;
+        for (int i = 0; i < word.length(); i++) {
+            node = child(node, word.charAt(i), true);
+            rowsBelow[node]++;
+        }
+        longestWord = Math.max(longestWord, word.length());
+
+        int[] rows = postings[node];
+        if (rows == null) {
+            rows = new int[INITIAL_POSTINGS];
+        } else if (postingCounts[node] == rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        rows[postingCounts[node]] = row;
+        postings[node] = rows;
+        postingCounts[node]++;
+    }
+
+    /**
+     * Finds the child of a node with the given label, keeping the children in label order.
+     *
+     * @param node the parent node
+     * @param label the label of the child
+     * @param create true to create the child if it does not exist
+     * @return the child, or NONE if it does not exist and is not created
+     */
+    private int child(int node, char label, boolean create) {
+        int previous = NONE;
+        int child = firstChild[node];
+        while (child != NONE && labels[child] < label) {
+            previous = child;
+            child = nextSibling[child];
+        }
+        if (child != NONE && labels[child] == label) {
+            return child;
+        }
+        if (!create) {
+            return NONE;
+        }
+
+        if (nodeCount == labels.length) {
+            int capacity = labels.length * 2;
+            labels = Arrays.copyOf(labels, capacity);
+            firstChild = growLinks(firstChild, capacity);
+            nextSibling = growLinks(nextSibling, capacity);
+            rowsBelow = Arrays.copyOf(rowsBelow, capacity);
+            postings = Arrays.copyOf(postings, capacity);
+            postingCounts = Arrays.copyOf(postingCounts, capacity);
+        }
+        int created = nodeCount++;
+        labels[created] = label;
+        nextSibling[created] = child;
+        if (previous == NONE) {
+            firstChild[node] = created;
+        } else {
+            nextSibling[previous] = created;
+        }
+        return created;
+    }
+
+    /**
+     * Finds the node reached by a prefix.
+     *
+     * @param prefix the normalized prefix
+     * @return the node, or NONE if no word starts with the prefix
+     */
+    private int find(String prefix) {
+        int node = ROOT;
+        for (int i = 0; i < prefix.length() && node != NONE; i++) {
+            node = child(node, prefix.charAt(i), false);
+        }
+        return node;
+    }
+
+    /**
+     * Retrieves the maximum number of typos tolerated in a word of a query, which grows with its length
+     * so that a short word does not match almost every name.
+     *
+     * @param word the normalized word
+     * @return the maximum edit distance
+     */
+    private static int maxEditsFor(String word) {
+        return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Finds the participants with a word of the name starting with every word of the query, and then, if there
+     * are fewer than the limit, those with a word of the name starting within a few typos of every word of it.
+     *
+     * @param query the name, or the start of some of its words, in any case and with or without accents
+     * @param limit the maximum number of participants returned
+     * @return the rows of the participants found, the prefix matches first
+     */
+    public int[] search(String query, int limit) {
+        String[] words = words(normalize(query));
+        if (words.length == 0 || limit <= 0) {
+            return new int[0];
+        }
+        Results results = new Results(limit);
+
+        int driver = NONE;
+        int driverNode = NONE;
+        for (int i = 0; i < words.length; i++) {
+            int node = find(words[i]);
+            if (node == NONE) {
+                driverNode = NONE;
+                break;
+            }
+            if (driverNode == NONE || rowsBelow[node] < rowsBelow[driverNode]) {
+                driver = i;
+                driverNode = node;
+            }
+        }
+        if (driverNode != NONE) {
+            collect(driverNode, words, driver, new int[words.length], results);
+        }
+
+        int longest = 0;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].length() > words[longest].length()) {
+                longest = i;
+            }
+        }
+        if (!results.isFull() && maxEditsFor(words[longest]) > 0) {
+            int[] maxEdits = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                maxEdits[i] = maxEditsFor(words[i]);
+            }
+            String word = words[longest];
+            int[][] distances = new int[Math.max(longestWord, word.length()) + 1][word.length() + 1];
+            for (int j = 0; j <= word.length(); j++) {
+                distances[0][j] = j;
+            }
+            searchFuzzy(ROOT, 0, distances, words, longest, maxEdits, results);
+        }
+        return results.toArray();
+    }
+
+    /**
+     * Walks the trie below a node whose distance row is computed, collecting the subtrees whose path is within
+     * the distance of the query word, and skipping those that cannot be.
+     *
+     * @param node the node
+     * @param depth the depth of the node, which is the index of its row in distances
+     * @param distances the rows of the distance matrix along the path to the node
+     * @param words the words of the query
+     * @param driver the index of the word searched in the trie
+     * @param maxEdits the maximum distance of every word of the query
+     * @param results the participants found
+     */
+    private void searchFuzzy(int node, int depth, int[][] distances, String[] words, int driver, int[] maxEdits, Results results) {
+        String word = words[driver];
+        for (int child = firstChild[node]; child != NONE && !results.isFull(); child = nextSibling[child]) {
+            int[] above = distances[depth];
+            int[] row = distances[depth + 1];
+            char c = labels[child];
+            row[0] = depth + 1;
+            int minimum = row[0];
+            for (int j = 1; j <= word.length(); j++) {
+                int substitution = above[j - 1] + (word.charAt(j - 1) == c ? 0 : 1);
+                row[j] = Math.min(substitution, Math.min(above[j], row[j - 1]) + 1);
+                minimum = Math.min(minimum, row[j]);
+            }
+
+            if (row[word.length()] <= maxEdits[driver]) {
+                collect(child, words, driver, maxEdits, results);
+            } else if (minimum <= maxEdits[driver]) {
+                searchFuzzy(child, depth + 1, distances, words, driver, maxEdits, results);
+            }
+        }
+    }
+
+    /**
+     * Adds the rows posted in a subtree whose names also match the other words of the query, in label order.
+     *
+     * @param node the root of the subtree
+     * @param words the words of the query
+     * @param driver the index of the word that led to the subtree
+     * @param maxEdits the maximum distance of every word of the query
+     * @param results the participants found
+     */
+    private void collect(int node, String[] words, int driver, int[] maxEdits, Results results) {
+        for (int i = 0; i < postingCounts[node] && !results.isFull(); i++) {
+            int row = postings[node][i];
+            if (!results.contains(row) && matchesOtherWords(names[row], words, driver, maxEdits)) {
+                results.add(row);
+            }
+        }
+        for (int child = firstChild[node]; child != NONE && !results.isFull(); child = nextSibling[child]) {
+            collect(child, words, driver, maxEdits, results);
+        }
+    }
+
+    /**
+     * Checks if every word of the query but one starts a word of a name, within its distance.
+     *
+     * @param name the normalized name
+     * @param words the words of the query
+     * @param skipped the index of the word already matched
+     * @param maxEdits the maximum distance of every word of the query
+     * @return true if the name matches the other words
+     */
+    private static boolean matchesOtherWords(String name, String[] words, int skipped, int[] maxEdits) {
+        if (words.length == 1) {
+            return true;
+        }
+        String[] nameWords = words(name);
+        for (int i = 0; i < words.length; i++) {
+            if (i == skipped) {
+                continue;
+            }
+            boolean matched = false;
+            for (int j = 0; j < nameWords.length && !matched; j++) {
+                matched = maxEdits[i] == 0 ? nameWords[j].startsWith(words[i]) : prefixDistance(nameWords[j], words[i]) <= maxEdits[i];
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the smallest Levenshtein distance between a query word and the prefixes of a word.
+     *
+     * @param word the word of the name
+     * @param query the word of the query
+     * @return the distance
+     */
+    private static int prefixDistance(String word, String query) {
+        int[] above = new int[query.length() + 1];
+        int[] row = new int[query.length() + 1];
+        for (int j = 0; j <= query.length(); j++) {
+            above[j] = j;
+        }
+        int best = above[query.length()];
+
+        for (int i = 1; i <= word.length(); i++) {
+            row[0] = i;
+            for (int j = 1; j <= query.length(); j++) {
+                int substitution = above[j - 1] + (word.charAt(i - 1) == query.charAt(j - 1) ? 0 : 1);
+                row[j] = Math.min(substitution, Math.min(above[j], row[j - 1]) + 1);
+            }
+            best = Math.min(best, row[query.length()]);
+            int[] swap = above;
+            above = row;
+            row = swap;
+        }
+        return best;
+    }
+
+    /**
+     * The rows found by a search, without repetitions and up to a limit.
+     */
+    private static final class Results {
+        private final int[] rows;
+        private final Set<Integer> found = new HashSet<>();
+        private int count;
+
+        private Results(int limit) {
+            rows = new int[limit];
+        }
+
+        private boolean isFull() {
+            return count == rows.length;
+        }
+
+        private boolean contains(int row) {
+            return found.contains(row);
+        }
+
+        private void add(int row) {
+            found.add(row);
+            rows[count++] = row;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(rows, count);
+        }
+    }
+}
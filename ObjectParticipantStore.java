@@ -0,0 +1,124 @@
+package Business;
+
+import java.util.Arrays;
+
+/**
+ * ParticipantStore that keeps every participant as a Participant object with its own Ticket object.
+ * The participants are kept in fixed-size pages, so rows never move when the store grows and
+ * a reader never sees a half-copied array.
+ */
+public class ObjectParticipantStore implements ParticipantStore {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private volatile Participant[][] pages = new Participant[1][];
+    private int size;
+
+    @Override
+    public int add(Participant participant) {
+        int row = size;
+        int page = row >>> PAGE_SHIFT;
+        Participant[][] directory = pages;
+
+        if (page == directory.length) {
+            directory = Arrays.copyOf(directory, directory.length * 2);
+        }
+        if (directory[page] == null) {
+            directory[page] = new Participant[PAGE_SIZE];
+        }
+        directory[page][row & PAGE_MASK] = participant;
+        pages = directory;
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Retrieves the participant stored at a row.
+     *
+     * @param row the row of the participant
+     * @return the participant
+     */
+    private Participant participant(int row) {
+        return pages[row >>> PAGE_SHIFT][row & PAGE_MASK];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getName(int row) {
+        return participant(row).getName();
+    }
+
+    @Override
+    public int getTicketId(int row) {
+        return participant(row).getTicketId();
+    }
+
+    @Override
+    public String getField(int row) {
+        return (String) participant(row).getField();
+    }
+
+    @Override
+    public String getNationality(int row) {
+        return (String) participant(row).getNationality();
+    }
+
+    @Override
+    public boolean hasTicket(int row) {
+        return participant(row).getTicket() != null;
+    }
+
+    @Override
+    public int getHour(int row) {
+        return participant(row).getTicket().getHour();
+    }
+
+    @Override
+    public int getTable(int row) {
+        return participant(row).getTicket().getTable();
+    }
+
+    @Override
+    public void setTable(int row, int table) {
+        participant(row).getTicket().setTable(table);
+    }
+
+    @Override
+    public int getDrinks(int row) {
+        return participant(row).getTicket().getDrinks();
+    }
+
+    @Override
+    public int addDrinks(int row, int drinks) {
+        return participant(row).getTicket().addDrink(drinks);
+    }
+
+    @Override
+    public void setDrinks(int row, int drinks) {
+        participant(row).getTicket().setDrinks(drinks);
+    }
+
+    @Override
+    public Participant copyOf(int row) {
+        Participant participant = participant(row);
+        Ticket ticket = participant.getTicket();
+        return new Participant(participant.getName(), (String) participant.getBirth(), (String) participant.getNationality(),
+                participant.getTicketId(), (int) participant.getGrade(), (String) participant.getField(),
+                ticket != null, ticket != null ? ticket.getHour() : 0, ticket != null ? ticket.getTable() : 0, ticket != null ? ticket.getDrinks() : 0);
+    }
+
+    /**
+     * The participants are only kept in memory, so they are always copied into a new snapshot.
+     *
+     * @return false
+     */
+    @Override
+    public boolean writeBack() {
+        return false;
+    }
+}
@@ -1,33 +1,91 @@
-package Presentation;
-
-/**
- * Enumeration representing various options that can be selected in the application.
- *
- * The options include:
- * LIST_STUDENTS - List all students.
- * VALIDATE_TICKET - Validate a specific ticket.
- * ADD_DRINKS - Add drinks to a participant's ticket.
- * LIST_STUDENTS_FROM_A_FILE - List students from a file.
- * LIST_STUDENTS_FROM_A_TABLE - List students from a specific table.
- * EXIT - Exit the application.
- * ELSE - Represents an invalid or unrecognized option.
- */
-public enum Option {
-    LIST_STUDENTS, VALIDATE_TICKET, ADD_DRINKS, LIST_STUDENTS_FROM_A_FILE, LIST_STUDENTS_FROM_A_TABLE, EXIT, ELSE;
-
-    /**
-     * Converts an integer value to its corresponding Option enum value.
-     *
-     * @param value the integer value to convert to an Option.
-     * @return the corresponding Option enum value. If the value is not within the valid range, returns Option.ELSE.
-     */
-    public static Option convertIntToEnum(int value) {
-
-        if (value <= 6){
-            return Option.values()[value - 1];
-        } else {
-            return Option.ELSE;
-        }
-
-    }
-}
+package Presentation;
+
+import Business.LatencyHistogram;
+import Business.Metrics;
+
+/**
+ * Enumeration representing various options that can be selected in the application.
+ *
+ * The options include:
+ * LIST_STUDENTS - List all students.
+ * VALIDATE_TICKET - Validate a specific ticket.
+ * ADD_DRINKS - Add drinks to a participant's ticket.
+ * LIST_STUDENTS_FROM_A_FILE - List students from a file.
+ * LIST_STUDENTS_FROM_A_TABLE - List students from a specific table.
+ * STATISTICS - Show participants, tickets and drinks grouped by table, hour, field or nationality.
+ * METRICS - Show the counters and latencies of the operations.
+ * SEARCH_BY_NAME - Look participants up by name, ignoring accents and tolerating typos.
+ * DRINK_HISTORY - Show the last drinks of a ticket, and the drinks of the last hour of a ticket or a table.
+ * EXIT - Exit the application.
+ * ELSE - Represents an invalid or unrecognized option.
+ *
+ * Each option also has a command word, used when the options are sent as text commands instead of menu numbers,
+ * and a latency histogram named "option." followed by its command word, which times the option as a command.
+ */
+public enum Option {
+    LIST_STUDENTS("list"), VALIDATE_TICKET("validate"), ADD_DRINKS("drink"), LIST_STUDENTS_FROM_A_FILE("field"),
+    LIST_STUDENTS_FROM_A_TABLE("table"), STATISTICS("stats"), METRICS("metrics"), SEARCH_BY_NAME("search"),
+    DRINK_HISTORY("drinks"), EXIT("exit"), ELSE("");
+
+    private final String command;
+    private final LatencyHistogram latency;
+
+    /**
+     * Constructs an Option with its command word.
+     *
+     * @param command the word that selects the option in a text command
+     */
+    Option(String command) {
+        this.command = command;
+        this.latency = Metrics.histogram("option." + (command.isEmpty() ? "invalid" : command));
+    }
+
+    /**
+     * Retrieves the command word of the option.
+     *
+     * @return the command word
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Retrieves the histogram of the latencies of the option.
+     *
+     * @return the latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Converts a command word, or the name of an option, to its corresponding Option enum value. Case is ignored.
+     *
+     * @param command the command word or option name to convert
+     * @return the corresponding Option enum value, or Option.ELSE if the word is not recognized
+     */
+    public static Option convertCommandToEnum(String command) {
+        for (Option option : values()) {
+            if (option != ELSE && (option.command.equalsIgnoreCase(command) || option.name().equalsIgnoreCase(command))) {
+                return option;
+            }
+        }
+        return Option.ELSE;
+    }
+
+    /**
+     * Converts an integer value to its corresponding Option enum value.
+     *
+     * @param value the integer value to convert to an Option.
+     * @return the corresponding Option enum value. If the value is not within the valid range, returns Option.ELSE.
+     */
+    public static Option convertIntToEnum(int value) {
+
+        if (value >= 1 && value <= ELSE.ordinal()){
+            return Option.values()[value - 1];
+        } else {
+            return Option.ELSE;
+        }
+
+    }
+}
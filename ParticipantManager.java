@@ -1,167 +1,1307 @@
-package Business;
-import Persistence.CustomerDao;
-import org.json.simple.parser.ParseException;
-
-import java.io.IOException;
-import java.util.ArrayList;
-
-/**
- * Manages a collection of Participants for an event. Provides methods to add participants, list participants,
- * check ticket status, add drinks to a ticket, and save participant data.
- */
-public class ParticipantManager {
-    private ArrayList<Participant> participants;
-
-    /**
-     * Constructs a new ParticipantManager.
-     *
-     * This constructor initializes the participant list and populates it
-     * with data read from an external data source using the CustomerDao.readParticipants() method.
-     *
-     * @throws IOException if an I/O error occurs while reading participant data.
-     * @throws ParseException if there is an error in parsing the participant data.
-     */
-    public ParticipantManager() throws IOException, ParseException {
-        participants = new ArrayList<>();
-        participants = CustomerDao.readParticipants();
-    }
-
-    /**
-     * Adds a participant to the registered participants list.
-     *
-     * @param name the name of the participant
-     * @param birth the birth date of the participant
-     * @param nationality the nationality of the participant
-     * @param ticketId the ticket ID of the participant
-     * @param grade the grade of the participant
-     * @param field the field of study or work of the participant
-     * @param haveTicket boolean flag indicating if the participant has a ticket
-     * @param hour the hour of the event specified in the ticket
-     * @param table the table number specified in the ticket
-     * @param drinks the number of drinks included with the ticket
-     */
-    public void addParticipant(String name, String birth, String nationality, int ticketId, int grade, String field, boolean haveTicket, int hour, int table, int drinks) {
-        Participant participant = new Participant(name, birth, nationality, ticketId, grade, field, haveTicket, hour, table, drinks);
-        participants.add(participant);
-    }
-
-    /**
-     * Generates a string containing the list of participants' names.
-     *
-     * @return a string representation of all participants' names, each on a new line
-     */
-    public String listOfParticipants() {
-        String participantsList = "\nParticipants:\n";
-        for (Participant participant : participants) {
-            participantsList += participant.getName() + "\n";
-        }
-        return participantsList;
-    }
-
-    /**
-     * Checks if a participant with the specified ticket ID has a valid ticket.
-     *
-     * @param idTicket the ID of the ticket to be checked
-     * @return true if a participant with the given ticket ID has a valid ticket, false otherwise
-     */
-    public boolean haveTicket(int idTicket) {
-        for (Participant participant : participants) {
-            if (participant.getTicketId() == idTicket) {
-                if (participant.getTicket() != null) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Adds a specified number of drinks to the participant's ticket identified by the provided ticket ID.
-     *
-     * @param idTicket the ID of the ticket to which drinks should be added
-     * @param numDrink the number of drinks to add to the ticket
-     */
-    public void addDrink(int idTicket, int numDrink) {
-        boolean find = false;
-
-        for (Participant participant : participants) {
-            if (participant.getTicketId() == idTicket) {
-                participant.addDrinkInTicket(numDrink);
-                find = true;
-            }
-        }
-
-        if (!find) {
-            System.out.println("The ticket doesnt not exist");
-        }
-    }
-
-    /**
-     * Saves the data of participants to the storage medium.
-     * This method triggers the handleSaveData method with the current list of participants.
-     */
-    public void saveParticipantsData() {
-        handleSaveData(participants);
-    }
-
-    /**
-     * Handles the saving of participant data by delegating to the CustomerDao.
-     * Catches and logs any IOExceptions that may occur during the save process.
-     *
-     * @param participants the list of participants to be saved
-     */
-    private void handleSaveData(ArrayList<Participant> participants) {
-        try {
-            CustomerDao.saveParticipants(participants);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    /**
-     * Lists students from a specific field.
-     *
-     * @param field the field of study or work to filter the participants by
-     * @return a string containing the names of the participants from the specified field
-     */
-    public String listStudentsFromField(String field) {
-        String participantsList = "\nParticipants from " + field + ":\n\t";
-        boolean find = false;
-
-        for (Participant participant : participants) {
-            if (participant.getField().equals(field)) {
-                participantsList += participant.getName() + "\n\t";
-                find = true;
-            }
-        }
-        if (!find) {
-            System.out.println("The field doesnt not exist");
-        }
-        return participantsList;
-    }
-
-    /**
-     * Generates a list of participants seated at a specified table.
-     *
-     * @param table the table number for which participants should be listed
-     * @return a string listing the names of participants seated at the specified table, or a message indicating that the table does not exist
-     */
-    public String listStudentsFromTable(int table) {
-        String participantsList = "\nParticipants from table " + table + ":\n\t";
-        boolean find = false;
-
-        for (Participant participant : participants) {
-            if (participant.getTicket() != null) {
-                if (participant.getTicket().getTable() == table) {
-                    participantsList += participant.getName() + "\n\t";
-                    find = true;
-                }
-            }
-        }
-        if (!find) {
-            System.out.println("The table doesnt not exist");
-        }
-
-        return participantsList;
-    }
-}
+package Business;
+import Persistence.ChangeLog;
+import Persistence.CustomerDao;
+import Persistence.MappedSnapshot;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Manages a collection of Participants for an event. Provides methods to add participants, list participants,
+ * check ticket status, add drinks to a ticket, and save participant data.
+ * <pre>
+ * The participants are kept in a ParticipantStore, either as objects or as columns depending on the StoreLayout,
+ * and the ticket, field and table indexes hold their rows in the store. With the LAZY layout the binary snapshot
+ * is mapped instead of read, and at most sallefest.lazy.cache participants, by default 65536, are decoded at once.
+ *
+ * A single instance can be shared by many gate and bar stations:
+ * - haveTicket never locks, it reads the ticket index, which supports lookups concurrent with inserts.
+ *   Unless the sallefest.filter system property is "off", a TicketFilter rejects most unknown ticket IDs
+ *   before the index is read. It is sized for the sallefest.filter.expected attendees, by default twice the
+ *   loaded participants, and the sallefest.filter.fpp false positive rate, by default 0.01.
+ * - addDrink never takes the manager lock; the ticket counter is atomic and a striped lock per ticket
+ *   keeps the change log records of a ticket in the same order as its increments. The same stripe guards
+ *   the DrinkLedger of the ticket, which enforces the drink limits and answers the drinks of the last hour.
+ * - The listings read optimistically and only fall back to a read lock when a write overlapped them.
+ *   So does searchByName, over a NameIndex built by the first search.
+ *   They stream the names to an Appendable in chunks, so writers never wait for a slow output.
+ * - addParticipant and changeTable are serialized by the write lock.
+ * - Every participant added, ticket validated, drink added and table changed is published as a ChangeEvent
+ *   on the EventStream of getEvents, of sallefest.events.capacity events, by default 65536. Publishing never
+ *   locks, and while nobody is subscribed no event is even built.
+ *
+ * A manager can ship its changes to read replicas in other processes: startShipping copies the participants
+ * under the read lock and hands every change log record appended from then on to a listener, so the copy and
+ * the records cover every change exactly once. A replica is a manager started from that copy, which applies
+ * the records with applyReplicated, in order, and rejects every change of its own. See ReplicationServer.
+ *
+ * The unknown, invalid, duplicated and filtered ticket IDs, and the drinks added and rejected, are counted in Metrics.
+ * </pre>
+ */
+public class ParticipantManager {
+    public static final int DRINKS_REJECTED = -2;
+    private static final long COMPACTION_THRESHOLD_BYTES = 1 << 20;
+    private static final long COMPACTION_CHECK_SECONDS = 30;
+    private static final int DRINK_STRIPES = 64;
+    private static final int LISTING_CHUNK = 256;
+    private static final int PARALLEL_AGGREGATION_THRESHOLD = 100_000;
+    private static final String PARTICIPANTS_HEADER = "\nParticipants:\n";
+    private static final double DEFAULT_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    private static final int DEFAULT_LAZY_CACHE = 1 << 16;
+    private static final LongAdder UNKNOWN_TICKETS = Metrics.counter("ticket.unknown");
+    private static final LongAdder INVALID_TICKETS = Metrics.counter("ticket.invalid");
+    private static final LongAdder DUPLICATED_TICKETS = Metrics.counter("ticket.duplicated");
+    private static final LongAdder FILTERED_TICKETS = Metrics.counter("ticket.filtered");
+    private static final LongAdder DRINKS_ADDED = Metrics.counter("drinks.added");
+    private static final LongAdder REJECTED_DRINKS = Metrics.counter("drinks.rejected");
+    private static final LongAdder REPLICATED_RECORDS = Metrics.counter("replication.applied");
+
+    private final ParticipantStore store;
+    private TicketIndex ticketIndex;
+    private TicketFilter ticketFilter;
+    private FieldIndex fieldIndex;
+    private TableIndex tableIndex;
+    private volatile NameIndex nameIndex;
+    private final ChangeLog changeLog;
+    private final Path directory;
+    private final SnapshotFormat snapshotFormat;
+    private final ScheduledExecutorService compactor;
+    private final StampedLock lock = new StampedLock();
+    private final Object[] drinkStripes = new Object[DRINK_STRIPES];
+    private final DrinkLedger drinkLedger = DrinkLedger.fromSystemProperties();
+    private final EventStream events = new EventStream(Integer.getInteger("sallefest.events.capacity", EventStream.DEFAULT_CAPACITY));
+    private final Object nameIndexBuild = new Object();
+    private final ChangeLog.Replayer replicaApplier = new ReplicaApplier();
+    private volatile ReplicaStatus replicaStatus;
+
+    /**
+     * Constructs a new ParticipantManager.
+     *
+     * This constructor initializes the participant store, with the layout named by the sallefest.store
+     * system property, and populates it
+     * with data read from an external data source using the CustomerDao.readParticipants() method,
+     * indexing every participant by its ticket ID, field and table.
+     * The changes recorded in the change log after the last snapshot are then replayed,
+     * and a background task folds the log into the snapshot files when it grows too large.
+     *
+     * @throws IOException if an I/O error occurs while reading participant data.
+     * @throws ParseException if there is an error in parsing the participant data.
+     */
+    public ParticipantManager() throws IOException, ParseException {
+        this(CustomerDao.getSnapshotFormat(), StoreLayout.fromName(System.getProperty("sallefest.store")));
+    }
+
+    /**
+     * Constructs a new ParticipantManager that saves to a snapshot in the given format, and starts from
+     * the freshest snapshot, whatever its format.
+     *
+     * @param snapshotFormat the format of the snapshot
+     * @throws IOException if an I/O error occurs while reading participant data.
+     * @throws ParseException if there is an error in parsing the participant data.
+     */
+    public ParticipantManager(SnapshotFormat snapshotFormat) throws IOException, ParseException {
+        this(snapshotFormat, StoreLayout.OBJECTS);
+    }
+
+    /**
+     * Constructs a new ParticipantManager that saves to a snapshot in the given format and keeps
+     * the participants in memory with the given layout.
+     *
+     * @param snapshotFormat the format of the snapshot
+     * @param storeLayout the memory layout of the participants
+     * @throws IOException if an I/O error occurs while reading participant data.
+     * @throws ParseException if there is an error in parsing the participant data.
+     */
+    public ParticipantManager(SnapshotFormat snapshotFormat, StoreLayout storeLayout) throws IOException, ParseException {
+        this(CustomerDao.getDatabaseDirectory(), snapshotFormat, storeLayout);
+    }
+
+    /**
+     * Constructs a new ParticipantManager over the data files of the given directory, so several managers
+     * can run side by side, each with its own snapshot and change log.
+     *
+     * @param directory the directory of the data files
+     * @param snapshotFormat the format of the snapshot
+     * @param storeLayout the memory layout of the participants
+     * @throws IOException if an I/O error occurs while reading participant data.
+     * @throws ParseException if there is an error in parsing the participant data.
+     */
+    public ParticipantManager(Path directory, SnapshotFormat snapshotFormat, StoreLayout storeLayout) throws IOException, ParseException {
+        this.directory = directory;
+        for (int i = 0; i < DRINK_STRIPES; i++) {
+            drinkStripes[i] = new Object();
+        }
+        if (storeLayout == StoreLayout.LAZY) {
+            this.snapshotFormat = SnapshotFormat.BINARY;
+            ParticipantStore lazyStore = new LazyParticipantStore(CustomerDao.openMappedSnapshot(directory), Integer.getInteger("sallefest.lazy.cache", DEFAULT_LAZY_CACHE));
+            if (indexStoredParticipants(lazyStore) > 0) {
+                // the duplicated rows would still be listed, counted, seated and saved, so they are dropped from the snapshot
+                CustomerDao.saveParticipants(directory, copyIndexedParticipants(lazyStore), SnapshotFormat.BINARY);
+                lazyStore = new LazyParticipantStore(CustomerDao.mapSavedSnapshot(directory), Integer.getInteger("sallefest.lazy.cache", DEFAULT_LAZY_CACHE));
+                indexStoredParticipants(lazyStore);
+            }
+            this.store = lazyStore;
+        } else {
+            this.snapshotFormat = snapshotFormat;
+            this.store = storeLayout.newStore();
+            indexParticipants(CustomerDao.readParticipants(directory));
+        }
+
+        changeLog = CustomerDao.openChangeLog(directory);
+        int recovered = changeLog.replay(new LogReplayer());
+        if (recovered > 0) {
+            System.out.println("Recovered " + recovered + " changes from the change log");
+        }
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-log-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, COMPACTION_CHECK_SECONDS, COMPACTION_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates the filter of valid ticket IDs configured by the sallefest.filter system properties.
+     *
+     * @param loadedParticipants the number of participants read from the data source
+     * @return the filter, or null if it is disabled
+     */
+    private static TicketFilter newTicketFilter(int loadedParticipants) {
+        if ("off".equalsIgnoreCase(System.getProperty("sallefest.filter"))) {
+            return null;
+        }
+        int expected = Integer.getInteger("sallefest.filter.expected", Math.max(1_000, loadedParticipants * 2));
+        String falsePositiveRate = System.getProperty("sallefest.filter.fpp");
+        return new TicketFilter(expected, falsePositiveRate == null ? DEFAULT_FILTER_FALSE_POSITIVE_RATE : Double.parseDouble(falsePositiveRate));
+    }
+
+    /**
+     * Registers the loaded participants and builds the ticket ID, field and table indexes, and the ticket filter.
+     * If the data contains duplicated ticket IDs, only the first participant with that ID is kept,
+     * and a participant whose ticket cannot be stored is left out.
+     *
+     * @param loadedParticipants the participants read from the data source
+     */
+    private void indexParticipants(ArrayList<Participant> loadedParticipants) {
+        ticketIndex = new TicketIndex(loadedParticipants.size());
+        ticketFilter = newTicketFilter(loadedParticipants.size());
+        fieldIndex = new FieldIndex();
+        tableIndex = new TableIndex();
+
+        for (Participant participant : loadedParticipants) {
+            String rejection = rejectionOf(participant);
+            if (rejection != null) {
+                System.out.println(rejection + ", " + participant.getName() + " was ignored");
+            } else if (ticketIndex.get(participant.getTicketId()) == TicketIndex.NOT_FOUND) {
+                register(participant);
+            } else {
+                System.out.println("Duplicated ticket id " + participant.getTicketId() + ", " + participant.getName() + " was ignored");
+            }
+        }
+    }
+
+    /**
+     * Builds the ticket ID, field and table indexes, and the ticket filter, over the participants that are
+     * already in a store, as with a lazy store that maps its snapshot instead of loading it.
+     * A participant with a duplicated ticket ID is reported and left out of the indexes.
+     *
+     * @param stored the store holding the participants
+     * @return the number of participants left out
+     */
+    private int indexStoredParticipants(ParticipantStore stored) {
+        int size = stored.size();
+        ticketIndex = new TicketIndex(size);
+        ticketFilter = newTicketFilter(size);
+        fieldIndex = new FieldIndex();
+        tableIndex = new TableIndex();
+        int duplicated = 0;
+
+        for (int row = 0; row < size; row++) {
+            int ticketId = stored.getTicketId(row);
+            if (ticketIndex.get(ticketId) != TicketIndex.NOT_FOUND) {
+                System.out.println("Duplicated ticket id " + ticketId + ", " + stored.getName(row) + " was ignored");
+                duplicated++;
+                continue;
+            }
+            fieldIndex.add(stored.getField(row), row);
+            if (stored.hasTicket(row)) {
+                tableIndex.add(stored.getTable(row), row);
+            }
+            if (ticketFilter != null) {
+                ticketFilter.add(ticketId);
+            }
+            ticketIndex.putIfAbsent(ticketId, row);
+        }
+        return duplicated;
+    }
+
+    /**
+     * Copies the participants of a store that are in the ticket index, leaving out those with a duplicated ticket ID.
+     *
+     * @param stored the store indexed by indexStoredParticipants
+     * @return the copies, in row order
+     */
+    private ArrayList<Participant> copyIndexedParticipants(ParticipantStore stored) {
+        ArrayList<Participant> indexed = new ArrayList<>(ticketIndex.size());
+        for (int row = 0; row < stored.size(); row++) {
+            if (ticketIndex.get(stored.getTicketId(row)) == row) {
+                indexed.add(stored.copyOf(row));
+            }
+        }
+        return indexed;
+    }
+
+    /**
+     * Adds a participant to the registered participants list.
+     * Ticket IDs are unique: if another participant already has the given ticket ID, the participant is not added.
+     *
+     * @param name the name of the participant
+     * @param birth the birth date of the participant
+     * @param nationality the nationality of the participant
+     * @param ticketId the ticket ID of the participant
+     * @param grade the grade of the participant
+     * @param field the field of study or work of the participant
+     * @param haveTicket boolean flag indicating if the participant has a ticket
+     * @param hour the hour of the event specified in the ticket
+     * @param table the table number specified in the ticket
+     * @param drinks the number of drinks included with the ticket
+     * @return true if the participant was added, false if the ticket ID is already in use or the ticket cannot be stored
+     */
+    public boolean addParticipant(String name, String birth, String nationality, int ticketId, int grade, String field, boolean haveTicket, int hour, int table, int drinks) {
+        if (isReadOnly()) {
+            return false;
+        }
+        Participant participant = new Participant(name, birth, nationality, ticketId, grade, field, haveTicket, hour, table, drinks);
+        String rejection = rejectionOf(participant);
+        if (rejection != null) {
+            System.out.println(rejection);
+            return false;
+        }
+        long stamp = lock.writeLock();
+
+        try {
+            if (ticketIndex.get(ticketId) != TicketIndex.NOT_FOUND) {
+                DUPLICATED_TICKETS.increment();
+                System.out.println("The ticket id " + ticketId + " already exists");
+                return false;
+            }
+            register(participant);
+            changeLog.logParticipant(name, birth, nationality, ticketId, grade, field, haveTicket, hour, table, drinks);
+            publishAdded(participant);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds a batch of participants, taking the write lock once and writing their change log records with a single
+     * sync, as a bulk import does. A participant whose ticket ID is already in use, registered before or earlier
+     * in the batch, is not added, and neither is one whose ticket cannot be stored, which is reported.
+     *
+     * @param participants the participants to add
+     * @return for every participant, in order, whether it was added
+     */
+    public boolean[] addParticipants(List<Participant> participants) {
+        boolean[] wasAdded = new boolean[participants.size()];
+        if (isReadOnly()) {
+            return wasAdded;
+        }
+        ArrayList<Participant> added = new ArrayList<>(participants.size());
+        long stamp = lock.writeLock();
+
+        try {
+            for (int i = 0; i < participants.size(); i++) {
+                Participant participant = participants.get(i);
+                String rejection = rejectionOf(participant);
+                if (rejection != null) {
+                    System.out.println(rejection);
+                    continue;
+                }
+                if (ticketIndex.get(participant.getTicketId()) != TicketIndex.NOT_FOUND) {
+                    DUPLICATED_TICKETS.increment();
+                    continue;
+                }
+                register(participant);
+                added.add(participant);
+                wasAdded[i] = true;
+                publishAdded(participant);
+            }
+            changeLog.logParticipants(added);
+            return wasAdded;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Checks that a participant and their ticket can be stored and logged, before any index or the change log sees them.
+     * The bulk importer runs the same check on every line, so it can report the line that is rejected.
+     *
+     * @param participant the participant
+     * @return why the participant must be rejected, or null if it can be added
+     */
+    static String rejectionOf(Participant participant) {
+        if (!ChangeLog.fitsInRecord(participant.getName()) || !ChangeLog.fitsInRecord((String) participant.getBirth())
+                || !ChangeLog.fitsInRecord((String) participant.getNationality()) || !ChangeLog.fitsInRecord((String) participant.getField())) {
+            return "The details of the participant " + participant.getTicketId() + " are too long";
+        }
+        Ticket ticket = participant.getTicket();
+        if (ticket != null && !Ticket.isValidTable(ticket.getTable())) {
+            return "The table of the ticket " + participant.getTicketId() + " must be between 0 and " + Ticket.MAX_TABLE;
+        }
+        if (ticket != null && !Ticket.isValidHour(ticket.getHour())) {
+            return "The hour of the ticket " + participant.getTicketId() + " must be between 0 and " + Ticket.MAX_HOUR;
+        }
+        if (ticket != null && ticket.getDrinks() < 0) {
+            return "The drinks of the ticket " + participant.getTicketId() + " cannot be negative";
+        }
+        return null;
+    }
+
+    /**
+     * Publishes that a participant was added, if the event stream has subscribers.
+     *
+     * @param participant the participant added
+     */
+    private void publishAdded(Participant participant) {
+        if (events.hasSubscribers()) {
+            Ticket ticket = participant.getTicket();
+            events.publish(new ChangeEvent.ParticipantAdded(System.currentTimeMillis(), participant.getTicketId(), participant.getName(),
+                    (String) participant.getField(), ticket != null, ticket != null ? ticket.getHour() : 0, ticket != null ? ticket.getTable() : 0));
+        }
+    }
+
+    /**
+     * Checks if the manager is a read replica, whose participants only change through its primary,
+     * and reports it if so.
+     *
+     * @return true if a change must be rejected
+     */
+    private boolean isReadOnly() {
+        if (replicaStatus == null) {
+            return false;
+        }
+        System.out.println("This is a read replica, the change must be made on the primary");
+        return true;
+    }
+
+    /**
+     * Copies every participant and starts handing the change log records appended from then on to a listener.
+     * Both happen under the read lock, which excludes the other changes, and a drink added meanwhile is either
+     * in the copy or in a record, which sets the same total again.
+     *
+     * @param listener the listener of the records, which must never block
+     * @return the copies of the participants, in row order
+     */
+    public ArrayList<Participant> startShipping(ChangeLog.RecordListener listener) {
+        long stamp = lock.readLock();
+        try {
+            changeLog.addListener(listener);
+            return copyParticipants();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Stops handing the change log records to a listener.
+     *
+     * @param listener the listener of the records
+     */
+    public void stopShipping(ChangeLog.RecordListener listener) {
+        changeLog.removeListener(listener);
+    }
+
+    /**
+     * Turns the manager into a read replica, which rejects every change but those applied by applyReplicated.
+     *
+     * @param status the progress of the replication
+     */
+    public void startReplica(ReplicaStatus status) {
+        replicaStatus = status;
+    }
+
+    /**
+     * Applies a change log record shipped by the primary, under the same locks as the change it records.
+     *
+     * @param record the framed record
+     * @throws IOException if the record is damaged
+     */
+    public void applyReplicated(byte[] record) throws IOException {
+        if (!ChangeLog.replayRecord(record, replicaApplier)) {
+            throw new IOException("The replicated record is damaged");
+        }
+        REPLICATED_RECORDS.increment();
+    }
+
+    /**
+     * Describes the replication of the manager.
+     *
+     * @return the progress of the replica, or that the manager is not a replica
+     */
+    public String describeReplication() {
+        ReplicaStatus status = replicaStatus;
+        return status == null ? "Replication: not a replica" : status.toString();
+    }
+
+    /**
+     * Retrieves the stream of the changes of the participants, to subscribe to them.
+     *
+     * @return the event stream
+     */
+    public EventStream getEvents() {
+        return events;
+    }
+
+    /**
+     * Stores a participant, whose ticket ID is not indexed yet, and adds its row to the secondary indexes,
+     * its ticket ID to the ticket filter, and then its row to the ticket index, which publishes it to the
+     * lock-free readers.
+     *
+     * @param participant the participant to register
+     */
+    private void register(Participant participant) {
+        int row = store.add(participant);
+        fieldIndex.add(store.getField(row), row);
+        if (store.hasTicket(row)) {
+            tableIndex.add(store.getTable(row), row);
+        }
+        if (ticketFilter != null) {
+            ticketFilter.add(participant.getTicketId());
+        }
+        NameIndex names = nameIndex;
+        if (names != null) {
+            names.add(row, participant.getName());
+        }
+        ticketIndex.putIfAbsent(participant.getTicketId(), row);
+    }
+
+    /**
+     * Looks up the row of a ticket ID without locking, rejecting through the ticket filter the IDs that were
+     * never registered before reading the ticket index.
+     *
+     * @param idTicket the ID of the ticket
+     * @return the row of the participant with that ticket ID, or TicketIndex.NOT_FOUND if there is none
+     */
+    private int rowOf(int idTicket) {
+        TicketFilter filter = ticketFilter;
+        if (filter != null && !filter.mightContain(idTicket)) {
+            FILTERED_TICKETS.increment();
+            return TicketIndex.NOT_FOUND;
+        }
+        return ticketIndex.get(idTicket);
+    }
+
+    /**
+     * Describes the size and accuracy of the ticket filter.
+     *
+     * @return a one line summary of the filter
+     */
+    public String describeTicketFilter() {
+        TicketFilter filter = ticketFilter;
+        return filter == null ? "Ticket filter: off" : filter.toString();
+    }
+
+    /**
+     * Moves the participant with the given ticket ID to another table, keeping the table index consistent.
+     *
+     * @param idTicket the ID of the ticket whose table changes
+     * @param table the new table number
+     * @return true if the table was changed, false if the ticket does not exist or the table is out of range
+     */
+    public boolean changeTable(int idTicket, int table) {
+        if (isReadOnly()) {
+            return false;
+        }
+        if (!Ticket.isValidTable(table)) {
+            System.out.println("The table must be between 0 and " + Ticket.MAX_TABLE);
+            return false;
+        }
+        int row = rowOf(idTicket);
+
+        if (row == TicketIndex.NOT_FOUND || !store.hasTicket(row)) {
+            System.out.println("The ticket doesnt not exist");
+            return false;
+        }
+
+        int previousTable;
+        long stamp = lock.writeLock();
+        try {
+            previousTable = store.getTable(row);
+            moveToTable(row, table);
+            changeLog.logTable(idTicket, table);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (events.hasSubscribers()) {
+            events.publish(new ChangeEvent.TableChanged(System.currentTimeMillis(), idTicket, previousTable, table));
+        }
+        return true;
+    }
+
+    /**
+     * Changes the table of a participant's ticket and moves the participant to the bucket of the new table.
+     *
+     * @param row the row of the participant, who must have a ticket
+     * @param table the new table number
+     */
+    private void moveToTable(int row, int table) {
+        tableIndex.remove(store.getTable(row), row);
+        store.setTable(row, table);
+        tableIndex.add(table, row);
+    }
+
+    /**
+     * Generates a string containing the list of participants' names.
+     *
+     * @return a string representation of all participants' names, each on a new line
+     */
+    public String listOfParticipants() {
+        StringBuilder participantsList = new StringBuilder(PARTICIPANTS_HEADER);
+        try {
+            listOfParticipants(participantsList, 0, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return participantsList.toString();
+    }
+
+    /**
+     * Writes a page of the participants' names, each followed by a new line.
+     *
+     * @param out where the names are written
+     * @param offset the number of participants to skip
+     * @param limit the maximum number of names to write
+     * @return the number of names written
+     * @throws IOException if the names cannot be written
+     */
+    public int listOfParticipants(Appendable out, int offset, int limit) throws IOException {
+        return writeNames(out, "\n", store::size, row -> row, offset, limit);
+    }
+
+    /**
+     * Retrieves the number of registered participants.
+     *
+     * @return the number of participants
+     */
+    public int countParticipants() {
+        return store.size();
+    }
+
+    /**
+     * Retrieves the number of students from a specific field, without listing them.
+     *
+     * @param field the field of study or work
+     * @return the number of students from that field
+     */
+    public int countStudentsFromField(String field) {
+        return readOptimistically(() -> fieldIndex.size(field));
+    }
+
+    /**
+     * Retrieves the number of participants seated at a specified table, without listing them.
+     *
+     * @param table the table number
+     * @return the number of participants at that table
+     */
+    public int countStudentsFromTable(int table) {
+        return readOptimistically(() -> tableIndex.size(table));
+    }
+
+    /**
+     * Writes a page of names from a sequence of participants that can grow or change while it is written.
+     * The names are copied to a small buffer in chunks, each chunk read optimistically, and written
+     * outside any lock. Every chunk is consistent, but a participant moved while a long listing is written
+     * can be skipped or written twice.
+     *
+     * @param out where the names are written
+     * @param separator the text written after every name
+     * @param size the current number of participants in the sequence
+     * @param rowAt the row of the participant at a position of the sequence
+     * @param offset the number of participants to skip
+     * @param limit the maximum number of names to write
+     * @return the number of names written
+     * @throws IOException if the names cannot be written
+     */
+    private int writeNames(Appendable out, String separator, IntSupplier size, IntUnaryOperator rowAt, int offset, int limit) throws IOException {
+        String[] chunk = new String[LISTING_CHUNK];
+        long end = (long) Math.max(0, offset) + Math.max(0, limit);
+        int position = Math.max(0, offset);
+
+        while (position < end) {
+            int from = position;
+            int count = readOptimistically(() -> {
+                int to = (int) Math.min(Math.min(size.getAsInt(), end), (long) from + LISTING_CHUNK);
+                for (int i = from; i < to; i++) {
+                    chunk[i - from] = store.getName(rowAt.applyAsInt(i));
+                }
+                return Math.max(0, to - from);
+            });
+            if (count == 0) {
+                break;
+            }
+
+            for (int i = 0; i < count; i++) {
+                out.append(chunk[i]).append(separator);
+                chunk[i] = null;
+            }
+            position += count;
+        }
+        return position - Math.max(0, offset);
+    }
+
+    /**
+     * Runs a query over the participants without blocking writers.
+     * The query first runs without any lock; if a write overlapped it, its result is discarded
+     * and it runs again under the read lock.
+     *
+     * @param query the query to run, which must not have side effects
+     * @param <T> the type of the query result
+     * @return the result of the query over a consistent state
+     */
+    private <T> T readOptimistically(Supplier<T> query) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T result = query.get();
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // the query saw a write in progress, it is retried under the read lock
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves a copy of the participant with the specified ticket ID without locking.
+     *
+     * @param idTicket the ID of the ticket
+     * @return a copy of the participant with that ticket ID, or null if there is none
+     */
+    public Participant findParticipant(int idTicket) {
+        int row = rowOf(idTicket);
+        return row == TicketIndex.NOT_FOUND ? null : store.copyOf(row);
+    }
+
+    /**
+     * Searches the participants by name, accents and case ignored: first those with a word of the name
+     * starting with the query, and then those with a word starting within a few typos of it.
+     * The name index is built by the first search, so managers that never search do not pay for it,
+     * and it is then kept up to date as participants are added.
+     *
+     * @param query the name, or the start of a word of it
+     * @param limit the maximum number of participants returned
+     * @return copies of the participants found, the prefix matches first
+     */
+    public List<Participant> searchByName(String query, int limit) {
+        NameIndex names = nameIndex();
+        return readOptimistically(() -> {
+            int[] rows = names.search(query, limit);
+            List<Participant> participants = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                participants.add(store.copyOf(row));
+            }
+            return participants;
+        });
+    }
+
+    /**
+     * Retrieves the name index, building it over the registered participants if this is the first search.
+     * It is built under the read lock, so no participant is added meanwhile, and published before the lock
+     * is released, so every participant added afterwards is added to it.
+     *
+     * @return the name index
+     */
+    private NameIndex nameIndex() {
+        NameIndex names = nameIndex;
+        if (names != null) {
+            return names;
+        }
+
+        long stamp = lock.readLock();
+        try {
+            synchronized (nameIndexBuild) {
+                if (nameIndex == null) {
+                    NameIndex index = new NameIndex();
+                    int size = store.size();
+                    for (int row = 0; row < size; row++) {
+                        if (ticketIndex.get(store.getTicketId(row)) == row) {
+                            index.add(row, store.getName(row));
+                        }
+                    }
+                    nameIndex = index;
+                }
+                return nameIndex;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Checks without locking if a participant, with or without a ticket, is registered with the specified ticket ID.
+     * Unlike a ticket validation, the IDs rejected by the ticket filter are not counted.
+     *
+     * @param idTicket the ticket ID to look up
+     * @return true if the ticket ID is in use
+     */
+    public boolean isRegistered(int idTicket) {
+        TicketFilter filter = ticketFilter;
+        return (filter == null || filter.mightContain(idTicket)) && ticketIndex.get(idTicket) != TicketIndex.NOT_FOUND;
+    }
+
+    /**
+     * Retrieves every field of study or work of the registered participants.
+     *
+     * @return the fields, in order of appearance
+     */
+    public List<String> getFields() {
+        return readOptimistically(fieldIndex::getFields);
+    }
+
+    /**
+     * Checks if a participant with the specified ticket ID has a valid ticket.
+     *
+     * @param idTicket the ID of the ticket to be checked
+     * @return true if a participant with the given ticket ID has a valid ticket, false otherwise
+     */
+    public boolean haveTicket(int idTicket) {
+        int row = rowOf(idTicket);
+
+        if (row == TicketIndex.NOT_FOUND) {
+            UNKNOWN_TICKETS.increment();
+            publishValidated(idTicket, false, 0);
+            return false;
+        }
+        if (!store.hasTicket(row)) {
+            INVALID_TICKETS.increment();
+            publishValidated(idTicket, false, 0);
+            return false;
+        }
+        if (events.hasSubscribers()) {
+            publishValidated(idTicket, true, store.getTable(row));
+        }
+        return true;
+    }
+
+    /**
+     * Publishes that a ticket was validated, if the event stream has subscribers.
+     *
+     * @param idTicket the ID of the ticket
+     * @param valid true if the ticket was valid
+     * @param table the table of the ticket, 0 if it was not valid
+     */
+    private void publishValidated(int idTicket, boolean valid, int table) {
+        if (events.hasSubscribers()) {
+            events.publish(new ChangeEvent.TicketValidated(System.currentTimeMillis(), idTicket, valid, table));
+        }
+    }
+
+    /**
+     * Adds a specified number of drinks to the participant's ticket identified by the provided ticket ID,
+     * unless they exceed the limits of the DrinkLedger, and records them in the ledger.
+     *
+     * @param idTicket the ID of the ticket to which drinks should be added
+     * @param numDrink the number of drinks to add to the ticket
+     * @return the number of drinks of the ticket after adding them, -1 if there is no such ticket,
+     *         or DRINKS_REJECTED if the drinks exceed a limit
+     */
+    public int addDrink(int idTicket, int numDrink) {
+        if (isReadOnly()) {
+            return DRINKS_REJECTED;
+        }
+        int row = rowOf(idTicket);
+
+        if (row == TicketIndex.NOT_FOUND) {
+            UNKNOWN_TICKETS.increment();
+            System.out.println("The ticket doesnt not exist");
+            return -1;
+        }
+        if (!store.hasTicket(row)) {
+            INVALID_TICKETS.increment();
+            System.out.println("The ticket are invalid.");
+            return -1;
+        }
+
+        String rejection;
+        synchronized (drinkStripes[idTicket & (DRINK_STRIPES - 1)]) {
+            rejection = drinkLedger.checkLimits(idTicket, store.getDrinks(row), numDrink);
+            if (rejection == null) {
+                DRINKS_ADDED.add(numDrink);
+                int drinks = store.addDrinks(row, numDrink);
+                drinkLedger.record(idTicket, numDrink);
+                changeLog.logDrinks(idTicket, drinks);
+                if (events.hasSubscribers()) {
+                    events.publish(new ChangeEvent.DrinksAdded(System.currentTimeMillis(), idTicket, store.getTable(row), numDrink, drinks));
+                }
+                return drinks;
+            }
+        }
+        // the rejection is reported outside the stripe, so a slow console never holds up the other tickets of the stripe
+        REJECTED_DRINKS.increment();
+        System.out.println(rejection);
+        return DRINKS_REJECTED;
+    }
+
+    /**
+     * Counts the drinks added to a ticket in the last hour.
+     *
+     * @param idTicket the ID of the ticket
+     * @return the number of drinks, 0 if there is no such ticket
+     */
+    public int drinksInLastHour(int idTicket) {
+        synchronized (drinkStripes[idTicket & (DRINK_STRIPES - 1)]) {
+            return drinkLedger.drinksInLastHour(idTicket);
+        }
+    }
+
+    /**
+     * Counts the drinks added in the last hour to the tickets of the participants seated at a table.
+     *
+     * @param table the table number
+     * @return the number of drinks, 0 if the table does not exist
+     */
+    public int drinksInLastHourAtTable(int table) {
+        int[] ticketIds = readOptimistically(() -> {
+            int[] ids = new int[tableIndex.size(table)];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = store.getTicketId(tableIndex.get(table, i));
+            }
+            return ids;
+        });
+
+        int drinks = 0;
+        for (int ticketId : ticketIds) {
+            drinks += drinksInLastHour(ticketId);
+        }
+        return drinks;
+    }
+
+    /**
+     * Retrieves the last drinks added to a ticket, with their times.
+     *
+     * @param idTicket the ID of the ticket
+     * @return at most DrinkLedger.HISTORY additions, the most recent first
+     */
+    public List<DrinkLedger.Entry> recentDrinks(int idTicket) {
+        synchronized (drinkStripes[idTicket & (DRINK_STRIPES - 1)]) {
+            return drinkLedger.recentDrinks(idTicket);
+        }
+    }
+
+    /**
+     * Describes the drink limits enforced by addDrink.
+     *
+     * @return a one line summary of the limits
+     */
+    public String describeDrinkLimits() {
+        return drinkLedger.toString();
+    }
+
+    /**
+     * Saves the data of participants to the storage medium.
+     * This method triggers the handleSaveData method, which folds the change log into a new snapshot.
+     */
+    public void saveParticipantsData() {
+        handleSaveData();
+    }
+
+    /**
+     * Handles the saving of participant data by compacting the change log into the snapshot files.
+     * Catches and logs any IOExceptions that may occur during the save process.
+     */
+    private void handleSaveData() {
+        try {
+            compact();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops the background compaction and closes the change log, writing its pending records.
+     * The manager must not be used afterwards.
+     */
+    public void close() {
+        compactor.shutdownNow();
+        try {
+            changeLog.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compacts the change log when it has grown past the threshold. Runs periodically in the background.
+     */
+    private void compactIfNeeded() {
+        try {
+            if (changeLog.size() > COMPACTION_THRESHOLD_BYTES) {
+                compact();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Folds the change log into the snapshot files.
+     * The log is sealed and the participants are copied under the read lock, which excludes addParticipant and
+     * changeTable, so every change is either in the copy or in the new log. A drink added meanwhile is logged after
+     * it is applied, so it is in the new log even if the copy already saw it; replaying it sets the same total.
+     * The snapshot is then written outside the lock and the sealed log discarded.
+     * If the save fails, the sealed log is kept and replayed on the next start.
+     * A store that can write itself back, like a lazy store with no participant added since it was mapped,
+     * saves its changes in place under the read lock instead, and every change made meanwhile is also in the new log.
+     * A lazy store that could not is remapped over the snapshot just written, under the write lock, so the next
+     * compaction can.
+     *
+     * @throws IOException if the log cannot be sealed, the snapshot cannot be written or a lazy store cannot be remapped
+     */
+    private void compact() throws IOException {
+        ArrayList<Participant> snapshot;
+
+        long stamp = lock.readLock();
+        try {
+            changeLog.seal();
+            snapshot = store.writeBack() ? null : copyParticipants();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        if (snapshot != null) {
+            CustomerDao.saveParticipants(directory, snapshot, snapshotFormat);
+        }
+        changeLog.discardSealed();
+
+        if (snapshot != null && store instanceof LazyParticipantStore lazyStore) {
+            MappedSnapshot saved = CustomerDao.mapSavedSnapshot(directory);
+            stamp = lock.writeLock();
+            try {
+                if (!lazyStore.remap(saved)) {
+                    System.out.println("The saved snapshot does not match the participants, it was not remapped");
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * Copies every participant of the store. The caller must hold the lock.
+     *
+     * @return the copies, in row order
+     */
+    private ArrayList<Participant> copyParticipants() {
+        int size = store.size();
+        ArrayList<Participant> snapshot = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            snapshot.add(store.copyOf(row));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Lists students from a specific field.
+     *
+     * @param field the field of study or work to filter the participants by
+     * @return a string containing the names of the participants from the specified field
+     */
+    public String listStudentsFromField(String field) {
+        StringBuilder participantsList = new StringBuilder("\nParticipants from " + field + ":\n\t");
+        try {
+            listStudentsFromField(field, participantsList, 0, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return participantsList.toString();
+    }
+
+    /**
+     * Writes a page of the names of the students from a specific field, each followed by a new line and a tab.
+     *
+     * @param field the field of study or work to filter the participants by
+     * @param out where the names are written
+     * @param offset the number of students to skip
+     * @param limit the maximum number of names to write
+     * @return the number of names written
+     * @throws IOException if the names cannot be written
+     */
+    public int listStudentsFromField(String field, Appendable out, int offset, int limit) throws IOException {
+        int written = writeNames(out, "\n\t", () -> fieldIndex.size(field), i -> fieldIndex.get(field, i), offset, limit);
+
+        if (written == 0 && offset <= 0) {
+            System.out.println("The field doesnt not exist");
+        }
+        return written;
+    }
+
+    /**
+     * Generates a list of participants seated at a specified table.
+     *
+     * @param table the table number for which participants should be listed
+     * @return a string listing the names of participants seated at the specified table, or a message indicating that the table does not exist
+     */
+    public String listStudentsFromTable(int table) {
+        StringBuilder participantsList = new StringBuilder("\nParticipants from table " + table + ":\n\t");
+        try {
+            listStudentsFromTable(table, participantsList, 0, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return participantsList.toString();
+    }
+
+    /**
+     * Writes a page of the names of the participants seated at a specified table, each followed by a new line and a tab.
+     *
+     * @param table the table number for which participants should be listed
+     * @param out where the names are written
+     * @param offset the number of participants to skip
+     * @param limit the maximum number of names to write
+     * @return the number of names written
+     * @throws IOException if the names cannot be written
+     */
+    public int listStudentsFromTable(int table, Appendable out, int offset, int limit) throws IOException {
+        int written = writeNames(out, "\n\t", () -> tableIndex.size(table),
+                i -> tableIndex.get(table, i), offset, limit);
+
+        if (written == 0 && offset <= 0) {
+            System.out.println("The table doesnt not exist");
+        }
+        return written;
+    }
+
+    /**
+     * Groups the participants by an attribute and computes, for every group, the number of participants,
+     * the number of tickets and the sum of their drinks, in a single pass over the store.
+     * Beyond PARALLEL_AGGREGATION_THRESHOLD participants, and when there is more than one core,
+     * the pass is split across the common fork/join pool.
+     * The pass runs under the read lock, so new participants and table changes wait until it ends.
+     *
+     * @param groupBy the attribute to group by
+     * @return the measures of every group
+     */
+    public Aggregation aggregate(GroupBy groupBy) {
+        long stamp = lock.readLock();
+        try {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            AggregationTask task = new AggregationTask(store, groupBy, 0, store.size(), pool.getParallelism());
+            if (store.size() < PARALLEL_AGGREGATION_THRESHOLD || pool.getParallelism() == 1) {
+                return task.computeSequentially().toAggregation(groupBy);
+            }
+            return pool.invoke(task).toAggregation(groupBy);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Assigns a table to every ticketed participant in one batch, respecting the capacity of each table,
+     * and saves the participants.
+     * The plan is computed and applied under the write lock, the table changes are written to the change log
+     * with a single sync, and the change log is then folded into the snapshot through CustomerDao.
+     *
+     * @param capacities the number of seats of each table, indexed by table number
+     * @param keepTogether the attribute whose groups should share tables, or null to balance the tables
+     * @param rebalance true to move only the participants at unknown or overfull tables
+     * @return the outcome of the assignment, or null if the manager is a read replica
+     */
+    public SeatingPlanner.SeatingPlan assignTables(int[] capacities, GroupBy keepTogether, boolean rebalance) {
+        if (isReadOnly()) {
+            return null;
+        }
+        SeatingPlanner.SeatingPlan plan;
+
+        long stamp = lock.writeLock();
+        try {
+            long start = System.nanoTime();
+            int[] plannedTables = new SeatingPlanner(store, capacities).plan(keepTogether, rebalance);
+            boolean[] used = new boolean[capacities.length];
+            int[] movedTickets = new int[plannedTables.length];
+            int[] movedTables = new int[plannedTables.length];
+            int seated = 0;
+            int moved = 0;
+            int unseated = 0;
+
+            for (int row = 0; row < plannedTables.length; row++) {
+                if (!store.hasTicket(row)) {
+                    continue;
+                }
+                int table = plannedTables[row];
+                if (table == SeatingPlanner.UNSEATED) {
+                    unseated++;
+                    continue;
+                }
+                seated++;
+                used[table] = true;
+                if (table != store.getTable(row)) {
+                    moveToTable(row, table);
+                    movedTickets[moved] = store.getTicketId(row);
+                    movedTables[moved] = table;
+                    moved++;
+                }
+            }
+            changeLog.logTables(movedTickets, movedTables, moved);
+
+            int tablesUsed = 0;
+            for (boolean tableUsed : used) {
+                tablesUsed += tableUsed ? 1 : 0;
+            }
+            plan = new SeatingPlanner.SeatingPlan(seated, moved, unseated, tablesUsed, System.nanoTime() - start);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+
+        handleSaveData();
+        return plan;
+    }
+
+    /**
+     * Groups the ticket IDs by the hour slot of their ticket, under the read lock.
+     *
+     * @return the ticket IDs of every hour slot, sorted by hour and in registration order within a slot
+     */
+    public TreeMap<Integer, int[]> ticketsByHour() {
+        long stamp = lock.readLock();
+        try {
+            int size = store.size();
+            HashMap<Integer, int[]> counts = new HashMap<>();
+            for (int row = 0; row < size; row++) {
+                if (store.hasTicket(row)) {
+                    counts.computeIfAbsent(store.getHour(row), hour -> new int[1])[0]++;
+                }
+            }
+
+            TreeMap<Integer, int[]> tickets = new TreeMap<>();
+            HashMap<Integer, int[]> filled = new HashMap<>();
+            for (Integer hour : counts.keySet()) {
+                tickets.put(hour, new int[counts.get(hour)[0]]);
+                filled.put(hour, new int[1]);
+            }
+            for (int row = 0; row < size; row++) {
+                if (store.hasTicket(row)) {
+                    int hour = store.getHour(row);
+                    tickets.get(hour)[filled.get(hour)[0]++] = store.getTicketId(row);
+                }
+            }
+            return tickets;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Applies the records shipped by the primary to a replica that serves readers meanwhile,
+     * publishing them as events like the changes of a primary.
+     */
+    private class ReplicaApplier implements ChangeLog.Replayer {
+
+        @Override
+        public void participantAdded(String name, String birth, String nationality, int ticketId, int grade, String field, boolean haveTicket, int hour, int table, int drinks) {
+            Participant participant = new Participant(name, birth, nationality, ticketId, grade, field, haveTicket, hour, table, drinks);
+            long stamp = lock.writeLock();
+            try {
+                if (ticketIndex.get(ticketId) != TicketIndex.NOT_FOUND) {
+                    return;
+                }
+                register(participant);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            publishAdded(participant);
+        }
+
+        @Override
+        public void drinksChanged(int ticketId, int drinks) {
+            int row = ticketIndex.get(ticketId);
+            if (row == TicketIndex.NOT_FOUND || !store.hasTicket(row)) {
+                return;
+            }
+            int added;
+            synchronized (drinkStripes[ticketId & (DRINK_STRIPES - 1)]) {
+                added = drinks - store.getDrinks(row);
+                store.setDrinks(row, drinks);
+                if (added > 0) {
+                    drinkLedger.record(ticketId, added);
+                }
+            }
+            if (added > 0 && events.hasSubscribers()) {
+                events.publish(new ChangeEvent.DrinksAdded(System.currentTimeMillis(), ticketId, store.getTable(row), added, drinks));
+            }
+        }
+
+        @Override
+        public void tableChanged(int ticketId, int table) {
+            int row = ticketIndex.get(ticketId);
+            if (row == TicketIndex.NOT_FOUND || !store.hasTicket(row)) {
+                return;
+            }
+            int previousTable;
+            long stamp = lock.writeLock();
+            try {
+                previousTable = store.getTable(row);
+                moveToTable(row, table);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            if (events.hasSubscribers()) {
+                events.publish(new ChangeEvent.TableChanged(System.currentTimeMillis(), ticketId, previousTable, table));
+            }
+        }
+    }
+
+    /**
+     * Applies the records of the change log to the loaded participants without logging them again.
+     */
+    private class LogReplayer implements ChangeLog.Replayer {
+
+        @Override
+        public void participantAdded(String name, String birth, String nationality, int ticketId, int grade, String field, boolean haveTicket, int hour, int table, int drinks) {
+            if (ticketIndex.get(ticketId) == TicketIndex.NOT_FOUND) {
+                register(new Participant(name, birth, nationality, ticketId, grade, field, haveTicket, hour, table, drinks));
+            }
+        }
+
+        @Override
+        public void drinksChanged(int ticketId, int drinks) {
+            int row = ticketIndex.get(ticketId);
+            if (row != TicketIndex.NOT_FOUND && store.hasTicket(row)) {
+                store.setDrinks(row, drinks);
+            }
+        }
+
+        @Override
+        public void tableChanged(int ticketId, int table) {
+            int row = ticketIndex.get(ticketId);
+            if (row != TicketIndex.NOT_FOUND && store.hasTicket(row)) {
+                moveToTable(row, table);
+            }
+        }
+    }
+}
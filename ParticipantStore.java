@@ -0,0 +1,135 @@
+package Business;
+
+import java.io.IOException;
+
+/**
+ * Storage of the registered participants, addressed by row: the position at which each participant was added.
+ * Rows never move, so the indexes of ParticipantManager hold rows instead of references.
+ * <pre>
+ * add and setTable must be serialized by the caller. The getters may run concurrently with add
+ * for every row published before, for example through the ticket index, and addDrinks is atomic.
+ * </pre>
+ */
+public interface ParticipantStore {
+
+    /**
+     * Adds a participant at the next row.
+     *
+     * @param participant the participant to store; the store may keep it or only copy its values
+     * @return the row of the participant
+     */
+    int add(Participant participant);
+
+    /**
+     * Retrieves the number of rows.
+     *
+     * @return the number of participants stored
+     */
+    int size();
+
+    /**
+     * Retrieves the name of a participant.
+     *
+     * @param row the row of the participant
+     * @return the name
+     */
+    String getName(int row);
+
+    /**
+     * Retrieves the ticket ID of a participant.
+     *
+     * @param row the row of the participant
+     * @return the ticket ID
+     */
+    int getTicketId(int row);
+
+    /**
+     * Retrieves the field of study or work of a participant.
+     *
+     * @param row the row of the participant
+     * @return the field
+     */
+    String getField(int row);
+
+    /**
+     * Retrieves the nationality of a participant.
+     *
+     * @param row the row of the participant
+     * @return the nationality
+     */
+    String getNationality(int row);
+
+    /**
+     * Checks whether a participant has a ticket.
+     *
+     * @param row the row of the participant
+     * @return true if the participant has a ticket
+     */
+    boolean hasTicket(int row);
+
+    /**
+     * Retrieves the hour slot of a participant's ticket.
+     *
+     * @param row the row of a participant with a ticket
+     * @return the hour of the ticket
+     */
+    int getHour(int row);
+
+    /**
+     * Retrieves the table of a participant's ticket.
+     *
+     * @param row the row of a participant with a ticket
+     * @return the table number
+     */
+    int getTable(int row);
+
+    /**
+     * Changes the table of a participant's ticket.
+     *
+     * @param row the row of a participant with a ticket
+     * @param table the new table number
+     */
+    void setTable(int row, int table);
+
+    /**
+     * Retrieves the drinks of a participant's ticket.
+     *
+     * @param row the row of a participant with a ticket
+     * @return the number of drinks
+     */
+    int getDrinks(int row);
+
+    /**
+     * Atomically adds drinks to a participant's ticket.
+     *
+     * @param row the row of a participant with a ticket
+     * @param drinks the number of drinks to add
+     * @return the new number of drinks
+     */
+    int addDrinks(int row, int drinks);
+
+    /**
+     * Sets the drinks of a participant's ticket.
+     *
+     * @param row the row of a participant with a ticket
+     * @param drinks the new number of drinks
+     */
+    void setDrinks(int row, int drinks);
+
+    /**
+     * Creates an independent copy of a participant and its ticket.
+     *
+     * @param row the row of the participant
+     * @return a new Participant with the current values of the row
+     */
+    Participant copyOf(int row);
+
+    /**
+     * Saves the changes of the store in place, if it keeps every participant in a snapshot it can write into,
+     * instead of being copied into a new snapshot. The caller must hold the lock, so no participant is added meanwhile.
+     *
+     * @return true if every change of the store was saved, false if the store has to be copied into a new snapshot
+     * @throws IOException if the changes cannot be saved
+     */
+    boolean writeBack() throws IOException;
+}
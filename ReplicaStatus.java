@@ -0,0 +1,120 @@
+package Business;
+
+/**
+ * Progress of a read replica that applies the change log records shipped by its primary.
+ * <pre>
+ * The replica applies the records in order and tracks:
+ * - how many records it applied, and how many the primary had shipped at its last heartbeat;
+ * - its lag in time: how long after the primary logged it the last record was applied, until a heartbeat
+ *   confirms that the replica caught up, and then 0;
+ * - when it last heard from the primary, so a silent primary shows up as a growing staleness.
+ * It is updated by the single thread that applies the records and read by any other, so every field is volatile.
+ * </pre>
+ */
+public class ReplicaStatus {
+    private final String primary;
+    private volatile long appliedRecords;
+    private volatile long shippedRecords;
+    private volatile long lagMillis;
+    private volatile long lastContactMillis = System.currentTimeMillis();
+    private volatile boolean connected = true;
+
+    /**
+     * Initializes the status of a replica that has applied no record yet.
+     *
+     * @param primary the address of the primary
+     */
+    public ReplicaStatus(String primary) {
+        this.primary = primary;
+    }
+
+    /**
+     * Records that a record was applied.
+     *
+     * @param sequence the sequence of the record, counted from 1 since the snapshot
+     * @param loggedMillis when the primary logged the record
+     */
+    public void recordApplied(long sequence, long loggedMillis) {
+        long now = System.currentTimeMillis();
+        appliedRecords = sequence;
+        shippedRecords = Math.max(shippedRecords, sequence);
+        lagMillis = Math.max(0, now - loggedMillis);
+        lastContactMillis = now;
+    }
+
+    /**
+     * Records a heartbeat of the primary.
+     *
+     * @param sequence the number of records the primary had shipped when it sent the heartbeat
+     */
+    public void heartbeat(long sequence) {
+        shippedRecords = Math.max(shippedRecords, sequence);
+        if (appliedRecords >= sequence) {
+            lagMillis = 0;
+        }
+        lastContactMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Records that the connection to the primary was lost, so the replica no longer changes.
+     */
+    public void disconnected() {
+        connected = false;
+    }
+
+    /**
+     * Checks if the replica still receives the changes of the primary.
+     *
+     * @return true while the replica is connected
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Retrieves the number of records applied since the snapshot.
+     *
+     * @return the records applied
+     */
+    public long getAppliedRecords() {
+        return appliedRecords;
+    }
+
+    /**
+     * Retrieves the number of records shipped by the primary and not applied yet, as of its last heartbeat.
+     *
+     * @return the records behind
+     */
+    public long getLagRecords() {
+        return Math.max(0, shippedRecords - appliedRecords);
+    }
+
+    /**
+     * Retrieves how far behind the primary the replica was when it applied its last record.
+     *
+     * @return the lag in milliseconds, 0 once the replica caught up
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Retrieves how long ago the replica heard from the primary.
+     *
+     * @return the milliseconds since the last record or heartbeat
+     */
+    public long getStalenessMillis() {
+        return System.currentTimeMillis() - lastContactMillis;
+    }
+
+    /**
+     * Generates a one line summary of the replication.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return "Replica of " + primary + (connected ? "" : " (disconnected)") + ": " + appliedRecords + " records applied, "
+                + getLagRecords() + " behind, lag " + lagMillis + " ms, last contact " + getStalenessMillis() + " ms ago";
+    }
+}
@@ -0,0 +1,148 @@
+package Persistence;
+
+import Business.ParticipantManager;
+import Business.ReplicaStatus;
+import Business.StoreLayout;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+
+/**
+ * Keeps a read replica of the participants of a primary served by a ReplicationServer.
+ * <pre>
+ * On connecting, the client installs the snapshot sent by the primary in its own directory, starts a
+ * ParticipantManager over it and turns it into a replica, which serves every read and rejects every change.
+ * A daemon thread then applies the records shipped by the primary, in order, and keeps a ReplicaStatus
+ * with the records applied and behind and the lag, measured against the clock of the primary.
+ *
+ * When the connection is lost the replica keeps serving the participants it has, and its status tells
+ * that it is disconnected. It does not reconnect by itself: connecting again installs a new snapshot.
+ * </pre>
+ */
+public class ReplicationClient implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final ParticipantManager participantManager;
+    private final ReplicaStatus status;
+    private final Thread thread;
+
+    /**
+     * Initializes a client over a connection whose snapshot was installed.
+     *
+     * @param socket the connection to the primary
+     * @param in the stream of the connection, positioned after the snapshot
+     * @param participantManager the replica
+     * @param status the progress of the replica
+     */
+    private ReplicationClient(Socket socket, DataInputStream in, ParticipantManager participantManager, ReplicaStatus status) {
+        this.socket = socket;
+        this.in = in;
+        this.participantManager = participantManager;
+        this.status = status;
+        this.thread = new Thread(this::applyRecords, "replication-client");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Connects to a primary and starts a replica of its participants.
+     *
+     * @param host the host of the primary
+     * @param port the replication port of the primary
+     * @param directory the directory of the data files of the replica, whose snapshot is replaced
+     * @param storeLayout the memory layout of the participants of the replica
+     * @return the client, whose replica is up to date with the snapshot and follows the primary
+     * @throws IOException if the primary cannot be reached or the snapshot cannot be installed
+     * @throws ParseException if the installed snapshot cannot be read
+     */
+    public static ReplicationClient connect(String host, int port, Path directory, StoreLayout storeLayout) throws IOException, ParseException {
+        Socket socket = new Socket(host, port);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+            if (in.readInt() != ReplicationServer.MAGIC || in.readInt() != ReplicationServer.VERSION) {
+                throw new IOException(host + ":" + port + " is not a SalleFest replication server");
+            }
+            CustomerDao.installSnapshot(directory, in, in.readLong());
+
+            ParticipantManager participantManager = new ParticipantManager(directory, SnapshotFormat.BINARY, storeLayout);
+            ReplicaStatus status = new ReplicaStatus(host + ":" + port);
+            participantManager.startReplica(status);
+
+            ReplicationClient client = new ReplicationClient(socket, in, participantManager, status);
+            client.thread.start();
+            return client;
+        } catch (IOException | ParseException | RuntimeException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Applies the records and heartbeats of the primary until the connection is lost.
+     */
+    private void applyRecords() {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                long sequence = in.readLong();
+                long timeMillis = in.readLong();
+
+                if (type == ReplicationServer.RECORD) {
+                    byte[] record = new byte[in.readInt()];
+                    in.readFully(record);
+                    participantManager.applyReplicated(record);
+                    status.recordApplied(sequence, timeMillis);
+                } else if (type == ReplicationServer.HEARTBEAT) {
+                    status.heartbeat(sequence);
+                } else {
+                    throw new IOException("Unknown replication message " + type);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            System.out.println("The connection to the primary was lost");
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            status.disconnected();
+        }
+    }
+
+    /**
+     * Retrieves the replica kept by the client.
+     *
+     * @return the read-only manager
+     */
+    public ParticipantManager getParticipantManager() {
+        return participantManager;
+    }
+
+    /**
+     * Retrieves the progress of the replica.
+     *
+     * @return the status of the replication
+     */
+    public ReplicaStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Disconnects from the primary and waits for the thread applying the records to stop.
+     *
+     * @throws IOException if the connection cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package Persistence;
+
+import Business.Metrics;
+import Business.Participant;
+import Business.ParticipantManager;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ships the participants of a primary ParticipantManager to read replicas in other processes over TCP,
+ * as a snapshot followed by every change log record appended after it. See ReplicationClient.
+ * <pre>
+ * The protocol is binary and big-endian. When a replica connects, the server sends:
+ *   int MAGIC, int VERSION, long length, and the length bytes of a BinarySnapshot of the participants.
+ * Then one message per record, in log order, numbered from 1 since the snapshot:
+ *   byte RECORD, long sequence, long time the record was logged, int length, and the framed record;
+ * and, every HEARTBEAT_MILLIS at least, a heartbeat telling how many records were logged so far:
+ *   byte HEARTBEAT, long sequence, long time.
+ *
+ * The records are queued per replica by the thread that logs them, without blocking it, and sent by a daemon
+ * thread of the replica in batches, with one flush per batch. A replica that falls FOLLOWER_QUEUE records
+ * behind is disconnected rather than slowing the primary down, and has to connect again for a new snapshot.
+ * </pre>
+ */
+public class ReplicationServer implements Closeable {
+    static final int MAGIC = 0x53465250;
+    static final int VERSION = 1;
+    static final byte RECORD = 1;
+    static final byte HEARTBEAT = 2;
+    private static final int FOLLOWER_QUEUE = 1 << 16;
+    private static final int BATCH_SIZE = 1024;
+    private static final long HEARTBEAT_MILLIS = 100;
+    private static final LongAdder SHIPPED_RECORDS = Metrics.counter("replication.shipped");
+    private static final LongAdder DROPPED_REPLICAS = Metrics.counter("replication.dropped");
+
+    /**
+     * A record queued for a replica, with its sequence and the time it was logged.
+     */
+    private record Shipment(long sequence, long timeMillis, byte[] record) {
+    }
+
+    /**
+     * A connected replica: the listener that queues the records for it and the thread that sends them.
+     */
+    private final class Follower implements ChangeLog.RecordListener, Runnable {
+        private final Socket socket;
+        private final ArrayBlockingQueue<Shipment> queue = new ArrayBlockingQueue<>(FOLLOWER_QUEUE);
+        private volatile long logged;
+        private volatile boolean overflowed;
+
+        private Follower(Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void recordAppended(byte[] record) {
+            if (overflowed) {
+                return;
+            }
+            long sequence = logged + 1;
+            logged = sequence;
+            if (!queue.offer(new Shipment(sequence, System.currentTimeMillis(), record))) {
+                overflowed = true;
+            }
+        }
+
+        /**
+         * Sends the snapshot and then the records until the replica disconnects or falls too far behind.
+         */
+        @Override
+        public void run() {
+            try (socket; DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024))) {
+                sendSnapshot(out);
+
+                List<Shipment> batch = new ArrayList<>(BATCH_SIZE);
+                long lastHeartbeat = 0;
+                while (true) {
+                    Shipment first = queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (overflowed) {
+                        DROPPED_REPLICAS.increment();
+                        System.out.println("The replica " + socket.getRemoteSocketAddress() + " fell too far behind and was disconnected");
+                        return;
+                    }
+                    if (first != null) {
+                        batch.add(first);
+                        queue.drainTo(batch, BATCH_SIZE - 1);
+                        for (Shipment shipment : batch) {
+                            out.writeByte(RECORD);
+                            out.writeLong(shipment.sequence());
+                            out.writeLong(shipment.timeMillis());
+                            out.writeInt(shipment.record().length);
+                            out.write(shipment.record());
+                        }
+                        SHIPPED_RECORDS.add(batch.size());
+                        batch.clear();
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now - lastHeartbeat >= HEARTBEAT_MILLIS) {
+                        out.writeByte(HEARTBEAT);
+                        out.writeLong(logged);
+                        out.writeLong(now);
+                        lastHeartbeat = now;
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                // the replica disconnected
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                participantManager.stopShipping(this);
+                followers.remove(this);
+            }
+        }
+
+        /**
+         * Starts shipping the records to the replica and sends it the snapshot they follow.
+         *
+         * @param out the stream to the replica
+         * @throws IOException if the snapshot cannot be written or sent
+         */
+        private void sendSnapshot(DataOutputStream out) throws IOException {
+            Path snapshot = Files.createTempFile("sallefest-replica", ".bin");
+            try {
+                ArrayList<Participant> participants = participantManager.startShipping(this);
+                BinarySnapshot.write(participants, snapshot);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(Files.size(snapshot));
+                Files.copy(snapshot, out);
+                out.flush();
+            } finally {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+    }
+
+    private final ParticipantManager participantManager;
+    private final ServerSocket serverSocket;
+    private final List<Follower> followers = new CopyOnWriteArrayList<>();
+    private Thread acceptThread;
+
+    /**
+     * Initializes a new ReplicationServer bound to the given port.
+     *
+     * @param participantManager the primary manager whose changes are shipped
+     * @param port the TCP port to listen on, or 0 to pick a free one
+     * @throws IOException if the port cannot be bound
+     */
+    public ReplicationServer(ParticipantManager participantManager, int port) throws IOException {
+        this.participantManager = participantManager;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+    }
+
+    /**
+     * Retrieves the port the server is listening on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Retrieves the number of replicas connected.
+     *
+     * @return the replicas
+     */
+    public int getReplicas() {
+        return followers.size();
+    }
+
+    /**
+     * Starts accepting replicas in a background thread.
+     */
+    public void start() {
+        acceptThread = new Thread(this::acceptReplicas, "replication-server");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Accepts replicas until the server is closed, each one served by its own daemon thread.
+     */
+    private void acceptReplicas() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Follower follower = new Follower(socket);
+                followers.add(follower);
+                Thread thread = new Thread(follower, "replication-" + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (SocketException e) {
+                // the server socket was closed
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting replicas and disconnects the connected ones.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Follower follower : followers) {
+            follower.socket.close();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package Business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Assigns a table to every ticketed participant in one batch, respecting the capacity of each table.
+ * <pre>
+ * The free seats of the tables are kept in a max-heap, so each assignment costs O(log tables) and no pair of
+ * participants is ever compared. Without grouping, every participant goes to the table with the most free seats,
+ * which balances the tables. When a GroupBy attribute must be kept together, the groups are seated from the
+ * largest to the smallest, each filling the emptiest table before spilling into the next one, so a group is split
+ * across as few tables as possible.
+ *
+ * In rebalance mode, participants already seated at a table with room stay where they are, and only those
+ * at unknown or overfull tables are moved. Participants that do not fit anywhere keep their current table.
+ * </pre>
+ */
+public class SeatingPlanner {
+    /**
+     * The planned table of a participant that could not be seated.
+     */
+    static final int UNSEATED = -1;
+
+    private final ParticipantStore store;
+    private final int[] capacities;
+
+    /**
+     * The outcome of a seating run.
+     */
+    public static final class SeatingPlan {
+        private final int seated;
+        private final int moved;
+        private final int unseated;
+        private final int tablesUsed;
+        private final long planningNanos;
+
+        SeatingPlan(int seated, int moved, int unseated, int tablesUsed, long planningNanos) {
+            this.seated = seated;
+            this.moved = moved;
+            this.unseated = unseated;
+            this.tablesUsed = tablesUsed;
+            this.planningNanos = planningNanos;
+        }
+
+        /**
+         * Retrieves how many participants changed table.
+         *
+         * @return the number of participants moved
+         */
+        public int getMoved() {
+            return moved;
+        }
+
+        /**
+         * Retrieves how many participants did not fit at any table.
+         *
+         * @return the number of participants left at their previous table
+         */
+        public int getUnseated() {
+            return unseated;
+        }
+
+        /**
+         * Generates a one line summary of the plan.
+         *
+         * @return the summary
+         */
+        @Override
+        public String toString() {
+            return String.format("%d participants seated at %d tables, %d moved, %d without a seat, planned in %.1f ms",
+                    seated, tablesUsed, moved, unseated, planningNanos / 1e6);
+        }
+    }
+
+    /**
+     * Initializes a planner over the participants of a store.
+     *
+     * @param store the store of the participants
+     * @param capacities the number of seats of each table, indexed by table number; tables with 0 seats are not used
+     */
+    SeatingPlanner(ParticipantStore store, int[] capacities) {
+        this.store = store;
+        this.capacities = capacities;
+    }
+
+    /**
+     * Computes the table of every ticketed participant.
+     *
+     * @param keepTogether the attribute whose groups should share tables, or null to balance the tables
+     * @param rebalance true to keep participants already seated at a table with room
+     * @return the planned table of each row, UNSEATED if it did not fit; rows without a ticket keep their value of 0
+     */
+    int[] plan(GroupBy keepTogether, boolean rebalance) {
+        int size = store.size();
+        int[] plannedTables = new int[size];
+        int[] freeSeats = capacities.clone();
+        int[] pending = new int[size];
+        int pendingCount = 0;
+
+        for (int row = 0; row < size; row++) {
+            if (!store.hasTicket(row)) {
+                continue;
+            }
+            int table = store.getTable(row);
+            if (rebalance && table >= 0 && table < freeSeats.length && freeSeats[table] > 0) {
+                freeSeats[table]--;
+                plannedTables[row] = table;
+            } else {
+                pending[pendingCount++] = row;
+            }
+        }
+
+        PriorityQueue<Integer> tables = new PriorityQueue<>(Math.max(1, freeSeats.length),
+                Comparator.<Integer>comparingInt(table -> freeSeats[table]).reversed().thenComparingInt(table -> table));
+        for (int table = 0; table < freeSeats.length; table++) {
+            if (freeSeats[table] > 0) {
+                tables.add(table);
+            }
+        }
+
+        if (keepTogether == null) {
+            for (int i = 0; i < pendingCount; i++) {
+                plannedTables[pending[i]] = seat(tables, freeSeats, 1);
+            }
+        } else {
+            for (int[] group : groupRows(pending, pendingCount, keepTogether)) {
+                seatGroup(group, tables, freeSeats, plannedTables);
+            }
+        }
+        return plannedTables;
+    }
+
+    /**
+     * Takes up to the requested number of seats at the table with the most free seats.
+     *
+     * @param tables the tables with free seats, emptiest first
+     * @param freeSeats the free seats of each table
+     * @param seats the number of seats wanted
+     * @return the table, or UNSEATED if no table has free seats; the number of seats taken is min(seats, free seats)
+     */
+    private static int seat(PriorityQueue<Integer> tables, int[] freeSeats, int seats) {
+        Integer table = tables.poll();
+        if (table == null) {
+            return UNSEATED;
+        }
+        freeSeats[table] -= Math.min(seats, freeSeats[table]);
+        if (freeSeats[table] > 0) {
+            tables.add(table);
+        }
+        return table;
+    }
+
+    /**
+     * Seats the rows of a group at the emptiest tables, filling each one before moving on to the next.
+     *
+     * @param group the rows of the group
+     * @param tables the tables with free seats, emptiest first
+     * @param freeSeats the free seats of each table
+     * @param plannedTables the planned table of each row
+     */
+    private static void seatGroup(int[] group, PriorityQueue<Integer> tables, int[] freeSeats, int[] plannedTables) {
+        int next = 0;
+        while (next < group.length) {
+            Integer top = tables.peek();
+            int seats = top == null ? 0 : Math.min(freeSeats[top], group.length - next);
+            int table = seat(tables, freeSeats, group.length - next);
+
+            if (table == UNSEATED) {
+                while (next < group.length) {
+                    plannedTables[group[next++]] = UNSEATED;
+                }
+                return;
+            }
+            for (int i = 0; i < seats; i++) {
+                plannedTables[group[next++]] = table;
+            }
+        }
+    }
+
+    /**
+     * Buckets the rows by the key of an attribute, largest bucket first.
+     *
+     * @param rows the rows to group
+     * @param count the number of rows
+     * @param groupBy the attribute to group by
+     * @return the rows of each group
+     */
+    private ArrayList<int[]> groupRows(int[] rows, int count, GroupBy groupBy) {
+        HashMap<Object, int[]> sizes = new HashMap<>();
+        Object[] keys = new Object[count];
+
+        for (int i = 0; i < count; i++) {
+            keys[i] = groupBy.isNumeric() ? Integer.valueOf(groupBy.numericKeyOf(store, rows[i])) : groupBy.keyOf(store, rows[i]);
+            sizes.computeIfAbsent(keys[i], key -> new int[2])[0]++;
+        }
+
+        HashMap<Object, int[]> groups = new HashMap<>();
+        for (Object key : sizes.keySet()) {
+            groups.put(key, new int[sizes.get(key)[0]]);
+        }
+        for (int i = 0; i < count; i++) {
+            groups.get(keys[i])[sizes.get(keys[i])[1]++] = rows[i];
+        }
+
+        ArrayList<int[]> ordered = new ArrayList<>(groups.values());
+        ordered.sort(Comparator.comparingInt((int[] group) -> group.length).reversed());
+        return ordered;
+    }
+
+    /**
+     * Creates capacities for tables numbered from 1 to the given count, all with the same number of seats.
+     *
+     * @param tables the number of tables
+     * @param seats the seats of each table
+     * @return the capacities indexed by table number, with no seats at table 0
+     */
+    public static int[] uniformCapacities(int tables, int seats) {
+        int[] capacities = new int[tables + 1];
+        Arrays.fill(capacities, 1, tables + 1, seats);
+        return capacities;
+    }
+}
@@ -0,0 +1,477 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Partitions the participants of several events, or of one large event, across ParticipantManager shards
+ * that run side by side in the same JVM.
+ * <pre>
+ * Every shard owns a range of ticket IDs, starting at its first ticket ID and ending where the next shard
+ * starts, and keeps its own snapshot and change log in a directory named after it. An event is a shard whose
+ * range holds the tickets sold for it.
+ *
+ * Every shard has its own worker thread, which loads the shard, saves it, and runs its part of the
+ * cross-shard queries, so the shards are loaded and queried in parallel:
+ * - haveTicket, addDrink, changeTable, findParticipant and addParticipant are routed to the owning shard,
+ *   found by binary search over the first ticket IDs, and run on the calling thread, since the managers
+ *   are already safe to share and the lookups are faster than a hand-off to another thread.
+ * - The listings first count the matching participants of every shard in parallel, then stream the part of
+ *   the requested page of each shard into the output in shard order, on the calling thread, so a listing is
+ *   never held in memory whatever its size. Each shard is read consistently, but the shards are not read at
+ *   the same instant.
+ * - The aggregations are computed by every shard and merged group by group.
+ * </pre>
+ */
+public class ShardedParticipantManager {
+
+    /**
+     * A query run by every shard on its worker thread.
+     *
+     * @param <T> the type of the result of a shard
+     */
+    private interface ShardQuery<T> {
+
+        /**
+         * Runs the query over one shard.
+         *
+         * @param manager the manager of the shard
+         * @return the result of the shard
+         * @throws IOException if the result cannot be written
+         */
+        T run(ParticipantManager manager) throws IOException;
+    }
+
+    /**
+     * A listing of names that can be written from a page of one shard.
+     */
+    private interface ShardListing {
+
+        /**
+         * Writes a page of the listing of one shard.
+         *
+         * @param manager the manager of the shard
+         * @param out where the names are written
+         * @param offset the number of names of the shard to skip
+         * @param limit the maximum number of names to write
+         * @return the number of names written
+         * @throws IOException if the names cannot be written
+         */
+        int write(ParticipantManager manager, Appendable out, int offset, int limit) throws IOException;
+    }
+
+    private final String[] names;
+    private final int[] firstTicketIds;
+    private final ParticipantManager[] managers;
+    private final ExecutorService[] workers;
+
+    /**
+     * Loads every shard from its directory, in parallel, creating empty data files for new shards.
+     *
+     * @param root the directory holding one directory per shard
+     * @param names the names of the shards, which are also the names of their directories
+     * @param firstTicketIds the first ticket ID of every shard, in ascending order; ticket IDs below the
+     *                       first one belong to the first shard
+     * @param snapshotFormat the format of the snapshots
+     * @param storeLayout the memory layout of the participants
+     * @throws IOException if an I/O error occurs while reading participant data.
+     * @throws ParseException if there is an error in parsing the participant data.
+     */
+    public ShardedParticipantManager(Path root, String[] names, int[] firstTicketIds, SnapshotFormat snapshotFormat, StoreLayout storeLayout) throws IOException, ParseException {
+        if (names.length == 0 || names.length != firstTicketIds.length) {
+            throw new IllegalArgumentException("Every shard needs a name and a first ticket ID");
+        }
+        for (int i = 1; i < firstTicketIds.length; i++) {
+            if (firstTicketIds[i] <= firstTicketIds[i - 1]) {
+                throw new IllegalArgumentException("The first ticket IDs of the shards must be ascending");
+            }
+        }
+        this.names = names.clone();
+        this.firstTicketIds = firstTicketIds.clone();
+        this.managers = new ParticipantManager[names.length];
+        this.workers = new ExecutorService[names.length];
+
+        ArrayList<Future<ParticipantManager>> loads = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            Path directory = root.resolve(name);
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "shard-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            loads.add(workers[i].submit(() -> {
+                CustomerDao.initializeDirectory(directory, snapshotFormat);
+                return new ParticipantManager(directory, snapshotFormat, storeLayout);
+            }));
+        }
+
+        try {
+            for (int i = 0; i < names.length; i++) {
+                managers[i] = loads.get(i).get();
+            }
+        } catch (ExecutionException e) {
+            close();
+            if (e.getCause() instanceof ParseException parseException) {
+                throw parseException;
+            }
+            throw asIOException(e);
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading the shards", e);
+        }
+    }
+
+    /**
+     * Loads the shards described by a specification such as "north:1,south:50000", where every shard is
+     * given by its name and its first ticket ID.
+     *
+     * @param root the directory holding one directory per shard
+     * @param specification the shards, separated by commas
+     * @param snapshotFormat the format of the snapshots
+     * @param storeLayout the memory layout of the participants
+     * @return the sharded manager
+     * @throws IOException if an I/O error occurs while reading participant data.
+     * @throws ParseException if there is an error in parsing the participant data.
+     */
+    public static ShardedParticipantManager fromSpecification(Path root, String specification, SnapshotFormat snapshotFormat, StoreLayout storeLayout) throws IOException, ParseException {
+        String[] shards = specification.split(",");
+        String[] names = new String[shards.length];
+        int[] firstTicketIds = new int[shards.length];
+
+        for (int i = 0; i < shards.length; i++) {
+            String[] parts = shards[i].strip().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid shard " + shards[i] + ", expected name:firstTicketId");
+            }
+            names[i] = parts[0];
+            firstTicketIds[i] = Integer.parseInt(parts[1]);
+        }
+        return new ShardedParticipantManager(root, names, firstTicketIds, snapshotFormat, storeLayout);
+    }
+
+    /**
+     * Finds the shard that owns a ticket ID.
+     *
+     * @param ticketId the ticket ID
+     * @return the index of the shard
+     */
+    private int shardOf(int ticketId) {
+        int shard = Arrays.binarySearch(firstTicketIds, ticketId);
+        return shard >= 0 ? shard : Math.max(0, -shard - 2);
+    }
+
+    /**
+     * Retrieves the manager of the shard that owns a ticket ID.
+     *
+     * @param ticketId the ticket ID
+     * @return the manager of the owning shard
+     */
+    public ParticipantManager shardFor(int ticketId) {
+        return managers[shardOf(ticketId)];
+    }
+
+    /**
+     * Retrieves the number of shards.
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return managers.length;
+    }
+
+    /**
+     * Retrieves the name of a shard, which is also the name of its directory.
+     *
+     * @param shard the index of the shard
+     * @return the name of the shard
+     */
+    public String getShardName(int shard) {
+        return names[shard];
+    }
+
+    /**
+     * Adds a participant to the shard that owns its ticket ID.
+     *
+     * @param name the name of the participant
+     * @param birth the birth date of the participant
+     * @param nationality the nationality of the participant
+     * @param ticketId the ticket ID of the participant
+     * @param grade the grade of the participant
+     * @param field the field of study or work of the participant
+     * @param haveTicket boolean flag indicating if the participant has a ticket
+     * @param hour the hour of the event specified in the ticket
+     * @param table the table number specified in the ticket
+     * @param drinks the number of drinks included with the ticket
+     * @return true if the participant was added, false if the ticket ID is already in use
+     */
+    public boolean addParticipant(String name, String birth, String nationality, int ticketId, int grade, String field, boolean haveTicket, int hour, int table, int drinks) {
+        return shardFor(ticketId).addParticipant(name, birth, nationality, ticketId, grade, field, haveTicket, hour, table, drinks);
+    }
+
+    /**
+     * Checks if a participant with the specified ticket ID has a valid ticket, in the owning shard.
+     *
+     * @param idTicket the ID of the ticket to be checked
+     * @return true if a participant with the given ticket ID has a valid ticket, false otherwise
+     */
+    public boolean haveTicket(int idTicket) {
+        return shardFor(idTicket).haveTicket(idTicket);
+    }
+
+    /**
+     * Adds drinks to a ticket in the owning shard.
+     *
+     * @param idTicket the ID of the ticket to which drinks should be added
+     * @param numDrink the number of drinks to add to the ticket
+     * @return the number of drinks of the ticket after adding them, -1 if there is no such ticket,
+     *         or ParticipantManager.DRINKS_REJECTED if the drinks exceed a limit
+     */
+    public int addDrink(int idTicket, int numDrink) {
+        return shardFor(idTicket).addDrink(idTicket, numDrink);
+    }
+
+    /**
+     * Counts the drinks added to a ticket in the last hour, in the owning shard.
+     *
+     * @param idTicket the ID of the ticket
+     * @return the number of drinks, 0 if there is no such ticket
+     */
+    public int drinksInLastHour(int idTicket) {
+        return shardFor(idTicket).drinksInLastHour(idTicket);
+    }
+
+    /**
+     * Counts the drinks added in the last hour to the tickets seated at a table in every shard.
+     *
+     * @param table the table number
+     * @return the number of drinks, 0 if the table does not exist
+     */
+    public int drinksInLastHourAtTable(int table) {
+        int drinks = 0;
+        for (ParticipantManager manager : managers) {
+            drinks += manager.drinksInLastHourAtTable(table);
+        }
+        return drinks;
+    }
+
+    /**
+     * Moves the participant with the given ticket ID to another table of the owning shard.
+     *
+     * @param idTicket the ID of the ticket whose table changes
+     * @param table the new table number
+     * @return true if the table was changed, false if the ticket does not exist
+     */
+    public boolean changeTable(int idTicket, int table) {
+        return shardFor(idTicket).changeTable(idTicket, table);
+    }
+
+    /**
+     * Retrieves a copy of the participant with the specified ticket ID from the owning shard.
+     *
+     * @param idTicket the ID of the ticket
+     * @return a copy of the participant with that ticket ID, or null if there is none
+     */
+    public Participant findParticipant(int idTicket) {
+        return shardFor(idTicket).findParticipant(idTicket);
+    }
+
+    /**
+     * Writes a page of the names of the participants of every shard, each followed by a new line.
+     *
+     * @param out where the names are written
+     * @param offset the number of participants to skip
+     * @param limit the maximum number of names to write
+     * @return the number of names written
+     * @throws IOException if the names cannot be written
+     */
+    public int listOfParticipants(Appendable out, int offset, int limit) throws IOException {
+        return writeListing(ParticipantManager::countParticipants, ParticipantManager::listOfParticipants, out, offset, limit);
+    }
+
+    /**
+     * Writes a page of the names of the students from a specific field in every shard, each followed by a new line and a tab.
+     *
+     * @param field the field of study or work to filter the participants by
+     * @param out where the names are written
+     * @param offset the number of students to skip
+     * @param limit the maximum number of names to write
+     * @return the number of names written
+     * @throws IOException if the names cannot be written
+     */
+    public int listStudentsFromField(String field, Appendable out, int offset, int limit) throws IOException {
+        int written = writeListing(manager -> manager.countStudentsFromField(field),
+                (manager, shardOut, shardOffset, shardLimit) -> manager.listStudentsFromField(field, shardOut, shardOffset, shardLimit), out, offset, limit);
+
+        if (written == 0 && offset <= 0) {
+            System.out.println("The field doesnt not exist");
+        }
+        return written;
+    }
+
+    /**
+     * Writes a page of the names of the participants seated at a specified table in every shard, each followed by a new line and a tab.
+     *
+     * @param table the table number for which participants should be listed
+     * @param out where the names are written
+     * @param offset the number of participants to skip
+     * @param limit the maximum number of names to write
+     * @return the number of names written
+     * @throws IOException if the names cannot be written
+     */
+    public int listStudentsFromTable(int table, Appendable out, int offset, int limit) throws IOException {
+        int written = writeListing(manager -> manager.countStudentsFromTable(table),
+                (manager, shardOut, shardOffset, shardLimit) -> manager.listStudentsFromTable(table, shardOut, shardOffset, shardLimit), out, offset, limit);
+
+        if (written == 0 && offset <= 0) {
+            System.out.println("The table doesnt not exist");
+        }
+        return written;
+    }
+
+    /**
+     * Groups the participants of every shard by an attribute, each shard on its own worker, and merges the groups.
+     *
+     * @param groupBy the attribute to group by
+     * @return the measures of every group across the shards
+     * @throws IOException if a shard fails
+     */
+    public Aggregation aggregate(GroupBy groupBy) throws IOException {
+        return Aggregation.merge(groupBy, fanOut(manager -> manager.aggregate(groupBy)));
+    }
+
+    /**
+     * Saves every shard to its own data files, in parallel.
+     *
+     * @throws IOException if a shard fails
+     */
+    public void saveParticipantsData() throws IOException {
+        fanOut(manager -> {
+            manager.saveParticipantsData();
+            return null;
+        });
+    }
+
+    /**
+     * Stops the workers and closes every shard. The manager must not be used afterwards.
+     */
+    public void close() {
+        for (int i = 0; i < managers.length; i++) {
+            if (managers[i] != null) {
+                managers[i].close();
+            }
+            if (workers[i] != null) {
+                workers[i].shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Writes a page of a listing across the shards.
+     * The matching participants of every shard are counted first, in parallel, so each shard is asked only for
+     * the part of the page that falls in it. The parts are then written straight into the output, in shard order.
+     *
+     * @param count the number of participants of a shard in the listing
+     * @param listing the listing of a shard
+     * @param out where the names are written
+     * @param offset the number of names to skip
+     * @param limit the maximum number of names to write
+     * @return the number of names written
+     * @throws IOException if the names cannot be written or a shard fails
+     */
+    private int writeListing(ShardQuery<Integer> count, ShardListing listing, Appendable out, int offset, int limit) throws IOException {
+        List<Integer> counts = fanOut(count);
+        int[] offsets = new int[managers.length];
+        int[] limits = new int[managers.length];
+        long skip = Math.max(0, offset);
+        long remaining = Math.max(0, limit);
+
+        for (int i = 0; i < managers.length; i++) {
+            int shardCount = counts.get(i);
+            offsets[i] = (int) Math.min(skip, shardCount);
+            limits[i] = (int) Math.min(remaining, shardCount - offsets[i]);
+            skip -= offsets[i];
+            remaining -= limits[i];
+        }
+
+        int written = 0;
+        for (int i = 0; i < managers.length; i++) {
+            if (limits[i] > 0) {
+                written += listing.write(managers[i], out, offsets[i], limits[i]);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Runs a query on every shard, each on its own worker, and waits for all the results.
+     *
+     * @param query the query to run
+     * @param <T> the type of the result of a shard
+     * @return the result of every shard, in shard order
+     * @throws IOException if a shard fails
+     */
+    private <T> List<T> fanOut(ShardQuery<T> query) throws IOException {
+        ArrayList<Future<T>> futures = new ArrayList<>(managers.length);
+        for (int i = 0; i < managers.length; i++) {
+            ParticipantManager manager = managers[i];
+            futures.add(workers[i].submit(() -> query.run(manager)));
+        }
+
+        ArrayList<T> results = new ArrayList<>(managers.length);
+        for (Future<T> future : futures) {
+            results.add(await(future));
+        }
+        return results;
+    }
+
+    /**
+     * Waits for the result of a shard.
+     *
+     * @param future the pending result
+     * @param <T> the type of the result
+     * @return the result
+     * @throws IOException if the shard failed
+     */
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw asIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a shard", e);
+        }
+    }
+
+    /**
+     * Unwraps the failure of a shard.
+     *
+     * @param e the failure reported by the worker
+     * @return the IOException of the shard, or an IOException wrapping any other checked failure
+     */
+    private static IOException asIOException(ExecutionException e) {
+        if (e.getCause() instanceof IOException ioException) {
+            return ioException;
+        }
+        if (e.getCause() instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (e.getCause() instanceof Error error) {
+            throw error;
+        }
+        return new IOException(e.getCause());
+    }
+}
@@ -0,0 +1,40 @@
+package Persistence;
+
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Command line tool that converts the participants snapshot between the JSON files and the binary format.
+ * <pre>
+ * Usage: SnapshotConverter to-binary|to-json [database directory]
+ * </pre>
+ */
+public class SnapshotConverter {
+
+    /**
+     * Converts the snapshot in the direction given by the first argument.
+     *
+     * @param args the direction of the conversion and, optionally, the directory of the data files
+     * @throws IOException if an I/O error occurs while reading or writing the snapshots
+     * @throws ParseException if there is an error in parsing the JSON data
+     */
+    public static void main(String[] args) throws IOException, ParseException {
+        if (args.length < 1 || !(args[0].equals("to-binary") || args[0].equals("to-json"))) {
+            System.out.println("Usage: SnapshotConverter to-binary|to-json [database directory]");
+            return;
+        }
+        if (args.length > 1) {
+            CustomerDao.setDatabaseDirectory(Paths.get(args[1]));
+        }
+
+        int converted;
+        if (args[0].equals("to-binary")) {
+            converted = CustomerDao.convertSnapshot(SnapshotFormat.BINARY);
+        } else {
+            converted = CustomerDao.convertSnapshot(SnapshotFormat.JSON);
+        }
+        System.out.println(converted + " participants converted");
+    }
+}
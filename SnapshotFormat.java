@@ -0,0 +1,27 @@
+package Persistence;
+
+/**
+ * Enumeration representing the file formats in which a snapshot of the participants can be stored.
+ *
+ * The formats include:
+ * JSON - The Sallefest.json and Tickets.json pair.
+ * BINARY - A single memory-mappable file with fixed-width records and a string table.
+ */
+public enum SnapshotFormat {
+    JSON, BINARY;
+
+    /**
+     * Converts a format name, ignoring case, to its corresponding SnapshotFormat value.
+     *
+     * @param name the name of the format
+     * @return the corresponding SnapshotFormat, or JSON if the name is not recognized
+     */
+    public static SnapshotFormat fromName(String name) {
+        for (SnapshotFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,175 @@
+package Persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the participants and tickets files of a snapshot so that both are replaced together or not at all.
+ * <pre>
+ * Both documents are streamed into temporary files next to the final ones and forced to disk.
+ * A commit marker is then created, the temporary files are renamed over the final ones, and the marker is deleted.
+ * If the process stops before the marker exists, the old files are intact and the temporary files are discarded.
+ * If it stops after, recover() finishes the renames on the next start.
+ * </pre>
+ */
+public class SnapshotWriter implements Closeable {
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String COMMIT_MARKER = "snapshot.commit";
+
+    private final Path participantsPath;
+    private final Path ticketsPath;
+    private final FileChannel participantsChannel;
+    private final FileChannel ticketsChannel;
+    private final JsonStreamWriter participantsWriter;
+    private final JsonStreamWriter ticketsWriter;
+    private boolean committed;
+
+    /**
+     * Opens the temporary files for a new snapshot.
+     *
+     * @param participantsPath the final path of the participants file
+     * @param ticketsPath the final path of the tickets file
+     * @throws IOException if the temporary files cannot be created
+     */
+    public SnapshotWriter(Path participantsPath, Path ticketsPath) throws IOException {
+        this.participantsPath = participantsPath;
+        this.ticketsPath = ticketsPath;
+        participantsChannel = openTemp(participantsPath);
+        ticketsChannel = openTemp(ticketsPath);
+        participantsWriter = new JsonStreamWriter(participantsChannel);
+        ticketsWriter = new JsonStreamWriter(ticketsChannel);
+    }
+
+    /**
+     * Opens, truncating it, the temporary file of the given final path.
+     *
+     * @param path the final path
+     * @return the channel of the temporary file
+     * @throws IOException if the file cannot be opened
+     */
+    private static FileChannel openTemp(Path path) throws IOException {
+        return FileChannel.open(tempOf(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Retrieves the temporary path of the given final path.
+     *
+     * @param path the final path
+     * @return the temporary path
+     */
+    private static Path tempOf(Path path) {
+        return path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+    }
+
+    /**
+     * Retrieves the writer of the participants document.
+     *
+     * @return the participants writer
+     */
+    public JsonStreamWriter participants() {
+        return participantsWriter;
+    }
+
+    /**
+     * Retrieves the writer of the tickets document.
+     *
+     * @return the tickets writer
+     */
+    public JsonStreamWriter tickets() {
+        return ticketsWriter;
+    }
+
+    /**
+     * Forces both documents to disk and replaces the final files with them.
+     *
+     * @throws IOException if the snapshot cannot be committed; the previous files are then left untouched
+     */
+    public void commit() throws IOException {
+        participantsWriter.flush();
+        ticketsWriter.flush();
+        participantsChannel.force(true);
+        ticketsChannel.force(true);
+        participantsChannel.close();
+        ticketsChannel.close();
+
+        Path marker = participantsPath.resolveSibling(COMMIT_MARKER);
+        try (FileChannel markerChannel = FileChannel.open(marker, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            markerChannel.force(true);
+        }
+        committed = true;
+
+        moveTemp(participantsPath);
+        moveTemp(ticketsPath);
+        syncDirectory(participantsPath.toAbsolutePath().getParent());
+        Files.delete(marker);
+    }
+
+    /**
+     * Renames the temporary file of the given final path over it, if the temporary file exists.
+     *
+     * @param path the final path
+     * @throws IOException if the file cannot be renamed
+     */
+    private static void moveTemp(Path path) throws IOException {
+        Path temp = tempOf(path);
+        if (Files.exists(temp)) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Forces the renames in a directory to disk. Not every platform allows opening a directory, so failures are ignored.
+     *
+     * @param directory the directory to sync
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // directories cannot be opened on this platform, the renames are still atomic
+        }
+    }
+
+    /**
+     * Brings the snapshot files back to a consistent state after an interrupted save.
+     * A committed snapshot is finished by renaming the remaining temporary files; an uncommitted one is discarded.
+     *
+     * @param participantsPath the final path of the participants file
+     * @param ticketsPath the final path of the tickets file
+     * @throws IOException if the files cannot be renamed or deleted
+     */
+    public static void recover(Path participantsPath, Path ticketsPath) throws IOException {
+        Path marker = participantsPath.resolveSibling(COMMIT_MARKER);
+
+        if (Files.exists(marker)) {
+            moveTemp(participantsPath);
+            moveTemp(ticketsPath);
+            syncDirectory(participantsPath.toAbsolutePath().getParent());
+            Files.delete(marker);
+        } else {
+            Files.deleteIfExists(tempOf(participantsPath));
+            Files.deleteIfExists(tempOf(ticketsPath));
+        }
+    }
+
+    /**
+     * Closes the temporary files, discarding them if the snapshot was not committed.
+     *
+     * @throws IOException if the temporary files cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) {
+            return;
+        }
+        participantsChannel.close();
+        ticketsChannel.close();
+        Files.deleteIfExists(tempOf(participantsPath));
+        Files.deleteIfExists(tempOf(ticketsPath));
+    }
+}
@@ -0,0 +1,38 @@
+package Business;
+
+/**
+ * Enumeration representing the memory layouts in which ParticipantManager can keep the participants.
+ *
+ * The layouts include:
+ * OBJECTS - One Participant object, and one Ticket object, per participant.
+ * COLUMNAR - Parallel primitive columns, with dictionary-encoded birth dates, nationalities and fields.
+ * LAZY - The binary snapshot mapped in memory, with the rows decoded on first use into a bounded cache.
+ */
+public enum StoreLayout {
+    OBJECTS, COLUMNAR, LAZY;
+
+    /**
+     * Converts a layout name, ignoring case, to its corresponding StoreLayout value.
+     *
+     * @param name the name of the layout
+     * @return the corresponding StoreLayout, or OBJECTS if the name is not recognized
+     */
+    public static StoreLayout fromName(String name) {
+        for (StoreLayout layout : values()) {
+            if (layout.name().equalsIgnoreCase(name)) {
+                return layout;
+            }
+        }
+        return OBJECTS;
+    }
+
+    /**
+     * Creates an empty store with this layout. A LAZY store needs a snapshot to map, so ParticipantManager
+     * creates it, and an empty store is kept as objects.
+     *
+     * @return the new store
+     */
+    public ParticipantStore newStore() {
+        return this == COLUMNAR ? new ColumnarParticipantStore() : new ObjectParticipantStore();
+    }
+}
@@ -0,0 +1,81 @@
+package Business;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Dictionary encoding for columns with few distinct values, such as nationalities or fields of study.
+ * Every distinct string is stored once and replaced by a small int code, assigned in order of appearance.
+ * <pre>
+ * encode must be serialized by the caller. decode may run concurrently with encode for any code
+ * that was handed out before, because the values array is only replaced once it is completely filled.
+ * </pre>
+ */
+public class StringDictionary {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The code of a null string.
+     */
+    public static final int NULL_CODE = -1;
+
+    private final HashMap<String, Integer> codes = new HashMap<>();
+    private volatile String[] values = new String[INITIAL_CAPACITY];
+
+    /**
+     * Retrieves the code of a string, assigning a new one if the string was never seen.
+     *
+     * @param value the string to encode
+     * @return the code of the string, NULL_CODE if it is null
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+
+        int next = codes.size();
+        String[] current = values;
+        if (next == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[next] = value;
+        values = current;
+        codes.put(value, next);
+        return next;
+    }
+
+    /**
+     * Retrieves the code of a string without assigning one.
+     *
+     * @param value the string to look up
+     * @return the code of the string, NULL_CODE if it is null or was never encoded
+     */
+    public int find(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? NULL_CODE : code;
+    }
+
+    /**
+     * Retrieves the string of a code.
+     *
+     * @param code a code returned by encode
+     * @return the string of the code, null for NULL_CODE
+     */
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+    /**
+     * Retrieves the number of distinct strings.
+     *
+     * @return the number of codes assigned
+     */
+    public int size() {
+        return codes.size();
+    }
+}
@@ -0,0 +1,146 @@
+package Business;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Secondary index from a table number to the participants seated at it.
+ * Each table owns a bucket of the int rows of its participants in the ParticipantStore. Table numbers are usually
+ * small and dense, so the buckets of the tables below DENSE_TABLES are addressed directly by table number, and the
+ * few larger ones are kept in a map, so a single large table number never allocates an array that long.
+ * Negative table numbers are not indexed.
+ * <pre>
+ * The index also keeps the position of every row in its bucket, so a participant leaves a table in constant time:
+ * the last row of the bucket takes its place. The rows of a table are therefore in registration order only until
+ * somebody leaves it.
+ * </pre>
+ */
+public class TableIndex {
+    private static final int INITIAL_BUCKET_SIZE = 8;
+    private static final int INITIAL_TABLES = 8;
+    private static final int DENSE_TABLES = 1 << 16;
+
+    /**
+     * The rows of the participants seated at one table.
+     */
+    private static final class Bucket {
+        private int[] rows = new int[INITIAL_BUCKET_SIZE];
+        private int size;
+    }
+
+    private Bucket[] denseBuckets = new Bucket[INITIAL_TABLES];
+    private final ConcurrentHashMap<Integer, Bucket> sparseBuckets = new ConcurrentHashMap<>();
+    private int[] positions = new int[INITIAL_BUCKET_SIZE];
+
+    /**
+     * Constructs an empty TableIndex.
+     */
+    public TableIndex() {
+    }
+
+    /**
+     * Retrieves the bucket of a table.
+     *
+     * @param table the table number, not negative
+     * @return the bucket, or null if nobody was ever seated at the table
+     */
+    private Bucket bucket(int table) {
+        if (table >= DENSE_TABLES) {
+            return sparseBuckets.get(table);
+        }
+        Bucket[] buckets = denseBuckets;
+        return table < buckets.length ? buckets[table] : null;
+    }
+
+    /**
+     * Retrieves the bucket of a table, creating it if needed.
+     *
+     * @param table the table number, not negative
+     * @return the bucket
+     */
+    private Bucket bucketForAdd(int table) {
+        if (table >= DENSE_TABLES) {
+            return sparseBuckets.computeIfAbsent(table, key -> new Bucket());
+        }
+        if (table >= denseBuckets.length) {
+            denseBuckets = Arrays.copyOf(denseBuckets, Math.min(DENSE_TABLES, Integer.highestOneBit(table) << 1));
+        }
+        Bucket bucket = denseBuckets[table];
+        if (bucket == null) {
+            bucket = new Bucket();
+            denseBuckets[table] = bucket;
+        }
+        return bucket;
+    }
+
+    /**
+     * Adds the row of a participant to the bucket of a table.
+     *
+     * @param table the table number
+     * @param row the row of the participant
+     */
+    public void add(int table, int row) {
+        if (table < 0) {
+            return;
+        }
+        Bucket bucket = bucketForAdd(table);
+        if (bucket.size == bucket.rows.length) {
+            bucket.rows = Arrays.copyOf(bucket.rows, bucket.rows.length * 2);
+        }
+        if (row >= positions.length) {
+            positions = Arrays.copyOf(positions, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(row + 1L, positions.length * 2L)));
+        }
+        positions[row] = bucket.size;
+        bucket.rows[bucket.size++] = row;
+    }
+
+    /**
+     * Removes the row of a participant from the bucket of a table, moving the last row of the bucket into its place.
+     *
+     * @param table the table number
+     * @param row the row of the participant
+     */
+    public void remove(int table, int row) {
+        if (table < 0 || row >= positions.length) {
+            return;
+        }
+        Bucket bucket = bucket(table);
+        if (bucket == null) {
+            return;
+        }
+
+        int position = positions[row];
+        if (position >= bucket.size || bucket.rows[position] != row) {
+            return;
+        }
+        int last = bucket.rows[bucket.size - 1];
+        bucket.rows[position] = last;
+        positions[last] = position;
+        bucket.size--;
+    }
+
+    /**
+     * Retrieves how many participants are seated at a table.
+     *
+     * @param table the table number
+     * @return the number of participants at the table
+     */
+    public int size(int table) {
+        if (table < 0) {
+            return 0;
+        }
+        Bucket bucket = bucket(table);
+        return bucket == null ? 0 : bucket.size;
+    }
+
+    /**
+     * Retrieves the row of the i-th participant seated at a table.
+     *
+     * @param table the table number
+     * @param i the index inside the table, between 0 and size(table) - 1
+     * @return the row of the participant
+     */
+    public int get(int table, int i) {
+        return bucket(table).rows[i];
+    }
+}
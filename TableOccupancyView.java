@@ -0,0 +1,120 @@
+package Business;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Live view of the tables, built from the ChangeEvents of an EventStream: how many participants of every
+ * table went through the gate, and how many drinks the table was served, since the view was subscribed.
+ * <pre>
+ * A participant is counted once, at the first valid validation of their ticket, at the table of the ticket,
+ * and is moved when their table changes. The view is updated by the thread of its subscription and read
+ * by any other thread, so every method synchronizes on the view.
+ *
+ * If the view misses events because it fell behind, the counts are a lower bound, and getMissed tells by how much.
+ * </pre>
+ */
+public class TableOccupancyView implements EventStream.Subscriber {
+    private static final int PRESENT = 0;
+    private static final int DRINKS = 1;
+
+    private final Map<Integer, Integer> tableOfPresent = new HashMap<>();
+    private final TreeMap<Integer, int[]> tables = new TreeMap<>();
+    private long missed;
+
+    @Override
+    public synchronized void onEvents(List<ChangeEvent> events) {
+        for (ChangeEvent event : events) {
+            if (event instanceof ChangeEvent.TicketValidated validated) {
+                if (validated.valid() && tableOfPresent.putIfAbsent(validated.ticketId(), validated.table()) == null) {
+                    table(validated.table())[PRESENT]++;
+                }
+            } else if (event instanceof ChangeEvent.DrinksAdded drinks) {
+                table(drinks.table())[DRINKS] += drinks.drinks();
+            } else if (event instanceof ChangeEvent.TableChanged changed) {
+                Integer table = tableOfPresent.replace(changed.ticketId(), changed.table());
+                if (table != null) {
+                    table(table)[PRESENT]--;
+                    table(changed.table())[PRESENT]++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onOverrun(long missed) {
+        this.missed += missed;
+    }
+
+    /**
+     * Retrieves the counts of a table, creating them if the table had no event yet.
+     *
+     * @param table the table number
+     * @return the counts, indexed by PRESENT and DRINKS
+     */
+    private int[] table(int table) {
+        return tables.computeIfAbsent(table, key -> new int[2]);
+    }
+
+    /**
+     * Retrieves how many participants of a table went through the gate.
+     *
+     * @param table the table number
+     * @return the participants present
+     */
+    public synchronized int getPresent(int table) {
+        int[] counts = tables.get(table);
+        return counts == null ? 0 : counts[PRESENT];
+    }
+
+    /**
+     * Retrieves how many drinks a table was served.
+     *
+     * @param table the table number
+     * @return the drinks
+     */
+    public synchronized int getDrinks(int table) {
+        int[] counts = tables.get(table);
+        return counts == null ? 0 : counts[DRINKS];
+    }
+
+    /**
+     * Retrieves how many participants went through the gate.
+     *
+     * @return the participants present at every table
+     */
+    public synchronized int getTotalPresent() {
+        return tableOfPresent.size();
+    }
+
+    /**
+     * Retrieves how many events the view missed because it fell behind.
+     *
+     * @return the events missed
+     */
+    public synchronized long getMissed() {
+        return missed;
+    }
+
+    /**
+     * Describes the busiest tables, by participants present.
+     *
+     * @param limit the maximum number of tables described
+     * @return one line per table, with its participants present and drinks
+     */
+    public synchronized String describeBusiestTables(int limit) {
+        List<Map.Entry<Integer, int[]>> busiest = new ArrayList<>(tables.entrySet());
+        busiest.sort((a, b) -> Integer.compare(b.getValue()[PRESENT], a.getValue()[PRESENT]));
+
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < Math.min(limit, busiest.size()); i++) {
+            int[] counts = busiest.get(i).getValue();
+            description.append("\tTable ").append(busiest.get(i).getKey()).append(": ").append(counts[PRESENT])
+                    .append(" present, ").append(counts[DRINKS]).append(" drinks\n");
+        }
+        return description.toString();
+    }
+}
@@ -1,69 +1,124 @@
-package Business;
-
-/**
- * Represents a Ticket with details such as the hour of the event, the table number, and the number of drinks included.
- */
-public class Ticket {
-    private int hour;
-    private int table;
-    private int drinks;
-
-
-    /**
-     * Constructs a Ticket instance with the specified hour, table, and number of drinks.
-     *
-     * @param hour the hour of the event
-     * @param table the table number
-     * @param drinks the number of drinks included with the ticket
-     */
-    public Ticket(int hour, int table, int drinks) {
-        this.hour = hour;
-        this.table = table;
-        this.drinks = drinks;
-    }
-
-    /**
-     * Returns a string representation of the Ticket, including the hour of the event, the table number, and the number of drinks.
-     *
-     * @return a string describing the Ticket's hour, table, and drinks information
-     */
-    public String toString() {
-        return "\tHora: " + hour + "\n\tMesa: " + table + "\n\tBebidas: " + drinks;
-    }
-
-    /**
-     * Adds the specified number of drinks to the ticket.
-     *
-     * @param drink the number of drinks to be added to the ticket
-     */
-    public void addDrink(int drink){
-        drinks += drink;
-    }
-
-    /**
-     * Retrieves the hour of the event specified in the ticket.
-     *
-     * @return the hour of the event
-     */
-    public int getHour() {
-        return hour;
-    }
-
-    /**
-     * Retrieves the table number associated with the ticket.
-     *
-     * @return the table number
-     */
-    public int getTable() {
-        return table;
-    }
-
-    /**
-     * Retrieves the number of drinks included with the ticket.
-     *
-     * @return the number of drinks included
-     */
-    public int getDrinks() {
-        return drinks;
-    }
-}
+package Business;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Represents a Ticket with details such as the hour of the event, the table number, and the number of drinks included.
+ * The number of drinks is updated atomically, so several bars can add drinks to the same ticket at the same time.
+ */
+public class Ticket {
+    /**
+     * The largest table number a ticket can have, the largest one every store and snapshot can hold.
+     */
+    public static final int MAX_TABLE = 0xFFFFFF;
+
+    /**
+     * The largest hour a ticket can have, the largest one every store and snapshot can hold.
+     */
+    public static final int MAX_HOUR = 0x7F;
+
+    private static final AtomicIntegerFieldUpdater<Ticket> DRINKS = AtomicIntegerFieldUpdater.newUpdater(Ticket.class, "drinks");
+
+    private int hour;
+    private volatile int table;
+    private volatile int drinks;
+
+
+    /**
+     * Constructs a Ticket instance with the specified hour, table, and number of drinks.
+     *
+     * @param hour the hour of the event
+     * @param table the table number
+     * @param drinks the number of drinks included with the ticket
+     */
+    public Ticket(int hour, int table, int drinks) {
+        this.hour = hour;
+        this.table = table;
+        this.drinks = drinks;
+    }
+
+    /**
+     * Checks if a table number can be assigned to a ticket.
+     *
+     * @param table the table number
+     * @return true if the table is between 0 and MAX_TABLE
+     */
+    public static boolean isValidTable(int table) {
+        return table >= 0 && table <= MAX_TABLE;
+    }
+
+    /**
+     * Checks if an hour can be assigned to a ticket.
+     *
+     * @param hour the hour of the event
+     * @return true if the hour is between 0 and MAX_HOUR
+     */
+    public static boolean isValidHour(int hour) {
+        return hour >= 0 && hour <= MAX_HOUR;
+    }
+
+    /**
+     * Returns a string representation of the Ticket, including the hour of the event, the table number, and the number of drinks.
+     *
+     * @return a string describing the Ticket's hour, table, and drinks information
+     */
+    public String toString() {
+        return "\tHora: " + hour + "\n\tMesa: " + table + "\n\tBebidas: " + drinks;
+    }
+
+    /**
+     * Adds the specified number of drinks to the ticket without locking.
+     *
+     * @param drink the number of drinks to be added to the ticket
+     * @return the number of drinks after adding them
+     */
+    public int addDrink(int drink){
+        return DRINKS.addAndGet(this, drink);
+    }
+
+    /**
+     * Sets the number of drinks of the ticket, used when the change log is replayed.
+     *
+     * @param drinks the number of drinks
+     */
+    void setDrinks(int drinks) {
+        this.drinks = drinks;
+    }
+
+    /**
+     * Retrieves the hour of the event specified in the ticket.
+     *
+     * @return the hour of the event
+     */
+    public int getHour() {
+        return hour;
+    }
+
+    /**
+     * Retrieves the table number associated with the ticket.
+     *
+     * @return the table number
+     */
+    public int getTable() {
+        return table;
+    }
+
+    /**
+     * Changes the table number associated with the ticket.
+     * Callers holding a ParticipantManager must go through ParticipantManager.changeTable so the table index stays consistent.
+     *
+     * @param table the new table number
+     */
+    void setTable(int table) {
+        this.table = table;
+    }
+
+    /**
+     * Retrieves the number of drinks included with the ticket.
+     *
+     * @return the number of drinks included
+     */
+    public int getDrinks() {
+        return drinks;
+    }
+}
@@ -0,0 +1,99 @@
+package Presentation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The TicketClient class sends commands to a TicketServer and returns its responses.
+ * It is used by the stations and to try the server locally over the loopback interface.
+ * <pre>
+ * Usage: TicketClient &lt;host&gt; &lt;port&gt; [command...]
+ * Every argument is sent as one command; without commands, they are read from standard input.
+ * </pre>
+ */
+public class TicketClient implements Closeable {
+    private final Socket socket;
+    private final BufferedReader in;
+    private final BufferedWriter out;
+
+    /**
+     * Connects to a TicketServer.
+     *
+     * @param host the host of the server
+     * @param port the port of the server
+     * @throws IOException if the connection cannot be opened
+     */
+    public TicketClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends a command and waits for its complete response.
+     * The "." the server puts in front of a result line that starts with "." is removed.
+     *
+     * @param command the command to send
+     * @return the response, without the end of response line
+     * @throws IOException if the connection fails or is closed before the response ends
+     */
+    public String send(String command) throws IOException {
+        out.write(command);
+        out.newLine();
+        out.flush();
+
+        StringBuilder response = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.equals(".")) {
+                return response.toString();
+            }
+            response.append(line, line.startsWith(".") ? 1 : 0, line.length()).append('\n');
+        }
+        throw new EOFException("The server closed the connection");
+    }
+
+    /**
+     * Closes the connection.
+     *
+     * @throws IOException if the connection cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Sends the commands given as arguments, or read from standard input, and prints the responses.
+     *
+     * @param args the host, the port and the commands
+     * @throws IOException if the connection fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: TicketClient <host> <port> [command...]");
+            return;
+        }
+
+        try (TicketClient client = new TicketClient(args[0], Integer.parseInt(args[1]))) {
+            if (args.length > 2) {
+                for (int i = 2; i < args.length; i++) {
+                    System.out.print(client.send(args[i]));
+                }
+            } else {
+                BufferedReader commands = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                String command;
+                while ((command = commands.readLine()) != null) {
+                    System.out.print(client.send(command));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package Business;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bloom filter over the valid ticket IDs, used to reject unknown IDs before they reach the TicketIndex.
+ * <pre>
+ * A negative answer is always right, so a forged or mistyped ID is usually turned away after reading a few
+ * words of a bit array that fits in the cache. A positive answer may be wrong with the false positive rate,
+ * and the caller then confirms it in the TicketIndex.
+ *
+ * The filter is sized for an expected number of IDs and a target false positive rate. Adding more IDs than
+ * expected keeps it correct but raises the false positive rate, which estimatedFalsePositiveRate reports.
+ *
+ * Lookups never lock and may run while an ID is being added. Writers must be serialized by the caller, and
+ * must add an ID before publishing it in the TicketIndex, so a reader never rejects a published ticket.
+ * </pre>
+ */
+public class TicketFilter {
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final int MIN_BITS = 64;
+    private static final long MAX_BITS = 1L << 32;
+    private static final int MAX_HASHES = 16;
+
+    private final long[] words;
+    private final long bitCount;
+    private final int hashCount;
+    private int size;
+
+    /**
+     * Constructs an empty TicketFilter with the optimal number of bits and hashes for the expected IDs.
+     *
+     * @param expectedIds the number of ticket IDs the filter is expected to hold
+     * @param falsePositiveRate the target rate of unknown IDs accepted, between 0 and 1 exclusive
+     */
+    public TicketFilter(int expectedIds, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The false positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        int ids = Math.max(1, expectedIds);
+        // m = -n ln(p) / ln(2)^2 bits and k = m / n ln(2) hashes
+        long bits = (long) Math.ceil(-ids * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        bits = Math.min(MAX_BITS, Math.max(MIN_BITS, (bits + 63) & ~63L));
+
+        this.words = new long[(int) (bits >>> 6)];
+        this.bitCount = bits;
+        this.hashCount = (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) bits / ids * Math.log(2))));
+    }
+
+    /**
+     * Mixes the bits of the ticket ID into a 64 bit hash, whose halves seed the double hashing of the probes.
+     *
+     * @param ticketId the ticket ID to hash
+     * @return the hash of the ticket ID
+     */
+    private static long hash(int ticketId) {
+        long h = ticketId * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Maps the low 32 bits of a probe to a bit of the filter with a multiplication instead of a division.
+     *
+     * @param probe the probe
+     * @return the index of the bit, lower than bitCount
+     */
+    private long reduce(long probe) {
+        return ((probe & 0xFFFFFFFFL) * bitCount) >>> 32;
+    }
+
+    /**
+     * Adds a ticket ID to the filter.
+     *
+     * @param ticketId the ticket ID to add
+     */
+    public void add(int ticketId) {
+        long h = hash(ticketId);
+        long probe = h >>> 32;
+        long step = (h & 0xFFFFFFFFL) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = reduce(probe);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = (long) WORDS.getAcquire(words, word);
+            if ((current & mask) == 0) {
+                WORDS.setRelease(words, word, current | mask);
+            }
+            probe += step;
+        }
+        size++;
+    }
+
+    /**
+     * Checks if a ticket ID may have been added to the filter.
+     *
+     * @param ticketId the ticket ID to check
+     * @return false if the ticket ID was never added, true if it probably was
+     */
+    public boolean mightContain(int ticketId) {
+        long h = hash(ticketId);
+        long probe = h >>> 32;
+        long step = (h & 0xFFFFFFFFL) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            long bit = reduce(probe);
+            if (((long) WORDS.getAcquire(words, (int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            probe += step;
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the number of ticket IDs added to the filter.
+     *
+     * @return the number of ticket IDs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the memory taken by the bits of the filter.
+     *
+     * @return the size of the bit array in bytes
+     */
+    public long getMemoryBytes() {
+        return bitCount >>> 3;
+    }
+
+    /**
+     * Estimates the rate of unknown ticket IDs the filter accepts, from the fraction of bits set.
+     * Every probe of an unknown ID lands on a set bit with that fraction, so the rate is the fraction
+     * raised to the number of hashes.
+     *
+     * @return the estimated false positive rate, between 0 and 1
+     */
+    public double estimatedFalsePositiveRate() {
+        long setBits = 0;
+        for (int i = 0; i < words.length; i++) {
+            setBits += Long.bitCount((long) WORDS.getAcquire(words, i));
+        }
+        return Math.pow((double) setBits / bitCount, hashCount);
+    }
+
+    /**
+     * Generates a one line summary of the size and accuracy of the filter.
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return String.format("Ticket filter: %d IDs in %.1f KB, %d hashes, estimated false positive rate %.3f%%",
+                size, getMemoryBytes() / 1024.0, hashCount, estimatedFalsePositiveRate() * 100);
+    }
+}
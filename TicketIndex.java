@@ -0,0 +1,150 @@
+package Business;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Open addressing hash index from ticket ID to the row of a participant in the ParticipantStore.
+ * Keys and rows are stored in int arrays, so lookups never box the ticket ID into an Integer.
+ * Each ticket ID maps to exactly one row: the first one registered keeps the slot.
+ * <pre>
+ * Lookups never lock and may run while a participant is being indexed. Writers must be serialized by the caller.
+ * A slot is published by the release write of its row after its key, and a resized table is published
+ * as a whole, so a reader always sees either the old state or the complete new entry.
+ * Rows are stored plus one, so that 0 marks a free slot.
+ * </pre>
+ */
+public class TicketIndex {
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * The row returned for a ticket ID that is not indexed.
+     */
+    public static final int NOT_FOUND = -1;
+
+    /**
+     * One generation of the hash table. It is replaced, never modified in place, when the index grows.
+     */
+    private static final class Table {
+        private final int[] keys;
+        private final AtomicIntegerArray rows;
+        private final int mask;
+
+        private Table(int capacity) {
+            keys = new int[capacity];
+            rows = new AtomicIntegerArray(capacity);
+            mask = capacity - 1;
+        }
+    }
+
+    private volatile Table table;
+    private int size;
+
+    /**
+     * Constructs an empty TicketIndex sized for the expected number of participants.
+     *
+     * @param expectedSize the number of participants the index is expected to hold
+     */
+    public TicketIndex(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        table = new Table(capacity);
+    }
+
+    /**
+     * Spreads the bits of the ticket ID so that consecutive IDs do not cluster in the table.
+     *
+     * @param ticketId the ticket ID to hash
+     * @param mask the mask of the table size
+     * @return the slot where the probe sequence starts
+     */
+    private static int slot(int ticketId, int mask) {
+        int h = ticketId * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Retrieves the row registered with the given ticket ID.
+     *
+     * @param ticketId the ticket ID to look up
+     * @return the row of the participant with that ticket ID, or NOT_FOUND if there is none
+     */
+    public int get(int ticketId) {
+        Table current = table;
+        int i = slot(ticketId, current.mask);
+        int row;
+
+        while ((row = current.rows.get(i)) != 0) {
+            if (current.keys[i] == ticketId) {
+                return row - 1;
+            }
+            i = (i + 1) & current.mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Registers a row under a ticket ID if the ID is not already taken.
+     *
+     * @param ticketId the ticket ID of the participant
+     * @param row the row of the participant
+     * @return NOT_FOUND if the row was indexed, or the row that already owns the ticket ID
+     */
+    public int putIfAbsent(int ticketId, int row) {
+        int existing = get(ticketId);
+        if (existing != NOT_FOUND) {
+            return existing;
+        }
+
+        if ((size + 1) * 2 > table.keys.length) {
+            resize();
+        }
+        insert(table, ticketId, row + 1);
+        size++;
+        return NOT_FOUND;
+    }
+
+    /**
+     * Stores an entry in the first free slot of its probe sequence.
+     * The key is written before the row, whose volatile write publishes the slot.
+     *
+     * @param target the table to insert into
+     * @param ticketId the key of the entry
+     * @param storedRow the row of the entry plus one
+     */
+    private static void insert(Table target, int ticketId, int storedRow) {
+        int i = slot(ticketId, target.mask);
+
+        while (target.rows.get(i) != 0) {
+            i = (i + 1) & target.mask;
+        }
+        target.keys[i] = ticketId;
+        target.rows.setRelease(i, storedRow);
+    }
+
+    /**
+     * Builds a table with double the capacity, reinserts every indexed entry and publishes it.
+     */
+    private void resize() {
+        Table old = table;
+        Table grown = new Table(old.keys.length * 2);
+
+        for (int j = 0; j < old.keys.length; j++) {
+            int storedRow = old.rows.get(j);
+            if (storedRow != 0) {
+                insert(grown, old.keys[j], storedRow);
+            }
+        }
+        table = grown;
+    }
+
+    /**
+     * Retrieves the number of indexed ticket IDs.
+     *
+     * @return the number of indexed ticket IDs
+     */
+    public int size() {
+        return size;
+    }
+}
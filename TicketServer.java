@@ -0,0 +1,205 @@
+package Presentation;
+
+import Business.ParticipantManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The TicketServer class exposes the menu options over TCP so that gate scanners and bar tablets
+ * can share a single ParticipantManager.
+ * <pre>
+ * The protocol is line based and UTF-8 encoded. The client sends one command per line, with the syntax of
+ * CommandExecutor, and the server answers with the result lines followed by a line holding a single ".".
+ * A result line that starts with "." is sent with one more "." in front, as SMTP does, so a name or a field
+ * of "." cannot end the response early; TicketClient removes it. The exit command closes the connection.
+ *
+ * Each connection is served by its own virtual thread when the JDK supports them, and by a pooled
+ * platform thread otherwise.
+ * </pre>
+ */
+public class TicketServer implements Closeable {
+    private static final String END_OF_RESPONSE = ".";
+
+    /**
+     * Writes the result lines of a command, doubling the "." that starts a line so it is not read as the end
+     * of the response.
+     */
+    private static final class DotStuffingWriter implements Appendable {
+        private final BufferedWriter out;
+        private boolean atLineStart = true;
+
+        private DotStuffingWriter(BufferedWriter out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            for (int i = start; i < end; i++) {
+                append(text.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            if (atLineStart && c == '.') {
+                out.write('.');
+            }
+            out.write(c);
+            atLineStart = c == '\n';
+            return this;
+        }
+
+        /**
+         * Ends the last result line, if the command did not, so the end of response line stands on its own.
+         *
+         * @throws IOException if the line cannot be written
+         */
+        private void endLine() throws IOException {
+            if (!atLineStart) {
+                out.newLine();
+                atLineStart = true;
+            }
+        }
+    }
+
+    private final CommandExecutor commandExecutor;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionExecutor;
+    private Thread acceptThread;
+
+    /**
+     * Initializes a new TicketServer bound to the given port.
+     *
+     * @param participantManager the manager shared by every connection
+     * @param port the TCP port to listen on, or 0 to pick a free one
+     * @throws IOException if the port cannot be bound
+     */
+    public TicketServer(ParticipantManager participantManager, int port) throws IOException {
+        this.commandExecutor = new CommandExecutor(participantManager);
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+        this.connectionExecutor = newConnectionExecutor();
+    }
+
+    /**
+     * Creates the executor that runs one task per connection.
+     * Virtual threads are used when the running JDK provides them, looked up by reflection so the
+     * application still runs on JDKs without them.
+     *
+     * @return the executor for the connections
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "ticket-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Retrieves the port the server is listening on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections in a background thread.
+     */
+    public void start() {
+        acceptThread = new Thread(this::acceptConnections, "ticket-server");
+        acceptThread.start();
+    }
+
+    /**
+     * Accepts connections until the server is closed, handing each one to the connection executor.
+     */
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connectionExecutor.execute(() -> handleConnection(socket));
+            } catch (SocketException e) {
+                // the server socket was closed
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads commands from a connection and writes their results until the client exits or disconnects.
+     *
+     * @param socket the client connection
+     */
+    private void handleConnection(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                DotStuffingWriter result = new DotStuffingWriter(out);
+                Option option = commandExecutor.execute(line, result);
+                result.endLine();
+                out.write(END_OF_RESPONSE);
+                out.newLine();
+                out.flush();
+
+                if (option == Option.EXIT) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // the client disconnected
+        }
+    }
+
+    /**
+     * Blocks until the server is closed.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void awaitTermination() throws InterruptedException {
+        acceptThread.join();
+    }
+
+    /**
+     * Stops accepting connections and stops serving the open ones.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connectionExecutor.shutdownNow();
+    }
+}
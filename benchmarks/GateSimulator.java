@@ -0,0 +1,399 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.DatasetGenerator;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Simulates the arrival of the attendees of each hour slot at the gate, validated by parallel lanes
+ * that call haveTicket on a shared ParticipantManager.
+ * <pre>
+ * The tickets are grouped by the hour of their ticket. The attendees of a slot arrive from 45 minutes before
+ * the hour until 15 minutes after it, most of them around 10 minutes before, and in groups of one to four friends
+ * who reach the gate together. A small share of the arrivals show a ticket ID that is not registered.
+ *
+ * The simulation runs in real time, sped up by a factor, with one thread per lane. Each validation calls
+ * haveTicket and then keeps the lane busy for the scan time. For every slot it reports the queue length,
+ * the p50 and p99 wait in simulated seconds, the mean validations per simulated second and those of the busiest
+ * minute, and how many haveTicket calls per second each lane sustained, which load-tests the validation path
+ * with bursty traffic. A TableOccupancyView follows the validations through the event stream of the manager,
+ * and the busiest tables are reported at the end, which also loads the stream with the gate traffic.
+ *
+ * It is a load test, so it is built with the benchmarks and not shipped in the application:
+ * Usage: java -cp benchmarks/target/benchmarks.jar Business.GateSimulator [--lanes 4] [--scan 3.0] [--speedup 600]
+ *                                                                         [--generate participants] [--seed 1]
+ * Without --generate, the participants of the configured database are used.
+ * </pre>
+ */
+public class GateSimulator {
+    private static final double ARRIVAL_START_SECONDS = -45 * 60;
+    private static final double ARRIVAL_PEAK_SECONDS = -10 * 60;
+    private static final double ARRIVAL_END_SECONDS = 15 * 60;
+    private static final double GROUP_SPREAD_SECONDS = 5;
+    private static final int[] GROUP_SIZE_WEIGHTS = {40, 30, 20, 10};
+    private static final double INVALID_RATE = 0.02;
+    private static final int THROUGHPUT_WINDOW_SECONDS = 60;
+    private static final Arrival END_OF_ARRIVALS = new Arrival(-1, 0, 0);
+
+    /**
+     * An attendee reaching the gate.
+     */
+    private static final class Arrival {
+        private final int index;
+        private final int ticketId;
+        private final double seconds;
+
+        private Arrival(int index, int ticketId, double seconds) {
+            this.index = index;
+            this.ticketId = ticketId;
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * The results of simulating one hour slot.
+     */
+    public static final class SlotReport {
+        private final int hour;
+        private final int arrivals;
+        private final int invalid;
+        private final int maxQueue;
+        private final double meanQueue;
+        private final double p50WaitSeconds;
+        private final double p99WaitSeconds;
+        private final double validationsPerSecond;
+        private final double peakValidationsPerSecond;
+        private final double callsPerSecondPerLane;
+
+        private SlotReport(int hour, int arrivals, int invalid, int maxQueue, double meanQueue, double p50WaitSeconds, double p99WaitSeconds,
+                           double validationsPerSecond, double peakValidationsPerSecond, double callsPerSecondPerLane) {
+            this.hour = hour;
+            this.arrivals = arrivals;
+            this.invalid = invalid;
+            this.maxQueue = maxQueue;
+            this.meanQueue = meanQueue;
+            this.p50WaitSeconds = p50WaitSeconds;
+            this.p99WaitSeconds = p99WaitSeconds;
+            this.validationsPerSecond = validationsPerSecond;
+            this.peakValidationsPerSecond = peakValidationsPerSecond;
+            this.callsPerSecondPerLane = callsPerSecondPerLane;
+        }
+
+        /**
+         * Retrieves the 99th percentile of the wait in the queue.
+         *
+         * @return the wait in simulated seconds
+         */
+        public double getP99WaitSeconds() {
+            return p99WaitSeconds;
+        }
+
+        /**
+         * Generates a one line summary of the slot.
+         *
+         * @return the summary
+         */
+        @Override
+        public String toString() {
+            return String.format("Slot %02d:00  %d arrivals (%d invalid), queue max %d mean %.1f, wait p50 %.1f s p99 %.1f s, "
+                            + "validations/s mean %.2f peak %.2f, haveTicket %.0f calls/s per lane",
+                    hour, arrivals, invalid, maxQueue, meanQueue, p50WaitSeconds, p99WaitSeconds,
+                    validationsPerSecond, peakValidationsPerSecond, callsPerSecondPerLane);
+        }
+    }
+
+    private final ParticipantManager manager;
+    private final int lanes;
+    private final double scanSeconds;
+    private final double speedup;
+    private final Random random;
+
+    /**
+     * Initializes a new GateSimulator.
+     *
+     * @param manager the manager the lanes validate tickets against
+     * @param lanes the number of validation lanes working in parallel
+     * @param scanSeconds the simulated time a lane needs to scan a ticket and let the attendee in
+     * @param speedup how many simulated seconds pass per real second
+     * @param seed the seed of the arrivals, so the same traffic can be replayed
+     */
+    public GateSimulator(ParticipantManager manager, int lanes, double scanSeconds, double speedup, long seed) {
+        this.manager = manager;
+        this.lanes = lanes;
+        this.scanSeconds = scanSeconds;
+        this.speedup = speedup;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Simulates every hour slot of the manager's tickets, one after another.
+     *
+     * @return the report of each slot, in hour order
+     * @throws InterruptedException if the simulation is interrupted
+     */
+    public ArrayList<SlotReport> simulateAllSlots() throws InterruptedException {
+        ArrayList<SlotReport> reports = new ArrayList<>();
+        for (Map.Entry<Integer, int[]> slot : manager.ticketsByHour().entrySet()) {
+            reports.add(simulateSlot(slot.getKey(), slot.getValue()));
+        }
+        return reports;
+    }
+
+    /**
+     * Simulates the arrival of the holders of the given tickets at the gate.
+     *
+     * @param hour the hour of the slot
+     * @param ticketIds the tickets of the slot
+     * @return the report of the slot
+     * @throws InterruptedException if the simulation is interrupted
+     */
+    public SlotReport simulateSlot(int hour, int[] ticketIds) throws InterruptedException {
+        Arrival[] arrivals = scheduleArrivals(ticketIds);
+        LinkedBlockingQueue<Arrival> queue = new LinkedBlockingQueue<>();
+        long[] waitNanos = new long[arrivals.length];
+        long[] doneNanos = new long[arrivals.length];
+        long[] finishNanos = new long[lanes];
+        long[] callNanos = new long[lanes];
+        long[] calls = new long[lanes];
+        AtomicInteger invalid = new AtomicInteger();
+        long scanNanos = (long) (scanSeconds * 1e9 / speedup);
+        long startNanos = System.nanoTime();
+
+        Thread[] laneThreads = new Thread[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            int id = lane;
+            laneThreads[lane] = new Thread(() -> {
+                try {
+                    Arrival arrival;
+                    while ((arrival = queue.take()) != END_OF_ARRIVALS) {
+                        long begin = System.nanoTime();
+                        waitNanos[arrival.index] = Math.max(0, begin - scheduledNanos(startNanos, arrival));
+                        if (!manager.haveTicket(arrival.ticketId)) {
+                            invalid.incrementAndGet();
+                        }
+                        long end = System.nanoTime();
+                        callNanos[id] += end - begin;
+                        calls[id]++;
+                        if (scanNanos > 0) {
+                            LockSupport.parkNanos(scanNanos);
+                        }
+                        doneNanos[arrival.index] = System.nanoTime() - startNanos;
+                    }
+                    finishNanos[id] = System.nanoTime();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "gate-lane-" + lane);
+            laneThreads[lane].start();
+        }
+
+        long queueSum = 0;
+        int maxQueue = 0;
+        for (Arrival arrival : arrivals) {
+            long delay = scheduledNanos(startNanos, arrival) - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            int length = queue.size();
+            queueSum += length;
+            maxQueue = Math.max(maxQueue, length);
+            queue.put(arrival);
+        }
+        for (int lane = 0; lane < lanes; lane++) {
+            queue.put(END_OF_ARRIVALS);
+        }
+        for (Thread laneThread : laneThreads) {
+            laneThread.join();
+        }
+
+        long lastFinish = Arrays.stream(finishNanos).max().orElse(startNanos);
+        double simulatedSeconds = Math.max(1e-9, (lastFinish - startNanos) * speedup / 1e9);
+        long totalCalls = Arrays.stream(calls).sum();
+        double callsPerSecondPerLane = totalCalls * 1e9 / Math.max(1, Arrays.stream(callNanos).sum());
+        Arrays.sort(waitNanos);
+
+        return new SlotReport(hour, arrivals.length, invalid.get(), maxQueue, arrivals.length == 0 ? 0 : (double) queueSum / arrivals.length,
+                percentile(waitNanos, 0.50) * speedup / 1e9, percentile(waitNanos, 0.99) * speedup / 1e9,
+                arrivals.length / simulatedSeconds, peakValidationsPerSecond(doneNanos), callsPerSecondPerLane);
+    }
+
+    /**
+     * Finds the simulated minute in which the lanes completed the most validations.
+     *
+     * @param doneNanos the real nanoseconds since the start at which each validation completed
+     * @return the validations per simulated second in that minute
+     */
+    private double peakValidationsPerSecond(long[] doneNanos) {
+        int[] perWindow = new int[1];
+        for (long done : doneNanos) {
+            int window = (int) (done * speedup / 1e9 / THROUGHPUT_WINDOW_SECONDS);
+            if (window >= perWindow.length) {
+                perWindow = Arrays.copyOf(perWindow, Math.max(window + 1, perWindow.length * 2));
+            }
+            perWindow[window]++;
+        }
+        return (double) Arrays.stream(perWindow).max().orElse(0) / THROUGHPUT_WINDOW_SECONDS;
+    }
+
+    /**
+     * Computes when an arrival reaches the gate in real time.
+     *
+     * @param startNanos the real time at which the arrival window opens
+     * @param arrival the arrival
+     * @return the real time of the arrival, in System.nanoTime units
+     */
+    private long scheduledNanos(long startNanos, Arrival arrival) {
+        return startNanos + (long) (arrival.seconds * 1e9 / speedup);
+    }
+
+    /**
+     * Draws the arrival time of every ticket holder, plus some unregistered ticket IDs, sorted by time.
+     * Friends share a group arrival time, spread by a few seconds, drawn from a triangular distribution
+     * that peaks shortly before the slot starts.
+     *
+     * @param ticketIds the tickets of the slot
+     * @return the arrivals, in order, with times in simulated seconds since the window opened
+     */
+    private Arrival[] scheduleArrivals(int[] ticketIds) {
+        ArrayList<Arrival> arrivals = new ArrayList<>(ticketIds.length + ticketIds.length / 32);
+        int next = 0;
+
+        while (next < ticketIds.length) {
+            int groupSize = Math.min(drawGroupSize(), ticketIds.length - next);
+            double groupSeconds = drawArrivalSeconds();
+            for (int i = 0; i < groupSize; i++) {
+                arrivals.add(new Arrival(0, ticketIds[next++], groupSeconds + random.nextDouble() * GROUP_SPREAD_SECONDS));
+            }
+            if (random.nextDouble() < INVALID_RATE * groupSize) {
+                arrivals.add(new Arrival(0, -1 - random.nextInt(Integer.MAX_VALUE), groupSeconds + random.nextDouble() * GROUP_SPREAD_SECONDS));
+            }
+        }
+
+        arrivals.sort(Comparator.comparingDouble(arrival -> arrival.seconds));
+        Arrival[] ordered = new Arrival[arrivals.size()];
+        for (int i = 0; i < ordered.length; i++) {
+            Arrival arrival = arrivals.get(i);
+            ordered[i] = new Arrival(i, arrival.ticketId, arrival.seconds);
+        }
+        return ordered;
+    }
+
+    /**
+     * Draws the size of a group of friends from GROUP_SIZE_WEIGHTS.
+     *
+     * @return a group size between 1 and GROUP_SIZE_WEIGHTS.length
+     */
+    private int drawGroupSize() {
+        int total = Arrays.stream(GROUP_SIZE_WEIGHTS).sum();
+        int draw = random.nextInt(total);
+        for (int size = 0; size < GROUP_SIZE_WEIGHTS.length; size++) {
+            draw -= GROUP_SIZE_WEIGHTS[size];
+            if (draw < 0) {
+                return size + 1;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Draws an arrival time from the triangular distribution of the arrival window, by inverting its CDF.
+     *
+     * @return the simulated seconds since the window opened
+     */
+    private double drawArrivalSeconds() {
+        double width = ARRIVAL_END_SECONDS - ARRIVAL_START_SECONDS;
+        double rise = ARRIVAL_PEAK_SECONDS - ARRIVAL_START_SECONDS;
+        double u = random.nextDouble();
+
+        if (u < rise / width) {
+            return Math.sqrt(u * width * rise);
+        }
+        return width - Math.sqrt((1 - u) * width * (ARRIVAL_END_SECONDS - ARRIVAL_PEAK_SECONDS));
+    }
+
+    /**
+     * Reads a percentile from sorted values.
+     *
+     * @param sorted the values in ascending order
+     * @param percentile the percentile, between 0 and 1
+     * @return the value at the percentile, 0 if there are no values
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+    }
+
+    /**
+     * Runs the simulation for every hour slot and prints the reports.
+     *
+     * @param args the options of the simulation
+     * @throws IOException if the participants cannot be read or generated
+     * @throws ParseException if the participants cannot be parsed
+     * @throws InterruptedException if the simulation is interrupted
+     */
+    public static void main(String[] args) throws IOException, ParseException, InterruptedException {
+        int lanes = 4;
+        double scanSeconds = 3.0;
+        double speedup = 600;
+        int generate = 0;
+        long seed = 1;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--lanes" -> lanes = Integer.parseInt(args[i + 1]);
+                case "--scan" -> scanSeconds = Double.parseDouble(args[i + 1]);
+                case "--speedup" -> speedup = Double.parseDouble(args[i + 1]);
+                case "--generate" -> generate = Integer.parseInt(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Path previousDirectory = CustomerDao.getDatabaseDirectory();
+        Path directory = null;
+        try {
+            if (generate > 0) {
+                directory = Files.createTempDirectory("gate-simulation");
+                CustomerDao.setDatabaseDirectory(directory);
+                CustomerDao.saveParticipants(DatasetGenerator.generate(generate, seed));
+            }
+
+            ParticipantManager manager = new ParticipantManager();
+            TableOccupancyView occupancy = new TableOccupancyView();
+            EventStream.Subscription subscription = manager.getEvents().subscribe("occupancy", occupancy, EventStream.DEFAULT_BATCH_SIZE);
+            System.out.println(lanes + " lanes, " + scanSeconds + " s per scan, " + speedup + "x speed");
+            for (SlotReport report : new GateSimulator(manager, lanes, scanSeconds, speedup, seed).simulateAllSlots()) {
+                System.out.println(report);
+            }
+            subscription.close();
+            System.out.println(occupancy.getTotalPresent() + " attendees inside, " + subscription.getDelivered() + " events delivered, "
+                    + subscription.getMissed() + " missed. Busiest tables:");
+            System.out.print(occupancy.describeBusiestTables(5));
+            manager.close();
+        } finally {
+            CustomerDao.setDatabaseDirectory(previousDirectory);
+            if (directory != null) {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+        }
+    }
+}
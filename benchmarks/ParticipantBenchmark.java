@@ -0,0 +1,333 @@
+package Persistence;
+
+import Business.Aggregation;
+import Business.GroupBy;
+import Business.Participant;
+import Business.ParticipantManager;
+import Business.StoreLayout;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmarks of the hot paths of ParticipantManager and CustomerDao, run over generated datasets
+ * with the shape of Sallefest.json and Tickets.json.
+ * <pre>
+ * Usage: java -jar benchmarks/target/benchmarks.jar [ParticipantBenchmark.haveTicket] [-p size=1000,10000]
+ *                                                   [-p store=objects|columnar|lazy] -rf json -rff results.json
+ * </pre>
+ * Every benchmark is measured at every size, in a fork of its own, and the time to load the manager and
+ * the heap it retains are printed by the setup of each trial, to compare the store layouts.
+ * The listings are streamed to a sink that only counts the characters, so they measure the listing itself
+ * and not the console.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParticipantBenchmark {
+    private static final int LOOKUP_KEYS = 1 << 16;
+    private static final String[] FIELDS = {"Engineering", "Architecture", "Animation", "Business"};
+
+    /**
+     * The number of participants of the dataset.
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * The memory layout of the manager, by name.
+     */
+    @Param({"objects"})
+    public String store;
+
+    private Path previousDirectory;
+    private Path directory;
+    private ArrayList<Participant> dataset;
+    private ParticipantManager manager;
+    private int[] ticketIds;
+    private int[] ticketed;
+    private int[] tables;
+    private String[] prefixes;
+    private String[] typos;
+    private final CountingSink sink = new CountingSink();
+    private int cursor;
+
+    /**
+     * Saves a generated dataset in both formats in a temporary directory and loads a manager over it.
+     *
+     * @throws IOException if the dataset cannot be saved
+     * @throws ParseException if the dataset cannot be loaded
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        previousDirectory = CustomerDao.getDatabaseDirectory();
+        directory = Files.createTempDirectory("participant-benchmark");
+        CustomerDao.setDatabaseDirectory(directory);
+
+        dataset = DatasetGenerator.generate(size, size);
+        CustomerDao.saveParticipants(dataset, SnapshotFormat.JSON);
+        CustomerDao.saveParticipants(dataset, SnapshotFormat.BINARY);
+        StoreLayout layout = StoreLayout.fromName(store);
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        manager = new ParticipantManager(SnapshotFormat.JSON, layout);
+        long loadNanos = System.nanoTime() - start;
+        long retained = usedHeap() - heapBefore;
+        System.out.printf("%nload.%s %d participants: %.1f ms, %.1f bytes/participant retained%n",
+                layout.name().toLowerCase(), size, loadNanos / 1e6, (double) retained / size);
+
+        // half of the keys are valid ticket IDs and half are unknown ones
+        Random random = new Random(size);
+        ticketIds = new int[LOOKUP_KEYS];
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            ticketIds[i] = random.nextBoolean() ? 1 + random.nextInt(size) : size + 1 + random.nextInt(size);
+        }
+        // drinks and table listings only target participants with a ticket
+        ticketed = dataset.stream().filter(participant -> participant.getTicket() != null).mapToInt(Participant::getTicketId).toArray();
+        tables = dataset.stream().filter(participant -> participant.getTicket() != null).mapToInt(participant -> participant.getTicket().getTable()).toArray();
+        // name searches: the start of a surname, and a surname with a typo, so the fuzzy search runs
+        prefixes = new String[LOOKUP_KEYS];
+        typos = new String[LOOKUP_KEYS];
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            String surname = dataset.get(random.nextInt(size)).getName().split(" ")[1];
+            prefixes[i] = surname.substring(0, Math.min(4, surname.length()));
+            typos[i] = surname.substring(0, surname.length() / 2) + "q" + surname.substring(surname.length() / 2 + 1);
+        }
+    }
+
+    /**
+     * Closes the manager and deletes the temporary directory.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        CustomerDao.setDatabaseDirectory(previousDirectory);
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Estimates the heap in use after collecting the garbage.
+     *
+     * @return the bytes of heap in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Validates a ticket, half of the time an unknown one.
+     *
+     * @return true if the ticket is valid
+     */
+    @Benchmark
+    public boolean haveTicket() {
+        return manager.haveTicket(ticketIds[cursor++ & (LOOKUP_KEYS - 1)]);
+    }
+
+    /**
+     * Validates a ticket that was never registered.
+     *
+     * @return false
+     */
+    @Benchmark
+    public boolean haveTicketUnknown() {
+        return manager.haveTicket(size + 1 + (ticketIds[cursor++ & (LOOKUP_KEYS - 1)] & 0xFFFFF));
+    }
+
+    /**
+     * Adds a drink to a ticketed participant.
+     *
+     * @return the drinks of the ticket
+     */
+    @Benchmark
+    public int addDrink() {
+        return manager.addDrink(ticketed[cursor++ % ticketed.length], 1);
+    }
+
+    /**
+     * Lists the participants seated at a table.
+     *
+     * @return the participants listed
+     * @throws IOException never, the sink does not fail
+     */
+    @Benchmark
+    public int listStudentsFromTable() throws IOException {
+        return manager.listStudentsFromTable(tables[cursor++ % tables.length], sink, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lists the participants of a field.
+     *
+     * @return the participants listed
+     * @throws IOException never, the sink does not fail
+     */
+    @Benchmark
+    public int listStudentsFromField() throws IOException {
+        return manager.listStudentsFromField(FIELDS[cursor++ & 3], sink, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lists every participant.
+     *
+     * @return the participants listed
+     * @throws IOException never, the sink does not fail
+     */
+    @Benchmark
+    public int listOfParticipants() throws IOException {
+        return manager.listOfParticipants(sink, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Lists a page of 50 participants.
+     *
+     * @return the participants listed
+     * @throws IOException never, the sink does not fail
+     */
+    @Benchmark
+    public int listOfParticipantsPage() throws IOException {
+        return manager.listOfParticipants(sink, (cursor++ * 50) % size, 50);
+    }
+
+    /**
+     * Searches the participants by the start of a surname.
+     *
+     * @return the participants found
+     */
+    @Benchmark
+    public List<Participant> searchByNamePrefix() {
+        return manager.searchByName(prefixes[cursor++ & (LOOKUP_KEYS - 1)], 20);
+    }
+
+    /**
+     * Searches the participants by a surname with a typo, so the fuzzy search runs.
+     *
+     * @return the participants found
+     */
+    @Benchmark
+    public List<Participant> searchByNameFuzzy() {
+        return manager.searchByName(typos[cursor++ & (LOOKUP_KEYS - 1)], 20);
+    }
+
+    /**
+     * Counts the participants and drinks of every table.
+     *
+     * @return the aggregation
+     */
+    @Benchmark
+    public Aggregation aggregateByTable() {
+        return manager.aggregate(GroupBy.TABLE);
+    }
+
+    /**
+     * Counts the participants and drinks of every field.
+     *
+     * @return the aggregation
+     */
+    @Benchmark
+    public Aggregation aggregateByField() {
+        return manager.aggregate(GroupBy.FIELD);
+    }
+
+    /**
+     * Reads the JSON snapshot.
+     *
+     * @return the participants read
+     * @throws IOException if the snapshot cannot be read
+     * @throws ParseException if the snapshot cannot be parsed
+     */
+    @Benchmark
+    public ArrayList<Participant> readParticipantsJson() throws IOException, ParseException {
+        return CustomerDao.readSnapshot(directory, SnapshotFormat.JSON);
+    }
+
+    /**
+     * Reads the binary snapshot.
+     *
+     * @return the participants read
+     * @throws IOException if the snapshot cannot be read
+     * @throws ParseException if the snapshot cannot be parsed
+     */
+    @Benchmark
+    public ArrayList<Participant> readParticipantsBinary() throws IOException, ParseException {
+        return CustomerDao.readSnapshot(directory, SnapshotFormat.BINARY);
+    }
+
+    /**
+     * Saves the dataset as a JSON snapshot.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Benchmark
+    public void saveParticipantsJson() throws IOException {
+        CustomerDao.saveParticipants(dataset, SnapshotFormat.JSON);
+    }
+
+    /**
+     * Saves the dataset as a binary snapshot.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    @Benchmark
+    public void saveParticipantsBinary() throws IOException {
+        CustomerDao.saveParticipants(dataset, SnapshotFormat.BINARY);
+    }
+
+    /**
+     * An output that discards the listings and only counts their characters.
+     */
+    private static final class CountingSink implements Appendable {
+        private long characters;
+
+        @Override
+        public Appendable append(CharSequence text) {
+            characters += text.length();
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) {
+            characters += end - start;
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            characters++;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.DatasetGenerator;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmark of the batch seating of ParticipantManager.assignTables over a generated dataset, with the save
+ * of the new tables included, as a seating is run at the venue.
+ * <pre>
+ * Usage: java -jar benchmarks/target/benchmarks.jar SeatingBenchmark [-p size=100000] [-p seats=10]
+ *                                                   [-p keepTogether=none|field|nationality|hour] [-p rebalance=false|true]
+ * </pre>
+ * The tables keep the plan of the previous invocation, so after the first one a rebalance only moves the
+ * participants of the overfull tables, as it does between two seatings at the venue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatingBenchmark {
+
+    /**
+     * The number of participants of the dataset.
+     */
+    @Param({"100000"})
+    public int size;
+
+    /**
+     * The seats of every table.
+     */
+    @Param({"10"})
+    public int seats;
+
+    /**
+     * The attribute whose participants are kept together, or none.
+     */
+    @Param({"none", "field"})
+    public String keepTogether;
+
+    /**
+     * Whether the participants already seated at a table with room keep their table.
+     */
+    @Param({"false", "true"})
+    public boolean rebalance;
+
+    private Path directory;
+    private ParticipantManager manager;
+    private int[] capacities;
+
+    /**
+     * Saves a generated dataset in a temporary directory and loads a manager over it.
+     *
+     * @throws IOException if the dataset cannot be saved
+     * @throws ParseException if the dataset cannot be loaded
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        directory = Files.createTempDirectory("seating-benchmark");
+        CustomerDao.saveParticipants(directory, DatasetGenerator.generate(size, 11), SnapshotFormat.JSON);
+        manager = new ParticipantManager(directory, SnapshotFormat.JSON, StoreLayout.OBJECTS);
+        capacities = SeatingPlanner.uniformCapacities(size / seats + 1, seats);
+    }
+
+    /**
+     * Closes the manager and deletes the temporary directory.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Seats every ticketed participant and saves the new tables.
+     *
+     * @return the plan
+     */
+    @Benchmark
+    public SeatingPlanner.SeatingPlan assignTables() {
+        return manager.assignTables(capacities, GroupBy.fromName(keepTogether), rebalance);
+    }
+}
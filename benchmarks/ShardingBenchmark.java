@@ -0,0 +1,177 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.DatasetGenerator;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmarks that compare a ShardedParticipantManager, whose dataset is split by ticket ID range, with a
+ * single ParticipantManager over the same dataset: the routed lookups, a page from the middle of the listing,
+ * and an aggregation merged from every shard.
+ * <pre>
+ * Usage: java -jar benchmarks/target/benchmarks.jar ShardingBenchmark [-p size=200000] [-p shards=4]
+ * </pre>
+ * The time each layout takes to load is printed by the setup of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShardingBenchmark {
+    private static final int PAGE = 1_000;
+
+    /**
+     * The number of participants of the dataset.
+     */
+    @Param({"200000"})
+    public int size;
+
+    /**
+     * The number of shards the dataset is split into.
+     */
+    @Param({"4"})
+    public int shards;
+
+    private Path root;
+    private ParticipantManager single;
+    private ShardedParticipantManager sharded;
+    private final StringBuilder page = new StringBuilder();
+    private int cursor;
+
+    /**
+     * Saves a generated dataset once whole and once split into shards, in a temporary directory, and loads
+     * a manager over each.
+     *
+     * @throws IOException if the dataset cannot be saved
+     * @throws ParseException if the dataset cannot be loaded
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        root = Files.createTempDirectory("sharding-benchmark");
+        ArrayList<Participant> dataset = DatasetGenerator.generate(size, 18);
+        String[] names = new String[shards];
+        int[] firstTicketIds = new int[shards];
+        for (int i = 0; i < shards; i++) {
+            names[i] = "venue" + i;
+            firstTicketIds[i] = 1 + (int) ((long) size * i / shards);
+            int last = (int) ((long) size * (i + 1) / shards);
+            Files.createDirectories(root.resolve(names[i]));
+            CustomerDao.saveParticipants(root.resolve(names[i]), new ArrayList<>(dataset.subList(firstTicketIds[i] - 1, last)), SnapshotFormat.JSON);
+        }
+        Files.createDirectories(root.resolve("single"));
+        CustomerDao.saveParticipants(root.resolve("single"), dataset, SnapshotFormat.JSON);
+
+        long start = System.nanoTime();
+        single = new ParticipantManager(root.resolve("single"), SnapshotFormat.JSON, StoreLayout.OBJECTS);
+        long singleNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        sharded = new ShardedParticipantManager(root, names, firstTicketIds, SnapshotFormat.JSON, StoreLayout.OBJECTS);
+        long shardedNanos = System.nanoTime() - start;
+        System.out.printf("%nload %d participants: single manager %.1f ms, %d shards %.1f ms%n", size, singleNanos / 1e6, shards, shardedNanos / 1e6);
+    }
+
+    /**
+     * Closes the managers and deletes the temporary directory.
+     *
+     * @throws IOException if a file cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sharded.close();
+        single.close();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Validates a ticket through the shard that owns it, half of the time an unknown one.
+     *
+     * @return true if the ticket is valid
+     */
+    @Benchmark
+    public boolean haveTicketSharded() {
+        return sharded.haveTicket(1 + (cursor++ * 7919) % (size * 2));
+    }
+
+    /**
+     * Validates a ticket in the single manager, half of the time an unknown one.
+     *
+     * @return true if the ticket is valid
+     */
+    @Benchmark
+    public boolean haveTicketSingle() {
+        return single.haveTicket(1 + (cursor++ * 7919) % (size * 2));
+    }
+
+    /**
+     * Lists a page from the middle of the participants of every shard.
+     *
+     * @return the participants listed
+     * @throws IOException never, the page is kept in memory
+     */
+    @Benchmark
+    public int listOfParticipantsPageSharded() throws IOException {
+        page.setLength(0);
+        return sharded.listOfParticipants(page, size / 2, PAGE);
+    }
+
+    /**
+     * Lists a page from the middle of the participants of the single manager.
+     *
+     * @return the participants listed
+     * @throws IOException never, the page is kept in memory
+     */
+    @Benchmark
+    public int listOfParticipantsPageSingle() throws IOException {
+        page.setLength(0);
+        return single.listOfParticipants(page, size / 2, PAGE);
+    }
+
+    /**
+     * Aggregates the participants of every shard by field and merges the groups.
+     *
+     * @return the aggregation
+     * @throws IOException if a shard fails
+     */
+    @Benchmark
+    public Aggregation aggregateByFieldSharded() throws IOException {
+        return sharded.aggregate(GroupBy.FIELD);
+    }
+
+    /**
+     * Aggregates the participants of the single manager by field.
+     *
+     * @return the aggregation
+     */
+    @Benchmark
+    public Aggregation aggregateByFieldSingle() {
+        return single.aggregate(GroupBy.FIELD);
+    }
+}
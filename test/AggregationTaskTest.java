@@ -0,0 +1,114 @@
+package Business;
+
+import Persistence.DatasetGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that an AggregationTask split across a fork/join pool gives the same groups as a single sequential pass,
+ * and that both match the groups counted directly over the participants, including tables past the dense range
+ * and missing fields and nationalities.
+ */
+class AggregationTaskTest {
+    private static final int PARTICIPANTS = 300_000;
+    private static final int WORKERS = 4;
+
+    private static ArrayList<Participant> dataset;
+    private static ObjectParticipantStore store;
+
+    @BeforeAll
+    static void setUp() {
+        dataset = DatasetGenerator.generate(PARTICIPANTS, 13);
+        dataset.add(new Participant("Far Table", "2001-02-03", null, PARTICIPANTS + 1, 2, null, true, Ticket.MAX_HOUR, Ticket.MAX_TABLE, 5));
+        dataset.add(new Participant("Far Table Too", "2001-02-03", "Spain", PARTICIPANTS + 2, 2, "Engineering", true, 0, Ticket.MAX_TABLE, 7));
+        dataset.add(new Participant("Nobody Knows", null, null, PARTICIPANTS + 3, 1, null, false, 0, 0, 0));
+        store = new ObjectParticipantStore();
+        for (Participant participant : dataset) {
+            store.add(participant);
+        }
+    }
+
+    /**
+     * Counts the groups of the participants directly, as the measures of an Aggregation.
+     *
+     * @param groupBy the attribute to group by
+     * @return the participants, tickets and drinks of every group, by key
+     */
+    private static TreeMap<Object, List<Long>> expected(GroupBy groupBy) {
+        TreeMap<Object, long[]> groups = new TreeMap<>();
+        for (Participant participant : dataset) {
+            Ticket ticket = participant.getTicket();
+            Object key = switch (groupBy) {
+                case TABLE -> ticket == null ? null : ticket.getTable();
+                case HOUR -> ticket == null ? null : ticket.getHour();
+                case FIELD -> participant.getField() == null ? "-" : participant.getField();
+                case NATIONALITY -> participant.getNationality() == null ? "-" : participant.getNationality();
+            };
+            if (key == null) {
+                continue;
+            }
+            long[] measures = groups.computeIfAbsent(key, k -> new long[3]);
+            measures[0]++;
+            if (ticket != null) {
+                measures[1]++;
+                measures[2] += ticket.getDrinks();
+            }
+        }
+
+        TreeMap<Object, List<Long>> expected = new TreeMap<>();
+        groups.forEach((key, measures) -> expected.put(key, List.of(measures[0], measures[1], measures[2])));
+        return expected;
+    }
+
+    /**
+     * Reads the measures of every group of an aggregation.
+     *
+     * @param aggregation the aggregation
+     * @return the participants, tickets and drinks of every group, by key
+     */
+    private static TreeMap<Object, List<Long>> measures(Aggregation aggregation) {
+        TreeMap<Object, List<Long>> measures = new TreeMap<>();
+        for (Object key : aggregation.getKeys()) {
+            measures.put(key, List.of(aggregation.getParticipants(key), aggregation.getTickets(key), aggregation.getDrinks(key)));
+        }
+        return measures;
+    }
+
+    @ParameterizedTest
+    @EnumSource(GroupBy.class)
+    void splitsIntoTheSameGroupsAsASequentialPass(GroupBy groupBy) {
+        Aggregation sequential = new AggregationTask(store, groupBy, 0, store.size(), WORKERS).computeSequentially().toAggregation(groupBy);
+        ForkJoinPool pool = new ForkJoinPool(WORKERS);
+        Aggregation parallel;
+        try {
+            parallel = pool.invoke(new AggregationTask(store, groupBy, 0, store.size(), WORKERS)).toAggregation(groupBy);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(expected(groupBy), measures(sequential));
+        assertEquals(sequential.getKeys(), parallel.getKeys());
+        assertEquals(measures(sequential), measures(parallel));
+        assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    @ParameterizedTest
+    @EnumSource(GroupBy.class)
+    void mergesRangesIntoTheGroupsOfTheWhole(GroupBy groupBy) {
+        int middle = store.size() / 3;
+        Aggregation first = new AggregationTask(store, groupBy, 0, middle, 1).computeSequentially().toAggregation(groupBy);
+        Aggregation second = new AggregationTask(store, groupBy, middle, store.size(), 1).computeSequentially().toAggregation(groupBy);
+
+        Aggregation merged = Aggregation.merge(groupBy, List.of(first, second));
+
+        assertEquals(expected(groupBy), measures(merged));
+    }
+}
@@ -0,0 +1,125 @@
+package Persistence;
+
+import Business.Participant;
+import Business.Ticket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that a BinarySnapshot gives back the participants it was written with, and that MappedSnapshot reads
+ * and writes back the same records in place.
+ */
+class BinarySnapshotTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Describes a participant and their ticket, so two lists of participants can be compared.
+     *
+     * @param participant the participant
+     * @return every attribute of the participant
+     */
+    private static String describe(Participant participant) {
+        Ticket ticket = participant.getTicket();
+        return participant.getName() + "|" + participant.getBirth() + "|" + participant.getNationality() + "|" + participant.getTicketId()
+                + "|" + participant.getGrade() + "|" + participant.getField()
+                + "|" + (ticket == null ? "no ticket" : ticket.getHour() + "|" + ticket.getTable() + "|" + ticket.getDrinks());
+    }
+
+    /**
+     * Generates participants with repeated, missing and non-ASCII strings and tickets at the limits of the packed format.
+     *
+     * @return the participants
+     */
+    private static ArrayList<Participant> participants() {
+        ArrayList<Participant> participants = DatasetGenerator.generate(1_000, 3);
+        participants.add(new Participant("Zoë \"Q\" Muñoz", null, null, Integer.MAX_VALUE, -1, null, true, Ticket.MAX_HOUR, Ticket.MAX_TABLE, Integer.MAX_VALUE));
+        participants.add(new Participant("", "2001-02-03", "Spain", Integer.MIN_VALUE, 0, "Engineering", true, 0, 0, 0));
+        participants.add(new Participant("No Ticket", "2001-02-03", "中国", 0, 4, "Animation", false, 0, 0, 0));
+        return participants;
+    }
+
+    @Test
+    void readsBackTheParticipantsItWrote() throws IOException {
+        ArrayList<Participant> participants = participants();
+        Path path = directory.resolve("Sallefest.bin");
+
+        BinarySnapshot.write(participants, path);
+
+        assertArrayEquals(participants.stream().map(BinarySnapshotTest::describe).toArray(),
+                BinarySnapshot.read(path).stream().map(BinarySnapshotTest::describe).toArray());
+    }
+
+    @Test
+    void readsAnEmptySnapshot() throws IOException {
+        Path path = directory.resolve("Sallefest.bin");
+
+        BinarySnapshot.write(new ArrayList<>(), path);
+
+        assertEquals(0, BinarySnapshot.read(path).size());
+        assertEquals(0, new MappedSnapshot(path).size());
+    }
+
+    @Test
+    void mapsTheSameRecordsAndWritesTicketsBackInPlace() throws IOException {
+        ArrayList<Participant> participants = participants();
+        Path path = directory.resolve("Sallefest.bin");
+        BinarySnapshot.write(participants, path);
+
+        MappedSnapshot mapped = new MappedSnapshot(path);
+        assertEquals(participants.size(), mapped.size());
+        for (int row = 0; row < participants.size(); row++) {
+            assertEquals(describe(participants.get(row)), describe(mapped.read(row)));
+        }
+
+        int last = participants.size() - 2;
+        mapped.writeTicket(last, 12, 34);
+        mapped.force();
+        Participant changed = BinarySnapshot.read(path).get(last);
+        assertEquals(12, changed.getTicket().getTable());
+        assertEquals(34, changed.getTicket().getDrinks());
+        assertEquals(0, changed.getTicket().getHour());
+    }
+
+    @Test
+    void refusesATicketItCannotPackAndKeepsThePreviousSnapshot() throws IOException {
+        Path path = directory.resolve("Sallefest.bin");
+        BinarySnapshot.write(participants(), path);
+        byte[] previous = Files.readAllBytes(path);
+        ArrayList<Participant> tooLarge = new ArrayList<>(List.of(new Participant("Late", null, null, 1, 1, null, true, Ticket.MAX_HOUR + 1, 0, 0)));
+
+        assertThrows(IOException.class, () -> BinarySnapshot.write(tooLarge, path));
+
+        assertArrayEquals(previous, Files.readAllBytes(path));
+        assertFalse(Files.exists(directory.resolve("Sallefest.bin.tmp")));
+    }
+
+    @Test
+    void rejectsAFileThatIsNotASnapshot() throws IOException {
+        Path path = directory.resolve("Sallefest.bin");
+        Files.writeString(path, "{\"participants\":[]}");
+
+        assertThrows(IOException.class, () -> BinarySnapshot.read(path));
+        assertThrows(IOException.class, () -> new MappedSnapshot(path));
+    }
+
+    @Test
+    void keepsAMissingNameMissing() throws IOException {
+        Path path = directory.resolve("Sallefest.bin");
+        BinarySnapshot.write(new ArrayList<>(List.of(new Participant(null, null, null, 7, 1, null, false, 0, 0, 0))), path);
+
+        assertNull(BinarySnapshot.read(path).get(0).getName());
+    }
+}
@@ -0,0 +1,133 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.DatasetGenerator;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that BulkImporter registers the valid lines of a file and reports every other one with its line number,
+ * including a ticket ID repeated within a batch or across batches.
+ */
+class BulkImporterTest {
+    private static final int PARTICIPANTS = 100;
+
+    @TempDir
+    Path directory;
+
+    private ParticipantManager manager;
+
+    @BeforeEach
+    void setUp() throws IOException, ParseException {
+        Files.createDirectories(directory.resolve("data"));
+        CustomerDao.saveParticipants(directory.resolve("data"), DatasetGenerator.generate(PARTICIPANTS, 20), SnapshotFormat.JSON);
+        manager = new ParticipantManager(directory.resolve("data"), SnapshotFormat.JSON, StoreLayout.OBJECTS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    /**
+     * Writes an import file and imports it.
+     *
+     * @param name the name of the file, whose extension chooses the format
+     * @param batchSize the number of lines imported at once
+     * @param lines the lines of the file
+     * @return the outcome of the import
+     * @throws IOException if the file cannot be written or read
+     */
+    private BulkImporter.ImportReport importLines(String name, int batchSize, String... lines) throws IOException {
+        Path file = directory.resolve(name);
+        Files.write(file, List.of(lines), StandardCharsets.UTF_8);
+        return new BulkImporter(manager, batchSize, false).importFile(file, new StringBuilder());
+    }
+
+    @Test
+    void importsTheValidLinesAndReportsTheOthers() throws IOException {
+        BulkImporter.ImportReport report = importLines("people.csv", BulkImporter.DEFAULT_BATCH_SIZE,
+                "ticketId,name,field,hour,table,drinks",
+                "1001,\"Zoë \"\"Q\"\", Jr.\",Engineering,20,3,0",
+                "1002,Ana,Animation,,,",
+                "1,Impostor,Engineering,20,3,0",
+                "1003,Unknown Field,Astrology,20,3,0",
+                "1004,Late Table,Engineering,20,-3,0",
+                "1002,Ana Again,Animation,,,",
+                "x,Nobody,Engineering,,,");
+
+        assertEquals(2, report.getImported());
+        assertEquals(5, report.getRejected());
+        assertEquals(List.of(
+                "Line 4: the ticket id 1 already exists",
+                "Line 5: unknown field Astrology",
+                "Line 6: The table of the ticket 1004 must be between 0 and " + Ticket.MAX_TABLE,
+                "Line 7: the ticket id 1002 is repeated in the file",
+                "Line 8: Invalid ticketId x"), report.getErrors());
+        assertEquals("Zoë \"Q\", Jr.", manager.findParticipant(1001).getName());
+        assertEquals("Ana", manager.findParticipant(1002).getName());
+        assertNull(manager.findParticipant(1002).getTicket());
+        assertFalse(manager.isRegistered(1003));
+        assertEquals(PARTICIPANTS + 2, manager.countParticipants());
+    }
+
+    @Test
+    void rejectsATicketIdRepeatedInALaterBatch() throws IOException {
+        BulkImporter.ImportReport report = importLines("people.csv", 2,
+                "ticketId,name,field",
+                "1001,Ana,Engineering",
+                "1002,Bea,Engineering",
+                "1003,Carla,Engineering",
+                "1001,Dora,Engineering");
+
+        assertEquals(3, report.getImported());
+        assertEquals(List.of("Line 5: the ticket id 1001 already exists"), report.getErrors());
+        assertEquals("Ana", manager.findParticipant(1001).getName());
+    }
+
+    @Test
+    void rejectsAJsonLineWhoseTicketIsNotAnObject() throws IOException {
+        BulkImporter.ImportReport report = importLines("people.jsonl", BulkImporter.DEFAULT_BATCH_SIZE,
+                "{\"name\":\"Ana\",\"ticketId\":1001,\"field\":\"Engineering\",\"ticket\":{\"hour\":20,\"table\":3,\"drinks\":1}}",
+                "{\"name\":\"Bea\",\"ticketId\":1002,\"field\":\"Engineering\",\"ticket\":true}",
+                "{\"name\":\"Carla\",\"ticketId\":1003,\"field\":\"Engineering\",\"ticket\":false}",
+                "{\"name\":\"Dora\",\"ticketId\":1004,\"field\":\"Engineering\"");
+
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getErrors().size());
+        assertEquals("Line 2: The ticket must be an object, false or null", report.getErrors().get(0));
+        assertTrue(report.getErrors().get(1).startsWith("Line 4: invalid JSON at position"), report.getErrors().get(1));
+        assertEquals(1, manager.findParticipant(1001).getTicket().getDrinks());
+        assertFalse(manager.haveTicket(1003));
+        assertFalse(manager.isRegistered(1002));
+    }
+
+    @Test
+    void savesTheImportedParticipants() throws IOException, ParseException {
+        importLines("people.csv", BulkImporter.DEFAULT_BATCH_SIZE, "ticketId,name,field", "1001,Ana,Engineering");
+
+        assertTrue(CustomerDao.readParticipants(directory.resolve("data")).stream().anyMatch(participant -> participant.getTicketId() == 1001));
+    }
+
+    @Test
+    void rejectsAnInvalidHeaderBeforeImportingAnything() {
+        assertThrows(IllegalArgumentException.class, () -> importLines("people.csv", BulkImporter.DEFAULT_BATCH_SIZE, "name,field", "Ana,Engineering"));
+        assertEquals(PARTICIPANTS, manager.countParticipants());
+    }
+}
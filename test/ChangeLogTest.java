@@ -0,0 +1,156 @@
+package Persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the replay of the ChangeLog, including the records of a sealed log and a record torn by a crash.
+ */
+class ChangeLogTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Collects the replayed records as text, in order.
+     */
+    private static final class RecordingReplayer implements ChangeLog.Replayer {
+        private final List<String> records = new ArrayList<>();
+
+        @Override
+        public void participantAdded(String name, String birth, String nationality, int ticketId, int grade, String field, boolean haveTicket, int hour, int table, int drinks) {
+            records.add("added " + name + " " + birth + " " + nationality + " " + ticketId + " " + grade + " " + field + " " + haveTicket + " " + hour + " " + table + " " + drinks);
+        }
+
+        @Override
+        public void drinksChanged(int ticketId, int drinks) {
+            records.add("drinks " + ticketId + " " + drinks);
+        }
+
+        @Override
+        public void tableChanged(int ticketId, int table) {
+            records.add("table " + ticketId + " " + table);
+        }
+    }
+
+    /**
+     * Opens the change log of the temporary directory.
+     *
+     * @return the log
+     * @throws IOException if the log cannot be opened
+     */
+    private ChangeLog open() throws IOException {
+        return new ChangeLog(directory.resolve("Sallefest.log"), directory.resolve("Sallefest.log.sealed"));
+    }
+
+    /**
+     * Replays the change log of the temporary directory in a new ChangeLog, as a restart does.
+     *
+     * @return the replayed records
+     * @throws IOException if the log cannot be replayed
+     */
+    private List<String> replay() throws IOException {
+        RecordingReplayer replayer = new RecordingReplayer();
+        try (ChangeLog log = open()) {
+            log.replay(replayer);
+        }
+        return replayer.records;
+    }
+
+    @Test
+    void replaysEveryRecordInOrder() throws IOException {
+        try (ChangeLog log = open()) {
+            log.logParticipant("Zoë Valls", null, "Spain", 42, 2, "Engineering", true, 20, 3, 1);
+            log.logDrinks(42, 2);
+            log.logTable(42, 7);
+            log.logTables(new int[]{42, 43}, new int[]{8, 9}, 1);
+        }
+
+        assertEquals(List.of("added Zoë Valls null Spain 42 2 Engineering true 20 3 1", "drinks 42 2", "table 42 7", "table 42 8"), replay());
+    }
+
+    @Test
+    void replaysTheSealedLogBeforeTheActiveOne() throws IOException {
+        try (ChangeLog log = open()) {
+            log.logDrinks(1, 1);
+            log.seal();
+            log.logDrinks(1, 2);
+        }
+
+        assertEquals(List.of("drinks 1 1", "drinks 1 2"), replay());
+    }
+
+    @Test
+    void dropsATornRecordAndKeepsAppendingAfterTheValidOnes() throws IOException {
+        Path path = directory.resolve("Sallefest.log");
+        try (ChangeLog log = open()) {
+            log.logDrinks(1, 1);
+            log.logDrinks(1, 2);
+        }
+        long validLength = Files.size(path);
+        // a crash in the middle of a record leaves its frame and part of its payload
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(11).putInt(9).putInt(0x12345678).put((byte) 2).putShort((short) 0).flip());
+        }
+
+        assertEquals(List.of("drinks 1 1", "drinks 1 2"), replay());
+        assertEquals(validLength, Files.size(path));
+
+        try (ChangeLog log = open()) {
+            log.logDrinks(1, 3);
+        }
+        assertEquals(List.of("drinks 1 1", "drinks 1 2", "drinks 1 3"), replay());
+    }
+
+    @Test
+    void stopsAtARecordWithABadChecksum() throws IOException {
+        Path path = directory.resolve("Sallefest.log");
+        try (ChangeLog log = open()) {
+            log.logDrinks(1, 1);
+            log.logDrinks(2, 1);
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(path, bytes);
+
+        assertEquals(List.of("drinks 1 1"), replay());
+    }
+
+    @Test
+    void replaysAShippedRecord() throws IOException {
+        List<byte[]> shipped = new ArrayList<>();
+        try (ChangeLog log = open()) {
+            log.addListener(shipped::add);
+            log.logTable(5, 6);
+        }
+        RecordingReplayer replayer = new RecordingReplayer();
+
+        assertTrue(ChangeLog.replayRecord(shipped.get(0), replayer));
+        assertEquals(List.of("table 5 6"), replayer.records);
+        shipped.get(0)[shipped.get(0).length - 1] ^= 1;
+        assertFalse(ChangeLog.replayRecord(shipped.get(0), replayer));
+    }
+
+    @Test
+    void checksTheEncodedLengthOfAString() {
+        assertTrue(ChangeLog.fitsInRecord(null));
+        assertTrue(ChangeLog.fitsInRecord("a".repeat(65535)));
+        assertFalse(ChangeLog.fitsInRecord("a".repeat(65536)));
+        assertTrue(ChangeLog.fitsInRecord("é".repeat(32767)));
+        assertFalse(ChangeLog.fitsInRecord("é".repeat(32768)));
+        // writeUTF encodes the NUL character in two bytes
+        assertFalse(ChangeLog.fitsInRecord("\0".repeat(32768)));
+    }
+}
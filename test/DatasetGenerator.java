@@ -0,0 +1,45 @@
+package Persistence;
+
+import Business.Participant;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generates synthetic participants with the same shape as Sallefest.json and Tickets.json,
+ * used by the tests and to measure the application with large events. It is not shipped in the application:
+ * the benchmarks get it from the test jar.
+ */
+public class DatasetGenerator {
+    private static final String[] FIRST_NAMES = {"José", "Alejandro", "Elsa", "Jordi", "Pol", "Claudia", "Pedro", "Jesús", "Carles", "Alejandra", "Tomas", "Josep", "Núria", "Marta"};
+    private static final String[] SURNAMES = {"Manzano", "Lococo", "Lindo", "Malé", "Muñoz", "Valls", "González", "Fuente", "Sarri", "Coco", "Masó", "Carbonell", "Fernández", "Serrano"};
+    private static final String[] NATIONALITIES = {"Spain", "Argentina", "England", "Belgium", "China", "Chile", "Cuba", "Denmark", "Iceland", "Egipt"};
+    private static final String[] FIELDS = {"Engineering", "Architecture", "Animation", "Business"};
+    private static final int[] HOURS = {20, 22};
+    private static final int TABLES = 5;
+
+    /**
+     * Generates participants with unique ticket IDs from 1 to count, about two thirds of them with a ticket.
+     *
+     * @param count the number of participants to generate
+     * @param seed the seed of the random generator, so the same dataset can be generated again
+     * @return the generated participants
+     */
+    public static ArrayList<Participant> generate(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Participant> participants = new ArrayList<>(count);
+        int tables = Math.max(TABLES, count / 10);
+
+        for (int i = 1; i <= count; i++) {
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + SURNAMES[random.nextInt(SURNAMES.length)] + " " + SURNAMES[random.nextInt(SURNAMES.length)] + " " + i;
+            String birth = String.format("%d-%02d-%02d", 1995 + random.nextInt(8), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            boolean haveTicket = random.nextInt(3) != 0;
+
+            participants.add(new Participant(name, birth, NATIONALITIES[random.nextInt(NATIONALITIES.length)], i, 1 + random.nextInt(4),
+                    FIELDS[random.nextInt(FIELDS.length)], haveTicket,
+                    haveTicket ? HOURS[random.nextInt(HOURS.length)] : 0, haveTicket ? 1 + random.nextInt(tables) : 0, haveTicket ? random.nextInt(9) : 0));
+        }
+
+        return participants;
+    }
+}
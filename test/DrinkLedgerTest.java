@@ -0,0 +1,137 @@
+package Business;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the drink limits of DrinkLedger against a clock moved by hand: the limit per ticket, the limit per window,
+ * counted in whole five minute buckets, and the buckets reused once they are an hour old.
+ */
+class DrinkLedgerTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    private final AtomicLong clock = new AtomicLong(START);
+
+    /**
+     * Sets the clock of the ledger to some minutes after it was created.
+     *
+     * @param minutes the minutes since the ledger was created
+     */
+    private void at(double minutes) {
+        clock.set(START + (long) (minutes * MINUTE));
+    }
+
+    @Test
+    void rejectsLessThanOneDrink() {
+        DrinkLedger ledger = new DrinkLedger(0, 0, 60, clock::get);
+
+        assertEquals("At least one drink must be added", ledger.checkLimits(1, 0, 0));
+        assertNotNull(ledger.checkLimits(1, 0, -3));
+        assertNull(ledger.checkLimits(1, 1_000_000, 1_000));
+    }
+
+    @Test
+    void limitsTheDrinksOfATicket() {
+        DrinkLedger ledger = new DrinkLedger(10, 0, 60, clock::get);
+
+        assertNull(ledger.checkLimits(1, 9, 1));
+        assertEquals("The ticket already has 9 of its 10 drinks", ledger.checkLimits(1, 9, 2));
+        assertNotNull(ledger.checkLimits(1, Integer.MAX_VALUE, 1));
+    }
+
+    @Test
+    void limitsTheDrinksOfAnHour() {
+        DrinkLedger ledger = new DrinkLedger(0, 3, 60, clock::get);
+        ledger.record(1, 2);
+        at(30);
+        ledger.record(1, 1);
+
+        assertEquals("The ticket already had 3 drinks in the last 60 minutes, the limit is 3", ledger.checkLimits(1, 3, 1));
+        assertNull(ledger.checkLimits(2, 3, 3));
+        at(59);
+        assertNotNull(ledger.checkLimits(1, 3, 1));
+        // the first drinks leave the window with their bucket, an hour after its start
+        at(60);
+        assertNull(ledger.checkLimits(1, 3, 2));
+        assertNotNull(ledger.checkLimits(1, 3, 3));
+        at(95);
+        assertNull(ledger.checkLimits(1, 3, 3));
+    }
+
+    @Test
+    void countsAShortWindowInWholeBuckets() {
+        DrinkLedger ledger = new DrinkLedger(0, 2, 10, clock::get);
+        at(1);
+        ledger.record(1, 2);
+
+        at(4.9);
+        assertNotNull(ledger.checkLimits(1, 2, 1));
+        at(9.9);
+        assertNotNull(ledger.checkLimits(1, 2, 1));
+        at(10);
+        assertNull(ledger.checkLimits(1, 2, 1));
+        assertNull(ledger.checkLimits(1, 2, 2));
+    }
+
+    @Test
+    void countsTheDrinksOfTheLastHour() {
+        DrinkLedger ledger = new DrinkLedger(0, 0, 60, clock::get);
+        ledger.record(1, 3);
+        at(20);
+        ledger.record(1, 2);
+        at(40);
+        ledger.record(1, 1);
+
+        assertEquals(6, ledger.drinksInLastHour(1));
+        assertEquals(0, ledger.drinksInLastHour(2));
+        at(65);
+        assertEquals(3, ledger.drinksInLastHour(1));
+        at(125);
+        assertEquals(0, ledger.drinksInLastHour(1));
+    }
+
+    @Test
+    void resetsABucketReusedAnHourLater() {
+        DrinkLedger ledger = new DrinkLedger(0, 0, 60, clock::get);
+        ledger.record(1, 5);
+        at(60);
+        ledger.record(1, 1);
+
+        assertEquals(1, ledger.drinksInLastHour(1));
+        at(64);
+        ledger.record(1, 1);
+        assertEquals(2, ledger.drinksInLastHour(1));
+    }
+
+    @Test
+    void keepsTheLastAdditionsMostRecentFirst() {
+        DrinkLedger ledger = new DrinkLedger(0, 0, 60, clock::get);
+        for (int i = 1; i <= DrinkLedger.HISTORY + 4; i++) {
+            at(i);
+            ledger.record(1, i);
+        }
+
+        List<DrinkLedger.Entry> entries = ledger.recentDrinks(1);
+
+        assertEquals(DrinkLedger.HISTORY, entries.size());
+        assertEquals(new DrinkLedger.Entry(START + (DrinkLedger.HISTORY + 4) * MINUTE, DrinkLedger.HISTORY + 4), entries.get(0));
+        assertEquals(new DrinkLedger.Entry(START + 5 * MINUTE, 5), entries.get(DrinkLedger.HISTORY - 1));
+        assertEquals(List.of(), ledger.recentDrinks(2));
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new DrinkLedger(-1, 0, 60, clock::get));
+        assertThrows(IllegalArgumentException.class, () -> new DrinkLedger(0, -1, 60, clock::get));
+        assertThrows(IllegalArgumentException.class, () -> new DrinkLedger(0, 0, 0, clock::get));
+        assertThrows(IllegalArgumentException.class, () -> new DrinkLedger(0, 0, 61, clock::get));
+    }
+}
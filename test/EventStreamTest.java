@@ -0,0 +1,161 @@
+package Business;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that an EventStream delivers the events of every publisher in the order they were published, in batches
+ * no larger than asked, and that a subscriber lapped by the publishers skips to the oldest event still in the ring
+ * and is told how many it missed.
+ */
+class EventStreamTest {
+
+    /**
+     * A subscriber that keeps every event it receives and the events it missed.
+     */
+    private static class Recorder implements EventStream.Subscriber {
+        final List<ChangeEvent> events = new ArrayList<>();
+        final AtomicLong overruns = new AtomicLong();
+        int largestBatch;
+
+        @Override
+        public void onEvents(List<ChangeEvent> batch) {
+            events.addAll(batch);
+            largestBatch = Math.max(largestBatch, batch.size());
+        }
+
+        @Override
+        public void onOverrun(long missed) {
+            overruns.addAndGet(missed);
+        }
+    }
+
+    /**
+     * Builds an event that identifies its publisher and its place among the events of that publisher.
+     *
+     * @param publisher the publisher
+     * @param sequence the number of events the publisher published before
+     * @return the event
+     */
+    private static ChangeEvent event(int publisher, int sequence) {
+        return new ChangeEvent.DrinksAdded(0, publisher, 0, 1, sequence);
+    }
+
+    @Test
+    void dropsTheEventsPublishedWithoutSubscribers() {
+        EventStream stream = new EventStream(16);
+        stream.publish(event(0, 0));
+        assertFalse(stream.hasSubscribers());
+
+        Recorder recorder = new Recorder();
+        EventStream.Subscription subscription = stream.subscribe("test", recorder, 8);
+        assertTrue(stream.hasSubscribers());
+        stream.publish(event(0, 1));
+        subscription.close();
+
+        assertEquals(List.of(event(0, 1)), recorder.events);
+        assertFalse(stream.hasSubscribers());
+    }
+
+    @Test
+    void deliversTheEventsOfEveryPublisherInOrder() throws InterruptedException {
+        int publishers = 4;
+        int perPublisher = 10_000;
+        EventStream stream = new EventStream(EventStream.DEFAULT_CAPACITY);
+        Recorder recorder = new Recorder();
+        EventStream.Subscription subscription = stream.subscribe("test", recorder, 100);
+
+        Thread[] threads = new Thread[publishers];
+        for (int p = 0; p < publishers; p++) {
+            int publisher = p;
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < perPublisher; i++) {
+                    stream.publish(event(publisher, i));
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        subscription.close();
+
+        assertEquals(publishers * perPublisher, recorder.events.size());
+        assertEquals(publishers * perPublisher, subscription.getDelivered());
+        assertEquals(0, subscription.getMissed());
+        assertEquals(0, subscription.getLag());
+        assertTrue(recorder.largestBatch <= 100);
+        int[] next = new int[publishers];
+        for (ChangeEvent event : recorder.events) {
+            ChangeEvent.DrinksAdded drinks = (ChangeEvent.DrinksAdded) event;
+            assertEquals(next[drinks.ticketId()]++, drinks.total());
+        }
+    }
+
+    @Test
+    void skipsToTheOldestEventWhenLapped() throws InterruptedException {
+        EventStream stream = new EventStream(16);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder recorder = new Recorder() {
+            @Override
+            public void onEvents(List<ChangeEvent> batch) {
+                super.onEvents(batch);
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        EventStream.Subscription subscription = stream.subscribe("slow", recorder, 1);
+
+        stream.publish(event(0, 0));
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i <= 100; i++) {
+            stream.publish(event(0, i));
+        }
+        release.countDown();
+        subscription.close();
+
+        assertEquals(101, subscription.getDelivered() + subscription.getMissed());
+        assertEquals(subscription.getMissed(), recorder.overruns.get());
+        assertTrue(subscription.getMissed() >= 100 - 16, "missed " + subscription.getMissed());
+        assertEquals(event(0, 0), recorder.events.get(0));
+        assertEquals(event(0, 100), recorder.events.get(recorder.events.size() - 1));
+        int previous = -1;
+        for (ChangeEvent event : recorder.events) {
+            int sequence = ((ChangeEvent.DrinksAdded) event).total();
+            assertTrue(sequence > previous);
+            previous = sequence;
+        }
+    }
+
+    @Test
+    void keepsDeliveringAfterASubscriberFails() {
+        EventStream stream = new EventStream(16);
+        List<ChangeEvent> received = new ArrayList<>();
+        EventStream.Subscription subscription = stream.subscribe("failing", events -> {
+            received.addAll(events);
+            if (received.size() == 1) {
+                throw new IllegalStateException("the first batch fails on purpose");
+            }
+        }, 1);
+
+        stream.publish(event(0, 0));
+        stream.publish(event(0, 1));
+        subscription.close();
+
+        assertEquals(List.of(event(0, 0), event(0, 1)), received);
+    }
+}
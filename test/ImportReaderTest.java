@@ -0,0 +1,126 @@
+package Persistence;
+
+import Business.Participant;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that ImportReader reads quoted CSV values and the tickets of JSON lines, and rejects the headers, values
+ * and tickets that do not describe a participant.
+ */
+class ImportReaderTest {
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes an import file and opens it.
+     *
+     * @param name the name of the file, whose extension chooses the format
+     * @param content the content of the file
+     * @return the reader of the file
+     * @throws IOException if the file cannot be written or read
+     */
+    private ImportReader open(String name, String content) throws IOException {
+        Path file = directory.resolve(name);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return new ImportReader(file);
+    }
+
+    @Test
+    void readsQuotedCsvValuesInAnyColumnOrder() throws IOException, ParseException {
+        try (ImportReader reader = open("people.csv", "\uFEFFticketId,name,field,hour,table,drinks,nationality,birth,grade\n"
+                + "42,\"Zoë \"\"Q\"\", Jr.\",Engineering,20,3,1,Spain,2001-02-03,2\n"
+                + "\n"
+                + "43,Ana,\"Animation\",,,,,,\n")) {
+            List<String> lines = new ArrayList<>();
+            List<Long> lineNumbers = new ArrayList<>();
+
+            assertEquals(2, reader.readBatch(lines, lineNumbers, 10));
+            assertEquals(List.of(2L, 4L), lineNumbers);
+
+            Participant quoted = reader.parse(lines.get(0));
+            assertEquals("Zoë \"Q\", Jr.", quoted.getName());
+            assertEquals(42, quoted.getTicketId());
+            assertEquals("Engineering", quoted.getField());
+            assertEquals("2001-02-03", quoted.getBirth());
+            assertEquals(20, quoted.getTicket().getHour());
+            assertEquals(3, quoted.getTicket().getTable());
+            assertEquals(1, quoted.getTicket().getDrinks());
+
+            Participant withoutTicket = reader.parse(lines.get(1));
+            assertEquals("Animation", withoutTicket.getField());
+            assertNull(withoutTicket.getTicket());
+            assertNull(withoutTicket.getNationality());
+            assertEquals(0, reader.readBatch(lines, lineNumbers, 10));
+        }
+    }
+
+    @Test
+    void rejectsAnInvalidCsvHeader() {
+        assertThrows(IllegalArgumentException.class, () -> open("empty.csv", ""));
+        assertThrows(IllegalArgumentException.class, () -> open("unknown.csv", "ticketId,name,email\n"));
+        assertThrows(IllegalArgumentException.class, () -> open("repeated.csv", "ticketId,name,name\n"));
+        assertThrows(IllegalArgumentException.class, () -> open("noid.csv", "name,field\n"));
+    }
+
+    @Test
+    void rejectsInvalidCsvLines() throws IOException {
+        try (ImportReader reader = open("people.csv", "ticketId,name,hour\n")) {
+            assertEquals("Expected 3 values but found 2", assertThrows(IllegalArgumentException.class, () -> reader.parse("1,Ana")).getMessage());
+            assertEquals("Unterminated quoted value", assertThrows(IllegalArgumentException.class, () -> reader.parse("1,\"Ana,20")).getMessage());
+            assertEquals("Missing ticketId", assertThrows(IllegalArgumentException.class, () -> reader.parse(",Ana,20")).getMessage());
+            assertEquals("Invalid ticketId x1", assertThrows(IllegalArgumentException.class, () -> reader.parse("x1,Ana,20")).getMessage());
+            assertEquals("Invalid hour 8pm", assertThrows(IllegalArgumentException.class, () -> reader.parse("1,Ana,8pm")).getMessage());
+        }
+    }
+
+    @Test
+    void readsTheTicketOfAJsonLine() throws IOException, ParseException {
+        try (ImportReader reader = open("people.jsonl", "")) {
+            Participant ticketed = reader.parse("{\"name\":\"Zoë\",\"ticketId\":42,\"field\":\"Engineering\",\"ticket\":{\"hour\":20,\"table\":3,\"drinks\":2}}");
+            assertEquals("Zoë", ticketed.getName());
+            assertEquals(20, ticketed.getTicket().getHour());
+            assertEquals(3, ticketed.getTicket().getTable());
+            assertEquals(2, ticketed.getTicket().getDrinks());
+
+            assertNull(reader.parse("{\"ticketId\":1,\"ticket\":false,\"name\":\"Ana\"}").getTicket());
+            assertNull(reader.parse("{\"ticketId\":2,\"ticket\":null,\"name\":\"Ana\"}").getTicket());
+            assertEquals("Ana", reader.parse("{\"ticketId\":3,\"name\":\"Ana\"}").getName());
+        }
+    }
+
+    @Test
+    void rejectsATicketThatIsNotAnObject() throws IOException {
+        try (ImportReader reader = open("people.jsonl", "")) {
+            for (String ticket : new String[]{"true", "20", "\"20\"", "[20, 3, 0]"}) {
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                        () -> reader.parse("{\"ticketId\":1,\"ticket\":" + ticket + ",\"name\":\"Ana\"}"), ticket);
+                assertEquals("The ticket must be an object, false or null", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void rejectsInvalidJsonLines() throws IOException {
+        try (ImportReader reader = open("people.jsonl", "")) {
+            assertEquals("Missing ticketId", assertThrows(IllegalArgumentException.class, () -> reader.parse("{\"name\":\"Ana\"}")).getMessage());
+            assertEquals("Unknown attribute email", assertThrows(IllegalArgumentException.class, () -> reader.parse("{\"ticketId\":1,\"email\":\"a@b\"}")).getMessage());
+            assertEquals("Unknown ticket attribute seat", assertThrows(IllegalArgumentException.class, () -> reader.parse("{\"ticketId\":1,\"ticket\":{\"seat\":4}}")).getMessage());
+            assertThrows(ParseException.class, () -> reader.parse("{\"ticketId\":1} {}"));
+            assertEquals(14, assertThrows(ParseException.class, () -> reader.parse("{\"ticketId\":1 \"name\":\"Ana\"}")).getPosition());
+            assertThrows(ParseException.class, () -> reader.parse("{\"ticketId\":2147483648}"));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package Persistence;
+
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that JsonStreamReader decodes escapes, rejects numbers that do not fit, and reports the character
+ * position of a syntax error, also past the first buffer of the document.
+ */
+class JsonStreamReaderTest {
+
+    /**
+     * Builds a reader over a document kept in memory.
+     *
+     * @param json the document
+     * @return the reader
+     */
+    private static JsonStreamReader reader(String json) {
+        return new JsonStreamReader(new StringReader(json));
+    }
+
+    @Test
+    void readsEveryKindOfValue() throws IOException, ParseException {
+        JsonStreamReader reader = reader(" {\"name\": \"Ana\", \"grade\": -3, \"ticket\": false, \"field\": null, \"list\": [1, {}]} ");
+
+        reader.beginObject();
+        assertEquals("name", reader.nextName());
+        assertEquals("Ana", reader.nextString());
+        assertEquals("grade", reader.nextName());
+        assertEquals(-3, reader.nextInt());
+        assertEquals("ticket", reader.nextName());
+        assertFalse(reader.nextBoolean());
+        assertEquals("field", reader.nextName());
+        assertNull(reader.nextNullableString());
+        assertEquals("list", reader.nextName());
+        reader.skipValue();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals(JsonStreamReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    void decodesEscapes() throws IOException, ParseException {
+        JsonStreamReader reader = reader("[\"a\\\"b\\\\c\\/d\\n\\t\\r\\b\\f\", \"\\u00e9\\u4E2D\", \"\\ud83c\\udf7a\"]");
+
+        reader.beginArray();
+        assertEquals("a\"b\\c/d\n\t\r\b\f", reader.nextString());
+        assertEquals("é中", reader.nextString());
+        assertEquals("\uD83C\uDF7A", reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    void decodesAnEscapeSplitAcrossTheBuffer() throws IOException, ParseException {
+        String padding = "x".repeat(8_190);
+        JsonStreamReader reader = reader("[\"" + padding + "\\u00e9\"]");
+
+        reader.beginArray();
+        assertEquals(padding + "é", reader.nextString());
+        reader.endArray();
+    }
+
+    @Test
+    void rejectsAnInvalidEscape() throws IOException, ParseException {
+        JsonStreamReader reader = reader("[\"ab\\x\"]");
+
+        reader.beginArray();
+        ParseException e = assertThrows(ParseException.class, reader::nextString);
+        assertEquals(5, e.getPosition());
+        assertEquals(ParseException.ERROR_UNEXPECTED_CHAR, e.getErrorType());
+    }
+
+    @Test
+    void rejectsAnUnterminatedString() throws IOException, ParseException {
+        JsonStreamReader reader = reader("[\"abc");
+
+        reader.beginArray();
+        ParseException e = assertThrows(ParseException.class, reader::nextString);
+        assertEquals(5, e.getPosition());
+    }
+
+    @Test
+    void rejectsAnIntThatOverflows() throws IOException, ParseException {
+        JsonStreamReader reader = reader("[2147483647, -2147483648, 2147483648, -2147483649]");
+
+        reader.beginArray();
+        assertEquals(Integer.MAX_VALUE, reader.nextInt());
+        assertEquals(Integer.MIN_VALUE, reader.nextInt());
+        assertThrows(ParseException.class, reader::nextInt);
+        assertEquals(-2147483649L, reader.nextLong());
+        reader.endArray();
+    }
+
+    @Test
+    void rejectsALongThatOverflowsAndFractions() throws IOException, ParseException {
+        JsonStreamReader overflow = reader("[9223372036854775808]");
+        overflow.beginArray();
+        assertThrows(ParseException.class, overflow::nextLong);
+
+        JsonStreamReader fraction = reader("[1.5]");
+        fraction.beginArray();
+        ParseException e = assertThrows(ParseException.class, fraction::nextLong);
+        assertEquals(2, e.getPosition());
+    }
+
+    @Test
+    void reportsThePositionOfAnUnexpectedCharacter() throws IOException, ParseException {
+        JsonStreamReader reader = reader("{\"a\": 1 \"b\": 2}");
+
+        reader.beginObject();
+        reader.nextName();
+        reader.nextLong();
+        ParseException e = assertThrows(ParseException.class, reader::hasNext);
+        assertEquals(8, e.getPosition());
+        assertEquals('"', e.getUnexpectedObject());
+    }
+
+    @Test
+    void reportsThePositionPastTheFirstBuffer() throws IOException, ParseException {
+        String value = "y".repeat(20_000);
+        String json = "{\"a\": \"" + value + "\" ; }";
+        JsonStreamReader reader = reader(json);
+
+        reader.beginObject();
+        reader.nextName();
+        assertEquals(value, reader.nextString());
+        ParseException e = assertThrows(ParseException.class, reader::hasNext);
+        assertEquals(json.indexOf(';'), e.getPosition());
+    }
+
+    @Test
+    void reportsTheEndOfAnUnfinishedDocument() throws IOException, ParseException {
+        JsonStreamReader reader = reader("[1, 2");
+
+        reader.beginArray();
+        reader.nextLong();
+        reader.nextLong();
+        ParseException e = assertThrows(ParseException.class, reader::hasNext);
+        assertEquals(5, e.getPosition());
+        assertEquals(ParseException.ERROR_UNEXPECTED_TOKEN, e.getErrorType());
+    }
+}
@@ -0,0 +1,138 @@
+package Business;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the bucket bounds of LatencyHistogram, exact below 64 ns and within 1/32 above, and that its quantiles
+ * bound the exact quantiles of the recorded latencies from above with that error.
+ */
+class LatencyHistogramTest {
+
+    /**
+     * Finds the upper bound of the bucket of a latency, by recording it next to a much higher one.
+     *
+     * @param nanos the latency
+     * @return the highest latency of its bucket
+     */
+    private static long bucketBound(long nanos) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(nanos);
+        histogram.record(Long.MAX_VALUE);
+        return histogram.getQuantile(0.5);
+    }
+
+    @Test
+    void reportsZeroWhenEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getQuantile(0.99));
+        assertArrayEquals(new long[]{0, 0}, histogram.getQuantiles(new double[]{0.5, 1}));
+    }
+
+    @Test
+    void keepsSmallLatenciesExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int nanos = 0; nanos < 64; nanos++) {
+            histogram.record(nanos);
+            assertEquals(nanos, bucketBound(nanos));
+        }
+
+        assertEquals(64, histogram.getCount());
+        assertEquals(63 * 64 / 2, histogram.getSum());
+        assertEquals(31, histogram.getQuantile(0.5));
+        assertEquals(0, histogram.getQuantile(0));
+        assertEquals(63, histogram.getQuantile(1));
+    }
+
+    @Test
+    void splitsEveryPowerOfTwoIntoThirtyTwoBuckets() {
+        assertEquals(65, bucketBound(64));
+        assertEquals(65, bucketBound(65));
+        assertEquals(67, bucketBound(66));
+        assertEquals(127, bucketBound(126));
+        assertEquals(131, bucketBound(128));
+        assertEquals(1_007, bucketBound(1_000));
+        assertEquals(Long.MAX_VALUE, bucketBound(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void boundsEveryLatencyWithinOneThirtySecond() {
+        Random random = new Random(17);
+        for (int i = 0; i < 10_000; i++) {
+            long nanos = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            long bound = bucketBound(nanos);
+
+            assertTrue(bound >= nanos && bound - nanos <= nanos >>> 5, nanos + " in a bucket up to " + bound);
+            assertEquals(bound, bucketBound(bound));
+            if (bound < Long.MAX_VALUE) {
+                assertTrue(bucketBound(bound + 1) > bound);
+            }
+        }
+    }
+
+    @Test
+    void estimatesQuantilesFromAboveWithinTheBucketError() {
+        Random random = new Random(17);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] latencies = new long[100_000];
+        for (int i = 0; i < latencies.length; i++) {
+            // mostly around 200 us with a long tail, as the gate latencies
+            latencies[i] = (long) (200_000 * Math.exp(random.nextGaussian()));
+            histogram.record(latencies[i]);
+        }
+        Arrays.sort(latencies);
+        double[] quantiles = {0.5, 0.9, 0.99, 0.999, 1};
+
+        long[] estimates = histogram.getQuantiles(quantiles);
+
+        for (int q = 0; q < quantiles.length; q++) {
+            long exact = latencies[(int) Math.ceil(quantiles[q] * latencies.length) - 1];
+            assertTrue(estimates[q] >= exact && estimates[q] - exact <= exact >>> 5, "p" + quantiles[q] + ": " + estimates[q] + " for " + exact);
+            assertEquals(estimates[q], histogram.getQuantile(quantiles[q]));
+        }
+        assertEquals(latencies[latencies.length - 1], histogram.getMax());
+        assertEquals(histogram.getMax(), estimates[quantiles.length - 1]);
+        assertEquals(Arrays.stream(latencies).sum(), histogram.getSum());
+    }
+
+    @Test
+    void countsANegativeLatencyAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getSum());
+        assertEquals(0, histogram.getQuantile(1));
+    }
+
+    @Test
+    void losesNoLatencyRecordedConcurrently() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(1_000 + offset);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(100_000L * (1_000 + 1_001 + 1_002 + 1_003), histogram.getSum());
+        assertEquals(1_003, histogram.getMax());
+    }
+}
@@ -0,0 +1,162 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.DatasetGenerator;
+import Persistence.MappedSnapshot;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a LazyParticipantStore with a cache much smaller than its snapshot writes the changed tickets back
+ * when it evicts them and when asked to, and that remap folds the participants added since the snapshot into a
+ * new one without losing a ticket changed meanwhile.
+ */
+class LazyParticipantStoreTest {
+    private static final int PARTICIPANTS = 1_000;
+    private static final int CACHE = 16;
+
+    @TempDir
+    Path directory;
+
+    private ArrayList<Participant> dataset;
+    private int[] ticketedRows;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dataset = DatasetGenerator.generate(PARTICIPANTS, 19);
+        CustomerDao.saveParticipants(directory, dataset, SnapshotFormat.BINARY);
+        ArrayList<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < PARTICIPANTS; row++) {
+            if (dataset.get(row).getTicket() != null) {
+                rows.add(row);
+            }
+        }
+        ticketedRows = rows.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Copies every participant of a store.
+     *
+     * @param store the store
+     * @return the copies, in row order
+     */
+    private static ArrayList<Participant> copies(ParticipantStore store) {
+        ArrayList<Participant> copies = new ArrayList<>();
+        for (int row = 0; row < store.size(); row++) {
+            copies.add(store.copyOf(row));
+        }
+        return copies;
+    }
+
+    @Test
+    void keepsTheChangesOfTheRowsItEvicts() throws IOException {
+        LazyParticipantStore store = new LazyParticipantStore(CustomerDao.mapSavedSnapshot(directory), CACHE);
+
+        for (int row : ticketedRows) {
+            store.addDrinks(row, 3);
+            store.setTable(row, 7);
+        }
+
+        for (int row : ticketedRows) {
+            assertEquals(dataset.get(row).getTicket().getDrinks() + 3, store.getDrinks(row), "row " + row);
+            assertEquals(7, store.getTable(row), "row " + row);
+        }
+    }
+
+    @Test
+    void writesEveryChangeBackIntoTheSnapshot() throws IOException {
+        LazyParticipantStore store = new LazyParticipantStore(CustomerDao.mapSavedSnapshot(directory), CACHE);
+        for (int row : ticketedRows) {
+            store.addDrinks(row, 1);
+        }
+
+        assertTrue(store.writeBack());
+
+        MappedSnapshot saved = CustomerDao.mapSavedSnapshot(directory);
+        for (int row : ticketedRows) {
+            assertEquals(dataset.get(row).getTicket().getDrinks() + 1, saved.getDrinks(row), "row " + row);
+        }
+    }
+
+    @Test
+    void refusesToWriteBackWithParticipantsAddedAfterTheSnapshot() throws IOException {
+        LazyParticipantStore store = new LazyParticipantStore(CustomerDao.mapSavedSnapshot(directory), CACHE);
+
+        int row = store.add(new Participant("Late Comer", "2001-02-03", "Spain", PARTICIPANTS + 1, 2, "Engineering", true, 20, 3, 4));
+
+        assertEquals(PARTICIPANTS, row);
+        assertEquals(PARTICIPANTS + 1, store.size());
+        assertEquals(4, store.getDrinks(row));
+        assertFalse(store.writeBack());
+    }
+
+    @Test
+    void remapsOverANewSnapshotWithoutLosingAChangeMadeMeanwhile() throws IOException {
+        LazyParticipantStore store = new LazyParticipantStore(CustomerDao.mapSavedSnapshot(directory), CACHE);
+        int added = store.add(new Participant("Late Comer", "2001-02-03", "Spain", PARTICIPANTS + 1, 2, "Engineering", true, 20, 3, 4));
+        int first = ticketedRows[0];
+        int last = ticketedRows[ticketedRows.length - 1];
+        store.addDrinks(first, 1);
+
+        CustomerDao.saveParticipants(directory, copies(store), SnapshotFormat.BINARY);
+        // changed after the copy was saved, as a drink added during a compaction
+        store.addDrinks(last, 2);
+        store.addDrinks(added, 1);
+        for (int row : ticketedRows) {
+            store.getDrinks(row);
+        }
+
+        assertTrue(store.remap(CustomerDao.mapSavedSnapshot(directory)));
+        assertEquals(PARTICIPANTS + 1, store.size());
+        assertEquals(5, store.getDrinks(added));
+        assertTrue(store.writeBack());
+
+        MappedSnapshot saved = CustomerDao.mapSavedSnapshot(directory);
+        assertEquals(PARTICIPANTS + 1, saved.size());
+        assertEquals(dataset.get(first).getTicket().getDrinks() + 1, saved.getDrinks(first));
+        assertEquals(dataset.get(last).getTicket().getDrinks() + 2, saved.getDrinks(last));
+        assertEquals(5, saved.getDrinks(added));
+        assertEquals("Late Comer", saved.getName(added));
+    }
+
+    @Test
+    void refusesASnapshotThatDoesNotHoldItsRows() throws IOException {
+        LazyParticipantStore store = new LazyParticipantStore(CustomerDao.mapSavedSnapshot(directory), CACHE);
+        CustomerDao.saveParticipants(directory, new ArrayList<>(dataset.subList(0, 10)), SnapshotFormat.BINARY);
+
+        assertFalse(store.remap(CustomerDao.mapSavedSnapshot(directory)));
+        assertEquals(PARTICIPANTS, store.size());
+        assertEquals(dataset.get(PARTICIPANTS - 1).getName(), store.getName(PARTICIPANTS - 1));
+    }
+
+    @Test
+    void dropsADuplicatedTicketIdFromTheSnapshot() throws IOException, ParseException {
+        Participant original = dataset.get(41);
+        ArrayList<Participant> duplicated = new ArrayList<>(dataset);
+        duplicated.add(new Participant("Impostor", "2001-02-03", "Spain", original.getTicketId(), 2, "Engineering", true, 20, 3, 0));
+        CustomerDao.saveParticipants(directory, duplicated, SnapshotFormat.BINARY);
+
+        ParticipantManager manager = new ParticipantManager(directory, SnapshotFormat.BINARY, StoreLayout.LAZY);
+        try {
+            assertEquals(PARTICIPANTS, manager.countParticipants());
+            assertEquals(original.getName(), manager.findParticipant(original.getTicketId()).getName());
+            StringBuilder listing = new StringBuilder();
+            manager.listOfParticipants(listing, 0, Integer.MAX_VALUE);
+            assertFalse(listing.toString().contains("Impostor"));
+        } finally {
+            manager.close();
+        }
+        assertEquals(PARTICIPANTS, CustomerDao.mapSavedSnapshot(directory).size());
+    }
+}
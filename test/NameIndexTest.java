@@ -0,0 +1,126 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.DatasetGenerator;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that NameIndex finds names without regard to accents and case, by the start of their words in any order,
+ * and within a few typos when there are not enough prefix matches.
+ */
+class NameIndexTest {
+    private static final String[] NAMES = {
+            "José María Núñez",
+            "Jesús de la Fuente García",
+            "Joseph Smith",
+            "Zoë O'Brien-Smith",
+            "Anna Schmidt",
+            "Hannah Schmitt",
+            "Smith Smith",
+    };
+
+    @TempDir
+    Path directory;
+
+    private NameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NameIndex();
+        for (int row = 0; row < NAMES.length; row++) {
+            index.add(row, NAMES[row]);
+        }
+    }
+
+    /**
+     * Searches the index and sorts the rows found, for the searches whose order does not matter.
+     *
+     * @param query the query
+     * @return the rows found, sorted
+     */
+    private int[] sorted(String query) {
+        int[] rows = index.search(query, 10);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    @Test
+    void normalizesAccentsCaseAndSeparators() {
+        assertEquals("jose o brien garcia", NameIndex.normalize("  José  O'Brien-GARCÍA! "));
+        assertEquals("zoe nunez", NameIndex.normalize("Zoë Núñez"));
+        assertEquals("", NameIndex.normalize(null));
+        assertEquals("", NameIndex.normalize(" - "));
+    }
+
+    @Test
+    void findsNamesWithoutRegardToAccentsOrCase() {
+        assertArrayEquals(new int[]{0}, sorted("NUNEZ"));
+        assertArrayEquals(new int[]{0}, sorted("núñez"));
+        assertArrayEquals(new int[]{3}, sorted("zoe"));
+        assertArrayEquals(new int[]{1}, index.search("Garcia", 1));
+        assertArrayEquals(new int[]{0, 2}, sorted("jose"));
+    }
+
+    @Test
+    void findsTheStartOfEveryWordInAnyOrder() {
+        assertArrayEquals(new int[]{1}, sorted("garcia fuente"));
+        assertArrayEquals(new int[]{1}, sorted("fuente g"));
+        assertArrayEquals(new int[]{1}, sorted("jes de la"));
+        assertArrayEquals(new int[]{2}, sorted("jose smith"));
+        assertArrayEquals(new int[]{2, 3, 6}, sorted("smi"));
+        assertArrayEquals(new int[]{3}, sorted("o brien"));
+    }
+
+    @Test
+    void findsNamesWithinAFewTyposAfterThePrefixMatches() {
+        assertArrayEquals(new int[]{4, 5}, index.search("schmidt", 10));
+        // "maria" is within two typos of "garsia" too, and the trie is walked in label order
+        assertArrayEquals(new int[]{1, 0}, index.search("garsia", 10));
+        assertArrayEquals(new int[]{1}, sorted("fuetne"));
+        assertArrayEquals(new int[]{2}, sorted("jose smiht"));
+    }
+
+    @Test
+    void toleratesNoTypoInAShortWord() {
+        assertArrayEquals(new int[0], sorted("jx"));
+        assertArrayEquals(new int[0], sorted("xyz"));
+        assertArrayEquals(new int[0], sorted("smith xx"));
+    }
+
+    @Test
+    void stopsAtTheLimit() {
+        assertEquals(2, index.search("s", 2).length);
+        assertEquals(0, index.search("smith", 0).length);
+        assertEquals(0, index.search(" ", 10).length);
+    }
+
+    @Test
+    void findsTheParticipantsAddedAfterTheFirstSearch() throws IOException, ParseException {
+        CustomerDao.saveParticipants(directory, DatasetGenerator.generate(100, 21), SnapshotFormat.JSON);
+        ParticipantManager manager = new ParticipantManager(directory, SnapshotFormat.JSON, StoreLayout.OBJECTS);
+        try {
+            assertTrue(manager.searchByName("Núñez Zoë", 5).isEmpty());
+
+            manager.addParticipant("Zoë Núñez", "2001-02-03", "Spain", 1_001, 2, "Engineering", true, 20, 3, 0);
+
+            List<Participant> found = manager.searchByName("zoe nunez", 5);
+            assertEquals(1, found.size());
+            assertEquals(1_001, found.get(0).getTicketId());
+        } finally {
+            manager.close();
+        }
+    }
+}
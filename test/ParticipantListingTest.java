@@ -0,0 +1,149 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.DatasetGenerator;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that the listings of ParticipantManager, written a page at a time with an offset and a limit, add up to
+ * the whole listing, across the chunks the names are copied in and past the end of the participants.
+ */
+class ParticipantListingTest {
+    private static final int PARTICIPANTS = 1_000;
+
+    @TempDir
+    Path directory;
+
+    private ArrayList<Participant> dataset;
+    private ParticipantManager manager;
+
+    @BeforeEach
+    void setUp() throws IOException, ParseException {
+        dataset = DatasetGenerator.generate(PARTICIPANTS, 11);
+        CustomerDao.saveParticipants(directory, dataset, SnapshotFormat.JSON);
+        manager = new ParticipantManager(directory, SnapshotFormat.JSON, StoreLayout.OBJECTS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.close();
+    }
+
+    /**
+     * Joins the names of some participants, each followed by a separator.
+     *
+     * @param participants the participants
+     * @param separator the text written after every name
+     * @return the names
+     */
+    private static String names(Iterable<Participant> participants, String separator) {
+        StringBuilder names = new StringBuilder();
+        for (Participant participant : participants) {
+            names.append(participant.getName()).append(separator);
+        }
+        return names.toString();
+    }
+
+    @Test
+    void writesEveryParticipantInRowOrder() throws IOException {
+        StringBuilder out = new StringBuilder();
+
+        assertEquals(PARTICIPANTS, manager.listOfParticipants(out, 0, Integer.MAX_VALUE));
+        assertEquals(names(dataset, "\n"), out.toString());
+        assertEquals(PARTICIPANTS, manager.countParticipants());
+    }
+
+    @Test
+    void pagesAddUpToTheWholeListing() throws IOException {
+        for (int pageSize : new int[]{1, 7, 255, 256, 257, 999, 1_000}) {
+            StringBuilder out = new StringBuilder();
+            int total = 0;
+            for (int offset = 0; ; offset += pageSize) {
+                int written = manager.listOfParticipants(out, offset, pageSize);
+                total += written;
+                if (written < pageSize) {
+                    break;
+                }
+            }
+
+            assertEquals(PARTICIPANTS, total, "page size " + pageSize);
+            assertEquals(names(dataset, "\n"), out.toString(), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void writesAPageFromTheMiddle() throws IOException {
+        StringBuilder out = new StringBuilder();
+
+        assertEquals(300, manager.listOfParticipants(out, 400, 300));
+        assertEquals(names(dataset.subList(400, 700), "\n"), out.toString());
+    }
+
+    @Test
+    void writesNothingPastTheEndOrForAnEmptyLimit() throws IOException {
+        StringBuilder out = new StringBuilder();
+
+        assertEquals(0, manager.listOfParticipants(out, PARTICIPANTS, 10));
+        assertEquals(0, manager.listOfParticipants(out, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertEquals(0, manager.listOfParticipants(out, 0, 0));
+        assertEquals(0, manager.listOfParticipants(out, 0, -5));
+        assertEquals("", out.toString());
+        assertEquals(5, manager.listOfParticipants(out, PARTICIPANTS - 5, 10));
+        assertEquals(names(dataset.subList(PARTICIPANTS - 5, PARTICIPANTS), "\n"), out.toString());
+    }
+
+    @Test
+    void treatsANegativeOffsetAsTheStart() throws IOException {
+        StringBuilder out = new StringBuilder();
+
+        assertEquals(3, manager.listOfParticipants(out, -10, 3));
+        assertEquals(names(dataset.subList(0, 3), "\n"), out.toString());
+    }
+
+    @Test
+    void pagesTheStudentsOfAField() throws IOException {
+        String field = "Engineering";
+        ArrayList<Participant> students = new ArrayList<>();
+        for (Participant participant : dataset) {
+            if (field.equals(participant.getField())) {
+                students.add(participant);
+            }
+        }
+        StringBuilder out = new StringBuilder();
+        int total = 0;
+        for (int offset = 0; offset < students.size() + 50; offset += 50) {
+            total += manager.listStudentsFromField(field, out, offset, 50);
+        }
+
+        assertEquals(students.size(), total);
+        assertEquals(students.size(), manager.countStudentsFromField(field));
+        assertEquals(names(students, "\n\t"), out.toString());
+        assertEquals("\nParticipants from " + field + ":\n\t" + out, manager.listStudentsFromField(field));
+    }
+
+    @Test
+    void pagesTheParticipantsOfATable() throws IOException {
+        int table = dataset.stream().filter(participant -> participant.getTicket() != null).findFirst().orElseThrow().getTicket().getTable();
+        int seated = manager.countStudentsFromTable(table);
+        StringBuilder out = new StringBuilder();
+        int total = 0;
+        for (int offset = 0; offset <= seated; offset++) {
+            total += manager.listStudentsFromTable(table, out, offset, 1);
+        }
+
+        assertEquals(seated, total);
+        assertEquals("\nParticipants from table " + table + ":\n\t" + out, manager.listStudentsFromTable(table));
+        assertEquals(0, manager.listStudentsFromTable(Ticket.MAX_TABLE, new StringBuilder(), 0, 10));
+    }
+}
@@ -0,0 +1,92 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.DatasetGenerator;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests that no drink is lost when several gate scanners add drinks to the same tickets of one ParticipantManager
+ * at the same time, neither in memory nor after replaying the change log.
+ */
+class ParticipantManagerConcurrencyTest {
+    private static final int PARTICIPANTS = 1_000;
+    private static final int THREADS = 4;
+    private static final int DRINKS_PER_THREAD = 20_000;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(StoreLayout.class)
+    void losesNoDrinkAddedConcurrently(StoreLayout layout) throws IOException, ParseException, InterruptedException {
+        ArrayList<Participant> dataset = DatasetGenerator.generate(PARTICIPANTS, 7);
+        CustomerDao.saveParticipants(directory, dataset, SnapshotFormat.JSON);
+        // a few hot tickets get most of the drinks, so the threads contend on them
+        int[] ticketed = dataset.stream().filter(participant -> participant.getTicket() != null).mapToInt(Participant::getTicketId).limit(64).toArray();
+        AtomicLongArray expected = new AtomicLongArray(PARTICIPANTS + 1);
+        for (Participant participant : dataset) {
+            if (participant.getTicket() != null) {
+                expected.set(participant.getTicketId(), participant.getTicket().getDrinks());
+            }
+        }
+
+        ParticipantManager manager = new ParticipantManager(directory, SnapshotFormat.JSON, layout);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int seed = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < DRINKS_PER_THREAD; i++) {
+                    int ticketId = ticketed[(i * 31 + seed) % (i % 4 == 0 ? ticketed.length : 4)];
+                    if (manager.addDrink(ticketId, 1) >= 0) {
+                        expected.incrementAndGet(ticketId);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertDrinks(manager, ticketed, expected);
+        manager.close();
+        ParticipantManager replayed = new ParticipantManager(directory, SnapshotFormat.JSON, layout);
+        try {
+            assertDrinks(replayed, ticketed, expected);
+        } finally {
+            replayed.close();
+        }
+    }
+
+    /**
+     * Checks the drinks of every ticket that received drinks.
+     *
+     * @param manager the manager to check
+     * @param ticketIds the tickets that received drinks
+     * @param expected the drinks each ticket must have
+     */
+    private static void assertDrinks(ParticipantManager manager, int[] ticketIds, AtomicLongArray expected) {
+        for (int ticketId : ticketIds) {
+            assertEquals(expected.get(ticketId), manager.findParticipant(ticketId).getTicket().getDrinks(), "drinks of the ticket " + ticketId);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package Persistence;
+
+import Business.Participant;
+import Business.ParticipantManager;
+import Business.ReplicaStatus;
+import Business.StoreLayout;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a ReplicationClient connected to a ReplicationServer over a loopback socket installs the snapshot of
+ * the primary, applies the changes made on the primary in the order they were made and rejects the changes made on
+ * the replica, and that it refuses a directory whose change log holds records.
+ */
+class ReplicationTest {
+    private static final int PARTICIPANTS = 1_000;
+
+    @TempDir
+    Path directory;
+
+    private ParticipantManager primary;
+    private ReplicationServer server;
+
+    @BeforeEach
+    void setUp() throws IOException, ParseException {
+        Path primaryDirectory = directory.resolve("primary");
+        Files.createDirectories(primaryDirectory);
+        CustomerDao.saveParticipants(primaryDirectory, DatasetGenerator.generate(PARTICIPANTS, 24), SnapshotFormat.JSON);
+        primary = new ParticipantManager(primaryDirectory, SnapshotFormat.JSON, StoreLayout.OBJECTS);
+        server = new ReplicationServer(primary, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+        primary.close();
+    }
+
+    /**
+     * Waits until a replica has applied some records.
+     *
+     * @param status the progress of the replica
+     * @param records the records the replica must have applied
+     * @throws InterruptedException if the wait is interrupted
+     */
+    private static void awaitApplied(ReplicaStatus status, long records) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (status.getAppliedRecords() < records && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(records, status.getAppliedRecords());
+    }
+
+    /**
+     * Finds the ticket IDs of the participants that have a ticket.
+     *
+     * @param manager the manager of the participants
+     * @param count the number of ticket IDs to find
+     * @return the first ticket IDs with a ticket
+     */
+    private static List<Integer> ticketed(ParticipantManager manager, int count) {
+        List<Integer> ticketIds = new ArrayList<>();
+        for (int ticketId = 1; ticketId <= PARTICIPANTS && ticketIds.size() < count; ticketId++) {
+            if (manager.haveTicket(ticketId)) {
+                ticketIds.add(ticketId);
+            }
+        }
+        return ticketIds;
+    }
+
+    @Test
+    void installsTheSnapshotOfThePrimary() throws IOException, ParseException {
+        try (ReplicationClient client = ReplicationClient.connect("localhost", server.getPort(), directory.resolve("replica"), StoreLayout.OBJECTS)) {
+            ParticipantManager replica = client.getParticipantManager();
+
+            assertEquals(PARTICIPANTS, replica.countParticipants());
+            for (int ticketId = 1; ticketId <= PARTICIPANTS; ticketId += 37) {
+                Participant expected = primary.findParticipant(ticketId);
+                Participant actual = replica.findParticipant(ticketId);
+                assertEquals(expected.getName(), actual.getName());
+                assertEquals(expected.getField(), actual.getField());
+                assertEquals(primary.haveTicket(ticketId), replica.haveTicket(ticketId));
+            }
+            assertTrue(client.getStatus().isConnected());
+            assertEquals(1, server.getReplicas());
+            replica.close();
+        }
+    }
+
+    @Test
+    void appliesTheChangesOfThePrimaryInOrder() throws IOException, ParseException, InterruptedException {
+        try (ReplicationClient client = ReplicationClient.connect("localhost", server.getPort(), directory.resolve("replica"), StoreLayout.OBJECTS)) {
+            ParticipantManager replica = client.getParticipantManager();
+            List<Integer> ticketIds = ticketed(primary, 2);
+            int first = ticketIds.get(0);
+            int second = ticketIds.get(1);
+
+            // every change sets a total, so the replica only ends with the last ones if it applied them in order
+            for (int i = 0; i < 50; i++) {
+                primary.addDrink(first, 1);
+                primary.changeTable(second, i % 10);
+            }
+            assertTrue(primary.addParticipant("Zoë Núñez", "2001-02-03", "Spain", PARTICIPANTS + 1, 2, "Engineering", true, 20, 3, 0));
+            awaitApplied(client.getStatus(), 101);
+
+            assertEquals(primary.findParticipant(first).getTicket().getDrinks(), replica.findParticipant(first).getTicket().getDrinks());
+            assertEquals(9, replica.findParticipant(second).getTicket().getTable());
+            assertEquals("Zoë Núñez", replica.findParticipant(PARTICIPANTS + 1).getName());
+            assertEquals(PARTICIPANTS + 1, replica.countParticipants());
+            assertEquals(0, client.getStatus().getLagRecords());
+            replica.close();
+        }
+    }
+
+    @Test
+    void rejectsTheChangesMadeOnTheReplica() throws IOException, ParseException {
+        try (ReplicationClient client = ReplicationClient.connect("localhost", server.getPort(), directory.resolve("replica"), StoreLayout.OBJECTS)) {
+            ParticipantManager replica = client.getParticipantManager();
+            int ticketId = ticketed(primary, 1).get(0);
+            int drinks = replica.findParticipant(ticketId).getTicket().getDrinks();
+
+            assertEquals(ParticipantManager.DRINKS_REJECTED, replica.addDrink(ticketId, 1));
+            assertFalse(replica.changeTable(ticketId, 1));
+            assertFalse(replica.addParticipant("Ana", "2001-02-03", "Spain", PARTICIPANTS + 1, 2, "Engineering", true, 20, 3, 0));
+            assertEquals(drinks, replica.findParticipant(ticketId).getTicket().getDrinks());
+            assertNull(replica.findParticipant(PARTICIPANTS + 1));
+            replica.close();
+        }
+    }
+
+    @Test
+    void refusesADirectoryWhoseChangeLogHoldsRecords() throws IOException {
+        Path replicaDirectory = directory.resolve("replica");
+        Files.createDirectories(replicaDirectory);
+        Files.write(replicaDirectory.resolve("Sallefest.log"), new byte[]{1, 2, 3});
+
+        assertThrows(IOException.class, () -> ReplicationClient.connect("localhost", server.getPort(), replicaDirectory, StoreLayout.OBJECTS));
+        assertEquals(3, Files.size(replicaDirectory.resolve("Sallefest.log")));
+        assertFalse(CustomerDao.isBinarySnapshotCurrent(replicaDirectory));
+    }
+}
@@ -0,0 +1,163 @@
+package Business;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that SeatingPlanner never seats more participants at a table than it has seats, keeps the groups of an
+ * attribute at as few tables as possible, and in rebalance mode only moves the participants at overfull or
+ * unknown tables.
+ */
+class SeatingPlannerTest {
+
+    /**
+     * Builds a store of ticketed participants with the given fields, all at the given table.
+     *
+     * @param table the current table of every participant
+     * @param fields the field of each participant
+     * @return the store
+     */
+    private static ObjectParticipantStore store(int table, String... fields) {
+        ObjectParticipantStore store = new ObjectParticipantStore();
+        for (int i = 0; i < fields.length; i++) {
+            store.add(new Participant("Participant " + i, "2001-02-03", "Spain", i + 1, 2, fields[i], true, 20, table, 0));
+        }
+        return store;
+    }
+
+    /**
+     * Builds a store of ticketed participants of one field, all at the given table.
+     *
+     * @param table the current table of every participant
+     * @param count the number of participants
+     * @return the store
+     */
+    private static ObjectParticipantStore store(int table, int count) {
+        String[] fields = new String[count];
+        Arrays.fill(fields, "Engineering");
+        return store(table, fields);
+    }
+
+    /**
+     * Counts the participants planned at each table.
+     *
+     * @param plannedTables the planned table of each row
+     * @param tables the number of tables, including table 0
+     * @return the participants of each table
+     */
+    private static int[] occupancy(int[] plannedTables, int tables) {
+        int[] occupancy = new int[tables];
+        for (int table : plannedTables) {
+            if (table != SeatingPlanner.UNSEATED) {
+                occupancy[table]++;
+            }
+        }
+        return occupancy;
+    }
+
+    /**
+     * Counts the distinct tables of some rows of a plan.
+     *
+     * @param plannedTables the planned table of each row
+     * @param from the first row, inclusive
+     * @param to the last row, exclusive
+     * @return the number of tables used by the rows
+     */
+    private static long tablesOf(int[] plannedTables, int from, int to) {
+        return Arrays.stream(plannedTables, from, to).distinct().count();
+    }
+
+    @Test
+    void balancesTheTablesWithinTheirCapacity() {
+        int[] capacities = SeatingPlanner.uniformCapacities(10, 10);
+
+        int[] planned = new SeatingPlanner(store(0, 95), capacities).plan(null, false);
+
+        int[] occupancy = occupancy(planned, capacities.length);
+        assertEquals(0, occupancy[0]);
+        for (int table = 1; table < capacities.length; table++) {
+            assertTrue(occupancy[table] == 9 || occupancy[table] == 10, "table " + table + " has " + occupancy[table]);
+        }
+    }
+
+    @Test
+    void leavesUnseatedWhoDoesNotFit() {
+        int[] capacities = {0, 10, 0, 10};
+
+        int[] planned = new SeatingPlanner(store(0, 25), capacities).plan(null, false);
+
+        assertArrayEquals(new int[]{0, 10, 0, 10}, occupancy(planned, capacities.length));
+        assertEquals(5, Arrays.stream(planned).filter(table -> table == SeatingPlanner.UNSEATED).count());
+    }
+
+    @Test
+    void leavesTheParticipantsWithoutATicketAlone() {
+        ObjectParticipantStore store = store(4, 2);
+        store.add(new Participant("No Ticket", "2001-02-03", "Spain", 3, 2, "Engineering", false, 0, 0, 0));
+
+        int[] planned = new SeatingPlanner(store, SeatingPlanner.uniformCapacities(1, 10)).plan(null, false);
+
+        assertArrayEquals(new int[]{1, 1, 0}, planned);
+    }
+
+    @Test
+    void keepsEachGroupAtOneTableWhenItFits() {
+        String[] fields = new String[16];
+        Arrays.fill(fields, 0, 8, "Engineering");
+        Arrays.fill(fields, 8, 13, "Animation");
+        Arrays.fill(fields, 13, 16, "Business");
+
+        int[] planned = new SeatingPlanner(store(0, fields), SeatingPlanner.uniformCapacities(3, 10)).plan(GroupBy.FIELD, false);
+
+        assertEquals(1, tablesOf(planned, 0, 8));
+        assertEquals(1, tablesOf(planned, 8, 13));
+        assertEquals(1, tablesOf(planned, 13, 16));
+        assertEquals(3, tablesOf(planned, 0, 16));
+    }
+
+    @Test
+    void splitsALargeGroupAcrossAsFewTablesAsPossible() {
+        String[] fields = new String[17];
+        Arrays.fill(fields, 0, 15, "Engineering");
+        Arrays.fill(fields, 15, 17, "Animation");
+        int[] capacities = SeatingPlanner.uniformCapacities(4, 10);
+
+        int[] planned = new SeatingPlanner(store(0, fields), capacities).plan(GroupBy.FIELD, false);
+
+        assertEquals(2, tablesOf(planned, 0, 15));
+        assertEquals(1, tablesOf(planned, 15, 17));
+        for (int occupancy : occupancy(planned, capacities.length)) {
+            assertTrue(occupancy <= 10);
+        }
+    }
+
+    @Test
+    void rebalanceMovesOnlyTheParticipantsOfOverfullOrUnknownTables() {
+        ObjectParticipantStore store = store(1, 4);
+        store.add(new Participant("At Two", "2001-02-03", "Spain", 5, 2, "Engineering", true, 20, 2, 0));
+        store.add(new Participant("Nowhere", "2001-02-03", "Spain", 6, 2, "Engineering", true, 20, 99, 0));
+        int[] capacities = SeatingPlanner.uniformCapacities(3, 2);
+
+        int[] planned = new SeatingPlanner(store, capacities).plan(null, true);
+
+        assertEquals(1, planned[0]);
+        assertEquals(1, planned[1]);
+        assertEquals(2, planned[4]);
+        assertArrayEquals(new int[]{0, 2, 2, 2}, occupancy(planned, capacities.length));
+        assertTrue(planned[5] == 2 || planned[5] == 3);
+    }
+
+    @Test
+    void withoutRebalanceReseatsEveryone() {
+        int[] capacities = SeatingPlanner.uniformCapacities(3, 2);
+
+        int[] planned = new SeatingPlanner(store(1, 6), capacities).plan(null, false);
+
+        assertArrayEquals(new int[]{0, 2, 2, 2}, occupancy(planned, capacities.length));
+    }
+}
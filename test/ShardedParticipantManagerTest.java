@@ -0,0 +1,196 @@
+package Business;
+
+import Persistence.CustomerDao;
+import Persistence.DatasetGenerator;
+import Persistence.SnapshotFormat;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a ShardedParticipantManager routes every ticket ID to the shard whose range holds it, and that its
+ * listings are paged across the shards as if they were a single listing in shard order.
+ */
+class ShardedParticipantManagerTest {
+    private static final int PARTICIPANTS = 1_000;
+    private static final String SPECIFICATION = "north:1,centre:400,south:800,east:2000";
+
+    @TempDir
+    Path root;
+
+    private ArrayList<Participant> dataset;
+    private ShardedParticipantManager sharded;
+
+    /**
+     * Saves the participants with ticket IDs 1 to 399 in the north shard, 400 to 799 in the centre one and the rest
+     * in the south one, and leaves the east shard to be created empty.
+     *
+     * @throws IOException if the shards cannot be saved
+     * @throws ParseException if the shards cannot be loaded
+     */
+    @BeforeEach
+    void setUp() throws IOException, ParseException {
+        dataset = DatasetGenerator.generate(PARTICIPANTS, 18);
+        save("north", 1, 399);
+        save("centre", 400, 799);
+        save("south", 800, PARTICIPANTS);
+        sharded = ShardedParticipantManager.fromSpecification(root, SPECIFICATION, SnapshotFormat.JSON, StoreLayout.OBJECTS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sharded.close();
+    }
+
+    /**
+     * Saves a range of ticket IDs of the dataset as the data files of a shard.
+     *
+     * @param name the name of the shard
+     * @param first the first ticket ID, inclusive
+     * @param last the last ticket ID, inclusive
+     * @throws IOException if the shard cannot be saved
+     */
+    private void save(String name, int first, int last) throws IOException {
+        Files.createDirectories(root.resolve(name));
+        CustomerDao.saveParticipants(root.resolve(name), new ArrayList<>(dataset.subList(first - 1, last)), SnapshotFormat.JSON);
+    }
+
+    /**
+     * Joins the names of some participants, each followed by a new line.
+     *
+     * @param participants the participants
+     * @return the names
+     */
+    private static String names(List<Participant> participants) {
+        StringBuilder names = new StringBuilder();
+        for (Participant participant : participants) {
+            names.append(participant.getName()).append('\n');
+        }
+        return names.toString();
+    }
+
+    @Test
+    void routesEveryTicketIdToTheShardOfItsRange() {
+        int[] ticketIds = {Integer.MIN_VALUE, -5, 0, 1, 399, 400, 799, 800, 1_999, 2_000, Integer.MAX_VALUE};
+        int[] firstTicketIds = {1, 1, 1, 1, 1, 400, 400, 800, 800, 2_000, 2_000};
+
+        assertEquals(4, sharded.getShardCount());
+        assertEquals("east", sharded.getShardName(3));
+        for (int i = 0; i < ticketIds.length; i++) {
+            assertSame(sharded.shardFor(firstTicketIds[i]), sharded.shardFor(ticketIds[i]), "ticket " + ticketIds[i]);
+        }
+        assertEquals(4, List.of(sharded.shardFor(1), sharded.shardFor(400), sharded.shardFor(800), sharded.shardFor(2_000)).stream().distinct().count());
+    }
+
+    @Test
+    void findsEveryTicketInItsShard() {
+        for (Participant participant : dataset) {
+            int ticketId = participant.getTicketId();
+            assertEquals(participant.getTicket() != null, sharded.haveTicket(ticketId));
+            assertEquals(participant.getName(), sharded.findParticipant(ticketId).getName());
+            assertTrue(sharded.shardFor(ticketId).isRegistered(ticketId));
+        }
+        assertFalse(sharded.haveTicket(PARTICIPANTS + 1));
+        assertNull(sharded.findParticipant(-1));
+    }
+
+    @Test
+    void addsAParticipantToTheShardThatOwnsItsTicketId() {
+        assertTrue(sharded.addParticipant("Late Comer", "2001-02-03", "Spain", 2_500, 2, "Engineering", true, 20, 3, 0));
+        assertFalse(sharded.addParticipant("Impostor", "2001-02-03", "Spain", 450, 2, "Engineering", true, 20, 3, 0));
+
+        assertTrue(sharded.shardFor(2_000).isRegistered(2_500));
+        assertFalse(sharded.shardFor(1).isRegistered(2_500));
+        assertEquals(1, sharded.shardFor(2_000).countParticipants());
+        assertEquals(400, sharded.shardFor(400).countParticipants());
+    }
+
+    @Test
+    void pagesTheListingAcrossTheShards() throws IOException {
+        for (int pageSize : new int[]{1, 7, 399, 400, 401, 1_000}) {
+            StringBuilder out = new StringBuilder();
+            int total = 0;
+            for (int offset = 0; offset <= PARTICIPANTS; offset += pageSize) {
+                total += sharded.listOfParticipants(out, offset, pageSize);
+            }
+
+            assertEquals(PARTICIPANTS, total, "page size " + pageSize);
+            assertEquals(names(dataset), out.toString(), "page size " + pageSize);
+        }
+    }
+
+    @Test
+    void writesAPageThatSpansThreeShards() throws IOException {
+        StringBuilder out = new StringBuilder();
+
+        assertEquals(500, sharded.listOfParticipants(out, 350, 500));
+        assertEquals(names(dataset.subList(350, 850)), out.toString());
+    }
+
+    @Test
+    void writesNothingPastTheLastShard() throws IOException {
+        StringBuilder out = new StringBuilder();
+
+        assertEquals(0, sharded.listOfParticipants(out, PARTICIPANTS, 10));
+        assertEquals(0, sharded.listOfParticipants(out, 0, 0));
+        assertEquals(3, sharded.listOfParticipants(out, PARTICIPANTS - 3, Integer.MAX_VALUE));
+        assertEquals(names(dataset.subList(PARTICIPANTS - 3, PARTICIPANTS)), out.toString());
+    }
+
+    @Test
+    void pagesTheStudentsOfAFieldAcrossTheShards() throws IOException {
+        String field = "Animation";
+        StringBuilder expected = new StringBuilder();
+        int students = 0;
+        for (Participant participant : dataset) {
+            if (field.equals(participant.getField())) {
+                expected.append(participant.getName()).append("\n\t");
+                students++;
+            }
+        }
+        StringBuilder out = new StringBuilder();
+        int total = 0;
+        for (int offset = 0; offset < students; offset += 60) {
+            total += sharded.listStudentsFromField(field, out, offset, 60);
+        }
+
+        assertEquals(students, total);
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    void mergesTheAggregationsOfEveryShard() throws IOException {
+        Aggregation aggregation = sharded.aggregate(GroupBy.FIELD);
+
+        long participants = 0;
+        for (Object key : aggregation.getKeys()) {
+            long expected = dataset.stream().filter(participant -> key.equals(participant.getField())).count();
+            assertEquals(expected, aggregation.getParticipants(key), key.toString());
+            participants += aggregation.getParticipants(key);
+        }
+        assertEquals(PARTICIPANTS, participants);
+    }
+
+    @Test
+    void rejectsAnInvalidSpecification() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ShardedParticipantManager.fromSpecification(root, "north:1,south", SnapshotFormat.JSON, StoreLayout.OBJECTS));
+        assertThrows(IllegalArgumentException.class,
+                () -> ShardedParticipantManager.fromSpecification(root, "north:10,south:10", SnapshotFormat.JSON, StoreLayout.OBJECTS));
+    }
+}
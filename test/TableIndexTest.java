@@ -0,0 +1,117 @@
+package Business;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the edge cases of TableIndex: negative, large and empty tables, and participants leaving a table.
+ */
+class TableIndexTest {
+
+    /**
+     * Retrieves the rows seated at a table, sorted.
+     *
+     * @param index the index
+     * @param table the table number
+     * @return the rows of the table
+     */
+    private static int[] rows(TableIndex index, int table) {
+        int[] rows = new int[index.size(table)];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = index.get(table, i);
+        }
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    @Test
+    void ignoresNegativeTables() {
+        TableIndex index = new TableIndex();
+        index.add(-1, 0);
+        index.remove(-1, 0);
+
+        assertEquals(0, index.size(-1));
+        assertEquals(0, index.size(Integer.MIN_VALUE));
+    }
+
+    @Test
+    void reportsAnEmptyTableBeyondTheKnownOnes() {
+        TableIndex index = new TableIndex();
+        index.add(1, 0);
+
+        assertEquals(0, index.size(2));
+        assertEquals(0, index.size(1 << 20));
+        assertEquals(0, index.size(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void seatsParticipantsAtLargeTables() {
+        TableIndex index = new TableIndex();
+        index.add(Ticket.MAX_TABLE, 0);
+        index.add(Integer.MAX_VALUE, 1);
+        index.add(1 << 16, 2);
+        index.add((1 << 16) - 1, 3);
+
+        assertArrayEquals(new int[]{0}, rows(index, Ticket.MAX_TABLE));
+        assertArrayEquals(new int[]{1}, rows(index, Integer.MAX_VALUE));
+        assertArrayEquals(new int[]{2}, rows(index, 1 << 16));
+        assertArrayEquals(new int[]{3}, rows(index, (1 << 16) - 1));
+    }
+
+    @Test
+    void keepsTheOtherRowsWhenAParticipantLeaves() {
+        TableIndex index = new TableIndex();
+        for (int row = 0; row < 100; row++) {
+            index.add(row % 2, row);
+        }
+
+        index.remove(0, 0);
+        index.remove(0, 50);
+        index.remove(0, 98);
+
+        assertEquals(47, index.size(0));
+        int[] expected = new int[47];
+        for (int i = 0, row = 2; row < 98; row += 2) {
+            if (row != 50) {
+                expected[i++] = row;
+            }
+        }
+        assertArrayEquals(expected, rows(index, 0));
+        assertEquals(50, index.size(1));
+    }
+
+    @Test
+    void ignoresARowThatIsNotAtTheTable() {
+        TableIndex index = new TableIndex();
+        index.add(1, 0);
+        index.add(2, 1);
+
+        index.remove(1, 1);
+        index.remove(3, 0);
+        index.remove(1, 1_000);
+        index.remove(1, 0);
+        index.remove(1, 0);
+
+        assertEquals(0, index.size(1));
+        assertArrayEquals(new int[]{1}, rows(index, 2));
+    }
+
+    @Test
+    void movesAParticipantBetweenTables() {
+        TableIndex index = new TableIndex();
+        index.add(1, 0);
+        index.add(1, 1);
+
+        index.remove(1, 0);
+        index.add(70_000, 0);
+        index.remove(70_000, 0);
+        index.add(1, 0);
+
+        assertArrayEquals(new int[]{0, 1}, rows(index, 1));
+        assertEquals(0, index.size(70_000));
+    }
+}
@@ -0,0 +1,121 @@
+package Business;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that TicketFilter never rejects an ID it was given, and that the rate of unknown IDs it accepts,
+ * measured over IDs it was never given, stays near the target rate and the rate it estimates.
+ */
+class TicketFilterTest {
+    private static final int IDS = 200_000;
+    private static final int PROBES = 1_000_000;
+
+    /**
+     * Measures the rate of IDs accepted among consecutive IDs that were never added.
+     *
+     * @param filter the filter
+     * @param firstUnknownId the first ID that was never added
+     * @return the fraction of the probed IDs that were accepted
+     */
+    private static double measuredFalsePositiveRate(TicketFilter filter, int firstUnknownId) {
+        int accepted = 0;
+        for (int i = 0; i < PROBES; i++) {
+            if (filter.mightContain(firstUnknownId + i)) {
+                accepted++;
+            }
+        }
+        return (double) accepted / PROBES;
+    }
+
+    @Test
+    void neverRejectsAnAddedId() {
+        TicketFilter filter = new TicketFilter(IDS, 0.01);
+        Random random = new Random(16);
+        int[] ids = new int[IDS];
+        for (int i = 0; i < IDS; i++) {
+            ids[i] = i % 2 == 0 ? i + 1 : random.nextInt();
+            filter.add(ids[i]);
+        }
+        filter.add(0);
+        filter.add(Integer.MIN_VALUE);
+        filter.add(Integer.MAX_VALUE);
+
+        for (int id : ids) {
+            assertTrue(filter.mightContain(id), "ticket " + id);
+        }
+        assertTrue(filter.mightContain(0));
+        assertTrue(filter.mightContain(Integer.MIN_VALUE));
+        assertTrue(filter.mightContain(Integer.MAX_VALUE));
+        assertEquals(IDS + 3, filter.size());
+    }
+
+    @Test
+    void acceptsFewUnknownIdsAtTheTargetRate() {
+        for (double target : new double[]{0.05, 0.01, 0.001}) {
+            TicketFilter filter = new TicketFilter(IDS, target);
+            for (int id = 1; id <= IDS; id++) {
+                filter.add(id);
+            }
+
+            double measured = measuredFalsePositiveRate(filter, IDS + 1);
+            double estimated = filter.estimatedFalsePositiveRate();
+
+            assertTrue(measured < target * 1.5, "target " + target + ", measured " + measured);
+            assertTrue(Math.abs(measured - estimated) < target * 0.5, "estimated " + estimated + ", measured " + measured);
+        }
+    }
+
+    @Test
+    void staysCorrectButLessAccurateWhenOverfilled() {
+        TicketFilter filter = new TicketFilter(IDS / 4, 0.01);
+        for (int id = 1; id <= IDS; id++) {
+            filter.add(id);
+        }
+
+        for (int id = 1; id <= IDS; id++) {
+            assertTrue(filter.mightContain(id));
+        }
+        double measured = measuredFalsePositiveRate(filter, IDS + 1);
+        assertTrue(measured > 0.1, "measured " + measured);
+        assertTrue(filter.estimatedFalsePositiveRate() > 0.1);
+    }
+
+    @Test
+    void rejectsEverythingWhenEmpty() {
+        TicketFilter filter = new TicketFilter(0, 0.01);
+        HashSet<Integer> accepted = new HashSet<>();
+        for (int id = -1_000; id <= 1_000; id++) {
+            if (filter.mightContain(id)) {
+                accepted.add(id);
+            }
+        }
+
+        assertTrue(accepted.isEmpty());
+        assertEquals(0, filter.estimatedFalsePositiveRate());
+        assertEquals(8, filter.getMemoryBytes());
+    }
+
+    @Test
+    void sizesTheBitsForTheTargetRate() {
+        // about 9.6 bits per ID for 1%
+        TicketFilter filter = new TicketFilter(IDS, 0.01);
+
+        assertTrue(filter.getMemoryBytes() >= IDS * 9.5 / 8 && filter.getMemoryBytes() <= IDS * 9.7 / 8 + 8, filter.toString());
+        assertFalse(filter.mightContain(1));
+    }
+
+    @Test
+    void rejectsAnInvalidRate() {
+        assertThrows(IllegalArgumentException.class, () -> new TicketFilter(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TicketFilter(10, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TicketFilter(10, -0.5));
+    }
+}
@@ -0,0 +1,62 @@
+package Business;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests the edge cases of TicketIndex: unknown and extreme ticket IDs, duplicates and growth.
+ */
+class TicketIndexTest {
+
+    @Test
+    void findsNothingInAnEmptyIndex() {
+        TicketIndex index = new TicketIndex(0);
+
+        assertEquals(TicketIndex.NOT_FOUND, index.get(0));
+        assertEquals(TicketIndex.NOT_FOUND, index.get(-1));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void indexesExtremeTicketIdsAndRowZero() {
+        TicketIndex index = new TicketIndex(4);
+
+        assertEquals(TicketIndex.NOT_FOUND, index.putIfAbsent(0, 0));
+        assertEquals(TicketIndex.NOT_FOUND, index.putIfAbsent(-1, 1));
+        assertEquals(TicketIndex.NOT_FOUND, index.putIfAbsent(Integer.MIN_VALUE, 2));
+        assertEquals(TicketIndex.NOT_FOUND, index.putIfAbsent(Integer.MAX_VALUE, 3));
+
+        assertEquals(0, index.get(0));
+        assertEquals(1, index.get(-1));
+        assertEquals(2, index.get(Integer.MIN_VALUE));
+        assertEquals(3, index.get(Integer.MAX_VALUE));
+        assertEquals(TicketIndex.NOT_FOUND, index.get(1));
+    }
+
+    @Test
+    void keepsTheFirstRowOfADuplicatedTicketId() {
+        TicketIndex index = new TicketIndex(4);
+        index.putIfAbsent(42, 7);
+
+        assertEquals(7, index.putIfAbsent(42, 8));
+        assertEquals(7, index.get(42));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void keepsEveryEntryWhileGrowing() {
+        TicketIndex index = new TicketIndex(1);
+        int count = 100_000;
+        // multiples of a power of two collide in a plain modulo table
+        for (int row = 0; row < count; row++) {
+            assertEquals(TicketIndex.NOT_FOUND, index.putIfAbsent(row << 12, row));
+        }
+
+        assertEquals(count, index.size());
+        for (int row = 0; row < count; row++) {
+            assertEquals(row, index.get(row << 12));
+        }
+        assertEquals(TicketIndex.NOT_FOUND, index.get(1));
+    }
+}
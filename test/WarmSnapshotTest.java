@@ -0,0 +1,98 @@
+package Persistence;
+
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that the binary snapshot of a directory only counts as current while both JSON files are older than it,
+ * so a JSON file written within the same tick of a coarse file system clock makes it be written again.
+ */
+class WarmSnapshotTest {
+    private static final FileTime SNAPSHOT_TIME = FileTime.fromMillis(1_700_000_000_000L);
+    private static final FileTime BEFORE = FileTime.fromMillis(SNAPSHOT_TIME.toMillis() - 10_000);
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        CustomerDao.saveParticipants(directory, DatasetGenerator.generate(100, 25), SnapshotFormat.JSON);
+    }
+
+    /**
+     * Finds the binary snapshot of the directory.
+     *
+     * @return the path of the only binary snapshot
+     * @throws IOException if the directory cannot be listed
+     */
+    private Path snapshot() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = files.filter(file -> file.getFileName().toString().endsWith(".bin")).collect(Collectors.toList());
+            assertEquals(1, snapshots.size(), snapshots.toString());
+            return snapshots.get(0);
+        }
+    }
+
+    /**
+     * Sets the modification times of the JSON files and of the binary snapshot.
+     *
+     * @param participantsTime the modification time of Sallefest.json
+     * @param ticketsTime the modification time of Tickets.json
+     * @throws IOException if a modification time cannot be set
+     */
+    private void setTimes(FileTime participantsTime, FileTime ticketsTime) throws IOException {
+        Files.setLastModifiedTime(snapshot(), SNAPSHOT_TIME);
+        Files.setLastModifiedTime(directory.resolve("Sallefest.json"), participantsTime);
+        Files.setLastModifiedTime(directory.resolve("Tickets.json"), ticketsTime);
+    }
+
+    @Test
+    void isNotCurrentWithoutASnapshot() throws IOException {
+        assertFalse(CustomerDao.isBinarySnapshotCurrent(directory));
+    }
+
+    @Test
+    void isCurrentWhileBothJsonFilesAreOlder() throws IOException, ParseException {
+        assertTrue(CustomerDao.refreshBinarySnapshot(directory));
+        setTimes(BEFORE, BEFORE);
+
+        assertTrue(CustomerDao.isBinarySnapshotCurrent(directory));
+        assertFalse(CustomerDao.refreshBinarySnapshot(directory));
+    }
+
+    @Test
+    void isNotCurrentWhenAJsonFileHasTheSameModificationTime() throws IOException, ParseException {
+        assertTrue(CustomerDao.refreshBinarySnapshot(directory));
+
+        setTimes(SNAPSHOT_TIME, BEFORE);
+        assertFalse(CustomerDao.isBinarySnapshotCurrent(directory));
+        setTimes(BEFORE, SNAPSHOT_TIME);
+        assertFalse(CustomerDao.isBinarySnapshotCurrent(directory));
+
+        assertTrue(CustomerDao.refreshBinarySnapshot(directory));
+        setTimes(BEFORE, BEFORE);
+        assertTrue(CustomerDao.isBinarySnapshotCurrent(directory));
+    }
+
+    @Test
+    void isNotCurrentWhenAJsonFileIsNewer() throws IOException, ParseException {
+        assertTrue(CustomerDao.refreshBinarySnapshot(directory));
+        setTimes(BEFORE, FileTime.fromMillis(SNAPSHOT_TIME.toMillis() + 1));
+
+        assertFalse(CustomerDao.isBinarySnapshotCurrent(directory));
+    }
+}